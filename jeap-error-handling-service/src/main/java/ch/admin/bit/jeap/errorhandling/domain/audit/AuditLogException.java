@@ -6,7 +6,7 @@ public class AuditLogException extends RuntimeException {
         super(message);
     }
 
-    static AuditLogException noAuthenticatedUserException() {
+    public static AuditLogException noAuthenticatedUserException() {
         return new AuditLogException("The audit log requires an authenticated user.");
     }
 
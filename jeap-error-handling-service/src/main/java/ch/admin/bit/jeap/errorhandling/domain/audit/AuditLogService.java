@@ -10,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,6 +29,21 @@ public class AuditLogService {
         logAction(error.getId(), AuditedAction.DELETE_ERROR);
     }
 
+    /**
+     * Logs the resend of the causing events of the given errors on behalf of the given user, e.g. the user who
+     * submitted a bulk operation running in the background
+     */
+    public void logResendCausingEvents(Collection<Error> errors, User user) {
+        logActions(errors, AuditedAction.RESEND_CAUSING_EVENT, user);
+    }
+
+    /**
+     * Logs the deletion of the given errors on behalf of the given user, see {@link #logResendCausingEvents}
+     */
+    public void logDeleteErrors(Collection<Error> errors, User user) {
+        logActions(errors, AuditedAction.DELETE_ERROR, user);
+    }
+
     public List<AuditLog> getAuditLogs(UUID errorId) {
         return auditLogRepository.findAllByErrorId(errorId);
     }
@@ -44,4 +60,17 @@ public class AuditLogService {
         auditLogRepository.save(auditLog);
     }
 
+    private void logActions(Collection<Error> errors, AuditedAction action, User user) {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<AuditLog> auditLogs = errors.stream()
+                .map(error -> AuditLog.builder()
+                        .user(user)
+                        .errorId(error.getId())
+                        .action(action)
+                        .created(now)
+                        .build())
+                .toList();
+        auditLogRepository.saveAll(auditLogs);
+    }
+
 }
@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.errorhandling.domain.bulk;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Configuration properties for {@link BulkOperationService}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.bulk-operation")
+@Data
+class BulkOperationProperties {
+    /**
+     * Number of errors resent or deleted in one transaction
+     */
+    private int batchSize = 200;
+    /**
+     * Maximal number of bulk operations running at the same time on an instance. Further operations are rejected
+     * until one of them has finished.
+     */
+    private int concurrency = 2;
+    /**
+     * Time without progress after which an unfinished bulk operation is considered interrupted, e.g. because the
+     * instance running it has been stopped. Must be longer than processing one batch of errors takes.
+     */
+    private Duration staleAfter = Duration.of(10, ChronoUnit.MINUTES);
+}
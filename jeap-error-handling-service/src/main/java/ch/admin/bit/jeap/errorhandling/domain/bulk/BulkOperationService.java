@@ -0,0 +1,205 @@
+package ch.admin.bit.jeap.errorhandling.domain.bulk;
+
+import ch.admin.bit.jeap.errorhandling.domain.audit.AuditLogException;
+import ch.admin.bit.jeap.errorhandling.domain.error.BulkBatchResult;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.user.UserService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation.State;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperationRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCursor;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupListSearchSpecification;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorSearchSpecification;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
+import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupListSearchCriteria;
+import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchCriteria;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resends or deletes all errors matching a search or of an error group in the background. The matching errors are
+ * read batch by batch following a cursor, each batch is processed in one transaction by {@link ErrorService}, with the
+ * causing events of a batch being resent in one go. The progress is stored after every batch, so that it can be read
+ * on any instance.
+ */
+@Service
+@Slf4j
+public class BulkOperationService {
+
+    private static final int RECENT_OPERATIONS = 20;
+
+    private final BulkOperationRepository bulkOperationRepository;
+    private final ErrorRepository errorRepository;
+    private final ErrorService errorService;
+    private final UserService userService;
+    private final BulkOperationProperties bulkOperationProperties;
+    private final ThreadPoolExecutor executorService;
+
+    BulkOperationService(BulkOperationRepository bulkOperationRepository, ErrorRepository errorRepository, ErrorService errorService,
+                         UserService userService, BulkOperationProperties bulkOperationProperties) {
+        this.bulkOperationRepository = bulkOperationRepository;
+        this.errorRepository = errorRepository;
+        this.errorService = errorService;
+        this.userService = userService;
+        this.bulkOperationProperties = bulkOperationProperties;
+        // Operations are not queued on the instance, so that an operation not started yet is never mistaken as interrupted
+        this.executorService = new ThreadPoolExecutor(bulkOperationProperties.getConcurrency(), bulkOperationProperties.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), new CustomizableThreadFactory("bulk-operation-"));
+    }
+
+    /**
+     * @throws IllegalStateException if the maximal number of bulk operations is running on this instance already
+     */
+    public BulkOperation submitResend(ErrorSearchCriteria criteria) {
+        return submit(BulkOperation.resend(null, getAuthenticatedUser()), ErrorSearchSpecification.fromCriteria(criteria));
+    }
+
+    /**
+     * @param reason the closing reason of the deleted errors, at most 1000 characters, optional
+     * @throws IllegalStateException if the maximal number of bulk operations is running on this instance already
+     */
+    public BulkOperation submitDelete(ErrorSearchCriteria criteria, String reason) {
+        checkReason(reason);
+        return submit(BulkOperation.delete(null, reason, getAuthenticatedUser()), ErrorSearchSpecification.fromCriteria(criteria));
+    }
+
+    /**
+     * @throws IllegalStateException if the maximal number of bulk operations is running on this instance already
+     */
+    public BulkOperation submitResend(UUID errorGroupId, ErrorGroupListSearchCriteria criteria) {
+        return submit(BulkOperation.resend(errorGroupId, getAuthenticatedUser()),
+                ErrorGroupListSearchSpecification.fromCriteria(errorGroupId, criteria));
+    }
+
+    /**
+     * @param reason the closing reason of the deleted errors, at most 1000 characters, optional
+     * @throws IllegalStateException if the maximal number of bulk operations is running on this instance already
+     */
+    public BulkOperation submitDelete(UUID errorGroupId, ErrorGroupListSearchCriteria criteria, String reason) {
+        checkReason(reason);
+        return submit(BulkOperation.delete(errorGroupId, reason, getAuthenticatedUser()),
+                ErrorGroupListSearchSpecification.fromCriteria(errorGroupId, criteria));
+    }
+
+    public Optional<BulkOperation> findOperation(UUID operationId) {
+        failStaleOperations();
+        return bulkOperationRepository.findById(operationId);
+    }
+
+    /**
+     * @return the recent bulk operations of all instances, the latest first
+     */
+    public List<BulkOperation> findRecentOperations() {
+        failStaleOperations();
+        return bulkOperationRepository.findAllByOrderByCreatedDesc(PageRequest.of(0, RECENT_OPERATIONS));
+    }
+
+    /**
+     * Cancels a queued bulk operation, or stops a running one after the batch being processed
+     *
+     * @return the operation, empty if unknown
+     */
+    public Optional<BulkOperation> cancel(UUID operationId) {
+        if (bulkOperationRepository.cancel(operationId)) {
+            log.info("Cancellation of bulk operation {} requested", operationId);
+        }
+        return bulkOperationRepository.findById(operationId);
+    }
+
+    private BulkOperation submit(BulkOperation operation, Specification<Error> specification) {
+        // Errors created after the submission, e.g. by failed resends of the operation itself, are not processed
+        ZonedDateTime submitted = operation.getCreated();
+        Specification<Error> createdUntilSubmitted = specification.and((root, query, builder) ->
+                builder.lessThanOrEqualTo(root.get("created"), submitted));
+        BulkOperation savedOperation = bulkOperationRepository.save(operation);
+        try {
+            executorService.execute(() -> run(savedOperation, createdUntilSubmitted));
+        } catch (RejectedExecutionException e) {
+            bulkOperationRepository.delete(savedOperation);
+            throw new IllegalStateException("The maximal number of " + bulkOperationProperties.getConcurrency() +
+                    " bulk operations are running already", e);
+        }
+        log.info("Submitted bulk operation {}", savedOperation);
+        return savedOperation;
+    }
+
+    void run(BulkOperation operation, Specification<Error> specification) {
+        UUID operationId = operation.getId();
+        try {
+            if (bulkOperationRepository.start(operationId, errorRepository.count(specification)) == 0) {
+                log.info("Bulk operation {} has been cancelled before it started", operationId);
+                return;
+            }
+            State state = processErrors(operation, specification);
+            bulkOperationRepository.finish(operationId, state, null);
+            log.info("Bulk operation {} finished in state {}", operationId, state);
+        } catch (Exception e) {
+            log.error("Bulk operation {} failed", operationId, e);
+            bulkOperationRepository.finish(operationId, State.FAILED, e.getMessage());
+        }
+    }
+
+    private State processErrors(BulkOperation operation, Specification<Error> specification) {
+        int batchSize = bulkOperationProperties.getBatchSize();
+        ErrorCursor cursor = null;
+        while (true) {
+            if (bulkOperationRepository.isCancelRequested(operation.getId())) {
+                return State.CANCELLED;
+            }
+            List<ErrorListItem> errors = errorRepository.findFollowing(specification, cursor, Sort.Direction.ASC, batchSize);
+            if (errors.isEmpty()) {
+                return State.COMPLETED;
+            }
+            List<UUID> errorIds = errors.stream().map(ErrorListItem::getId).toList();
+            BulkBatchResult result = switch (operation.getAction()) {
+                case RESEND -> errorService.resendForBulkOperation(errorIds, operation.getUser());
+                case DELETE -> errorService.deleteForBulkOperation(errorIds, operation.getReason(), operation.getUser());
+            };
+            bulkOperationRepository.addProgress(operation.getId(), result.processed(), result.skipped(), result.failed());
+            if (errors.size() < batchSize) {
+                return State.COMPLETED;
+            }
+            cursor = ErrorCursor.of(errors.getLast());
+        }
+    }
+
+    private void failStaleOperations() {
+        int failed = bulkOperationRepository.failStale(ZonedDateTime.now().minus(bulkOperationProperties.getStaleAfter()));
+        if (failed > 0) {
+            log.warn("Marked {} bulk operations without progress for {} as failed", failed, bulkOperationProperties.getStaleAfter());
+        }
+    }
+
+    private User getAuthenticatedUser() {
+        return userService.getAuthenticatedUser()
+                .orElseThrow(AuditLogException::noAuthenticatedUserException);
+    }
+
+    private static void checkReason(String reason) {
+        if (reason != null && reason.length() > 1000) {
+            throw new IllegalArgumentException("Reason must be under 1000 characters");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+/**
+ * Outcome of {@link ErrorService#resendForBulkOperation} and {@link ErrorService#deleteForBulkOperation}
+ *
+ * @param processed the number of errors resent or deleted
+ * @param skipped   the number of errors not found or no longer in a state allowing the action
+ * @param failed    the number of errors whose causing event could not be resent
+ */
+public record BulkBatchResult(int processed, int skipped, int failed) {
+}
@@ -0,0 +1,286 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ErrorTopicPartitionsAssignedListener;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Detects error events which have already been handled, i.e. stored as an error or recorded as an attempt of an error,
+ * mostly without a database lookup:
+ * <ul>
+ *     <li>Idempotence IDs of errors recently stored by any instance are kept in a bounded cache. Error events
+ *     redelivered after a rebalance are found there.</li>
+ *     <li>A Bloom filter over the idempotence IDs of all errors tells for most new error events that they have
+ *     definitely not been handled before.</li>
+ * </ul>
+ * Only if an idempotence ID is not in the cache but might be contained in the Bloom filter, the database is queried,
+ * in a read-only transaction of its own. Until the Bloom filter has been built from the errors and attempts after
+ * startup, and for a while after partitions of the error topic have been assigned to this instance (see
+ * {@link ErrorEventDuplicateFilterProperties#getRebalanceVerificationPeriod()}), every idempotence ID not in the cache
+ * is looked up in the database.
+ * <p>
+ * Errors stored by other instances are loaded periodically and whenever partitions of the error topic are assigned to
+ * this instance, i.e. before the error events not yet committed by their previous owner are redelivered. If loading
+ * them fails, the Bloom filter is discarded and rebuilt later, as it might miss idempotence IDs of other instances.
+ */
+@Component
+@Slf4j
+public class ErrorEventDuplicateFilter implements ErrorTopicPartitionsAssignedListener {
+
+    private final ErrorRepository errorRepository;
+    private final ErrorAttemptRepository errorAttemptRepository;
+    private final ErrorEventDuplicateFilterProperties properties;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Cache<String, Boolean> recentlySeenIdempotenceIds;
+    private final Object refreshLock = new Object();
+
+    /**
+     * Null until built after startup
+     */
+    private volatile IdempotenceIdBloomFilter bloomFilter;
+    private final AtomicBoolean buildingBloomFilter = new AtomicBoolean();
+    /**
+     * Guarded by refreshLock
+     */
+    private ZonedDateTime lastRefresh = ZonedDateTime.now();
+    /**
+     * Until then, the previous owner of partitions assigned to this instance might still be storing errors
+     */
+    private volatile ZonedDateTime verifyNegativesUntil = ZonedDateTime.now();
+
+    public ErrorEventDuplicateFilter(ErrorRepository errorRepository,
+                                     ErrorAttemptRepository errorAttemptRepository,
+                                     ErrorEventDuplicateFilterProperties properties,
+                                     PlatformTransactionManager transactionManager) {
+        this.errorRepository = errorRepository;
+        this.errorAttemptRepository = errorAttemptRepository;
+        this.properties = properties;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.recentlySeenIdempotenceIds = Caffeine.newBuilder()
+                .maximumSize(properties.getRecentlySeenMaxSize())
+                .expireAfterWrite(properties.getRecentlySeenExpireAfter())
+                .build();
+    }
+
+    public boolean isDuplicate(String errorEventIdempotenceId) {
+        if (!properties.isEnabled()) {
+            return existsInDatabase(errorEventIdempotenceId);
+        }
+        if (recentlySeenIdempotenceIds.getIfPresent(errorEventIdempotenceId) != null) {
+            return true;
+        }
+        IdempotenceIdBloomFilter currentBloomFilter = trustedBloomFilter();
+        if (currentBloomFilter != null && !currentBloomFilter.mightContain(errorEventIdempotenceId)) {
+            return false;
+        }
+        return existsInDatabase(errorEventIdempotenceId);
+    }
+
+    private boolean existsInDatabase(String errorEventIdempotenceId) {
+        return Boolean.TRUE.equals(readOnlyTransactionTemplate.execute(status ->
+                errorRepository.existsByErrorEventMetadataIdempotenceId(errorEventIdempotenceId) ||
+                errorAttemptRepository.existsByErrorEventIdempotenceId(errorEventIdempotenceId)));
+    }
+
+    /**
+     * @return the subset of the given idempotence IDs which have already been handled
+     */
+    public Set<String> findDuplicates(Collection<String> errorEventIdempotenceIds) {
+        if (!properties.isEnabled()) {
+            return findInDatabase(errorEventIdempotenceIds);
+        }
+        Set<String> duplicates = new HashSet<>();
+        List<String> idempotenceIdsToLookUp = new ArrayList<>();
+        IdempotenceIdBloomFilter currentBloomFilter = trustedBloomFilter();
+        for (String idempotenceId : errorEventIdempotenceIds) {
+            if (recentlySeenIdempotenceIds.getIfPresent(idempotenceId) != null) {
+                duplicates.add(idempotenceId);
+            } else if (currentBloomFilter == null || currentBloomFilter.mightContain(idempotenceId)) {
+                idempotenceIdsToLookUp.add(idempotenceId);
+            }
+        }
+        if (!idempotenceIdsToLookUp.isEmpty()) {
+            duplicates.addAll(findInDatabase(idempotenceIdsToLookUp));
+        }
+        return duplicates;
+    }
+
+    private Set<String> findInDatabase(Collection<String> errorEventIdempotenceIds) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            Set<String> found = new HashSet<>(errorRepository.findErrorEventIdempotenceIdsIn(errorEventIdempotenceIds));
+            List<String> notFound = errorEventIdempotenceIds.stream()
+                    .filter(idempotenceId -> !found.contains(idempotenceId))
+                    .toList();
+            if (!notFound.isEmpty()) {
+                found.addAll(errorAttemptRepository.findErrorEventIdempotenceIdsIn(notFound));
+            }
+            return found;
+        });
+    }
+
+    /**
+     * @return the Bloom filter if its negatives can be trusted, null if it has not been built yet or if the previous
+     * owner of partitions assigned recently might still be storing errors the Bloom filter does not know about
+     */
+    private IdempotenceIdBloomFilter trustedBloomFilter() {
+        return ZonedDateTime.now().isBefore(verifyNegativesUntil) ? null : bloomFilter;
+    }
+
+    /**
+     * Marks the idempotence ID as handled once the current transaction (if any) has been committed. Marking it before
+     * would make a redelivery of an error event whose error has been rolled back look like a duplicate.
+     */
+    public void markHandled(String errorEventIdempotenceId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(errorEventIdempotenceId);
+                }
+            });
+        } else {
+            add(errorEventIdempotenceId);
+        }
+    }
+
+    private void add(String errorEventIdempotenceId) {
+        recentlySeenIdempotenceIds.put(errorEventIdempotenceId, Boolean.TRUE);
+        IdempotenceIdBloomFilter currentBloomFilter = bloomFilter;
+        if (currentBloomFilter != null) {
+            currentBloomFilter.put(errorEventIdempotenceId);
+        }
+    }
+
+    @Override
+    public void onErrorTopicPartitionsAssigned() {
+        if (properties.isEnabled()) {
+            verifyNegativesUntil = ZonedDateTime.now().plus(properties.getRebalanceVerificationPeriod());
+            refreshOrDiscardBloomFilter();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@errorEventDuplicateFilterProperties.refreshInterval.toString()}",
+            initialDelayString = "#{@errorEventDuplicateFilterProperties.refreshInterval.toString()}")
+    void scheduledRefresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        refreshOrDiscardBloomFilter();
+        IdempotenceIdBloomFilter currentBloomFilter = bloomFilter;
+        if (currentBloomFilter == null) {
+            buildBloomFilter();
+        } else if (currentBloomFilter.isSaturated()) {
+            log.info("Duplicate filter holds more idempotence IDs than the {} it has been sized for, rebuilding it",
+                    currentBloomFilter.getExpectedInsertions());
+            buildBloomFilter();
+        }
+    }
+
+    private void refreshOrDiscardBloomFilter() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Could not refresh the duplicate filter, discarding the Bloom filter until it has been rebuilt", e);
+            bloomFilter = null;
+        }
+    }
+
+    /**
+     * Loads the idempotence IDs of the errors and attempts created since the last refresh
+     */
+    void refresh() {
+        synchronized (refreshLock) {
+            ZonedDateTime refreshStart = ZonedDateTime.now();
+            IdempotenceIdBloomFilter currentBloomFilter = bloomFilter;
+            int loadedIdempotenceIds = loadIdempotenceIdsCreatedSince(lastRefresh.minus(properties.getRefreshOverlap()), idempotenceId -> {
+                recentlySeenIdempotenceIds.put(idempotenceId, Boolean.TRUE);
+                if (currentBloomFilter != null) {
+                    currentBloomFilter.put(idempotenceId);
+                }
+            });
+            lastRefresh = refreshStart;
+            log.debug("Loaded {} recently handled idempotence IDs into the duplicate filter", loadedIdempotenceIds);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void buildBloomFilterInBackground() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::buildBloomFilter, "duplicate-filter-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Builds a new Bloom filter from all errors and attempts and replaces the current one. The current Bloom filter remains in use
+     * (and is kept up to date) while the new one is built.
+     */
+    void buildBloomFilter() {
+        if (!buildingBloomFilter.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ZonedDateTime buildStart = ZonedDateTime.now();
+            long expectedInsertions = Math.max(properties.getBloomFilterMinExpectedInsertions(),
+                    2 * (errorRepository.count() + errorAttemptRepository.count()));
+            IdempotenceIdBloomFilter newBloomFilter = IdempotenceIdBloomFilter.create(expectedInsertions, properties.getBloomFilterFalsePositiveProbability());
+            int loadedIdempotenceIds = readOnlyTransactionTemplate.execute(status -> {
+                try (Stream<String> idempotenceIds = Stream.concat(errorRepository.streamAllErrorEventIdempotenceIds(),
+                        errorAttemptRepository.streamAllErrorEventIdempotenceIds())) {
+                    return consume(idempotenceIds, newBloomFilter::put);
+                }
+            });
+            synchronized (refreshLock) {
+                // Catch up with the errors stored while the Bloom filter was being built
+                loadIdempotenceIdsCreatedSince(buildStart.minus(properties.getRefreshOverlap()), newBloomFilter::put);
+                bloomFilter = newBloomFilter;
+            }
+            log.info("Built duplicate filter from {} idempotence IDs, sized for {} idempotence IDs", loadedIdempotenceIds, expectedInsertions);
+        } catch (Exception e) {
+            log.warn("Could not build the duplicate filter, duplicates are detected using the database only", e);
+        } finally {
+            buildingBloomFilter.set(false);
+        }
+    }
+
+    private int loadIdempotenceIdsCreatedSince(ZonedDateTime createdSince, Consumer<String> idempotenceIdConsumer) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            try (Stream<String> idempotenceIds = Stream.concat(errorRepository.streamErrorEventIdempotenceIdsCreatedSince(createdSince),
+                    errorAttemptRepository.streamErrorEventIdempotenceIdsCreatedSince(createdSince))) {
+                return consume(idempotenceIds, idempotenceIdConsumer);
+            }
+        });
+    }
+
+    private static int consume(Stream<String> idempotenceIds, Consumer<String> idempotenceIdConsumer) {
+        int[] count = {0};
+        idempotenceIds.forEach(idempotenceId -> {
+            idempotenceIdConsumer.accept(idempotenceId);
+            count[0]++;
+        });
+        return count[0];
+    }
+}
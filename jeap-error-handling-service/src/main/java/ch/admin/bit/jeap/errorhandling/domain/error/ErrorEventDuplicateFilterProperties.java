@@ -0,0 +1,75 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the in-memory filter in front of the database lookup of already handled error events,
+ * see {@link ErrorEventDuplicateFilter}
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.duplicate-filter")
+public class ErrorEventDuplicateFilterProperties {
+
+    /**
+     * If disabled, every error event is looked up in the database to detect duplicates.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of recently handled idempotence IDs kept in memory. A redelivered error event with one of these
+     * IDs is detected as duplicate without a database lookup.
+     */
+    @Min(1)
+    private long recentlySeenMaxSize = 100_000;
+
+    /**
+     * How long a recently handled idempotence ID is kept in memory.
+     */
+    private Duration recentlySeenExpireAfter = Duration.ofHours(1);
+
+    /**
+     * False positive probability of the Bloom filter over all handled idempotence IDs, i.e. the share of new error
+     * events that still need a database lookup.
+     */
+    @DecimalMin("0.0001")
+    @DecimalMax("0.5")
+    private double bloomFilterFalsePositiveProbability = 0.01;
+
+    /**
+     * The Bloom filter is sized for twice the number of errors at startup, but at least for this number of
+     * idempotence IDs. It is rebuilt once more IDs have been added than it has been sized for.
+     */
+    @Min(1)
+    private long bloomFilterMinExpectedInsertions = 1_000_000;
+
+    /**
+     * How often the idempotence IDs of errors stored by other instances are loaded into the filter. The filter is
+     * refreshed as well whenever partitions of the error topic are assigned to this instance.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(30);
+
+    /**
+     * Errors are loaded by their creation time. The overlap compensates for transactions committed after a refresh
+     * but having created their errors before, and for clock skew between instances.
+     */
+    private Duration refreshOverlap = Duration.ofMinutes(2);
+
+    /**
+     * After partitions of the error topic have been assigned to this instance, their previous owner might still be
+     * storing errors for the error events it had polled, which the refresh at the assignment does not see yet. During
+     * this period, error events not contained in the Bloom filter are looked up in the database as well. Should be at
+     * least the maximum poll interval of the error topic consumer.
+     */
+    private Duration rebalanceVerificationPeriod = Duration.ofMinutes(5);
+
+}
@@ -0,0 +1,20 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ErrorExportFormat {
+    /**
+     * One JSON object per error and line
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+    /**
+     * One line per error after a header line, see RFC 4180
+     */
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String fileExtension;
+}
@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the error export, see {@link ErrorExportService}
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.export")
+public class ErrorExportProperties {
+
+    /**
+     * Maximum duration of an export. Applies to exports only, other asynchronous requests keep the timeout of the
+     * servlet container.
+     */
+    private Duration timeout = Duration.ofHours(1);
+
+}
@@ -0,0 +1,236 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DomainEventDeserializer;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendClusterProvider;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCursor;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorEventData;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorSearchSpecification;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventMessage;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTrace;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchCriteria;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Writes all errors matching a search to a stream. The errors are read page by page with keyset pagination, ordered
+ * by creation time and ID, each page in a short transaction of its own. The page is written after its transaction has
+ * ended, so neither a transaction nor a connection is held while waiting for a slow client, and the memory used does
+ * not depend on the number of errors. The stack traces and the decoded payloads of the causing events are optional,
+ * as they are read per page by loading the errors.
+ */
+@Component
+@Slf4j
+public class ErrorExportService {
+
+    static final int PAGE_SIZE = 500;
+
+    private static final List<String> COLUMNS = List.of("id", "state", "created", "errorCode", "errorMessage",
+            "errorPublisher", "eventName", "eventId", "eventCreated", "eventPublisher", "traceId", "closingReason",
+            "errorGroupId", "ticketNumber", "freeText");
+    private static final String STACK_TRACE_COLUMN = "stackTrace";
+    private static final String PAYLOAD_COLUMN = "payload";
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final ErrorRepository errorRepository;
+    private final StackTraceRepository stackTraceRepository;
+    private final ResendClusterProvider resendClusterProvider;
+    private final DomainEventDeserializer domainEventDeserializer;
+    private final JsonMapper jsonMapper;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public ErrorExportService(ErrorRepository errorRepository, StackTraceRepository stackTraceRepository,
+                              ResendClusterProvider resendClusterProvider, DomainEventDeserializer domainEventDeserializer,
+                              JsonMapper jsonMapper, PlatformTransactionManager transactionManager) {
+        this.errorRepository = errorRepository;
+        this.stackTraceRepository = stackTraceRepository;
+        this.resendClusterProvider = resendClusterProvider;
+        this.domainEventDeserializer = domainEventDeserializer;
+        this.jsonMapper = jsonMapper;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Writes the errors matching the criteria, ordered by creation time and ID, to the output stream in UTF-8. As
+     * every page is read in a transaction of its own, errors changed while exporting are exported as they are when
+     * their page is read.
+     *
+     * @param direction direction of the order by creation time and ID
+     * @return the number of errors written
+     */
+    public long export(ErrorSearchCriteria criteria, Sort.Direction direction, ErrorExportFormat format,
+                       boolean withStackTraces, boolean withPayloads, OutputStream outputStream) throws IOException {
+        List<String> columns = new ArrayList<>(COLUMNS);
+        if (withStackTraces) {
+            columns.add(STACK_TRACE_COLUMN);
+        }
+        if (withPayloads) {
+            columns.add(PAYLOAD_COLUMN);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ErrorExportFormat.CSV) {
+            writeCsvLine(writer, columns);
+        }
+        Specification<Error> specification = ErrorSearchSpecification.fromCriteria(criteria);
+        long count = 0;
+        ErrorCursor cursor = null;
+        ExportPage page;
+        do {
+            ErrorCursor pageCursor = cursor;
+            page = readOnlyTransactionTemplate.execute(status ->
+                    readPage(specification, pageCursor, direction, withStackTraces, withPayloads));
+            writeRows(writer, format, columns, page.rows());
+            count += page.rows().size();
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        writer.flush();
+        log.info("Exported {} errors as {}", count, format);
+        return count;
+    }
+
+    private ExportPage readPage(Specification<Error> specification, ErrorCursor cursor, Sort.Direction direction,
+                                boolean withStackTraces, boolean withPayloads) {
+        List<ErrorListItem> page = errorRepository.findFollowing(specification, cursor, direction, PAGE_SIZE);
+        Map<UUID, Error> errorsById = withStackTraces || withPayloads ? findErrors(page) : Map.of();
+        Map<String, String> stackTracesByHash = withStackTraces ? findStackTraces(errorsById.values()) : Map.of();
+        List<Map<String, String>> rows = new ArrayList<>(page.size());
+        for (ErrorListItem item : page) {
+            Map<String, String> row = toRow(item);
+            Error error = errorsById.get(item.getId());
+            if (withStackTraces) {
+                row.put(STACK_TRACE_COLUMN, error != null ? stackTrace(error.getErrorEventData(), stackTracesByHash) : null);
+            }
+            if (withPayloads) {
+                row.put(PAYLOAD_COLUMN, error != null ? decodePayload(error) : null);
+            }
+            rows.add(row);
+        }
+        return new ExportPage(rows, page.size() == PAGE_SIZE ? ErrorCursor.of(page.getLast()) : null);
+    }
+
+    private void writeRows(Writer writer, ErrorExportFormat format, List<String> columns, List<Map<String, String>> rows) throws IOException {
+        for (Map<String, String> row : rows) {
+            if (format == ErrorExportFormat.CSV) {
+                writeCsvLine(writer, columns.stream().map(row::get).toList());
+            } else {
+                writer.write(jsonMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private Map<UUID, Error> findErrors(List<ErrorListItem> page) {
+        return errorRepository.findAllById(page.stream().map(ErrorListItem::getId).toList()).stream()
+                .collect(toMap(Error::getId, identity()));
+    }
+
+    private Map<String, String> findStackTraces(Collection<Error> errors) {
+        List<String> hashes = errors.stream()
+                .map(error -> error.getErrorEventData().getStackTraceRef())
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        return stackTraceRepository.findAllById(hashes).stream()
+                .collect(toMap(StackTrace::getHash, StackTrace::getStackTrace));
+    }
+
+    private static String stackTrace(ErrorEventData errorEventData, Map<String, String> stackTracesByHash) {
+        return errorEventData.getStackTraceRef() != null ? stackTracesByHash.get(errorEventData.getStackTraceRef()) : errorEventData.getStackTrace();
+    }
+
+    private String decodePayload(Error error) {
+        EventMessage causingEventMessage = error.getCausingEventMessage();
+        try {
+            String clusterName = resendClusterProvider.getResendClusterNameFor(error.getCausingEvent());
+            return domainEventDeserializer.toJsonString(clusterName, causingEventMessage.getTopic(), causingEventMessage.getPayload());
+        } catch (Exception deserializationFailed) {
+            log.debug("Could not decode the payload of the causing event of error {}", error.getId(), deserializationFailed);
+            return null;
+        }
+    }
+
+    private static Map<String, String> toRow(ErrorListItem item) {
+        Map<String, String> row = new LinkedHashMap<>();
+        row.put("id", item.getId().toString());
+        row.put("state", item.getState().name());
+        row.put("created", timestamp(item.getCreated()));
+        row.put("errorCode", item.getErrorCode());
+        row.put("errorMessage", item.getErrorMessage());
+        row.put("errorPublisher", item.getErrorPublisher());
+        row.put("eventName", item.getEventName());
+        row.put("eventId", item.getEventId());
+        row.put("eventCreated", timestamp(item.getEventCreated()));
+        row.put("eventPublisher", item.getEventPublisher());
+        row.put("traceId", item.getOriginalTraceIdString());
+        row.put("closingReason", item.getClosingReason());
+        row.put("errorGroupId", Objects.toString(item.getErrorGroupId(), null));
+        row.put("ticketNumber", item.getTicketNumber());
+        row.put("freeText", item.getFreeText());
+        return row;
+    }
+
+    private static String timestamp(ZonedDateTime dateTime) {
+        return dateTime != null ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(dateTime) : null;
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        writer.write(values.stream()
+                .map(ErrorExportService::csvValue)
+                .collect(Collectors.joining(",")));
+        writer.write("\r\n");
+    }
+
+    /**
+     * Quotes the value if it contains a separator, a quote or a line break, see RFC 4180. A value starting like a
+     * formula is prefixed with an apostrophe, so that spreadsheet applications opening the export show it as text
+     * instead of evaluating it (CSV injection).
+     */
+    static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * @param nextCursor cursor of the last error of the page, or null if it is the last page
+     */
+    private record ExportPage(List<Map<String, String>> rows, ErrorCursor nextCursor) {
+    }
+}
@@ -1,6 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.domain.error;
 
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
 import lombok.Value;
 
 import java.util.List;
@@ -8,5 +8,5 @@ import java.util.List;
 @Value
 public class ErrorList {
     long totalElements;
-    List<Error> errors;
+    List<ErrorListItem> errors;
 }
@@ -1,16 +1,37 @@
 package ch.admin.bit.jeap.errorhandling.domain.error;
 
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimension;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionCount;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionValueCount;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionValueRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorSearchSpecification;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCount;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchCriteria;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
+import static java.util.stream.Collectors.toMap;
 
 @Component
 @RequiredArgsConstructor
@@ -18,25 +39,115 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class ErrorSearchService {
 
+    // Facets are shown next to the search results, so that counts being a minute old are acceptable
+    private static final Duration FILTERED_FACETS_EXPIRE_AFTER_WRITE = Duration.ofMinutes(1);
+    private static final int FILTERED_FACETS_MAX_SIZE = 1000;
+
     private final ErrorRepository errorRepository;
+    private final ErrorStateCountRepository errorStateCountRepository;
+    private final ErrorDimensionCountRepository errorDimensionCountRepository;
+    private final ErrorDimensionValueRepository errorDimensionValueRepository;
+    private final Cache<FacetKey, Map<String, Long>> filteredFacets = Caffeine.newBuilder()
+            .maximumSize(FILTERED_FACETS_MAX_SIZE)
+            .expireAfterWrite(FILTERED_FACETS_EXPIRE_AFTER_WRITE)
+            .build();
 
     public ErrorList search(ErrorSearchCriteria criteria) {
-        Page<Error> errors = errorRepository.search(criteria, criteria.getPageable());
+        Page<ErrorListItem> errors = errorRepository.search(criteria, criteria.getPageable());
         return new ErrorList(errors.getTotalElements(), errors.getContent());
     }
 
+    /**
+     * Searches like {@link #search(ErrorSearchCriteria)}, but returns a slice of the errors following a cursor instead
+     * of a page at an offset. The errors are only counted if requested.
+     */
+    public ErrorSlice searchSlice(ErrorSearchCriteria criteria, ErrorSliceRequest request) {
+        Specification<Error> specification = ErrorSearchSpecification.fromCriteria(criteria);
+        List<ErrorListItem> errors = errorRepository.findFollowing(specification, request.cursor(), request.direction(), request.size() + 1);
+        Long totalElements = request.withTotalCount() ? count(criteria, specification) : null;
+        return ErrorSlice.of(errors, request.size(), totalElements);
+    }
+
+    private long count(ErrorSearchCriteria criteria, Specification<Error> specification) {
+        if (criteria.restrictsStatesAndServiceNameOnly()) {
+            // Sum up the error counts maintained for the metrics instead of counting the errors
+            return errorStateCounts(criteria)
+                    .mapToLong(ErrorStateCount::getErrorCount)
+                    .sum();
+        }
+        return errorRepository.count(specification);
+    }
+
+    /**
+     * Counts the errors matching the criteria per value of each dimension. The restriction of a dimension itself is
+     * ignored when counting per value of the dimension, so that the alternatives to a value filtered by are counted
+     * as well. All values known are returned, sorted by value, including the ones without matching errors.
+     * <p>
+     * Errors at most filtered by their states are counted from the error counts maintained per dimension value. Other
+     * criteria require counting the errors, whose counts are therefore cached for a minute.
+     */
+    public Map<ErrorDimension, List<ErrorDimensionValueCount>> getFacets(ErrorSearchCriteria criteria) {
+        Map<ErrorDimension, List<ErrorDimensionValueCount>> facets = new EnumMap<>(ErrorDimension.class);
+        for (ErrorDimension dimension : ErrorDimension.values()) {
+            Map<String, Long> errorCounts = countByDimension(criteria.withoutRestrictionOf(dimension), dimension);
+            // Values of errors stored just now may not have been added to the known values yet
+            TreeSet<String> values = new TreeSet<>(errorDimensionValueRepository.findValues(dimension));
+            values.addAll(errorCounts.keySet());
+            facets.put(dimension, values.stream()
+                    .map(value -> new ErrorDimensionValueCount(value, errorCounts.getOrDefault(value, 0L)))
+                    .toList());
+        }
+        return facets;
+    }
+
+    private Map<String, Long> countByDimension(ErrorSearchCriteria criteria, ErrorDimension dimension) {
+        if (dimension == ErrorDimension.PUBLISHER && criteria.restrictsStatesAndServiceNameOnly()) {
+            return errorStateCounts(criteria)
+                    .collect(groupingBy(errorStateCount -> errorStateCount.getKey().getPublisherService(),
+                            summingLong(ErrorStateCount::getErrorCount)));
+        }
+        if (criteria.restrictsStatesOnly()) {
+            return errorDimensionCounts(criteria, dimension)
+                    .collect(groupingBy(errorDimensionCount -> errorDimensionCount.getKey().getDimensionValue(),
+                            summingLong(ErrorDimensionCount::getErrorCount)));
+        }
+        return filteredFacets.get(new FacetKey(criteria.getFilter(), dimension), key ->
+                errorRepository.countByDimension(ErrorSearchSpecification.fromCriteria(criteria), dimension).stream()
+                        .collect(toMap(ErrorDimensionValueCount::value, ErrorDimensionValueCount::errorCount)));
+    }
+
+    private Stream<ErrorDimensionCount> errorDimensionCounts(ErrorSearchCriteria criteria, ErrorDimension dimension) {
+        return errorDimensionCountRepository.findByDimension(dimension).stream()
+                .filter(errorDimensionCount -> criteria.getStates()
+                        .map(states -> states.contains(errorDimensionCount.getKey().getState()))
+                        .orElse(true));
+    }
+
+    private Stream<ErrorStateCount> errorStateCounts(ErrorSearchCriteria criteria) {
+        return errorStateCountRepository.findAll().stream()
+                .filter(errorStateCount -> criteria.getStates()
+                        .map(states -> states.contains(errorStateCount.getKey().getState()))
+                        .orElse(true))
+                .filter(errorStateCount -> criteria.getServiceName()
+                        .map(serviceName -> serviceName.equals(errorStateCount.getKey().getPublisherService()))
+                        .orElse(true));
+    }
+
     @Cacheable("eventSources")
     public List<String> getAllEventSources() {
-        return errorRepository.getAllEventSources();
+        return errorDimensionValueRepository.findValues(ErrorDimension.PUBLISHER);
     }
 
     @Cacheable("errorCodes")
     public List<String> getAllErrorCodes() {
-        return errorRepository.getAllErrorCodes();
+        return errorDimensionValueRepository.findValues(ErrorDimension.ERROR_CODE);
     }
 
     @Cacheable("eventNames")
     public List<String> getAllEventNames() {
-        return errorRepository.getAllEventNames();
+        return errorDimensionValueRepository.findValues(ErrorDimension.EVENT_NAME);
+    }
+
+    private record FacetKey(ErrorSearchCriteria.Filter filter, ErrorDimension dimension) {
     }
 }
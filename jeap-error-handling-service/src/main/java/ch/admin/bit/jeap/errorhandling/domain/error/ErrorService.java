@@ -6,28 +6,50 @@ import ch.admin.bit.jeap.errorhandling.domain.manualtask.taskFactory.TaskFactory
 import ch.admin.bit.jeap.errorhandling.domain.metrics.ErrorHandlingMetricsService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.strategy.ResendingStrategy;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchResendResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaFailedEventResender;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskDto;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementClient;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttempt;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorEventData;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupListSearchSpecification;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTrace;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupListSearchCriteria;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -39,17 +61,38 @@ public class ErrorService {
     private final TaskManagementClient taskManagementClient;
     private final TaskFactory taskFactory;
     private final ResendingStrategy resendingStrategy;
-    private final ErrorFactory errorFactory;
     private final ErrorHandlingMetricsService errorHandlingMetricsService;
     private final AuditLogService auditLogService;
     private final ErrorGroupService errorGroupService;
+    private final ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    private final TaskOutboxEntryRepository taskOutboxEntryRepository;
+    private final ErrorAttemptRepository errorAttemptRepository;
+    private final StackTraceRepository stackTraceRepository;
 
     private final String NOT_RETRYABLE = "Error is not in retryable state: ";
+    private final String ERROR_DELETED = "Error has been deleted";
     private final String MANUAL_RESEND_NOT_ALLOWED = "Error is not in state to be resend to manual task: ";
 
     public void handleTemporaryError(Error error) {
-        int errorCountForEvent = getErrorCountForCausingEvent(error.getCausingEventMetadata().getId());
-        Optional<ZonedDateTime> resendRequest = resendingStrategy.determineResend(errorCountForEvent, error.getCausingEventMetadata(), error.getErrorEventMetadata(), error.getErrorEventData(), error.getCausingEventMessage());
+        Error previousError = errorRepository.findFirstByCausingEventMetadataIdAndErrorEventMetadataPublisherServiceOrderByCreatedDesc(
+                error.getCausingEventMetadata().getId(), error.getErrorEventMetadata().getPublisher().getService()).orElse(null);
+        handleTemporaryError(error, previousError);
+    }
+
+    /**
+     * Records the error as a further attempt of the previous error of its causing event and publisher if the previous
+     * error is a temporary error being retried, stores it as a new error otherwise.
+     *
+     * @return the error the failure has been recorded on
+     */
+    private Error handleTemporaryError(Error error, Error previousError) {
+        if (previousError != null && isBeingRetried(previousError)) {
+            errorEventDuplicateFilter.markHandled(error.getErrorEventMetadata().getIdempotenceId());
+            recordAttempt(previousError, ErrorAttempt.reportedAgain(previousError, error), error);
+            return previousError;
+        }
+        error.continueAttemptCount(previousError);
+        Optional<ZonedDateTime> resendRequest = determineResend(error.getAttemptCount() - 1, error);
         if (resendRequest.isEmpty()) {
             log.debug("Stop resending temporary error");
             handlePermanentError(error);
@@ -57,6 +100,78 @@ public class ErrorService {
             error = createTemporary(error, resendRequest.get());
             log.info("Schedule resend for temporary error {}", error);
         }
+        return error;
+    }
+
+    private static boolean isBeingRetried(Error error) {
+        return error.getErrorEventData().getTemporality() == ErrorEventData.Temporality.TEMPORARY &&
+               (error.getState() == ErrorState.TEMPORARY_RETRY_PENDING || error.getState() == ErrorState.TEMPORARY_RETRIED);
+    }
+
+    /**
+     * Records a further failure of the causing event of the error, then either schedules another resend of the
+     * causing event or classifies the error as permanent.
+     *
+     * @param failure the error reporting the failure, which is the error itself for a failed resend
+     */
+    private void recordAttempt(Error error, ErrorAttempt attempt, Error failure) {
+        int previousAttemptCount = error.getAttemptCount();
+        errorAttemptRepository.save(attempt);
+        error.countAttempt();
+        if (error.getState() == ErrorState.TEMPORARY_RETRY_PENDING) {
+            scheduledResendService.cancelScheduledResends(error);
+        }
+        Optional<ZonedDateTime> resendRequest = determineResend(previousAttemptCount, failure);
+        if (resendRequest.isEmpty()) {
+            log.debug("Stop resending temporary error");
+            handlePermanentError(error);
+        } else {
+            createTemporary(error, resendRequest.get());
+            log.info("Schedule resend for temporary error {} after {} attempts", error, error.getAttemptCount());
+        }
+    }
+
+    private Optional<ZonedDateTime> determineResend(int errorCountForEvent, Error failure) {
+        return resendingStrategy.determineResend(errorCountForEvent, failure.getCausingEventMetadata(),
+                failure.getErrorEventMetadata(), failure.getErrorEventData(), failure.getCausingEventMessage());
+    }
+
+    /**
+     * Handles the errors of a batch of error events within the current transaction, like
+     * {@link #handleTemporaryError(Error)} and {@link #handlePermanentError(Error)} do for a single error.
+     */
+    public void handleErrorBatch(List<Error> errors) {
+        Map<CausingEventAndPublisher, Error> latestErrors = findLatestErrors(errors);
+        for (Error error : errors) {
+            // errors of the same causing event and publisher within the batch are previous errors, too
+            CausingEventAndPublisher key = CausingEventAndPublisher.of(error);
+            if (error.getErrorEventData().getTemporality() == ErrorEventData.Temporality.TEMPORARY) {
+                latestErrors.put(key, handleTemporaryError(error, latestErrors.get(key)));
+            } else {
+                error.setState(ErrorState.SEND_TO_MANUALTASK);
+                Error permanentError = savePermanent(error);
+                latestErrors.put(key, permanentError);
+                log.info("Saved permanent error {}", permanentError);
+            }
+        }
+    }
+
+    private Map<CausingEventAndPublisher, Error> findLatestErrors(List<Error> errors) {
+        Set<String> causingEventIds = errors.stream()
+                .map(error -> error.getCausingEventMetadata().getId())
+                .collect(toSet());
+        Map<CausingEventAndPublisher, Error> latestErrors = new HashMap<>();
+        // Errors created at the same time are unlikely, but keep the first one found like the lookup of a single error
+        errorRepository.findLatestErrorsForCausingEvents(causingEventIds)
+                .forEach(error -> latestErrors.putIfAbsent(CausingEventAndPublisher.of(error), error));
+        return latestErrors;
+    }
+
+    private record CausingEventAndPublisher(String causingEventId, String publisherService) {
+        static CausingEventAndPublisher of(Error error) {
+            return new CausingEventAndPublisher(error.getCausingEventMetadata().getId(),
+                    error.getErrorEventMetadata().getPublisher().getService());
+        }
     }
 
     public void handlePermanentError(Error error) {
@@ -74,15 +189,29 @@ public class ErrorService {
         return errorRepository.getReferenceById(errorId);
     }
 
+    /**
+     * @return the stack trace referenced by the error, or the one stored inline by errors created before stack traces
+     * were stored once per distinct text
+     */
     @Transactional(readOnly = true)
-    public int getErrorCountForCausingEvent(String causingEventId) {
-        return errorRepository.countErrorsForCausingEvent(causingEventId);
+    public String getStackTrace(Error error) {
+        ErrorEventData errorEventData = error.getErrorEventData();
+        if (errorEventData.getStackTraceRef() == null) {
+            return errorEventData.getStackTrace();
+        }
+        return stackTraceRepository.findById(errorEventData.getStackTraceRef())
+                .map(StackTrace::getStackTrace)
+                .orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ErrorAttempt> getErrorAttempts(UUID errorId) {
+        return errorAttemptRepository.findByErrorIdOrderByCreated(errorId);
     }
 
     @Transactional(readOnly = true)
     public ErrorList getPermanentErrorList(int pageIndex, int pageSize) {
-        Page<Error> errors = errorRepository.findAllPermanent(PageRequest.of(pageIndex, pageSize));
-        return new ErrorList(errors.getTotalElements(), errors.getContent());
+        return getErrorListByStates(List.of(ErrorState.PERMANENT, ErrorState.SEND_TO_MANUALTASK), pageIndex, pageSize);
     }
 
     @Transactional(readOnly = true)
@@ -92,22 +221,50 @@ public class ErrorService {
 
     @Transactional(readOnly = true)
     public ErrorList getErrorListByState(ErrorState errorState, int pageIndex, int pageSize) {
-        Page<Error> errors = errorRepository.findAllByStateEqualsOrderByCreatedDesc(errorState, PageRequest.of(pageIndex, pageSize));
+        return getErrorListByStates(List.of(errorState), pageIndex, pageSize);
+    }
+
+    private ErrorList getErrorListByStates(List<ErrorState> errorStates, int pageIndex, int pageSize) {
+        Page<ErrorListItem> errors = errorRepository.findListItemsByStates(errorStates,
+                PageRequest.of(pageIndex, pageSize, Sort.by(Sort.Direction.DESC, "created")));
         return new ErrorList(errors.getTotalElements(), errors.getContent());
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Only looks up the database, in a transaction of its own, if the duplicate filter cannot tell from memory
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean isEventDuplicate(String errorEventIdempotenceId) {
-        return errorRepository.countErrorsByErrorEventIdempotenceId(errorEventIdempotenceId) > 0;
+        return errorEventDuplicateFilter.isDuplicate(errorEventIdempotenceId);
+    }
+
+    /**
+     * @return the subset of the given error event idempotence IDs which have already been handled
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Set<String> findHandledErrorEvents(Collection<String> errorEventIdempotenceIds) {
+        return errorEventDuplicateFilter.findDuplicates(errorEventIdempotenceIds);
     }
 
     @Transactional(readOnly = true)
     public ErrorList getErrorListByGroupId(UUID errorGroupId, ErrorGroupListSearchCriteria criteria) {
 
-        Page<Error> errors = errorRepository.findByGroupIdAndCriteria(errorGroupId, criteria, criteria.getPageable());
+        Page<ErrorListItem> errors = errorRepository.findByGroupIdAndCriteria(errorGroupId, criteria, criteria.getPageable());
         return new ErrorList(errors.getTotalElements(), errors.getContent());
     }
 
+    /**
+     * Lists the errors of a group like {@link #getErrorListByGroupId(UUID, ErrorGroupListSearchCriteria)}, but returns
+     * a slice of the errors following a cursor instead of a page at an offset. The errors are only counted if requested.
+     */
+    @Transactional(readOnly = true)
+    public ErrorSlice getErrorSliceByGroupId(UUID errorGroupId, ErrorGroupListSearchCriteria criteria, ErrorSliceRequest request) {
+        Specification<Error> specification = ErrorGroupListSearchSpecification.fromCriteria(errorGroupId, criteria);
+        List<ErrorListItem> errors = errorRepository.findFollowing(specification, request.cursor(), request.direction(), request.size() + 1);
+        Long totalElements = request.withTotalCount() ? errorRepository.count(specification) : null;
+        return ErrorSlice.of(errors, request.size(), totalElements);
+    }
+
     public void manualResend(UUID errorId) {
         log.debug("Handling retry request for error {}", errorId);
         Error error = getError(errorId);
@@ -123,6 +280,39 @@ public class ErrorService {
         log.info("Resend causing event for error {}", error);
     }
 
+    /**
+     * Resends the causing events of the given errors in one go and updates the errors within the current transaction,
+     * like {@link #manualResend(UUID)} does for a single error. Nothing is resent if one of the errors is not in a
+     * retryable state.
+     *
+     * @return the outcome of the resend per error, the errors whose causing event could not be resent are unchanged
+     */
+    public BatchResendResult manualResends(List<UUID> errorIds) {
+        log.debug("Handling retry request for errors {}", errorIds);
+        List<Error> errors = errorIds.stream()
+                .distinct()
+                .map(this::getError)
+                .toList();
+        errors.stream()
+                .filter(error -> !error.getState().isRetryAllowed())
+                .findFirst()
+                .ifPresent(error -> {
+                    throw new IllegalStateException(NOT_RETRYABLE + error.getState());
+                });
+        BatchResendResult result = failedEventResender.resendAll(errors);
+        for (Error error : errors) {
+            if (result.isResent(error)) {
+                auditLogService.logResendCausingEvent(error);
+                if (error.getState() == ErrorState.TEMPORARY_RETRY_PENDING) {
+                    scheduledResendService.cancelScheduledResends(error);
+                }
+                setRetried(error);
+                log.info("Resend causing event for error {}", error);
+            }
+        }
+        return result;
+    }
+
     public void scheduledResend(ScheduledResend scheduledResend) {
         UUID errorId = scheduledResend.getErrorId();
         Error error = getError(errorId);
@@ -133,12 +323,90 @@ public class ErrorService {
         } catch (Exception ex) {
             log.error("Failed to resend event for error {}", scheduledResend.getErrorId(), ex);
             markErrorAsRetried(scheduledResend, error);
-            handleTemporaryErrorResendFailure(error);
+            handleTemporaryErrorResendFailure(error, ex.getMessage());
         }
 
         log.info("Resend attempt finished for causing event of error {}", error);
     }
 
+    /**
+     * Resends the causing events of the errors of the given scheduled resends in one go, without changing anything.
+     * The outcome is recorded with {@link #recordScheduledResends(List)} in a transaction of its own, so that a
+     * failure while recording it cannot undo the resends. Failed sends are part of the outcome, i.e. nothing has been
+     * sent if this method fails.
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduledResendOutcome> sendScheduledResends(List<ScheduledResend> scheduledResends) {
+        Map<UUID, Error> errorsById = findErrorsOf(scheduledResends);
+        List<Error> errorsToResend = errorsById.values().stream()
+                .filter(error -> error.getState() == ErrorState.TEMPORARY_RETRY_PENDING)
+                .toList();
+        BatchResendResult result = failedEventResender.resendAll(errorsToResend);
+
+        Set<UUID> resendableErrorIds = errorsToResend.stream().map(Error::getId).collect(toSet());
+        List<ScheduledResendOutcome> outcomes = new ArrayList<>();
+        for (ScheduledResend scheduledResend : scheduledResends) {
+            Error error = errorsById.get(scheduledResend.getErrorId());
+            if (error == null) {
+                // Deleted since the scheduled resend has been loaded, skipped when recording the outcome
+                outcomes.add(ScheduledResendOutcome.failed(scheduledResend, ERROR_DELETED));
+            } else if (!resendableErrorIds.remove(error.getId())) {
+                // A further scheduled resend of the same error in the chunk finds it no longer retryable, as it would one by one
+                String failureMessage = NOT_RETRYABLE + error.getState();
+                log.error("Failed to resend event for error {}: {}", error.getId(), failureMessage);
+                outcomes.add(ScheduledResendOutcome.failed(scheduledResend, failureMessage));
+            } else if (!result.isResent(error)) {
+                log.error("Failed to resend event for error {}", error.getId(), result.getFailure(error));
+                outcomes.add(ScheduledResendOutcome.failed(scheduledResend, result.getFailure(error).getMessage()));
+            } else {
+                outcomes.add(ScheduledResendOutcome.resent(scheduledResend));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Updates the errors of the scheduled resends sent by {@link #sendScheduledResends(List)} according to the
+     * outcome, like {@link #scheduledResend(ScheduledResend)} does for a single scheduled resend. Scheduled resends
+     * whose error has been deleted in the meantime are marked as resent without recording anything.
+     */
+    public void recordScheduledResends(List<ScheduledResendOutcome> outcomes) {
+        Map<UUID, Error> errorsById = findErrorsOf(outcomes.stream()
+                .map(ScheduledResendOutcome::scheduledResend)
+                .toList());
+        outcomes.forEach(outcome -> recordScheduledResend(outcome, errorsById.get(outcome.scheduledResend().getErrorId())));
+    }
+
+    /**
+     * Records the outcome of a single scheduled resend like {@link #recordScheduledResends(List)}, e.g. if recording
+     * the outcome of all scheduled resends at once failed
+     */
+    public void recordScheduledResend(ScheduledResendOutcome outcome) {
+        recordScheduledResend(outcome, errorRepository.findById(outcome.scheduledResend().getErrorId()).orElse(null));
+    }
+
+    private Map<UUID, Error> findErrorsOf(List<ScheduledResend> scheduledResends) {
+        return errorRepository.findAllById(scheduledResends.stream()
+                        .map(ScheduledResend::getErrorId)
+                        .distinct()
+                        .toList()).stream()
+                .collect(toMap(Error::getId, identity()));
+    }
+
+    private void recordScheduledResend(ScheduledResendOutcome outcome, Error error) {
+        ScheduledResend scheduledResend = outcome.scheduledResend();
+        if (error == null) {
+            log.warn("Error {} of scheduled resend {} has been deleted, skipping the scheduled resend", scheduledResend.getErrorId(), scheduledResend.getId());
+            scheduledResendService.setResentIfExists(scheduledResend);
+            return;
+        }
+        markErrorAsRetried(scheduledResend, error);
+        if (!outcome.isResent()) {
+            handleTemporaryErrorResendFailure(error, outcome.failureMessage());
+        }
+        log.info("Resend attempt finished for causing event of error {}", error);
+    }
+
     private void resendEventForTemporaryError(Error error) {
         log.debug("Try resending error {}", error);
         if (!error.getState().equals(ErrorState.TEMPORARY_RETRY_PENDING)) {
@@ -152,10 +420,9 @@ public class ErrorService {
         scheduledResendService.setResent(scheduledResend);
     }
 
-    private void handleTemporaryErrorResendFailure(Error resentError) {
-        // Create a new error, then determine if it needs to be resent or classified as permanent
-        Error error = errorFactory.newTemporaryErrorFromTemplate(resentError);
-        handleTemporaryError(error);
+    private void handleTemporaryErrorResendFailure(Error resentError, String failureMessage) {
+        // Record the failed resend on the error, then determine if it needs to be resent again or classified as permanent
+        recordAttempt(resentError, ErrorAttempt.resendFailed(resentError, failureMessage), resentError);
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -169,39 +436,105 @@ public class ErrorService {
             error.setClosingReason(reason);
         }
 
-        ErrorState state = error.getState();
-        switch (state) {
+        if (error.getState() == ErrorState.TEMPORARY_RETRY_PENDING) {
+            scheduledResendService.cancelScheduledResends(error);
+        }
+        setDeleted(error);
+        auditLogService.logDeleteError(error);
+    }
+
+    /**
+     * Resends the causing events of the given errors of a bulk operation in one go and updates the errors within the
+     * current transaction, like {@link #manualResends(List)} does. Errors which are no longer retryable are skipped
+     * instead of failing the whole batch.
+     *
+     * @param user the user who submitted the bulk operation, recorded in the audit log
+     */
+    public BulkBatchResult resendForBulkOperation(List<UUID> errorIds, User user) {
+        List<Error> retryableErrors = errorRepository.findAllById(errorIds).stream()
+                .filter(error -> error.getState().isRetryAllowed())
+                .toList();
+        BatchResendResult result = failedEventResender.resendAll(retryableErrors);
+        List<Error> resentErrors = retryableErrors.stream()
+                .filter(result::isResent)
+                .toList();
+        scheduledResendService.cancelScheduledResends(resentErrors);
+        resentErrors.forEach(this::setRetried);
+        auditLogService.logResendCausingEvents(resentErrors, user);
+        BulkBatchResult batchResult = new BulkBatchResult(resentErrors.size(), errorIds.size() - retryableErrors.size(),
+                retryableErrors.size() - resentErrors.size());
+        log.info("Resent causing events of errors of a bulk operation: {}", batchResult);
+        return batchResult;
+    }
+
+    /**
+     * Deletes the given errors of a bulk operation within the current transaction, like {@link #delete(UUID, String)}
+     * does for a single error. Errors which are no longer deletable are skipped.
+     *
+     * @param reason the closing reason of the errors, at most 1000 characters, optional
+     * @param user   the user who submitted the bulk operation, recorded in the audit log
+     */
+    public BulkBatchResult deleteForBulkOperation(List<UUID> errorIds, String reason, User user) {
+        List<Error> deletableErrors = errorRepository.findAllById(errorIds).stream()
+                .filter(error -> error.getState().isDeleteAllowed())
+                .toList();
+        scheduledResendService.cancelScheduledResends(deletableErrors);
+        for (Error error : deletableErrors) {
+            if (reason != null && !reason.isBlank()) {
+                error.setClosingReason(reason);
+            }
+            setDeleted(error);
+        }
+        auditLogService.logDeleteErrors(deletableErrors, user);
+        BulkBatchResult batchResult = new BulkBatchResult(deletableErrors.size(), errorIds.size() - deletableErrors.size(), 0);
+        log.info("Deleted errors of a bulk operation: {}", batchResult);
+        return batchResult;
+    }
+
+    /**
+     * Scheduled resends of the error must have been cancelled before
+     */
+    private void setDeleted(Error error) {
+        switch (error.getState()) {
             case PERMANENT:
                 error.setState(ErrorState.DELETE_ON_MANUALTASK);
-                deleteManualTask(error);
+                enqueueTaskAction(error, TaskOutboxEntry.Action.DELETE_TASK);
                 break;
             case TEMPORARY_RETRY_PENDING:
-                scheduledResendService.cancelScheduledResends(error);
-                error.setState(ErrorState.DELETED);
-                break;
             case SEND_TO_MANUALTASK:
                 error.setState(ErrorState.DELETED);
                 break;
             default:
                 throw new IllegalStateException("Error is not in deletable state: " + error.getState());
         }
-        auditLogService.logDeleteError(error);
     }
 
 
     Error createPermanent(Error error) {
         error.setState(ErrorState.SEND_TO_MANUALTASK);
-        createManualTask(error);
+        return savePermanent(error);
+    }
+
+    /**
+     * Saves a permanent error in the state SEND_TO_MANUALTASK. Its manual task is created by the task outbox worker
+     * once the transaction has been committed, so that a slow task management service does not hold up the
+     * consumption of error events.
+     */
+    private Error savePermanent(Error error) {
         String causingService = error.getErrorEventMetadata().getPublisher().getService();
         errorHandlingMetricsService.incrementPermanentCounter(causingService);
         errorGroupService.assignToErrorGroup(error);
-        return errorRepository.save(error);
+        errorEventDuplicateFilter.markHandled(error.getErrorEventMetadata().getIdempotenceId());
+        Error savedError = errorRepository.save(error);
+        enqueueTaskAction(savedError, TaskOutboxEntry.Action.CREATE_TASK);
+        return savedError;
     }
 
     Error createTemporary(Error error, ZonedDateTime resentAt) {
         error.setState(ErrorState.TEMPORARY_RETRY_PENDING);
         UUID id = error.getId();
         error = errorRepository.save(error);
+        errorEventDuplicateFilter.markHandled(error.getErrorEventMetadata().getIdempotenceId());
         errorHandlingMetricsService.incrementTemporaryCounter();
         scheduledResendService.scheduleResend(id, resentAt);
         return error;
@@ -218,7 +551,7 @@ public class ErrorService {
                 break;
             case PERMANENT:
                 error.setState(ErrorState.RESOLVE_ON_MANUALTASK);
-                closeManualTask(error);
+                enqueueTaskAction(error, TaskOutboxEntry.Action.CLOSE_TASK);
                 break;
             case SEND_TO_MANUALTASK:
                 error.setState(ErrorState.PERMANENT_RETRIED);
@@ -237,6 +570,33 @@ public class ErrorService {
         }
     }
 
+    private void enqueueTaskAction(Error error, TaskOutboxEntry.Action action) {
+        taskOutboxEntryRepository.save(new TaskOutboxEntry(error.getId(), action));
+    }
+
+    /**
+     * Executes the call to the task management service of the given outbox entry and removes the entry. The entry is
+     * removed as well if the call has become obsolete, i.e. if the error is no longer waiting for it.
+     *
+     * @return false if the call failed and the entry has been kept for a later attempt, true otherwise
+     */
+    public boolean executeTaskOutboxEntry(TaskOutboxEntry entry) {
+        ErrorState pendingState = entry.getAction().getPendingState();
+        Optional<Error> error = errorRepository.findById(entry.getErrorId());
+        if (error.isPresent() && error.get().getState() == pendingState) {
+            switch (entry.getAction()) {
+                case CREATE_TASK -> createManualTask(error.get());
+                case CLOSE_TASK -> closeManualTask(error.get());
+                case DELETE_TASK -> deleteManualTask(error.get());
+            }
+            if (error.get().getState() == pendingState) {
+                return false;
+            }
+        }
+        taskOutboxEntryRepository.deleteById(entry.getId());
+        return true;
+    }
+
     public void createManualTask(Error error) {
         if (error.getState() != ErrorState.SEND_TO_MANUALTASK) {
             throw new IllegalStateException(MANUAL_RESEND_NOT_ALLOWED + error.getState());
@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCursor;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ErrorSlice {
+    List<ErrorListItem> errors;
+    /**
+     * Cursor of the last error in the slice, or null if no errors follow
+     */
+    ErrorCursor nextCursor;
+    /**
+     * Total number of errors in the list, or null if not requested
+     */
+    Long totalElements;
+
+    /**
+     * @param errors the errors of the slice followed by the first error of the next slice, if any
+     */
+    static ErrorSlice of(List<ErrorListItem> errors, int size, Long totalElements) {
+        if (errors.size() <= size) {
+            return new ErrorSlice(errors, null, totalElements);
+        }
+        List<ErrorListItem> slice = errors.subList(0, size);
+        return new ErrorSlice(slice, ErrorCursor.of(slice.getLast()), totalElements);
+    }
+}
@@ -0,0 +1,15 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCursor;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Requests the errors following the cursor in a list ordered by creation time and ID
+ *
+ * @param cursor         position after which the slice starts, null for the first slice
+ * @param direction      direction of the order by creation time and ID
+ * @param size           maximum number of errors in the slice
+ * @param withTotalCount whether the total number of errors in the list is counted
+ */
+public record ErrorSliceRequest(ErrorCursor cursor, Sort.Direction direction, int size, boolean withTotalCount) {
+}
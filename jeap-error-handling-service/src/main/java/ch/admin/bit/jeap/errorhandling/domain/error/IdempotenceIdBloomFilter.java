@@ -0,0 +1,111 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter for idempotence IDs. {@link #mightContain(String)} never returns false for an ID that has
+ * been put into the filter, but may return true for an ID that has not (with about the configured false positive
+ * probability as long as no more than the expected number of IDs have been put into the filter).
+ */
+final class IdempotenceIdBloomFilter {
+
+    private static final double LN_2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashFunctionCount;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private IdempotenceIdBloomFilter(long bitCount, int hashFunctionCount, long expectedInsertions) {
+        this.words = new AtomicLongArray(Math.toIntExact((bitCount + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = bitCount;
+        this.hashFunctionCount = hashFunctionCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    static IdempotenceIdBloomFilter create(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1: " + falsePositiveProbability);
+        }
+        long bitCount = Math.max(Long.SIZE, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN_2 * LN_2)));
+        int hashFunctionCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * LN_2));
+        return new IdempotenceIdBloomFilter(bitCount, hashFunctionCount, expectedInsertions);
+    }
+
+    void put(String idempotenceId) {
+        long hash = hash(idempotenceId);
+        long hash1 = mix(hash);
+        long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctionCount; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, bitCount);
+            setBit(bitIndex);
+        }
+        insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String idempotenceId) {
+        long hash = hash(idempotenceId);
+        long hash1 = mix(hash);
+        long hash2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashFunctionCount; i++) {
+            long bitIndex = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if more IDs have been put into the filter than it has been sized for, i.e. if its false positive
+     * probability has become higher than the configured one
+     */
+    boolean isSaturated() {
+        return insertions.get() > expectedInsertions;
+    }
+
+    long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    private void setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | mask));
+    }
+
+    /**
+     * 64-bit FNV-1a hash over the characters of the ID
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalization step of MurmurHash3, spreads the bits of the FNV hash over the whole 64 bits
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93FE1A85EC1L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
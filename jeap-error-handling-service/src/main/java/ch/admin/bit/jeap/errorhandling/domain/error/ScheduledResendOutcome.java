@@ -0,0 +1,24 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+
+/**
+ * Outcome of a scheduled resend sent by {@link ErrorService#sendScheduledResends(java.util.List)}, to be recorded
+ * with {@link ErrorService#recordScheduledResends(java.util.List)}
+ *
+ * @param failureMessage why the causing event has not been resent, or null if it has been resent
+ */
+public record ScheduledResendOutcome(ScheduledResend scheduledResend, String failureMessage) {
+
+    static ScheduledResendOutcome resent(ScheduledResend scheduledResend) {
+        return new ScheduledResendOutcome(scheduledResend, null);
+    }
+
+    static ScheduledResendOutcome failed(ScheduledResend scheduledResend, String failureMessage) {
+        return new ScheduledResendOutcome(scheduledResend, failureMessage);
+    }
+
+    public boolean isResent() {
+        return failureMessage == null;
+    }
+}
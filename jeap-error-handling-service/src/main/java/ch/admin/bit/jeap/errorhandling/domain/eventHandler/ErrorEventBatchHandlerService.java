@@ -0,0 +1,89 @@
+package ch.admin.bit.jeap.errorhandling.domain.eventHandler;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchErrorEventHandler;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEvent;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ErrorEventBatchHandlerService implements BatchErrorEventHandler {
+    private final ErrorService errorService;
+    private final CausingEventRepository causingEventRepository;
+    private final ErrorEventMapper errorEventMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Does the same as {@link ErrorEventHandlerService#handle(String, MessageProcessingFailedEvent)} for all error
+     * events of a poll, but with one transaction for the whole batch.
+     */
+    @Override
+    public void handleBatch(String clusterName, List<MessageProcessingFailedEvent> errorEvents) {
+        List<MessageProcessingFailedEvent> newErrorEvents = withoutDuplicates(errorEvents);
+        if (newErrorEvents.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CausingEvent> causingEvents = newErrorEvents.stream()
+                    .map(errorEvent -> errorEventMapper.toCausingEvent(clusterName, errorEvent))
+                    .toList();
+            Map<String, CausingEvent> persistentCausingEvents = saveOrUpdateCausingEvents(causingEvents);
+
+            List<Error> errors = new ArrayList<>(newErrorEvents.size());
+            for (int i = 0; i < newErrorEvents.size(); i++) {
+                CausingEvent causingEvent = persistentCausingEvents.get(causingEvents.get(i).getMetadata().getId());
+                errors.add(errorEventMapper.toError(newErrorEvents.get(i), causingEvent));
+            }
+            errorService.handleErrorBatch(errors);
+        });
+        log.debug("Handled a batch of {} error events", newErrorEvents.size());
+    }
+
+    /**
+     * Removes error events delivered more than once within the batch as well as error events already handled
+     * before.
+     */
+    private List<MessageProcessingFailedEvent> withoutDuplicates(List<MessageProcessingFailedEvent> errorEvents) {
+        Map<String, MessageProcessingFailedEvent> errorEventsByIdempotenceId = new LinkedHashMap<>();
+        errorEvents.forEach(errorEvent ->
+                errorEventsByIdempotenceId.putIfAbsent(errorEvent.getIdentity().getIdempotenceId(), errorEvent));
+
+        Set<String> handledErrorEvents = errorService.findHandledErrorEvents(errorEventsByIdempotenceId.keySet());
+        if (!handledErrorEvents.isEmpty()) {
+            log.info("Received {} error events with an already handled idempotence ID. Skipping these events.", handledErrorEvents.size());
+            errorEventsByIdempotenceId.keySet().removeAll(handledErrorEvents);
+        }
+        return new ArrayList<>(errorEventsByIdempotenceId.values());
+    }
+
+    /**
+     * Creates the new causing events and updates the existing ones with the latest information, see
+     * {@link ErrorEventHandlerService} for the reasoning. If a causing event occurs more than once within the batch,
+     * its latest occurrence wins.
+     *
+     * @return the persistent causing events by causing event ID
+     */
+    private Map<String, CausingEvent> saveOrUpdateCausingEvents(List<CausingEvent> causingEvents) {
+        return causingEventRepository.upsertAll(causingEvents).stream()
+                .collect(toMap(causingEvent -> causingEvent.getMetadata().getId(), identity()));
+    }
+}
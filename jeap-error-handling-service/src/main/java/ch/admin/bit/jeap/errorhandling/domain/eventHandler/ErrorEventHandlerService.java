@@ -14,8 +14,6 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Optional;
-
 @Slf4j
 @RequiredArgsConstructor
 @Component
@@ -55,34 +53,28 @@ public class ErrorEventHandlerService implements ErrorEventHandler {
     private CausingEvent createOrGetCausingEvent(String clusterName, MessageProcessingFailedEvent errorEvent) {
         CausingEvent causingEvent = errorEventMapper.toCausingEvent(clusterName, errorEvent);
         try {
-            return saveOrGetCausingEvent(causingEvent);
+            return saveOrUpdateCausingEvent(causingEvent);
         } catch (TransactionException ex) {
             if (ex.contains(DataIntegrityViolationException.class)) {
-                // Duplicate event id, saved by concurrent transaction - retry to get existing causing event
-                return saveOrGetCausingEvent(causingEvent);
+                // Duplicate event id, saved by concurrent transaction - retry to update the existing causing event.
+                // Only happens on databases without native upsert support, see CausingEventRepository#upsert
+                return saveOrUpdateCausingEvent(causingEvent);
             }
             throw ex;
         }
     }
 
-    private CausingEvent saveOrGetCausingEvent(CausingEvent causingEvent) {
+    private CausingEvent saveOrUpdateCausingEvent(CausingEvent causingEvent) {
         TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
         return transactionTemplate.execute(status -> {
-            Optional<CausingEvent> persistentCausingEventOptional = causingEventRepository.findByCausingEventId(causingEvent.getMetadata().getId());
-
-            if (persistentCausingEventOptional.isEmpty()) {
-                log.debug("New causing event: {}.", causingEvent);
-                return causingEventRepository.save(causingEvent);
-            }
-            CausingEvent persistentCausingEvent = persistentCausingEventOptional.get();
             // If the causing event already exists, we update it with the latest information
             // While this is not necessary usually, it might be required in certain migration cases (new heders,
             // new message format due to cluster migrations with different binary record formats, etc)
-            // As there is no way to determine whether an update is strictly necessary, it is always performed.
-            persistentCausingEvent.update(causingEvent.getMetadata(), causingEvent.getMessage(), causingEvent.getHeaders());
-            log.debug("Updated causing event: {}.", persistentCausingEvent);
-
-            return causingEventRepository.save(persistentCausingEvent);
+            // The update is skipped if the content fingerprint of the causing event (payload, key, headers) is unchanged,
+            // which is the case for the usual repeated failure of the same causing event.
+            CausingEvent persistentCausingEvent = causingEventRepository.upsert(causingEvent);
+            log.debug("Saved causing event: {}.", persistentCausingEvent);
+            return persistentCausingEvent;
         });
     }
 }
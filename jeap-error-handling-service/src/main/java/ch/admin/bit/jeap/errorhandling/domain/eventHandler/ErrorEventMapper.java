@@ -25,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -36,23 +37,31 @@ class ErrorEventMapper {
 
     private static final String EVENT_ID = "eventId";
     private final TraceContextProvider traceContextProvider;
+    private final StackTraceRepository stackTraceRepository;
+    private final CausingEventHeaders causingEventHeaders;
     private final Map<String, Deserializer<GenericData.Record>> deserializersByClusterName;
 
     ErrorEventMapper(DomainEventDeserializerProvider deserializerFactory,
                      TraceContextProvider traceContextProvider,
-                     KafkaProperties kafkaProperties) {
+                     KafkaProperties kafkaProperties,
+                     StackTraceRepository stackTraceRepository,
+                     CausingEventHeaders causingEventHeaders) {
         this.deserializersByClusterName = kafkaProperties.clusterNames().stream()
                 .collect(Collectors.toMap(clusterName -> clusterName,
                         deserializerFactory::getGenericRecordDomainEventDeserializer));
         this.traceContextProvider = traceContextProvider;
+        this.stackTraceRepository = stackTraceRepository;
+        this.causingEventHeaders = causingEventHeaders;
     }
 
     CausingEvent toCausingEvent(String clusterName, MessageProcessingFailedEvent errorEvent) {
-        return CausingEvent.builder()
+        CausingEvent causingEvent = CausingEvent.builder()
                 .metadata(extractCausingEventMetadata(clusterName, errorEvent))
                 .message(extractCausingEventMessage(clusterName, errorEvent))
                 .headers(extractCausingEventHeaders(errorEvent))
                 .build();
+        causingEventHeaders.applyStorageFormat(causingEvent);
+        return causingEvent;
     }
 
     private List<MessageHeader> extractCausingEventHeaders(MessageProcessingFailedEvent errorEvent) {
@@ -60,11 +69,11 @@ class ErrorEventMapper {
                 errorEvent.getPayload().getOptionalFailedMessageMetadata();
 
         if (optionalFailedMessageMetadata.isEmpty()) {
-            return List.of();
+            return new ArrayList<>();
         }
         Map<String, ByteBuffer> headers = optionalFailedMessageMetadata.get().getHeaders();
         if (headers == null) {
-            return List.of();
+            return new ArrayList<>();
         }
 
         return headers.entrySet().stream()
@@ -72,7 +81,8 @@ class ErrorEventMapper {
                         .headerName(entry.getKey())
                         .headerValue(entry.getValue().array())
                         .build())
-                .toList();
+                // Hibernate keeps using the list for new causing events, so it has to be mutable
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     Error toError(MessageProcessingFailedEvent errorEvent, CausingEvent causingEvent) {
@@ -222,11 +232,24 @@ class ErrorEventMapper {
                 temporality(Temporality.valueOf(errorTypeReference.getTemporality())).
                 message(replaceNullCharWithBlank(errorPayload.getErrorMessage())).
                 description(errorPayload.getErrorDescription()).
-                stackTrace(replaceNullCharWithBlank(errorPayload.getStackTrace())).
+                stackTraceRef(storeStackTrace(replaceNullCharWithBlank(errorPayload.getStackTrace()))).
                 stackTraceHash(errorPayload.getStackTraceHash()).
                 build();
     }
 
+    /**
+     * Errors failing at the same place mostly report the same stack trace, which is therefore stored only once and
+     * referenced by the errors.
+     *
+     * @return the reference to the stored stack trace, null if there is no stack trace
+     */
+    private String storeStackTrace(String stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        return stackTraceRepository.saveIfAbsent(StackTrace.of(stackTrace));
+    }
+
     /**
      * Postgres cannot store null chars as text. Replacing the null chars with blanks.
      *
@@ -25,6 +25,13 @@ public class ErrorGroupConfigProperties {
     @NestedConfigurationProperty
     private ErrorGroupIssueTrackingProperties issueTracking;
 
+    /**
+     * Bounds of the in-memory cache of error group IDs used when assigning errors to error groups.
+     */
+    @Valid
+    @NestedConfigurationProperty
+    private ErrorGroupIdCacheProperties idCache = new ErrorGroupIdCacheProperties();
+
     public boolean isIssueTrackingEnabled() {
         return issueTracking != null;
     }
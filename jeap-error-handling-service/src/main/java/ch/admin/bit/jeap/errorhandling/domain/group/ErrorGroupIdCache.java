@@ -0,0 +1,95 @@
+package ch.admin.bit.jeap.errorhandling.domain.group;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroup;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Caches the ID of the error group matching a (publisher, error code, event name, stack trace hash) combination, so
+ * that the error group of a permanent error can be resolved without a database round trip. Hits and misses are
+ * published as {@value #CACHE_NAME} cache metrics.
+ * <p>
+ * IDs are only cached once the transaction assigning an error to the group has been committed. Every cached ID thus
+ * belongs to an error group referenced by an error created less than {@link ErrorGroupIdCacheProperties#getExpireAfterWrite()}
+ * ago, which the housekeeping of another instance does not delete as long as the expiry is shorter than the maximum
+ * error age. Error groups deleted by the housekeeping of this instance are evicted immediately.
+ */
+@Component
+public class ErrorGroupIdCache {
+
+    static final String CACHE_NAME = "eh_error_group_ids";
+
+    private final Cache<ErrorGroupKey, UUID> errorGroupIds;
+
+    public ErrorGroupIdCache(ErrorGroupConfigProperties errorGroupConfigProperties, MeterRegistry meterRegistry) {
+        ErrorGroupIdCacheProperties properties = errorGroupConfigProperties.getIdCache();
+        this.errorGroupIds = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, errorGroupIds, CACHE_NAME);
+    }
+
+    /**
+     * @return the ID of the error group matching the given error group, or null if not cached
+     */
+    UUID get(ErrorGroup errorGroup) {
+        return errorGroupIds.getIfPresent(ErrorGroupKey.of(errorGroup));
+    }
+
+    /**
+     * Caches the ID of the given persistent error group once the current transaction (if any) has been committed
+     */
+    void putAfterCommit(ErrorGroup errorGroup) {
+        ErrorGroupKey key = ErrorGroupKey.of(errorGroup);
+        UUID errorGroupId = errorGroup.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    errorGroupIds.put(key, errorGroupId);
+                }
+            });
+        } else {
+            errorGroupIds.put(key, errorGroupId);
+        }
+    }
+
+    /**
+     * Evicts the given error groups, both immediately and once the current transaction (if any) has been committed,
+     * as a concurrent error might have cached them again in between.
+     */
+    public void evict(Collection<UUID> errorGroupIdsToEvict) {
+        if (errorGroupIdsToEvict.isEmpty()) {
+            return;
+        }
+        Set<UUID> evictedIds = Set.copyOf(errorGroupIdsToEvict);
+        errorGroupIds.asMap().values().removeAll(evictedIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    errorGroupIds.asMap().values().removeAll(evictedIds);
+                }
+            });
+        }
+    }
+
+    private record ErrorGroupKey(String errorPublisher, String errorCode, String eventName, String errorStackTraceHash) {
+
+        static ErrorGroupKey of(ErrorGroup errorGroup) {
+            return new ErrorGroupKey(errorGroup.getErrorPublisher(), errorGroup.getErrorCode(),
+                    errorGroup.getEventName(), errorGroup.getErrorStackTraceHash());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ch.admin.bit.jeap.errorhandling.domain.group;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+public class ErrorGroupIdCacheProperties {
+
+    /**
+     * Maximum number of error groups whose ID is kept in memory. 0 disables the cache.
+     */
+    @Min(0)
+    private long maxSize = 10_000;
+
+    /**
+     * How long the ID of an error group is kept in memory after it has been resolved from the database. Must be
+     * shorter than the maximum age of errors deleted by the housekeeping, see {@link ErrorGroupIdCache}.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+}
@@ -12,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionException;
@@ -39,6 +40,7 @@ public class ErrorGroupService {
     private final IssueDescriptionGenerator issueDescriptionGenerator;
     private final IssueSummaryGenerator issueSummaryGenerator;
     private final Optional<IssueTracking> issueTracking; // may be not configured
+    private final ErrorGroupIdCache errorGroupIdCache;
 
     public ErrorGroup assignToErrorGroup(Error error) {
         // error grouping is based on the error's stack trace hash: no hash -> no group
@@ -76,25 +78,36 @@ public class ErrorGroupService {
      */
     public ErrorGroupAggregatedDataList findErrorGroupAggregatedData(ErrorGroupSearchCriteria criteria) {
         Boolean noTicket = criteria.getNoTicket().orElse(false);
-
-        // Use extreme date values if not provided to avoid null checks in the query
-        ZonedDateTime dateFrom = criteria.getDateFrom().orElse(ZonedDateTime.parse(A_LONG_LONG_TIME_AGO));
-        ZonedDateTime dateTo = criteria.getDateTo().orElse(ZonedDateTime.parse(FAR_FAR_IN_THE_FUTURE));
-
         String source = criteria.getSource().orElse(null);
         String messageType = criteria.getMessageType().orElse(null);
         String errorCode = criteria.getErrorCode().orElse(null);
         String jiraTicket = criteria.getJiraTicket().orElse(null);
-
-        Page<ErrorGroupAggregatedData> groupAggregatedData = errorGroupRepository.findErrorGroupAggregatedData(
-                noTicket,
-                dateFrom,
-                dateTo,
-                source,
-                messageType,
-                errorCode,
-                jiraTicket,
-                criteria.getPageable(errorGroupConfigProperties.getDefaultSortField(), errorGroupConfigProperties.getDefaultSortOrder()));
+        Pageable pageable = criteria.getPageable(errorGroupConfigProperties.getDefaultSortField(), errorGroupConfigProperties.getDefaultSortOrder());
+
+        Page<ErrorGroupAggregatedData> groupAggregatedData;
+        if (criteria.getDateFrom().isEmpty() && criteria.getDateTo().isEmpty()) {
+            // Without a period, the maintained error group statistics cover all open errors of a group
+            groupAggregatedData = errorGroupRepository.findErrorGroupAggregatedDataFromStats(
+                    noTicket,
+                    source,
+                    messageType,
+                    errorCode,
+                    jiraTicket,
+                    pageable);
+        } else {
+            // Use extreme date values if not provided to avoid null checks in the query
+            ZonedDateTime dateFrom = criteria.getDateFrom().orElse(ZonedDateTime.parse(A_LONG_LONG_TIME_AGO));
+            ZonedDateTime dateTo = criteria.getDateTo().orElse(ZonedDateTime.parse(FAR_FAR_IN_THE_FUTURE));
+            groupAggregatedData = errorGroupRepository.findErrorGroupAggregatedData(
+                    noTicket,
+                    dateFrom,
+                    dateTo,
+                    source,
+                    messageType,
+                    errorCode,
+                    jiraTicket,
+                    pageable);
+        }
         return new ErrorGroupAggregatedDataList(groupAggregatedData.getTotalElements(), groupAggregatedData.getContent());
     }
 
@@ -123,6 +136,16 @@ public class ErrorGroupService {
 
     private ErrorGroup findOrCreateMatchingErrorGroup(Error error) {
         ErrorGroup errorGroup = ErrorGroup.from(error);
+        UUID cachedErrorGroupId = errorGroupIdCache.get(errorGroup);
+        if (cachedErrorGroupId != null) {
+            return errorGroupRepository.getReferenceById(cachedErrorGroupId);
+        }
+        ErrorGroup persistentErrorGroup = saveOrGetErrorGroupRetryingOnConflict(errorGroup);
+        errorGroupIdCache.putAfterCommit(persistentErrorGroup);
+        return persistentErrorGroup;
+    }
+
+    private ErrorGroup saveOrGetErrorGroupRetryingOnConflict(ErrorGroup errorGroup) {
         try {
             return saveOrGetErrorGroup(errorGroup);
         } catch (TransactionException e) {
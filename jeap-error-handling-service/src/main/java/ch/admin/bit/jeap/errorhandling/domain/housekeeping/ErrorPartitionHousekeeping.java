@@ -0,0 +1,96 @@
+package ch.admin.bit.jeap.errorhandling.domain.housekeeping;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorTablePartitions;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorTablePartitions.Partition;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+
+import static ch.admin.bit.jeap.errorhandling.domain.housekeeping.RepositoryHousekeeping.ERROR_STATES;
+
+/**
+ * Housekeeping of a partitioned error table: creates the monthly partitions for the upcoming errors in advance, and
+ * drops expired partitions as a whole instead of deleting their errors one by one. A partition is expired if all its
+ * errors are older than the maximum error age. It is only dropped if all its errors are in one of the states deleted
+ * by housekeeping; otherwise its errors are deleted one by one, sparing the ones in other states.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+class ErrorPartitionHousekeeping {
+
+    private final ErrorTablePartitions errorTablePartitions;
+    private final ErrorStateCountRepository errorStateCountRepository;
+    private final ErrorDimensionCountRepository errorDimensionCountRepository;
+    private final ErrorGroupStatsRepository errorGroupStatsRepository;
+    private final HouseKeepingServiceConfigProperties configProperties;
+
+    boolean isErrorTablePartitioned() {
+        return errorTablePartitions.isPartitioned();
+    }
+
+    /**
+     * Creates monthly partitions following the last partition, until the errors of the current month and of the
+     * configured number of months ahead have a partition
+     */
+    void createPartitions(ZonedDateTime now) {
+        List<Partition> partitions = errorTablePartitions.findPartitions();
+        if (partitions.stream().anyMatch(partition -> partition.lowerBound() != null && partition.upperBound() == null)) {
+            log.warn("Housekeeping: The last partition of the error table has no upper bound, not creating partitions");
+            return;
+        }
+        Instant currentMonth = startOfMonth(now.toInstant());
+        Instant until = plusMonths(currentMonth, configProperties.getErrorPartitionMonthsAhead() + 1);
+        Instant from = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(Objects::nonNull)
+                .max(Instant::compareTo)
+                .orElse(currentMonth);
+        while (from.isBefore(until)) {
+            Instant to = plusMonths(startOfMonth(from), 1);
+            errorTablePartitions.createPartition(from, to);
+            from = to;
+        }
+    }
+
+    /**
+     * @return the number of errors dropped with the expired partitions
+     */
+    long dropExpiredPartitions(ZonedDateTime olderThan) {
+        long droppedErrors = 0;
+        for (Partition partition : errorTablePartitions.findPartitions()) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(olderThan.toInstant())) {
+                continue;
+            }
+            if (errorTablePartitions.containsErrorsInStatesOtherThan(partition, ERROR_STATES)) {
+                log.info("Housekeeping: Partition {} contains errors to keep, deleting its errors one by one", partition.name());
+                continue;
+            }
+            droppedErrors += errorTablePartitions.dropPartition(partition);
+        }
+        if (droppedErrors > 0) {
+            // The errors dropped with the partitions have not been tracked
+            errorStateCountRepository.reconcile();
+            errorDimensionCountRepository.reconcile();
+            errorGroupStatsRepository.reconcile();
+        }
+        return droppedErrors;
+    }
+
+    private static Instant startOfMonth(Instant instant) {
+        return instant.atZone(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static Instant plusMonths(Instant instant, int months) {
+        return instant.atZone(ZoneOffset.UTC).plusMonths(months).toInstant();
+    }
+}
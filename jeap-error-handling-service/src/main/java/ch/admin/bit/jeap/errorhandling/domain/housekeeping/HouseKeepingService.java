@@ -15,12 +15,34 @@ import static ch.admin.bit.jeap.errorhandling.domain.housekeeping.RepositoryHous
 @RequiredArgsConstructor
 public class HouseKeepingService {
     private final RepositoryHousekeeping repositoryHousekeeping;
+    private final ErrorPartitionHousekeeping errorPartitionHousekeeping;
     private final HouseKeepingServiceConfigProperties configProperties;
 
     public void cleanup() {
+        maintainErrorPartitions();
         deleteOldErrors();
         deleteOldCausingEvents();
         deleteOldErrorGroups();
+        deleteOldStackTraces();
+        deleteOldErrorDimensionValues();
+    }
+
+    /**
+     * Errors of partitions which cannot be dropped, or could not be dropped because of a failure, are deleted one by
+     * one afterwards
+     */
+    private void maintainErrorPartitions() {
+        if (!errorPartitionHousekeeping.isErrorTablePartitioned()) {
+            return;
+        }
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            errorPartitionHousekeeping.createPartitions(now);
+            long droppedErrors = errorPartitionHousekeeping.dropExpiredPartitions(now.minus(configProperties.getErrorMaxAge()));
+            log.info("Housekeeping: Dropped {} errors with expired partitions of the error table", droppedErrors);
+        } catch (Exception e) {
+            log.error("Housekeeping: Maintenance of the error table partitions failed", e);
+        }
     }
 
     private void deleteOldErrors() {
@@ -50,6 +72,25 @@ public class HouseKeepingService {
         log.info("Housekeeping: Deleted all old error groups");
     }
 
+    private void deleteOldStackTraces() {
+        log.info("Housekeeping: Delete stack traces without errors");
+
+        executeInTransactionPerPage(repositoryHousekeeping::deleteStackTracesNotReferencedByAnyError);
+
+        log.info("Housekeeping: Deleted all old stack traces");
+    }
+
+    /**
+     * Runs after the deletion of the causing events, as the event names still used are looked up in the causing events
+     */
+    private void deleteOldErrorDimensionValues() {
+        log.info("Housekeeping: Delete error dimension values without errors");
+
+        repositoryHousekeeping.deleteErrorDimensionValuesNotUsedByAnyError();
+
+        log.info("Housekeeping: Deleted all old error dimension values");
+    }
+
     /**
      * The mix of JPQL and native queries in housekeeping requires care when querying for objects deleted by native
      * queries. A hibernate session flush is forced after every page by using a new transaction. This also reduces
@@ -29,4 +29,10 @@ public class HouseKeepingServiceConfigProperties {
      * (the time to delete maxPages * pageSize elements of each kind).
      */
     private int maxPages = 100000;
+
+    /**
+     * Number of months ahead of the current month for which partitions are created, if the error table has been
+     * partitioned (see docs/operations.md). Default is 3
+     */
+    private int errorPartitionMonthsAhead = 3;
 }
@@ -0,0 +1,55 @@
+package ch.admin.bit.jeap.errorhandling.domain.housekeeping;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventPayloads;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PayloadCodec;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PayloadCompression;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PayloadCompressionProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockAssert;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Compresses the payloads of the causing events stored before a codec was configured with the configured codec, if
+ * enabled. Each page of causing events is compressed in its own transaction, so that the job can be interrupted at
+ * any time; the next run continues with the causing events not compressed yet.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PayloadRecompressionScheduler {
+
+    private final PayloadCompressionProperties payloadCompressionProperties;
+    private final PayloadCompression payloadCompression;
+    private final CausingEventPayloads causingEventPayloads;
+
+    @Scheduled(cron = "#{@payloadCompressionProperties.recompression.cronExpression}")
+    @SchedulerLock(name = "recompress-causing-event-payloads", lockAtLeastFor = "#{@payloadCompressionProperties.recompression.lockAtLeast.toString()}", lockAtMostFor = "#{@payloadCompressionProperties.recompression.lockAtMost.toString()}")
+    public void execute() {
+        PayloadCompressionProperties.Recompression recompression = payloadCompressionProperties.getRecompression();
+        if (!recompression.isEnabled() || payloadCompression.getCodec() == PayloadCodec.NONE) {
+            return;
+        }
+        LockAssert.assertLocked();
+        log.info("Compressing stored causing event payloads with codec {}", payloadCompression.getCodec());
+        int pages = recompress(recompression.getPageSize(), recompression.getMaxPages());
+        log.info("Compressed {} pages of stored causing event payloads", pages);
+    }
+
+    /**
+     * @return the number of pages compressed
+     */
+    int recompress(int pageSize, int maxPages) {
+        UUID after = null;
+        int pages = 0;
+        do {
+            after = causingEventPayloads.compressNextPage(after, pageSize);
+            pages++;
+        } while (after != null && pages < maxPages);
+        return pages;
+    }
+}
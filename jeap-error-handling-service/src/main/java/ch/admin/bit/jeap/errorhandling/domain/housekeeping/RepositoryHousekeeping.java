@@ -1,5 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.domain.housekeeping;
 
+import ch.admin.bit.jeap.errorhandling.domain.group.ErrorGroupIdCache;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.*;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
 import lombok.RequiredArgsConstructor;
@@ -30,7 +31,14 @@ public class RepositoryHousekeeping {
     private final CausingEventRepository causingEventRepository;
     private final ScheduledResendRepository scheduledResendRepository;
     private final AuditLogRepository auditLogRepository;
+    private final TaskOutboxEntryRepository taskOutboxEntryRepository;
+    private final ErrorAttemptRepository errorAttemptRepository;
+    private final StackTraceRepository stackTraceRepository;
+    private final ErrorDimensionValueRepository errorDimensionValueRepository;
+    private final ErrorStateCountTracker errorStateCountTracker;
+    private final ErrorGroupStatsTracker errorGroupStatsTracker;
     private final HouseKeepingServiceConfigProperties configProperties;
+    private final ErrorGroupIdCache errorGroupIdCache;
 
     /**
      * @return true if there are more errors to delete, false otherwise
@@ -45,7 +53,13 @@ public class RepositoryHousekeeping {
         scheduledResendRepository.deleteAllByErrorIdIn(errorIds);
         log.info("Housekeeping: delete audit logs...");
         auditLogRepository.deleteAllByErrorIdIn(errorIds);
+        log.info("Housekeeping: delete task outbox entries...");
+        taskOutboxEntryRepository.deleteAllByErrorIdIn(errorIds);
+        log.info("Housekeeping: delete error attempts...");
+        errorAttemptRepository.deleteAllByErrorIdIn(errorIds);
         log.info("Housekeeping: delete errors...");
+        errorStateCountTracker.errorsDeleted(errorIds);
+        errorGroupStatsTracker.errorsDeleted(errorIds);
         errorRepository.deleteAllById(errorIds);
         log.info("Housekeeping: deleted {} errors", errorIds.size());
         return resultPage.hasNext();
@@ -76,7 +90,37 @@ public class RepositoryHousekeeping {
         log.info("Housekeeping: found {} error groups to delete", resultPage.getNumberOfElements());
         log.info("Housekeeping: delete error groups...");
         errorGroupRepository.deleteAllById(resultPage.getContent());
+        errorGroupIdCache.evict(resultPage.getContent());
         log.info("Housekeeping: error groups deleted");
         return resultPage.hasNext();
     }
+
+    /**
+     * @return true if there are more stack traces to delete, false otherwise
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean deleteStackTracesNotReferencedByAnyError() {
+        ZonedDateTime notUsedSince = ZonedDateTime.now().minus(StackTrace.LAST_USED_REFRESH_INTERVAL.multipliedBy(2));
+        final Slice<String> resultPage = stackTraceRepository
+                .findUnreferencedStackTraceHashes(notUsedSince, Pageable.ofSize(configProperties.getPageSize()));
+        log.info("Housekeeping: found {} stack traces to delete", resultPage.getNumberOfElements());
+        log.info("Housekeeping: delete stack traces...");
+        stackTraceRepository.deleteAllByHashIn(resultPage.getContent(), notUsedSince);
+        log.info("Housekeeping: stack traces deleted");
+        return resultPage.hasNext();
+    }
+
+    /**
+     * The values are not deleted in pages, as there are few values compared to errors
+     *
+     * @return the number of deleted error dimension values
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int deleteErrorDimensionValuesNotUsedByAnyError() {
+        ZonedDateTime notSeenSince = ZonedDateTime.now().minus(ErrorDimensionTracker.REFRESH_INTERVAL.multipliedBy(2));
+        log.info("Housekeeping: delete error dimension values...");
+        int deletedValues = errorDimensionValueRepository.deleteUnused(notSeenSince);
+        log.info("Housekeeping: deleted {} error dimension values", deletedValues);
+        return deletedValues;
+    }
 }
@@ -0,0 +1,51 @@
+package ch.admin.bit.jeap.errorhandling.domain.manualtask.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Configuration properties for {@link TaskOutboxWorker}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.task-management.outbox")
+@Data
+class TaskOutboxProperties {
+    /**
+     * How long to wait after a run before looking for due outbox entries again
+     */
+    private Duration pollInterval = Duration.of(2, ChronoUnit.SECONDS);
+    /**
+     * Maximal number of outbox entries to process in one batch
+     */
+    private int batchSize = 50;
+    /**
+     * Maximal number of batches to process in one run
+     */
+    private int maxConsecutiveBatches = 20;
+    /**
+     * Maximal number of concurrent calls to the task management service
+     */
+    private int concurrency = 4;
+    /**
+     * Delay before the first retry of a failed call. The delay doubles with every further failure.
+     */
+    private Duration initialRetryDelay = Duration.of(30, ChronoUnit.SECONDS);
+    /**
+     * Maximal delay between two retries of a failed call
+     */
+    private Duration maxRetryDelay = Duration.of(30, ChronoUnit.MINUTES);
+    /**
+     * Minimal time to keep a lock at this job,
+     * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+     */
+    private Duration lockAtLeast = Duration.of(1, ChronoUnit.SECONDS);
+    /**
+     * Maximal time to keep a lock at this job,
+     * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+     */
+    private Duration lockAtMost = Duration.of(30, ChronoUnit.MINUTES);
+}
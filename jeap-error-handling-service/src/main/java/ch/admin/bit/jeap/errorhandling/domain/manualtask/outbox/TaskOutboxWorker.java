@@ -0,0 +1,108 @@
+package ch.admin.bit.jeap.errorhandling.domain.manualtask.outbox;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockAssert;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Makes the calls to the task management service recorded in the task outbox. Entries are processed in batches, with
+ * a bounded number of concurrent calls. Failed calls are retried with an exponential backoff.
+ */
+@Component
+@Slf4j
+class TaskOutboxWorker {
+    private final TaskOutboxEntryRepository taskOutboxEntryRepository;
+    private final ErrorService errorService;
+    private final TaskOutboxProperties taskOutboxProperties;
+    private final ExecutorService executorService;
+
+    TaskOutboxWorker(TaskOutboxEntryRepository taskOutboxEntryRepository, ErrorService errorService, TaskOutboxProperties taskOutboxProperties) {
+        this.taskOutboxEntryRepository = taskOutboxEntryRepository;
+        this.errorService = errorService;
+        this.taskOutboxProperties = taskOutboxProperties;
+        this.executorService = Executors.newFixedThreadPool(taskOutboxProperties.getConcurrency(), new CustomizableThreadFactory("task-outbox-"));
+    }
+
+    @Scheduled(fixedDelayString = "#{@taskOutboxProperties.pollInterval.toString()}")
+    @SchedulerLock(name = "process-task-outbox", lockAtLeastFor = "#{@taskOutboxProperties.lockAtLeast.toString()}", lockAtMostFor = "#{@taskOutboxProperties.lockAtMost.toString()}")
+    public void processOutbox() {
+        LockAssert.assertLocked();
+        int processedBatches = 0;
+        while (processedBatches < taskOutboxProperties.getMaxConsecutiveBatches()) {
+            List<TaskOutboxEntry> batch = taskOutboxEntryRepository.findDueOldestFirst(ZonedDateTime.now(), taskOutboxProperties.getBatchSize());
+            if (batch.isEmpty()) {
+                log.trace("No due task outbox entries found. Waiting for next execution...");
+                return;
+            }
+            log.debug("Got {} due task outbox entries in batch #{}.", batch.size(), processedBatches);
+            int completedEntries = processBatch(batch);
+            processedBatches++;
+            if (completedEntries == 0) {
+                log.info("All {} calls to the task management service failed. Proceeding at next execution...", batch.size());
+                return;
+            }
+        }
+        log.debug("Maximum number of consecutive batches reached. Proceeding at next execution...");
+    }
+
+    /**
+     * @return the number of entries completed
+     */
+    int processBatch(List<TaskOutboxEntry> batch) {
+        List<Future<Boolean>> results = batch.stream()
+                .map(entry -> executorService.submit(() -> process(entry)))
+                .toList();
+        int completedEntries = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) {
+                    completedEntries++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return completedEntries;
+            } catch (ExecutionException e) {
+                log.error("Could not process task outbox entry", e.getCause());
+            }
+        }
+        return completedEntries;
+    }
+
+    private boolean process(TaskOutboxEntry entry) {
+        try {
+            if (errorService.executeTaskOutboxEntry(entry)) {
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("Could not execute task outbox entry {}, retry later", entry, e);
+        }
+        entry.scheduleRetry(retryDelay(entry.getAttempts()));
+        taskOutboxEntryRepository.save(entry);
+        return false;
+    }
+
+    Duration retryDelay(int previousAttempts) {
+        Duration retryDelay = taskOutboxProperties.getInitialRetryDelay().multipliedBy(1L << Math.min(previousAttempts, 20));
+        return retryDelay.compareTo(taskOutboxProperties.getMaxRetryDelay()) > 0 ? taskOutboxProperties.getMaxRetryDelay() : retryDelay;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -1,7 +1,7 @@
 package ch.admin.bit.jeap.errorhandling.domain.manualtask.resend;
 
-import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.core.LockAssert;
@@ -10,33 +10,42 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.UUID;
 
+/**
+ * Reconciles the errors waiting for a call to the task management service with the task outbox: errors whose outbox
+ * entry is missing, e.g. because they have been stored before the outbox has been introduced, get a new entry. The
+ * calls themselves are made by the task outbox worker.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 class TasksSynchronize {
-    private final ErrorService errorService;
+    private final TaskOutboxEntryRepository taskOutboxEntryRepository;
     private final TasksSynchronizeProperties tasksSynchronizeProperties;
 
     @Scheduled(cron = "#{@tasksSynchronizeProperties.cronExpression}")
     @SchedulerLock(name = "sync-pending-tasks", lockAtLeastFor = "#{@tasksSynchronizeProperties.lockAtLeast.toString()}", lockAtMostFor = "#{@tasksSynchronizeProperties.lockAtMost.toString()}")
     public void syncWithManualTask() {
         LockAssert.assertLocked();
-        syncState(Error.ErrorState.SEND_TO_MANUALTASK, errorService::createManualTask, "opened");
-        syncState(Error.ErrorState.RESOLVE_ON_MANUALTASK, errorService::closeManualTask, "resolved");
-        syncState(Error.ErrorState.DELETE_ON_MANUALTASK, errorService::deleteManualTask, "deleted");
+        for (TaskOutboxEntry.Action action : TaskOutboxEntry.Action.values()) {
+            syncState(action);
+        }
     }
 
-    private void syncState(Error.ErrorState state, Consumer<Error> handler, String action) {
+    private void syncState(TaskOutboxEntry.Action action) {
         int processedChunks = 0;
         while (processedChunks < tasksSynchronizeProperties.getMaxConsecutiveChunks()) {
-            log.trace("Fetching at max {} errors not yet {} at manual task service.", tasksSynchronizeProperties.getMaxResendChunkSize(), action);
-            List<Error> chunk = errorService.getErrorListByState(state, 0, tasksSynchronizeProperties.getMaxResendChunkSize()).getErrors();
-            log.debug("Got {} tasks not yet {}", chunk.size(), action);
-            chunk.forEach(handler);
+            log.trace("Fetching at max {} errors in state {} without task outbox entry.", tasksSynchronizeProperties.getMaxResendChunkSize(), action.getPendingState());
+            List<UUID> chunk = taskOutboxEntryRepository.findErrorIdsWithoutOutboxEntry(action.getPendingState(), tasksSynchronizeProperties.getMaxResendChunkSize());
+            if (!chunk.isEmpty()) {
+                log.info("Adding a {} task outbox entry for {} errors in state {}", action, chunk.size(), action.getPendingState());
+                taskOutboxEntryRepository.saveAll(chunk.stream()
+                        .map(errorId -> new TaskOutboxEntry(errorId, action))
+                        .toList());
+            }
             processedChunks++;
-            if (processedChunks < tasksSynchronizeProperties.getMaxResendChunkSize()) {
+            if (chunk.size() < tasksSynchronizeProperties.getMaxResendChunkSize()) {
                 log.trace("As not full, this was the last page");
                 return;
             }
@@ -0,0 +1,32 @@
+package ch.admin.bit.jeap.errorhandling.domain.metrics;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockAssert;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalculates the incrementally maintained error group statistics from the errors, correcting statistics that have
+ * drifted, e.g. because errors have been changed directly in the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+class ErrorGroupStatsReconciler {
+    private final ErrorGroupStatsRepository errorGroupStatsRepository;
+
+    @Scheduled(cron = "#{@errorGroupStatsReconcilerProperties.cronExpression}")
+    @SchedulerLock(name = "reconcile-error-group-stats", lockAtLeastFor = "#{@errorGroupStatsReconcilerProperties.lockAtLeast.toString()}", lockAtMostFor = "#{@errorGroupStatsReconcilerProperties.lockAtMost.toString()}")
+    public void reconcile() {
+        LockAssert.assertLocked();
+        int correctedGroups = errorGroupStatsRepository.reconcile();
+        if (correctedGroups > 0) {
+            log.warn("Corrected the drifted statistics of {} error groups", correctedGroups);
+        } else {
+            log.debug("Error group statistics are up to date");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ch.admin.bit.jeap.errorhandling.domain.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Configuration properties for {@link ErrorGroupStatsReconciler}
+ */
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.metrics.group-stats-reconciler")
+@Data
+class ErrorGroupStatsReconcilerProperties {
+    /**
+     * How often to recalculate the error group statistics? Must be a cron expression,
+     * see {@link org.springframework.scheduling.support.CronExpression}
+     */
+    private String cronExpression = "0 40 * * * *";
+    /**
+     * Minimal time to keep a lock at this job,
+     * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+     */
+    private Duration lockAtLeast = Duration.of(5, ChronoUnit.SECONDS);
+    /**
+     * Maximal time to keep a lock at this job,
+     * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+     */
+    private Duration lockAtMost = Duration.of(30, ChronoUnit.MINUTES);
+}
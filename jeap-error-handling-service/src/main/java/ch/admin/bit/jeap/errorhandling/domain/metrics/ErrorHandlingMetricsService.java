@@ -2,8 +2,10 @@ package ch.admin.bit.jeap.errorhandling.domain.metrics;
 
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCountByClusterNameResult;
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepository;
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCount;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountKey;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -21,6 +23,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -41,10 +46,11 @@ public class ErrorHandlingMetricsService {
     private static final String ERROR_GROUPS_WITH_OPEN_ERRORS_GAUGE_METRIC = "eh_error_groups_with_open_errors";
     private static final String UNKNOWN_CLUSTER = "unknown";
     private static final Set<Error.ErrorState> OPEN_ERROR_STATES = Set.of(Error.ErrorState.PERMANENT, Error.ErrorState.SEND_TO_MANUALTASK);
+    private static final Set<Error.ErrorState> OPEN_ERROR_STATES_BY_CLUSTER = Set.of(Error.ErrorState.PERMANENT, Error.ErrorState.TEMPORARY_RETRY_PENDING, Error.ErrorState.SEND_TO_MANUALTASK);
 
     private final MeterRegistry meterRegistry;
-    private final ErrorRepository errorRepository;
-    private final ErrorGroupRepository errorGroupRepository;
+    private final ErrorStateCountRepository errorStateCountRepository;
+    private final ErrorGroupStatsRepository errorGroupStatsRepository;
 
     /**
      * Holds the current open error count per cluster name. The multi gauge rows read their values from these
@@ -52,12 +58,12 @@ public class ErrorHandlingMetricsService {
      */
     private final Map<String, AtomicLong> openErrorCountsByClusterName = new ConcurrentHashMap<>();
 
-    private int temporaryRetryPendingErrorCount = -1;
-    private int pendingManualTaskCreationErrorCount = -1;
-    private int openPermanentErrorCount = -1;
-    private int resolveOnManualTaskErrorCount = -1;
-    private int deleteOnManualTaskErrorCount = -1;
-    private int errorGroupsWithOpenErrors = -1;
+    private long temporaryRetryPendingErrorCount = -1;
+    private long pendingManualTaskCreationErrorCount = -1;
+    private long openPermanentErrorCount = -1;
+    private long resolveOnManualTaskErrorCount = -1;
+    private long deleteOnManualTaskErrorCount = -1;
+    private long errorGroupsWithOpenErrors = -1;
     private Counter createdTemporaryErrors;
     private MultiGauge openErrorsByClusterGauge;
 
@@ -93,16 +99,39 @@ public class ErrorHandlingMetricsService {
                 .register(meterRegistry);
     }
 
+    /**
+     * Reads the error counts from the incrementally maintained error state counts rather than counting the errors,
+     * see {@link ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountTracker}, and the number of
+     * groups with open errors from the error group statistics, see
+     * {@link ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsTracker}.
+     */
     @Scheduled(fixedRateString = "${jeap.errorhandling.metrics.updateFrequencyMillis}")
     void updateGauges() {
-        temporaryRetryPendingErrorCount = errorRepository.countErrorsInStateTemporaryRetryPending();
-        openPermanentErrorCount = errorRepository.countErrorsInStatesPermanentOrSendToManualTask();
-        pendingManualTaskCreationErrorCount = errorRepository.countErrorsInStateSendToManualTask();
-        resolveOnManualTaskErrorCount = errorRepository.countErrorsInStateResolveOnManualTask();
-        deleteOnManualTaskErrorCount = errorRepository.countErrorsInStateDeleteOnManualTask();
-        errorGroupsWithOpenErrors = errorGroupRepository.countErrorGroupsWithErrorsInStates(OPEN_ERROR_STATES);
-        List<ErrorCountByClusterNameResult> openErrorCountByClusterNameResults = errorRepository.countOpenErrorsByStateAndClusterName();
-        updateClusterMetrics(openErrorCountByClusterNameResults);
+        List<ErrorStateCount> errorStateCounts = errorStateCountRepository.findAll();
+        temporaryRetryPendingErrorCount = countErrorsInStates(errorStateCounts, Set.of(Error.ErrorState.TEMPORARY_RETRY_PENDING));
+        openPermanentErrorCount = countErrorsInStates(errorStateCounts, OPEN_ERROR_STATES);
+        pendingManualTaskCreationErrorCount = countErrorsInStates(errorStateCounts, Set.of(Error.ErrorState.SEND_TO_MANUALTASK));
+        resolveOnManualTaskErrorCount = countErrorsInStates(errorStateCounts, Set.of(Error.ErrorState.RESOLVE_ON_MANUALTASK));
+        deleteOnManualTaskErrorCount = countErrorsInStates(errorStateCounts, Set.of(Error.ErrorState.DELETE_ON_MANUALTASK));
+        errorGroupsWithOpenErrors = errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0);
+        updateClusterMetrics(countOpenErrorsByClusterName(errorStateCounts));
+    }
+
+    private static long countErrorsInStates(List<ErrorStateCount> errorStateCounts, Set<Error.ErrorState> states) {
+        return errorStateCounts.stream()
+                .filter(errorStateCount -> states.contains(errorStateCount.getKey().getState()))
+                .mapToLong(ErrorStateCount::getErrorCount)
+                .sum();
+    }
+
+    private static List<ErrorCountByClusterNameResult> countOpenErrorsByClusterName(List<ErrorStateCount> errorStateCounts) {
+        Map<String, Long> openErrorCountsByClusterName = errorStateCounts.stream()
+                .filter(errorStateCount -> OPEN_ERROR_STATES_BY_CLUSTER.contains(errorStateCount.getKey().getState()))
+                .collect(groupingBy(errorStateCount -> errorStateCount.getKey().getClusterName(), summingLong(ErrorStateCount::getErrorCount)));
+        return openErrorCountsByClusterName.entrySet().stream()
+                .map(entry -> new ErrorCountByClusterNameResult(
+                        ErrorStateCountKey.NO_CLUSTER_NAME.equals(entry.getKey()) ? null : entry.getKey(), entry.getValue()))
+                .toList();
     }
 
     public void incrementPermanentCounter(String causingService) {
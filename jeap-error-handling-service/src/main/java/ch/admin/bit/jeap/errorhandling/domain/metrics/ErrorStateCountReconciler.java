@@ -0,0 +1,40 @@
+package ch.admin.bit.jeap.errorhandling.domain.metrics;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javacrumbs.shedlock.core.LockAssert;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalculates the incrementally maintained error state counts and error counts per dimension value from the errors,
+ * correcting counts that have drifted, e.g. because errors have been changed directly in the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+class ErrorStateCountReconciler {
+    private final ErrorStateCountRepository errorStateCountRepository;
+    private final ErrorDimensionCountRepository errorDimensionCountRepository;
+
+    @Scheduled(cron = "#{@errorStateCountReconcilerProperties.cronExpression}")
+    @SchedulerLock(name = "reconcile-error-state-counts", lockAtLeastFor = "#{@errorStateCountReconcilerProperties.lockAtLeast.toString()}", lockAtMostFor = "#{@errorStateCountReconcilerProperties.lockAtMost.toString()}")
+    public void reconcile() {
+        LockAssert.assertLocked();
+        int correctedCounts = errorStateCountRepository.reconcile();
+        if (correctedCounts > 0) {
+            log.warn("Corrected {} drifted error state counts", correctedCounts);
+        } else {
+            log.debug("Error state counts are up to date");
+        }
+        int correctedDimensionCounts = errorDimensionCountRepository.reconcile();
+        if (correctedDimensionCounts > 0) {
+            log.warn("Corrected {} drifted error counts per dimension value", correctedDimensionCounts);
+        } else {
+            log.debug("Error counts per dimension value are up to date");
+        }
+    }
+}
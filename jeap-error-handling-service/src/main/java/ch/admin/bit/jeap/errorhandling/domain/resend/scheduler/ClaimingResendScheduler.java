@@ -0,0 +1,69 @@
+package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResendRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resends the due scheduled resends on every instance concurrently. Each instance claims a chunk of due scheduled
+ * resends, skipping the ones claimed by other instances, resends them and releases its claim. If an instance crashes,
+ * its claims expire after the configured lease and the scheduled resends are claimed by another instance.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "jeap.errorhandling.resend.scheduler.claiming-enabled", havingValue = "true")
+class ClaimingResendScheduler {
+    private final ScheduledResendRepository scheduledResendRepository;
+    private final ResendSchedulerConfigProperties resendSchedulerConfigProperties;
+    private final ScheduledResendExecutor scheduledResendExecutor;
+    private final String claimant;
+
+    ClaimingResendScheduler(ScheduledResendRepository scheduledResendRepository, ResendSchedulerConfigProperties resendSchedulerConfigProperties, ScheduledResendExecutor scheduledResendExecutor) {
+        this.scheduledResendRepository = scheduledResendRepository;
+        this.resendSchedulerConfigProperties = resendSchedulerConfigProperties;
+        this.scheduledResendExecutor = scheduledResendExecutor;
+        this.claimant = UUID.randomUUID().toString();
+        log.info("Claiming resend scheduler started, claiming scheduled resends as {}", claimant);
+    }
+
+    @Scheduled(cron = "#{@resendSchedulerConfigProperties.cronExpression}")
+    public void executePendingSchedules() {
+        int processedChunks = 0;
+        while (processedChunks < resendSchedulerConfigProperties.getMaxConsecutiveChunks()) {
+            log.trace("Claiming at max {} unsent scheduled resend items ready to be sent now.", resendSchedulerConfigProperties.getMaxResendChunkSize());
+            List<UUID> claimedIds = scheduledResendRepository.claimDueScheduledResends(claimant, ZonedDateTime.now(),
+                    resendSchedulerConfigProperties.getClaimLease(), resendSchedulerConfigProperties.getMaxResendChunkSize());
+            if (claimedIds.isEmpty()) {
+                log.trace("No unclaimed scheduled resend items found. Waiting for next execution...");
+                return;
+            }
+            log.debug("Claimed {} unsent scheduled resend items in chunk #{}.", claimedIds.size(), processedChunks);
+            Set<UUID> failedIds = new HashSet<>();
+            try {
+                List<ScheduledResend> chunk = scheduledResendRepository.findAllById(claimedIds).stream()
+                        .sorted(Comparator.comparing(ScheduledResend::getResendAt))
+                        // Handled in the meantime, e.g. by another instance after the claim of this instance had expired
+                        .filter(scheduledResend -> scheduledResend.getResentAt() == null && !scheduledResend.isCancelled())
+                        .toList();
+                scheduledResendExecutor.resend(chunk).forEach(scheduledResend -> failedIds.add(scheduledResend.getId()));
+            } finally {
+                // Failed scheduled resends stay claimed until the lease expires, i.e. they are retried after the lease
+                scheduledResendRepository.releaseClaims(claimant, claimedIds.stream()
+                        .filter(id -> !failedIds.contains(id))
+                        .toList());
+            }
+            processedChunks++;
+        }
+        log.debug("Maximum number of consecutive chunks reached. Proceeding at next execution...");
+    }
+}
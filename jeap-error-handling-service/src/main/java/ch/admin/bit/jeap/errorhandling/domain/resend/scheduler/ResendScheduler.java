@@ -1,12 +1,12 @@
 package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
 
-import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResendRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.javacrumbs.shedlock.core.LockAssert;
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -14,14 +14,19 @@ import org.springframework.transaction.PlatformTransactionManager;
 import java.time.ZonedDateTime;
 import java.util.List;
 
+/**
+ * Resends the due scheduled resends on the single instance holding the scheduler lock. Replaced by the
+ * {@link ClaimingResendScheduler} if claiming is enabled.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "jeap.errorhandling.resend.scheduler.claiming-enabled", havingValue = "false", matchIfMissing = true)
 class ResendScheduler {
     final ScheduledResendRepository scheduledResendRepository;
     final ResendSchedulerConfigProperties resendSchedulerConfigProperties;
     final ScheduledResendService scheduledResendService;
-    final ErrorService errorService;
+    final ScheduledResendExecutor scheduledResendExecutor;
     final PlatformTransactionManager platformTransactionManager;
 
     @Scheduled(cron = "#{@resendSchedulerConfigProperties.cronExpression}")
@@ -37,7 +42,11 @@ class ResendScheduler {
                 return;
             }
             log.debug("Got {} unsent scheduled resend items in chunk #{}.", chunk.size(), processedChunks);
-            chunk.forEach(errorService::scheduledResend);
+            if (!scheduledResendExecutor.resend(chunk).isEmpty()) {
+                // Failed scheduled resends are still due and would be fetched again right away
+                log.debug("Failed to resend scheduled resend items of chunk #{}. Proceeding at next execution...", processedChunks);
+                return;
+            }
             processedChunks++;
         }
         log.debug("Maximum number of consecutive chunks reached. Proceeding at next execution...");
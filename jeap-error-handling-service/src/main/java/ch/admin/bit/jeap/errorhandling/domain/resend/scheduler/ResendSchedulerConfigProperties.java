@@ -37,4 +37,14 @@ public class ResendSchedulerConfigProperties {
      * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
      */
     private Duration lockAtMost = Duration.of(30, ChronoUnit.MINUTES);
+    /**
+     * If enabled, every instance resends concurrently the scheduled resends it has claimed, instead of a single
+     * instance holding the scheduler lock resending all of them, see {@link ClaimingResendScheduler}
+     */
+    private boolean claimingEnabled = false;
+    /**
+     * How long the scheduled resends claimed by an instance are reserved for it. Must exceed the time needed to
+     * resend a chunk, as the scheduled resends of an expired claim can be claimed and resent by another instance.
+     */
+    private Duration claimLease = Duration.of(5, ChronoUnit.MINUTES);
 }
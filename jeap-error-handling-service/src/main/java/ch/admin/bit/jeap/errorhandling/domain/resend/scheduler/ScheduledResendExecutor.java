@@ -0,0 +1,71 @@
+package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.error.ScheduledResendOutcome;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Resends a chunk of scheduled resends for the schedulers. The causing events are sent first and their outcome is
+ * recorded afterwards in a transaction of its own. If the chunk cannot be sent, nothing has been sent and the
+ * scheduled resends are resent one by one. If the outcome cannot be recorded, it is recorded one by one, so that a
+ * causing event already sent is not sent again.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+class ScheduledResendExecutor {
+    private final ErrorService errorService;
+
+    /**
+     * @return the scheduled resends which failed and should be retried later
+     */
+    List<ScheduledResend> resend(List<ScheduledResend> chunk) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        List<ScheduledResendOutcome> outcomes;
+        try {
+            outcomes = errorService.sendScheduledResends(chunk);
+        } catch (Exception e) {
+            log.warn("Failed to resend the chunk of {} scheduled resend items at once, resending them one by one.", chunk.size(), e);
+            return chunk.stream()
+                    .filter(scheduledResend -> !resendOne(scheduledResend))
+                    .toList();
+        }
+        try {
+            errorService.recordScheduledResends(outcomes);
+            return List.of();
+        } catch (Exception e) {
+            log.warn("Failed to record the outcome of the chunk of {} scheduled resend items at once, recording it one by one.", chunk.size(), e);
+            return outcomes.stream()
+                    .filter(outcome -> !recordOne(outcome))
+                    .map(ScheduledResendOutcome::scheduledResend)
+                    .toList();
+        }
+    }
+
+    private boolean resendOne(ScheduledResend scheduledResend) {
+        try {
+            errorService.scheduledResend(scheduledResend);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to execute scheduled resend {}", scheduledResend.getId(), e);
+            return false;
+        }
+    }
+
+    private boolean recordOne(ScheduledResendOutcome outcome) {
+        try {
+            errorService.recordScheduledResend(outcome);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to record the outcome of scheduled resend {}", outcome.scheduledResend().getId(), e);
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
 
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.NextResendByErrorIdResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResendRepository;
 import lombok.RequiredArgsConstructor;
@@ -9,10 +10,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import static java.util.stream.Collectors.toMap;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -35,6 +40,18 @@ public class ScheduledResendService {
         return nextResend.map(ScheduledResend::getResendAt).orElse(null);
     }
 
+    /**
+     * @return the next resend timestamp per error ID, for the errors with a pending scheduled resend only
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, ZonedDateTime> getNextResendTimestamps(Collection<UUID> errorIds) {
+        if (errorIds.isEmpty()) {
+            return Map.of();
+        }
+        return scheduledResendRepository.findNextResendsByErrorIds(errorIds).stream()
+                .collect(toMap(NextResendByErrorIdResult::errorId, NextResendByErrorIdResult::resendAt));
+    }
+
     public void cancelScheduledResends(Error error) {
         if (error.getState() == Error.ErrorState.TEMPORARY_RETRY_PENDING) {
             List<ScheduledResend> scheduledResends = scheduledResendRepository.findByErrorId(error.getId());
@@ -43,10 +60,34 @@ public class ScheduledResendService {
         }
     }
 
+    /**
+     * Cancels the scheduled resends of the given errors pending a resend, like
+     * {@link #cancelScheduledResends(Error)} does for a single error
+     */
+    public void cancelScheduledResends(Collection<Error> errors) {
+        List<UUID> errorIds = errors.stream()
+                .filter(error -> error.getState() == Error.ErrorState.TEMPORARY_RETRY_PENDING)
+                .map(Error::getId)
+                .toList();
+        if (errorIds.isEmpty()) {
+            return;
+        }
+        List<ScheduledResend> scheduledResends = scheduledResendRepository.findByErrorIdIn(errorIds);
+        log.info("Cancelling {} scheduled resends for {} errors", scheduledResends.size(), errorIds.size());
+        scheduledResends.forEach(ScheduledResend::cancel);
+    }
+
     public void setResent(ScheduledResend scheduledResend) {
         log.debug("Setting resentAt for {} to now.", scheduledResend.getId());
         scheduledResend.setResentAt(ZonedDateTime.now());
         //We have to manually save the schedules resend service as its not originating from this transaction
         scheduledResendRepository.save(scheduledResend);
     }
+
+    /**
+     * Sets resentAt of the scheduled resend unless it has been deleted together with its error in the meantime
+     */
+    public void setResentIfExists(ScheduledResend scheduledResend) {
+        scheduledResendRepository.findById(scheduledResend.getId()).ifPresent(this::setResent);
+    }
 }
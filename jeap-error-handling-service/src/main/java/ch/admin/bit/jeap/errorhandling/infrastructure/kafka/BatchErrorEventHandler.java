@@ -0,0 +1,14 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
+
+import java.util.List;
+
+public interface BatchErrorEventHandler {
+
+    /**
+     * Handles all error events of a poll within one transaction. Either all error events are handled, or an
+     * exception is thrown and none of them is.
+     */
+    void handleBatch(String clusterName, List<MessageProcessingFailedEvent> errorEvents);
+}
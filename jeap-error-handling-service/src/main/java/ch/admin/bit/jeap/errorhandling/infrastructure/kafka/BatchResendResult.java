@@ -0,0 +1,25 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of {@link KafkaFailedEventResender#resendAll(java.util.List)}
+ *
+ * @param failures the failures by the ID of the error whose causing event could not be resent
+ */
+public record BatchResendResult(Map<UUID, ResendFailedException> failures) {
+
+    public boolean isResent(Error error) {
+        return !failures.containsKey(error.getId());
+    }
+
+    /**
+     * @return the failure of the resend of the error's causing event, or null if it has been resent
+     */
+    public ResendFailedException getFailure(Error error) {
+        return failures.get(error.getId());
+    }
+}
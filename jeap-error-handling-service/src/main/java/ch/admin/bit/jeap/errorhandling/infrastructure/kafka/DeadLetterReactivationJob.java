@@ -0,0 +1,98 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A run of the dead letter reactivation, see {@link KafkaDeadLetterBatchConsumerProducer}. The progress is updated by
+ * the reactivating thread and can be read concurrently.
+ */
+@Getter
+public class DeadLetterReactivationJob {
+
+    public enum State {RUNNING, COMPLETED, CANCELLED, FAILED}
+
+    private final UUID id = UUID.randomUUID();
+    private final int maxRecords;
+    private final ZonedDateTime started = ZonedDateTime.now();
+    private volatile ZonedDateTime finished;
+    private volatile State state = State.RUNNING;
+    private volatile String failureMessage;
+    private volatile boolean cancelRequested;
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    /**
+     * The committed offset, i.e. the offset of the next record to reactivate, by partition of the dead letter topic
+     */
+    private final Map<Integer, Long> committedOffsets = new ConcurrentHashMap<>();
+
+    DeadLetterReactivationJob(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead.get();
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    public Map<Integer, Long> getCommittedOffsets() {
+        return new TreeMap<>(committedOffsets);
+    }
+
+    /**
+     * @return the number of records written to the error topic per second since the start of the job
+     */
+    public double getThroughput() {
+        ZonedDateTime end = finished != null ? finished : ZonedDateTime.now();
+        long millis = Math.max(Duration.between(started, end).toMillis(), 1);
+        return getRecordsWritten() * 1000.0 / millis;
+    }
+
+    public boolean isFinished() {
+        return state != State.RUNNING;
+    }
+
+    long remainingRecords() {
+        return maxRecords - recordsRead.get();
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void recordRead(int count) {
+        recordsRead.addAndGet(count);
+    }
+
+    void recordWritten(int count) {
+        recordsWritten.addAndGet(count);
+    }
+
+    void recordCommitted(int partition, long offset) {
+        committedOffsets.put(partition, offset);
+    }
+
+    void complete() {
+        finish(cancelRequested ? State.CANCELLED : State.COMPLETED, null);
+    }
+
+    void fail(String message) {
+        finish(State.FAILED, message);
+    }
+
+    private void finish(State finalState, String message) {
+        this.failureMessage = message;
+        this.finished = ZonedDateTime.now();
+        this.state = finalState;
+    }
+}
@@ -0,0 +1,43 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import org.springframework.dao.DataAccessException;
+
+import java.util.List;
+
+/**
+ * Classifies exceptions thrown while processing a failed message as either recoverable (the consumption is
+ * retried) or fatal (the message is published to the dead letter topic).
+ */
+final class EhsProcessingExceptionMapper {
+
+    private static final List<Class<? extends Throwable>> RECOVERABLE_EXCEPTIONS = List.of(
+            org.springframework.dao.DataAccessResourceFailureException.class,
+            org.springframework.dao.QueryTimeoutException.class,
+            org.springframework.dao.PessimisticLockingFailureException.class,
+            org.hibernate.QueryTimeoutException.class,
+            org.hibernate.exception.LockAcquisitionException.class,
+            org.hibernate.exception.JDBCConnectionException.class,
+            java.sql.SQLTransientException.class,
+            java.sql.SQLTransientConnectionException.class);
+
+    private EhsProcessingExceptionMapper() {
+        // Utility class
+    }
+
+    static RuntimeException mapException(Throwable t) {
+        if (ExceptionCauseChainChecker.containsCauseType(t, RECOVERABLE_EXCEPTIONS) || isTxOrDbReadOnlyException(t)) {
+            return new RecoverableEhsProcessingException(t);
+        } else {
+            return new FatalEhsProcessingException(t);
+        }
+    }
+
+    private static boolean isTxOrDbReadOnlyException(Throwable t) {
+        if (t instanceof DataAccessException dae) {
+            Throwable rootCause = org.springframework.core.NestedExceptionUtils.getMostSpecificCause(dae);
+            // SQL state "25006" -> "READ ONLY SQL TRANSACTION"
+            return rootCause instanceof java.sql.SQLException sqlEx && "25006".equals(sqlEx.getSQLState());
+        }
+        return false;
+    }
+}
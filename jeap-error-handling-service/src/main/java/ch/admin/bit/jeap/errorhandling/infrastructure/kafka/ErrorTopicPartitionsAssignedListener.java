@@ -0,0 +1,11 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+public interface ErrorTopicPartitionsAssignedListener {
+
+    /**
+     * Called by the consumer thread when partitions of the error topic have been assigned to it, i.e. before any
+     * record of these partitions is handled. Records not yet committed by the previous owner of a partition are
+     * redelivered after the assignment.
+     */
+    void onErrorTopicPartitionsAssigned();
+}
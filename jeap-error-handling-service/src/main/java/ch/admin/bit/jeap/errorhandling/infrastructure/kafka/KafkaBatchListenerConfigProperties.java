@@ -0,0 +1,24 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "jeap.errorhandling.kafka.batch-listener")
+public class KafkaBatchListenerConfigProperties {
+
+    /**
+     * Whether the failed messages of a poll are handled together in one transaction instead of one by one.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The maximum number of failed messages returned by a single poll, i.e. the maximum batch size.
+     */
+    @Min(1)
+    private int maxPollRecords = 500;
+
+}
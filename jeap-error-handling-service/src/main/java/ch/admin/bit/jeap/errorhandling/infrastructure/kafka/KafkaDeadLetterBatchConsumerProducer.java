@@ -3,37 +3,61 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
 import ch.admin.bit.jeap.messaging.kafka.KafkaConfiguration;
 import ch.admin.bit.jeap.messaging.kafka.properties.KafkaProperties;
 import ch.admin.bit.jeap.messaging.kafka.spring.JeapKafkaPropertyFactory;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.*;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.apache.kafka.clients.consumer.ConsumerConfig.AUTO_OFFSET_RESET_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.MAX_POLL_RECORDS_CONFIG;
 
+/**
+ * Reactivates the messages on the dead letter topic by producing them to the error topic again. A reactivation runs as
+ * a job in the background, using one consumer and one producer for the whole run: the records of each poll are sent
+ * without waiting for the previous sends, and the offsets of each partition are committed once the records sent from
+ * it have been acknowledged. The job stops when the maximum number of records has been read, when the dead letter
+ * topic has been read to its end, or when it is cancelled. Only one job runs at a time; the recent jobs are kept in
+ * memory of the instance they run on.
+ */
 @Slf4j
 @Component
 public class KafkaDeadLetterBatchConsumerProducer {
 
+    private static final int MAX_POLL_RECORDS = 500;
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(5);
+    /**
+     * Empty polls tolerated before the consumer has been assigned partitions of the dead letter topic
+     */
+    private static final int MAX_POLLS_WITHOUT_ASSIGNMENT = 3;
+    private static final int MAX_RETAINED_JOBS = 20;
+
     private final String deadLetterTopicName;
     private final String errorTopicName;
     private final KafkaConfiguration kafkaConfiguration;
     private final String defaultClusterName;
+    private final ExecutorService executorService;
+    private final Map<UUID, DeadLetterReactivationJob> jobs = new ConcurrentHashMap<>();
+    private volatile DeadLetterReactivationJob runningJob;
+    private volatile Consumer<byte[], byte[]> runningConsumer;
 
     public KafkaDeadLetterBatchConsumerProducer(@Value("${jeap.errorhandling.deadLetterTopicName}") String deadLetterTopicName,
                                                 @Value("${jeap.errorhandling.topic}") String errorTopicName,
@@ -44,73 +68,200 @@ public class KafkaDeadLetterBatchConsumerProducer {
         this.kafkaConfiguration = kafkaConfiguration;
         KafkaProperties kafkaProperties = JeapKafkaPropertyFactory.createJeapKafkaProperties(environment);
         this.defaultClusterName = kafkaProperties.getDefaultClusterName();
+        this.executorService = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("dead-letter-reactivation-"));
     }
 
-    @Async
-    public void consumeAndProduce(int maxRecords) {
-        log.info("Start consuming and producing messages from topic {} to topic {} with maxRecords {}", deadLetterTopicName, errorTopicName, maxRecords);
-
-        int totalRecordsProcessed = 0;
-        int remaining = maxRecords;
-        while (remaining > 0) {
-            int batchSize = Math.min(remaining, 50);
-            int processed = consumeAndProduceInBatch(batchSize);
-            totalRecordsProcessed += processed;
-            if (processed == 0) {
-                break;
+    /**
+     * Starts a job reactivating at most the given number of records from the dead letter topic
+     *
+     * @throws IllegalStateException if a job is running already
+     */
+    public synchronized DeadLetterReactivationJob start(int maxRecords) {
+        if (runningJob != null && !runningJob.isFinished()) {
+            throw new IllegalStateException("Dead letter reactivation " + runningJob.getId() + " is still running");
+        }
+        DeadLetterReactivationJob job = new DeadLetterReactivationJob(maxRecords);
+        retain(job);
+        runningJob = job;
+        executorService.submit(() -> run(job));
+        return job;
+    }
+
+    public Optional<DeadLetterReactivationJob> findJob(UUID jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * @return the recent jobs, the latest first
+     */
+    public List<DeadLetterReactivationJob> findJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(DeadLetterReactivationJob::getStarted).reversed())
+                .toList();
+    }
+
+    /**
+     * Cancels the job if it is running. The records read so far are reactivated before the job stops.
+     *
+     * @return the job, empty if not found
+     */
+    public Optional<DeadLetterReactivationJob> cancel(UUID jobId) {
+        DeadLetterReactivationJob job = jobs.get(jobId);
+        if (job != null && !job.isFinished()) {
+            log.info("Cancelling dead letter reactivation {}", jobId);
+            job.requestCancel();
+            Consumer<byte[], byte[]> consumer = runningConsumer;
+            if (consumer != null && job == runningJob) {
+                // Interrupts a poll in progress
+                consumer.wakeup();
             }
-            remaining -= processed;
         }
+        return Optional.ofNullable(job);
+    }
 
-        log.info("Consumed and produced {} records. Stopping consumer and producer.", totalRecordsProcessed);
+    @PreDestroy
+    void shutdown() {
+        DeadLetterReactivationJob job = runningJob;
+        if (job != null) {
+            cancel(job.getId());
+        }
+        executorService.shutdown();
     }
 
-    private int consumeAndProduceInBatch(int maxRecords) {
-        log.info("Poll topic with maxRecords {} from {}, sending to {}", maxRecords, deadLetterTopicName, errorTopicName);
+    private void retain(DeadLetterReactivationJob job) {
+        jobs.put(job.getId(), job);
+        if (jobs.size() > MAX_RETAINED_JOBS) {
+            jobs.values().stream()
+                    .filter(DeadLetterReactivationJob::isFinished)
+                    .min(Comparator.comparing(DeadLetterReactivationJob::getStarted))
+                    .ifPresent(oldest -> jobs.remove(oldest.getId()));
+        }
+    }
 
-        try (KafkaConsumer<byte[], byte[]> consumer = createConsumer(kafkaConfiguration, maxRecords);
+    void run(DeadLetterReactivationJob job) {
+        log.info("Dead letter reactivation {} started: reactivating at most {} records from topic {} to topic {}",
+                job.getId(), job.getMaxRecords(), deadLetterTopicName, errorTopicName);
+        try (KafkaConsumer<byte[], byte[]> consumer = createConsumer(kafkaConfiguration, Math.min(job.getMaxRecords(), MAX_POLL_RECORDS));
              KafkaProducer<byte[], byte[]> producer = createProducer(kafkaConfiguration)) {
-
+            runningConsumer = consumer;
             consumer.subscribe(Collections.singletonList(deadLetterTopicName));
+            reactivate(job, consumer, producer);
+            job.complete();
+            log.info("Dead letter reactivation {} {}: reactivated {} records ({} records/s), committed offsets {}",
+                    job.getId(), job.getState(), job.getRecordsWritten(), String.format("%.1f", job.getThroughput()), job.getCommittedOffsets());
+        } catch (Exception e) {
+            log.error("Dead letter reactivation {} failed after {} reactivated records", job.getId(), job.getRecordsWritten(), e);
+            job.fail(e.getMessage());
+        } finally {
+            runningConsumer = null;
+        }
+    }
 
-            ConsumerRecords<byte[], byte[]> records = consumer.poll(Duration.ofSeconds(5));
-
-            final int received = records.count();
-            log.info("Received {} records", received);
+    private void reactivate(DeadLetterReactivationJob job, Consumer<byte[], byte[]> consumer, KafkaProducer<byte[], byte[]> producer) {
+        int pollsWithoutAssignment = 0;
+        while (!job.isCancelRequested() && job.remainingRecords() > 0) {
+            ConsumerRecords<byte[], byte[]> records;
+            try {
+                records = consumer.poll(POLL_TIMEOUT);
+            } catch (WakeupException e) {
+                log.debug("Poll of dead letter reactivation {} interrupted", job.getId());
+                return;
+            }
+            if (records.isEmpty()) {
+                if (!consumer.assignment().isEmpty() || ++pollsWithoutAssignment >= MAX_POLLS_WITHOUT_ASSIGNMENT) {
+                    log.info("No further records on topic {}", deadLetterTopicName);
+                    return;
+                }
+                continue;
+            }
+            List<ConsumerRecord<byte[], byte[]>> toReactivate = limit(records, job.remainingRecords());
+            job.recordRead(toReactivate.size());
+            sendAndCommit(job, consumer, producer, toReactivate);
+        }
+    }
 
-            for (ConsumerRecord<byte[], byte[]> data : records) {
-                log.debug("Received message from partition {} with offset {} sending to {}", data.partition(), data.offset(), errorTopicName);
+    private static List<ConsumerRecord<byte[], byte[]>> limit(ConsumerRecords<byte[], byte[]> records, long maxRecords) {
+        List<ConsumerRecord<byte[], byte[]>> limited = new ArrayList<>(records.count());
+        for (ConsumerRecord<byte[], byte[]> consumerRecord : records) {
+            if (limited.size() >= maxRecords) {
+                break;
+            }
+            limited.add(consumerRecord);
+        }
+        return limited;
+    }
 
-                ProducerRecord<byte[], byte[]> producerRecord =
-                        (data.key() != null)
-                                ? new ProducerRecord<>(errorTopicName, data.key(), data.value())
-                                : new ProducerRecord<>(errorTopicName, data.value());
+    /**
+     * Sends the records without waiting for each acknowledgement, then commits, for each partition, the offsets up to
+     * the first record whose send failed. Records not committed are read again by the next reactivation.
+     */
+    private void sendAndCommit(DeadLetterReactivationJob job, Consumer<byte[], byte[]> consumer,
+                               KafkaProducer<byte[], byte[]> producer, List<ConsumerRecord<byte[], byte[]>> records) {
+        Map<TopicPartition, List<SentRecord>> sentRecordsByPartition = new LinkedHashMap<>();
+        for (ConsumerRecord<byte[], byte[]> data : records) {
+            log.debug("Reactivating record from partition {} with offset {} to {}", data.partition(), data.offset(), errorTopicName);
+            ProducerRecord<byte[], byte[]> producerRecord =
+                    (data.key() != null)
+                            ? new ProducerRecord<>(errorTopicName, data.key(), data.value())
+                            : new ProducerRecord<>(errorTopicName, data.value());
+            data.headers().forEach(header -> producerRecord.headers().add(header));
+            sentRecordsByPartition.computeIfAbsent(new TopicPartition(data.topic(), data.partition()), partition -> new ArrayList<>())
+                    .add(new SentRecord(data.offset(), producer.send(producerRecord)));
+        }
+        producer.flush();
 
-                data.headers().forEach(header -> producerRecord.headers().add(header));
-                producer.send(producerRecord);
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        int written = 0;
+        Exception sendFailure = null;
+        for (Map.Entry<TopicPartition, List<SentRecord>> partitionRecords : sentRecordsByPartition.entrySet()) {
+            Long nextOffset = null;
+            for (SentRecord sentRecord : partitionRecords.getValue()) {
+                try {
+                    sentRecord.acknowledgement().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    sendFailure = e;
+                    break;
+                } catch (ExecutionException e) {
+                    sendFailure = e;
+                    break;
+                }
+                nextOffset = sentRecord.offset() + 1;
+                written++;
             }
+            if (nextOffset != null) {
+                offsets.put(partitionRecords.getKey(), new OffsetAndMetadata(nextOffset));
+            }
+        }
+        job.recordWritten(written);
+        if (!offsets.isEmpty()) {
+            commit(consumer, offsets);
+            offsets.forEach((partition, offset) -> job.recordCommitted(partition.partition(), offset.offset()));
+        }
+        if (sendFailure != null) {
+            throw new IllegalStateException("Could not produce record to " + errorTopicName, sendFailure);
+        }
+    }
 
-            producer.flush();
-            consumer.commitSync();
-            log.info("Consumed and produced {} records.", received);
-            return received;
-
-        } catch (Exception e) {
-            log.error("Error occurred while consuming and producing messages", e);
-            throw new IllegalStateException("Error occurred while consuming and producing messages", e);
+    private static void commit(Consumer<byte[], byte[]> consumer, Map<TopicPartition, OffsetAndMetadata> offsets) {
+        try {
+            consumer.commitSync(offsets);
+        } catch (WakeupException e) {
+            // The job has been cancelled after the last poll, the offsets of the records sent must be committed anyway
+            consumer.commitSync(offsets);
         }
     }
 
-    private KafkaConsumer<byte[], byte[]> createConsumer(KafkaConfiguration kafkaConfiguration, int maxRecords) {
+    private KafkaConsumer<byte[], byte[]> createConsumer(KafkaConfiguration kafkaConfiguration, int maxPollRecords) {
         Map<String, Object> props = new HashMap<>(kafkaConfiguration.consumerConfig(defaultClusterName));
 
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
 
-        props.put(MAX_POLL_RECORDS_CONFIG, maxRecords);
+        props.put(MAX_POLL_RECORDS_CONFIG, maxPollRecords);
         props.put(AUTO_OFFSET_RESET_CONFIG, "earliest");
-        // Disable auto-commit so offsets are only committed after all records are successfully
-        // produced, via the explicit commitSync() in consumeAndProduceInBatch.
+        // Disable auto-commit so offsets are only committed after the records have been produced,
+        // via the explicit commitSync() in commit.
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
 
         return new KafkaConsumer<>(props);
@@ -124,4 +275,7 @@ public class KafkaDeadLetterBatchConsumerProducer {
 
         return new KafkaProducer<>(props);
     }
+
+    private record SentRecord(long offset, Future<RecordMetadata> acknowledgement) {
+    }
 }
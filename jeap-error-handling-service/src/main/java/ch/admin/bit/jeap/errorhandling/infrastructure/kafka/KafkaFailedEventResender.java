@@ -1,5 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
 
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventHeaders;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.MessageHeader;
 import ch.admin.bit.jeap.messaging.kafka.KafkaConfiguration;
@@ -19,9 +20,12 @@ import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -36,7 +40,9 @@ public class KafkaFailedEventResender {
 
     private final ResendClusterProvider resendClusterProvider;
     private final TraceContextUpdater traceContextUpdater;
+    private final CausingEventHeaders causingEventHeaders;
     private final int timeoutSeconds;
+    private final int maxInFlightPerCluster;
     private final String errorHandlerServiceName;
 
     private final Map<String, KafkaTemplate<Object, Object>> kafkaTemplateByClusterName;
@@ -46,29 +52,73 @@ public class KafkaFailedEventResender {
                                     KafkaConfiguration kafkaConfiguration,
                                     TraceContextUpdater traceContextUpdater,
                                     ObservationRegistry observationRegistry,
+                                    ResendProducerProperties resendProducerProperties,
+                                    CausingEventHeaders causingEventHeaders,
                                     @Value("${jeap.errorhandling.timeout-seconds:60}") int timeoutSeconds) {
         this.resendClusterProvider = resendClusterProvider;
         this.traceContextUpdater = traceContextUpdater;
+        this.causingEventHeaders = causingEventHeaders;
         this.errorHandlerServiceName = kafkaProperties.getServiceName();
         this.timeoutSeconds = timeoutSeconds;
+        this.maxInFlightPerCluster = resendProducerProperties.getMaxInFlightPerCluster();
         this.kafkaTemplateByClusterName = kafkaProperties.clusterNames().stream()
                 .collect(toMap(clusterName -> clusterName,
-                        clusterName -> createKafkaTemplate(kafkaConfiguration, observationRegistry, clusterName)));
+                        clusterName -> createKafkaTemplate(kafkaConfiguration, observationRegistry, resendProducerProperties, clusterName)));
     }
 
     private static KafkaTemplate<Object, Object> createKafkaTemplate(KafkaConfiguration kafkaConfiguration,
                                                                      ObservationRegistry observationRegistry,
+                                                                     ResendProducerProperties resendProducerProperties,
                                                                      String clusterName) {
         // ObservationRegistry must be wired explicitly because this template is built outside the Spring bean pipeline
         // that would otherwise inject the registry via ApplicationContextAware.
         KafkaTemplate<Object, Object> template = new KafkaTemplate<>(
-                new DefaultKafkaProducerFactory<>(adaptKafkaConfiguration(clusterName, kafkaConfiguration)));
+                new DefaultKafkaProducerFactory<>(adaptKafkaConfiguration(clusterName, kafkaConfiguration, resendProducerProperties)));
         template.setObservationEnabled(true);
         template.setObservationRegistry(observationRegistry);
         return template;
     }
 
     public void resend(final Error error) {
+        ResendFailedException failure = resendAll(List.of(error)).getFailure(error);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Resends the causing events of the given errors without waiting for each record to be acknowledged before
+     * sending the next one, so that the producer can send the records in batches. At most the configured number of
+     * records per cluster are awaited at the same time. The headers of all causing events are read up front, with at
+     * most one query for the header dictionary entries not cached yet.
+     *
+     * @return the outcome of the resend per error
+     */
+    public BatchResendResult resendAll(final List<Error> errors) {
+        Map<UUID, ResendFailedException> failures = new HashMap<>();
+        Map<String, Deque<PendingResend>> pendingResendsByClusterName = new HashMap<>();
+        Map<UUID, List<MessageHeader>> headersByCausingEventId = causingEventHeaders.headersOf(errors.stream()
+                .map(Error::getCausingEvent)
+                .toList());
+        for (Error error : errors) {
+            try {
+                PendingResend pendingResend = send(error, headersByCausingEventId.get(error.getCausingEvent().getId()));
+                Deque<PendingResend> pendingResends = pendingResendsByClusterName
+                        .computeIfAbsent(pendingResend.clusterName(), _ -> new ArrayDeque<>());
+                pendingResends.add(pendingResend);
+                if (pendingResends.size() > maxInFlightPerCluster) {
+                    await(pendingResends.poll(), failures);
+                }
+            } catch (ResendFailedException e) {
+                failures.put(error.getId(), e);
+            }
+        }
+        pendingResendsByClusterName.values().forEach(pendingResends ->
+                pendingResends.forEach(pendingResend -> await(pendingResend, failures)));
+        return new BatchResendResult(failures);
+    }
+
+    private PendingResend send(Error error, List<MessageHeader> headers) {
         final byte[] message = error.getCausingEventMessage().getPayload();
         final byte[] key = error.getCausingEventMessage().getKey();
         final String topic = error.getCausingEventMessage().getTopic();
@@ -78,25 +128,37 @@ public class KafkaFailedEventResender {
 
         try (TraceContextScope _ = activateOriginalTraceContextIfPresent(error)) {
             ProducerRecord<Object, Object> producerRecord = new ProducerRecord<>(topic, key, message);
-            addHeadersFromCausingEvent(error, producerRecord);
+            addHeadersFromCausingEvent(headers, producerRecord);
             addResendInformationHeaders(error, producerRecord);
             CompletableFuture<SendResult<Object, Object>> sendResult = kafkaTemplateByClusterName.get(clusterName).send(producerRecord);
+            return new PendingResend(error, topic, clusterName, sendResult);
+        } catch (Exception e) {
+            log.error("Resending event {} for error {} to topic '{}' on cluster '{}' failed.",
+                    error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e);
+            throw ResendFailedException.resendToKafkaFailed(error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e);
+        }
+    }
 
-            try {
-                sendResult.get(timeoutSeconds, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Resending event {} for error {} to topic '{}' on cluster '{}' interrupted.",
-                    error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName);
-                throw ResendFailedException.resendToKafkaInterrupted(error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName);
-            } catch (Exception e) {
-                log.error("Resending event {} for error {} to topic '{}' on cluster '{}' failed.",
-                        error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e);
-                throw ResendFailedException.resendToKafkaFailed(error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e);
-            }
-            log.info("Resent event {} for error {} to topic '{}' on cluster '{}'.",
+    private void await(PendingResend pendingResend, Map<UUID, ResendFailedException> failures) {
+        Error error = pendingResend.error();
+        String topic = pendingResend.topic();
+        String clusterName = pendingResend.clusterName();
+        try {
+            pendingResend.sendResult().get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Resending event {} for error {} to topic '{}' on cluster '{}' interrupted.",
                     error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName);
+            failures.put(error.getId(), ResendFailedException.resendToKafkaInterrupted(error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName));
+            return;
+        } catch (Exception e) {
+            log.error("Resending event {} for error {} to topic '{}' on cluster '{}' failed.",
+                    error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e);
+            failures.put(error.getId(), ResendFailedException.resendToKafkaFailed(error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName, e));
+            return;
         }
+        log.info("Resent event {} for error {} to topic '{}' on cluster '{}'.",
+                error.getCausingEventMetadata().getId(), error.getId(), topic, clusterName);
     }
 
     private TraceContextScope activateOriginalTraceContextIfPresent(Error error) {
@@ -114,12 +176,9 @@ public class KafkaFailedEventResender {
                 error.getOriginalTraceContext().getSampled()));
     }
 
-    private static void addHeadersFromCausingEvent(Error error, ProducerRecord<Object, Object> producerRecord) {
-        List<MessageHeader> headers = error.getCausingEvent().getHeaders();
-        if (headers != null) {
-            for (MessageHeader header : headers) {
-                producerRecord.headers().add(header.getHeaderName(), header.getHeaderValue());
-            }
+    private static void addHeadersFromCausingEvent(List<MessageHeader> headers, ProducerRecord<Object, Object> producerRecord) {
+        for (MessageHeader header : headers) {
+            producerRecord.headers().add(header.getHeaderName(), header.getHeaderValue());
         }
     }
 
@@ -136,8 +195,11 @@ public class KafkaFailedEventResender {
         producerRecord.headers().add(headerName, headerValue.getBytes(StandardCharsets.UTF_8));
     }
 
-    private static Map<String, Object> adaptKafkaConfiguration(String clusterName, KafkaConfiguration kafkaConfiguration) {
+    private static Map<String, Object> adaptKafkaConfiguration(String clusterName, KafkaConfiguration kafkaConfiguration,
+                                                               ResendProducerProperties resendProducerProperties) {
         Map<String, Object> props = new HashMap<>(kafkaConfiguration.producerConfig(clusterName));
+        // Batching settings for resends, configured separately as the records are resent in chunks
+        props.putAll(resendProducerProperties.producerConfigFor(clusterName));
         // We are resending messages exactly as received i.e. as byte array of the original message
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
@@ -145,4 +207,8 @@ public class KafkaFailedEventResender {
         props.remove(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG);
         return props;
     }
+
+    private record PendingResend(Error error, String topic, String clusterName,
+                                 CompletableFuture<SendResult<Object, Object>> sendResult) {
+    }
 }
@@ -6,6 +6,10 @@ import ch.admin.bit.jeap.messaging.kafka.spring.JeapKafkaPropertyFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
@@ -18,9 +22,13 @@ import org.springframework.beans.factory.support.GenericBeanDefinition;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.core.env.Environment;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
@@ -51,11 +59,70 @@ class KafkaMessageProcessingFailedEventConsumerFactory implements BeanDefinition
         TopicConfiguration topicConfiguration = beanFactory.getBean(TopicConfiguration.class);
         ConcurrentMessageListenerContainer<?, ?> container = getContainerFactory(clusterName).createContainer(topicConfiguration.getTopicName());
         ErrorEventHandler errorEventHandler = beanFactory.getBean(ErrorEventHandler.class);
-        MessageProcessingFailedEventListener listener = new MessageProcessingFailedEventListener(errorEventHandler, clusterName);
-        container.setupMessageListener(listener);
+        KafkaBatchListenerConfigProperties batchListenerConfigProperties = beanFactory.getBean(KafkaBatchListenerConfigProperties.class);
+        if (batchListenerConfigProperties.isEnabled()) {
+            log.info("Processing failed messages in batches of at most {} messages", batchListenerConfigProperties.getMaxPollRecords());
+            container.getContainerProperties().getKafkaConsumerProperties().setProperty(
+                    ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchListenerConfigProperties.getMaxPollRecords()));
+            BatchErrorEventHandler batchErrorEventHandler = beanFactory.getBean(BatchErrorEventHandler.class);
+            container.setupMessageListener(new MessageProcessingFailedEventBatchListener(batchErrorEventHandler, errorEventHandler, clusterName));
+        } else {
+            MessageProcessingFailedEventListener listener = new MessageProcessingFailedEventListener(errorEventHandler, clusterName);
+            container.setupMessageListener(listener);
+        }
+        notifyOnPartitionsAssigned(container);
         return container;
     }
 
+    private void notifyOnPartitionsAssigned(ConcurrentMessageListenerContainer<?, ?> container) {
+        List<ErrorTopicPartitionsAssignedListener> listeners = beanFactory.getBeanProvider(ErrorTopicPartitionsAssignedListener.class)
+                .orderedStream()
+                .toList();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        // Keep a rebalance listener possibly configured by the container factory
+        ConsumerRebalanceListener configuredRebalanceListener = container.getContainerProperties().getConsumerRebalanceListener();
+        container.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (configuredRebalanceListener instanceof ConsumerAwareRebalanceListener consumerAwareRebalanceListener) {
+                    consumerAwareRebalanceListener.onPartitionsRevokedBeforeCommit(consumer, partitions);
+                } else if (configuredRebalanceListener != null) {
+                    configuredRebalanceListener.onPartitionsRevoked(partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (configuredRebalanceListener instanceof ConsumerAwareRebalanceListener consumerAwareRebalanceListener) {
+                    consumerAwareRebalanceListener.onPartitionsRevokedAfterCommit(consumer, partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (configuredRebalanceListener instanceof ConsumerAwareRebalanceListener consumerAwareRebalanceListener) {
+                    consumerAwareRebalanceListener.onPartitionsLost(consumer, partitions);
+                } else if (configuredRebalanceListener != null) {
+                    configuredRebalanceListener.onPartitionsLost(partitions);
+                }
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                if (configuredRebalanceListener instanceof ConsumerAwareRebalanceListener consumerAwareRebalanceListener) {
+                    consumerAwareRebalanceListener.onPartitionsAssigned(consumer, partitions);
+                } else if (configuredRebalanceListener != null) {
+                    configuredRebalanceListener.onPartitionsAssigned(partitions);
+                }
+                if (!partitions.isEmpty()) {
+                    listeners.forEach(ErrorTopicPartitionsAssignedListener::onErrorTopicPartitionsAssigned);
+                }
+            }
+        });
+    }
+
     private ConcurrentKafkaListenerContainerFactory<?, ?> getContainerFactory(String clusterName) {
         String listenerContainerFactoryBeanName = new JeapKafkaBeanNames(clusterName).getListenerContainerFactoryBeanName(clusterName);
         return (ConcurrentKafkaListenerContainerFactory<?, ?>) beanFactory.getBean(listenerContainerFactoryBeanName);
@@ -0,0 +1,71 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.kafka.EhsProcessingExceptionMapper.mapException;
+
+/**
+ * Handles all failed messages of a poll in one transaction. If the batch cannot be handled as a whole, the
+ * records are handled one by one, so that the error handler can retry or dead-letter exactly the record that
+ * fails.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class MessageProcessingFailedEventBatchListener implements BatchAcknowledgingMessageListener<Object, MessageProcessingFailedEvent> {
+
+    private final BatchErrorEventHandler batchErrorEventHandler;
+    private final ErrorEventHandler errorEventHandler;
+    private final String clusterName;
+
+    @Override
+    public void onMessage(List<ConsumerRecord<Object, MessageProcessingFailedEvent>> data, Acknowledgment acknowledgment) {
+        if (data.isEmpty()) {
+            return;
+        }
+        if (containsUndeserializableRecord(data)) {
+            consumeRecordByRecord(data);
+        } else {
+            try {
+                batchErrorEventHandler.handleBatch(clusterName, data.stream().map(ConsumerRecord::value).toList());
+            } catch (Exception e) {
+                log.warn("Could not process a batch of {} failed messages at once, falling back to processing them one by one.",
+                        data.size(), e);
+                consumeRecordByRecord(data);
+            }
+        }
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * In case of an error, the offsets of the records processed so far are committed by the error handler and the
+     * failing record is retried or published to the DLT, which is configured using the property
+     * jeap.errorhandling.deadLetterTopicName
+     */
+    private void consumeRecordByRecord(List<ConsumerRecord<Object, MessageProcessingFailedEvent>> data) {
+        for (ConsumerRecord<Object, MessageProcessingFailedEvent> consumerRecord : data) {
+            try {
+                if (consumerRecord.value() == null) {
+                    throw new IllegalArgumentException("Failed message at offset %d of partition %d could not be deserialized"
+                            .formatted(consumerRecord.offset(), consumerRecord.partition()));
+                }
+                errorEventHandler.handle(clusterName, consumerRecord.value());
+            } catch (Exception e) {
+                RuntimeException rte = mapException(e);
+                log.error("An error occurred during the processing of a failed message.", rte);
+                throw new BatchListenerFailedException(rte.getMessage(), rte, consumerRecord);
+            }
+        }
+    }
+
+    private static boolean containsUndeserializableRecord(List<ConsumerRecord<Object, MessageProcessingFailedEvent>> data) {
+        return data.stream().anyMatch(consumerRecord -> consumerRecord.value() == null);
+    }
+}
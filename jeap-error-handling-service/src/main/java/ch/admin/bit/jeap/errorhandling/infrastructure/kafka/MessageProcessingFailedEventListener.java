@@ -4,26 +4,15 @@ import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.springframework.dao.DataAccessException;
 import org.springframework.kafka.listener.AcknowledgingMessageListener;
 import org.springframework.kafka.support.Acknowledgment;
 
-import java.util.List;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.kafka.EhsProcessingExceptionMapper.mapException;
 
 @Slf4j
 @RequiredArgsConstructor
 class MessageProcessingFailedEventListener implements AcknowledgingMessageListener<Object, MessageProcessingFailedEvent> {
 
-    private static final List<Class<? extends Throwable>> RECOVERABLE_EXCEPTIONS = List.of(
-            org.springframework.dao.DataAccessResourceFailureException.class,
-            org.springframework.dao.QueryTimeoutException.class,
-            org.springframework.dao.PessimisticLockingFailureException.class,
-            org.hibernate.QueryTimeoutException.class,
-            org.hibernate.exception.LockAcquisitionException.class,
-            org.hibernate.exception.JDBCConnectionException.class,
-            java.sql.SQLTransientException.class,
-            java.sql.SQLTransientConnectionException.class);
-
     private final ErrorEventHandler errorEventHandler;
     private final String clusterName;
 
@@ -47,21 +36,4 @@ class MessageProcessingFailedEventListener implements AcknowledgingMessageListen
         errorEventHandler.handle(clusterName, messageProcessingFailedEvent);
     }
 
-    private RuntimeException mapException(Throwable t) {
-        if (ExceptionCauseChainChecker.containsCauseType(t, RECOVERABLE_EXCEPTIONS) || isTxOrDbReadOnlyException(t)) {
-            return new RecoverableEhsProcessingException(t);
-        } else {
-            return new FatalEhsProcessingException(t);
-        }
-    }
-
-    private boolean isTxOrDbReadOnlyException(Throwable t) {
-        if (t instanceof DataAccessException dae) {
-            Throwable rootCause = org.springframework.core.NestedExceptionUtils.getMostSpecificCause(dae);
-            // SQL state "25006" -> "READ ONLY SQL TRANSACTION"
-            return rootCause instanceof java.sql.SQLException sqlEx && "25006".equals(sqlEx.getSQLState());
-        }
-        return false;
-    }
-
 }
@@ -0,0 +1,82 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the producers used by {@link KafkaFailedEventResender} to resend the causing events. Settings not
+ * configured here are taken from the producer configuration of the cluster.
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.resend.producer")
+public class ResendProducerProperties {
+
+    /**
+     * Maximum number of resent records per cluster which are awaited at the same time when resending several causing
+     * events at once.
+     */
+    @Min(1)
+    private int maxInFlightPerCluster = 100;
+
+    /**
+     * Batching settings applied to the producers of all clusters.
+     */
+    private ProducerSettings defaults = new ProducerSettings();
+
+    /**
+     * Batching settings by cluster name, overriding the defaults.
+     */
+    private Map<String, ProducerSettings> clusters = new HashMap<>();
+
+    Map<String, Object> producerConfigFor(String clusterName) {
+        Map<String, Object> producerConfig = new HashMap<>();
+        defaults.addTo(producerConfig);
+        ProducerSettings clusterSettings = clusters.get(clusterName);
+        if (clusterSettings != null) {
+            clusterSettings.addTo(producerConfig);
+        }
+        return producerConfig;
+    }
+
+    @Data
+    public static class ProducerSettings {
+
+        /**
+         * How long the producer waits for more records before sending a batch (linger.ms).
+         */
+        private Duration linger;
+
+        /**
+         * Maximum size of a batch of records sent to the same partition (batch.size).
+         */
+        private DataSize batchSize;
+
+        /**
+         * Compression of the batches, e.g. lz4 or zstd (compression.type).
+         */
+        private String compressionType;
+
+        private void addTo(Map<String, Object> producerConfig) {
+            if (linger != null) {
+                producerConfig.put(ProducerConfig.LINGER_MS_CONFIG, linger.toMillis());
+            }
+            if (batchSize != null) {
+                producerConfig.put(ProducerConfig.BATCH_SIZE_CONFIG, (int) batchSize.toBytes());
+            }
+            if (compressionType != null) {
+                producerConfig.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+            }
+        }
+    }
+}
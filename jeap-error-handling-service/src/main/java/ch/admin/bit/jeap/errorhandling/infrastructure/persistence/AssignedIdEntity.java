@@ -0,0 +1,32 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Base class of the entities whose ID is assigned by the application. Spring Data cannot tell from such an ID whether
+ * an instance is new, and would merge every saved instance, which requires an additional select. Instead, instances
+ * are new until they have been loaded or persisted, so that Spring Data persists new instances directly.
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity implements Persistable<UUID> {
+
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -10,10 +10,10 @@ import java.util.UUID;
 @Builder(toBuilder = true)
 @AllArgsConstructor(access = AccessLevel.PACKAGE) // for Builder
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // for JPA
-@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
 @ToString
 @Entity
-public class AuditLog {
+public class AuditLog extends AssignedIdEntity {
 
     @Id
     @Builder.Default
@@ -36,5 +36,4 @@ public class AuditLog {
     private ZonedDateTime created;
 
     public enum AuditedAction {RESEND_CAUSING_EVENT, DELETE_ERROR}
-
 }
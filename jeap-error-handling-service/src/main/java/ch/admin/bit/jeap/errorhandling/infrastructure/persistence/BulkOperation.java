@@ -0,0 +1,121 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Embedded;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * A retry or deletion of all errors matching a search or of an error group, run in the background. The operation
+ * itself runs on the instance it has been submitted to, its progress is updated with every batch of errors processed
+ * (see {@link BulkOperationRepository}).
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // for JPA
+@ToString
+@Entity
+public class BulkOperation {
+
+    public enum Action {RESEND, DELETE}
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED;
+
+        public boolean isFinal() {
+            return this == COMPLETED || this == CANCELLED || this == FAILED;
+        }
+    }
+
+    static final int MAX_FAILURE_MESSAGE_LENGTH = 1000;
+
+    @Id
+    private UUID id = UUID.randomUUID();
+
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    private Action action;
+
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    private State state = State.QUEUED;
+
+    /**
+     * The error group whose errors are processed, null for the errors matching a search
+     */
+    private UUID errorGroupId;
+
+    /**
+     * The closing reason of the deleted errors
+     */
+    private String reason;
+
+    /**
+     * The user who submitted the operation, recorded in the audit log of the processed errors
+     */
+    @Embedded
+    @NonNull
+    private User user;
+
+    @NonNull
+    private ZonedDateTime created;
+
+    /**
+     * The time of the last progress, i.e. of the last batch of errors processed
+     */
+    @NonNull
+    private ZonedDateTime updated;
+
+    private ZonedDateTime finished;
+
+    /**
+     * The number of errors matching when the operation started, null until then
+     */
+    private Long errorsMatched;
+
+    private long errorsProcessed;
+
+    /**
+     * Errors matching, but not in a state allowing the action (anymore)
+     */
+    private long errorsSkipped;
+
+    /**
+     * Errors whose causing event could not be resent
+     */
+    private long errorsFailed;
+
+    private boolean cancelRequested;
+
+    private String failureMessage;
+
+    private BulkOperation(Action action, UUID errorGroupId, String reason, User user) {
+        this.action = action;
+        this.errorGroupId = errorGroupId;
+        this.reason = reason;
+        this.user = user;
+        this.created = ZonedDateTime.now();
+        this.updated = created;
+    }
+
+    public static BulkOperation resend(UUID errorGroupId, User user) {
+        return new BulkOperation(Action.RESEND, errorGroupId, null, user);
+    }
+
+    public static BulkOperation delete(UUID errorGroupId, String reason, User user) {
+        return new BulkOperation(Action.DELETE, errorGroupId, reason, user);
+    }
+
+    static String truncateFailureMessage(String failureMessage) {
+        return failureMessage != null && failureMessage.length() > MAX_FAILURE_MESSAGE_LENGTH ?
+                failureMessage.substring(0, MAX_FAILURE_MESSAGE_LENGTH) : failureMessage;
+    }
+}
@@ -0,0 +1,90 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation.State;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The progress of a bulk operation is written by the instance running it with the update queries below, each in a
+ * transaction of its own, so that it can be read by the other instances while the operation is running.
+ */
+public interface BulkOperationRepository extends JpaRepository<BulkOperation, UUID> {
+
+    List<BulkOperation> findAllByOrderByCreatedDesc(Pageable pageable);
+
+    @Query("select o.cancelRequested from BulkOperation o where o.id = ?1")
+    boolean isCancelRequested(UUID id);
+
+    /**
+     * @return 1 if the operation has been started, 0 if it is no longer queued, e.g. because it has been cancelled
+     */
+    default int start(UUID id, Long errorsMatched) {
+        return changeState(id, State.QUEUED, State.RUNNING, errorsMatched, ZonedDateTime.now());
+    }
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.state = ?3, o.errorsMatched = ?4, o.updated = ?5 where o.id = ?1 and o.state = ?2")
+    int changeState(UUID id, State from, State to, Long errorsMatched, ZonedDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.errorsProcessed = o.errorsProcessed + ?2, o.errorsSkipped = o.errorsSkipped + ?3, " +
+            "o.errorsFailed = o.errorsFailed + ?4, o.updated = ?5 where o.id = ?1")
+    void addProgress(UUID id, long processed, long skipped, long failed, ZonedDateTime now);
+
+    default void addProgress(UUID id, long processed, long skipped, long failed) {
+        addProgress(id, processed, skipped, failed, ZonedDateTime.now());
+    }
+
+    default void finish(UUID id, State state, String failureMessage) {
+        ZonedDateTime now = ZonedDateTime.now();
+        finish(id, state, BulkOperation.truncateFailureMessage(failureMessage), now, now);
+    }
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.state = ?2, o.failureMessage = ?3, o.updated = ?4, o.finished = ?5 where o.id = ?1")
+    void finish(UUID id, State state, String failureMessage, ZonedDateTime updated, ZonedDateTime finished);
+
+    /**
+     * Cancels a queued operation right away, and requests a running operation to stop after the current batch
+     *
+     * @return true if the operation has been cancelled or is going to stop, false if it is not queued or running
+     */
+    default boolean cancel(UUID id) {
+        ZonedDateTime now = ZonedDateTime.now();
+        return cancelQueued(id, State.QUEUED, State.CANCELLED, now) > 0 || requestCancel(id, State.RUNNING) > 0;
+    }
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.state = ?3, o.cancelRequested = true, o.updated = ?4, o.finished = ?4 where o.id = ?1 and o.state = ?2")
+    int cancelQueued(UUID id, State queued, State cancelled, ZonedDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.cancelRequested = true where o.id = ?1 and o.state = ?2")
+    int requestCancel(UUID id, State running);
+
+    /**
+     * Marks the operations without progress since the given time as failed, e.g. because the instance running them
+     * has been stopped
+     */
+    default int failStale(ZonedDateTime noProgressSince) {
+        return failStale(List.of(State.QUEUED, State.RUNNING), State.FAILED, "Interrupted", noProgressSince, ZonedDateTime.now());
+    }
+
+    @Transactional
+    @Modifying
+    @Query("update BulkOperation o set o.state = ?2, o.failureMessage = ?3, o.finished = ?5 where o.state in ?1 and o.updated < ?4")
+    int failStale(Collection<State> unfinished, State failed, String failureMessage, ZonedDateTime noProgressSince, ZonedDateTime now);
+}
@@ -2,6 +2,7 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,7 +14,7 @@ import java.util.UUID;
 @NoArgsConstructor // for JPA
 @ToString
 @Entity
-public class CausingEvent {
+public class CausingEvent extends AssignedIdEntity {
 
     @Id
     @Builder.Default
@@ -28,17 +29,81 @@ public class CausingEvent {
     @NonNull
     private EventMessage message;
 
+    /**
+     * One row per header, empty if the headers are stored compactly. Loaded in batches for the causing events in the
+     * persistence context, e.g. when resending the causing events of many errors. Use {@link CausingEventHeaders} to
+     * read the headers in either format.
+     */
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "causing_event_id", referencedColumnName = "id")
+    @BatchSize(size = 100)
     private List<MessageHeader> headers;
 
-    public void update(EventMetadata eventMetadata, EventMessage eventMessage, List<MessageHeader> headers) {
-        this.metadata = eventMetadata;
-        this.message = eventMessage;
+    /**
+     * All headers serialized into a single value (see {@link CompactHeadersCodec}), null if the headers are stored as
+     * one row per header
+     */
+    @ToString.Exclude
+    private byte[] compactHeaders;
+
+    /**
+     * Digest of the header dictionary entry holding the signature certificate header value if the headers are stored
+     * compactly, null otherwise or if the causing event is not signed
+     */
+    private String signatureCertificateDigest;
+
+    /**
+     * Read-only association to the signature certificate in the header dictionary, see {@link #signatureCertificateDigest}
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "signature_certificate_digest", insertable = false, updatable = false)
+    @ToString.Exclude
+    private HeaderDictionaryEntry signatureCertificate;
+
+    /**
+     * See {@link CausingEventContentFingerprint}. Null for causing events stored before the fingerprint was introduced.
+     */
+    @ToString.Exclude
+    private String contentFingerprint;
+
+    /**
+     * Replaces the content of this causing event by the content of the given causing event, including the format in
+     * which the headers are stored
+     */
+    public void update(CausingEvent causingEvent) {
+        this.metadata = causingEvent.getMetadata();
+        this.message = causingEvent.getMessage();
         clearHeaders();
-        if (headers != null) {
-            this.headers.addAll(headers);
+        if (causingEvent.getHeaders() != null) {
+            this.headers.addAll(causingEvent.getHeaders());
         }
+        this.compactHeaders = causingEvent.getCompactHeaders();
+        this.signatureCertificateDigest = causingEvent.getSignatureCertificateDigest();
+        this.signatureCertificate = null;
+        computeContentFingerprint();
+    }
+
+    /**
+     * Stores the headers of this new causing event compactly instead of as one row per header
+     */
+    void useCompactHeaders(byte[] compactHeaders, String signatureCertificateDigest) {
+        this.headers = new ArrayList<>(); // Not yet managed by Hibernate, and the given headers might be immutable
+        this.compactHeaders = compactHeaders;
+        this.signatureCertificateDigest = signatureCertificateDigest;
+    }
+
+    /**
+     * @return true if the given causing event has the same content as this one, i.e. if updating this causing event
+     * with the given one would not change anything relevant
+     */
+    boolean hasSameContentAs(CausingEvent causingEvent) {
+        return contentFingerprint != null &&
+                contentFingerprint.equals(CausingEventContentFingerprint.of(causingEvent.getMessage(), causingEvent.getHeaders(), causingEvent.getCompactHeaders()));
+    }
+
+    @PrePersist
+    void computeContentFingerprint() {
+        contentFingerprint = CausingEventContentFingerprint.of(message, headers, compactHeaders);
     }
 
     private void clearHeaders() {
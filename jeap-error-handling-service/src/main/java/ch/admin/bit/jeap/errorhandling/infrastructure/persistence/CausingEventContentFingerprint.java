@@ -0,0 +1,71 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Fingerprint of the content of a causing event, i.e. of everything that might differ between two failures of the
+ * same causing event and is relevant when resending it: topic, cluster, key, payload and headers. Partition and
+ * offset are not part of the fingerprint, as a resent causing event gets a new offset on every attempt.
+ * <p>
+ * Compact headers are part of the fingerprint as they are stored, as their format is deterministic and references
+ * dictionary entries by the digest of their value. The same headers therefore have a different fingerprint in each
+ * storage format, i.e. an existing causing event is rewritten once in the format currently configured.
+ */
+final class CausingEventContentFingerprint {
+
+    private static final Comparator<MessageHeader> HEADER_ORDER = Comparator
+            .comparing(MessageHeader::getHeaderName)
+            .thenComparing(MessageHeader::getHeaderValue, Arrays::compare);
+
+    private CausingEventContentFingerprint() {
+    }
+
+    static String of(EventMessage message, List<MessageHeader> headers, byte[] compactHeaders) {
+        MessageDigest digest = sha256();
+        update(digest, message.getTopic());
+        update(digest, message.getClusterName());
+        update(digest, message.getKey());
+        update(digest, message.getPayload());
+        if (headers != null) {
+            // Headers originate from a map, i.e. their order is not significant
+            headers.stream().sorted(HEADER_ORDER).forEach(header -> {
+                update(digest, header.getHeaderName());
+                update(digest, header.getHeaderValue());
+            });
+        }
+        if (compactHeaders != null) {
+            update(digest, compactHeaders);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        update(digest, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Each value is prefixed with its length to keep the fingerprints of e.g. key "ab" and payload "c" apart from key
+     * "a" and payload "bc".
+     */
+    private static void update(MessageDigest digest, byte[] value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value == null ? -1 : value.length).array());
+        if (value != null) {
+            digest.update(value);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+}
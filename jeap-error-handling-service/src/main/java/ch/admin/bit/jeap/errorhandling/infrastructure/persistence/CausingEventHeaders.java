@@ -0,0 +1,167 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CompactHeadersCodec.CompactHeader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem.SIGNATURE_CERTIFICATE_HEADER_NAME;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Stores and reads the headers of causing events. Depending on {@link CausingEventHeadersProperties#isCompact()}, the
+ * headers of new causing events are stored as one {@link MessageHeader} row per header or compactly in a single
+ * column of the causing event (see {@link CompactHeadersCodec}). When stored compactly, the values of the signature
+ * certificate header and of the configured dictionary headers are stored once in the header dictionary. Both formats
+ * are read.
+ * <p>
+ * Dictionary entries are immutable and thus cached once read or stored. The headers of many causing events are read
+ * with at most one query for the dictionary entries not cached yet. Hits and misses are published as
+ * {@value #CACHE_NAME} cache metrics.
+ */
+@Component
+public class CausingEventHeaders {
+
+    static final String CACHE_NAME = "eh_header_dictionary";
+
+    private final CausingEventHeadersProperties properties;
+    private final HeaderDictionaryRepository headerDictionaryRepository;
+    private final Cache<String, byte[]> dictionaryValues;
+
+    public CausingEventHeaders(CausingEventHeadersProperties properties,
+                               HeaderDictionaryRepository headerDictionaryRepository,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.headerDictionaryRepository = headerDictionaryRepository;
+        this.dictionaryValues = Caffeine.newBuilder()
+                .maximumSize(properties.getDictionaryCacheMaxSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, dictionaryValues, CACHE_NAME);
+    }
+
+    /**
+     * Converts the headers of the given new causing event to the compact format if configured. The dictionary entries
+     * referenced by the compact headers are stored right away.
+     */
+    public void applyStorageFormat(CausingEvent causingEvent) {
+        if (!properties.isCompact()) {
+            return;
+        }
+        List<MessageHeader> headers = causingEvent.getHeaders() != null ? causingEvent.getHeaders() : List.of();
+        List<CompactHeader> compactHeaders = new ArrayList<>(headers.size());
+        String signatureCertificateDigest = null;
+        for (MessageHeader header : headers) {
+            String headerName = header.getHeaderName();
+            if (isDictionaryHeader(headerName)) {
+                String digest = storeInDictionary(header.getHeaderValue());
+                compactHeaders.add(CompactHeader.dictionaryReference(headerName, digest));
+                if (SIGNATURE_CERTIFICATE_HEADER_NAME.equals(headerName)) {
+                    signatureCertificateDigest = digest;
+                }
+            } else {
+                compactHeaders.add(CompactHeader.inline(headerName, header.getHeaderValue()));
+            }
+        }
+        causingEvent.useCompactHeaders(CompactHeadersCodec.encode(compactHeaders), signatureCertificateDigest);
+    }
+
+    public List<MessageHeader> headersOf(CausingEvent causingEvent) {
+        return headersOf(List.of(causingEvent)).get(causingEvent.getId());
+    }
+
+    /**
+     * @return the headers of the given causing events by causing event ID. Header rows of causing events stored
+     * before the compact format was enabled are loaded in batches (see {@link CausingEvent#getHeaders()}).
+     */
+    public Map<UUID, List<MessageHeader>> headersOf(Collection<CausingEvent> causingEvents) {
+        Map<UUID, List<MessageHeader>> headersByCausingEventId = new HashMap<>();
+        Map<UUID, List<CompactHeader>> compactHeadersByCausingEventId = new HashMap<>();
+        for (CausingEvent causingEvent : causingEvents) {
+            if (causingEvent.getCompactHeaders() != null) {
+                compactHeadersByCausingEventId.put(causingEvent.getId(), CompactHeadersCodec.decode(causingEvent.getCompactHeaders()));
+            } else {
+                headersByCausingEventId.put(causingEvent.getId(), causingEvent.getHeaders() != null ? causingEvent.getHeaders() : List.of());
+            }
+        }
+
+        Map<String, byte[]> dictionary = findDictionaryValues(compactHeadersByCausingEventId.values().stream()
+                .flatMap(List::stream)
+                .filter(CompactHeader::isDictionaryReference)
+                .map(CompactHeader::digest)
+                .collect(toSet()));
+        compactHeadersByCausingEventId.forEach((causingEventId, compactHeaders) ->
+                headersByCausingEventId.put(causingEventId, compactHeaders.stream()
+                        .map(compactHeader -> toMessageHeader(compactHeader, dictionary))
+                        .toList()));
+        return headersByCausingEventId;
+    }
+
+    private boolean isDictionaryHeader(String headerName) {
+        return SIGNATURE_CERTIFICATE_HEADER_NAME.equals(headerName) || properties.getDictionaryHeaderNames().contains(headerName);
+    }
+
+    private String storeInDictionary(byte[] headerValue) {
+        HeaderDictionaryEntry entry = HeaderDictionaryEntry.of(headerValue);
+        if (dictionaryValues.getIfPresent(entry.getDigest()) == null) {
+            headerDictionaryRepository.saveIfAbsent(entry);
+            putAfterCommit(entry);
+        }
+        return entry.getDigest();
+    }
+
+    /**
+     * A stored entry is only cached once the current transaction (if any) has been committed, as it would otherwise
+     * not be stored again if the transaction is rolled back.
+     */
+    private void putAfterCommit(HeaderDictionaryEntry entry) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dictionaryValues.put(entry.getDigest(), entry.getHeaderValue());
+                }
+            });
+        } else {
+            dictionaryValues.put(entry.getDigest(), entry.getHeaderValue());
+        }
+    }
+
+    private Map<String, byte[]> findDictionaryValues(Set<String> digests) {
+        if (digests.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, byte[]> values = new HashMap<>(dictionaryValues.getAllPresent(digests));
+        Set<String> missingDigests = digests.stream()
+                .filter(digest -> !values.containsKey(digest))
+                .collect(toSet());
+        if (!missingDigests.isEmpty()) {
+            headerDictionaryRepository.findAllById(missingDigests).forEach(entry -> {
+                values.put(entry.getDigest(), entry.getHeaderValue());
+                dictionaryValues.put(entry.getDigest(), entry.getHeaderValue());
+            });
+        }
+        return values;
+    }
+
+    private static MessageHeader toMessageHeader(CompactHeader compactHeader, Map<String, byte[]> dictionary) {
+        byte[] headerValue = compactHeader.value();
+        if (compactHeader.isDictionaryReference()) {
+            headerValue = dictionary.get(compactHeader.digest());
+            if (headerValue == null) {
+                throw new IllegalStateException("Header dictionary entry " + compactHeader.digest() +
+                        " referenced by header " + compactHeader.name() + " not found");
+            }
+        }
+        return MessageHeader.builder()
+                .headerName(compactHeader.name())
+                .headerValue(headerValue)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration of the storage format of the headers of causing events, see {@link CausingEventHeaders}
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.causing-event-headers")
+public class CausingEventHeadersProperties {
+
+    /**
+     * If enabled, the headers of new causing events are stored compactly in a single column of the causing event
+     * instead of one row per header. Causing events stored before keep their header rows, which remain readable.
+     */
+    private boolean compact = false;
+
+    /**
+     * Names of the headers whose values are stored once in the header dictionary when storing headers compactly, in
+     * addition to the signature certificate header. Only suited for large values repeated across many causing events,
+     * as dictionary entries are not deleted by housekeeping.
+     */
+    private Set<String> dictionaryHeaderNames = new HashSet<>();
+
+    /**
+     * Maximum number of header dictionary entries kept in memory
+     */
+    @Min(1)
+    private long dictionaryCacheMaxSize = 1000;
+}
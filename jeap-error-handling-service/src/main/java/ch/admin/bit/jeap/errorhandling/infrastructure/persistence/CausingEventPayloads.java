@@ -0,0 +1,74 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compresses the payloads of causing events stored without format marker (see {@link PayloadCompression}), i.e.
+ * stored before a codec was configured, page by page in the order of their ID.
+ */
+@Component
+@Slf4j
+public class CausingEventPayloads {
+
+    private static final String WITHOUT_FORMAT_MARKER = "substring(message_payload from 1 for " + PayloadCompression.MAGIC.length + ") IS DISTINCT FROM ? ";
+
+    private static final String FIND_FIRST_PAGE = "SELECT id, message_payload, content_fingerprint FROM causing_event " +
+            "WHERE " + WITHOUT_FORMAT_MARKER +
+            "ORDER BY id LIMIT ?";
+
+    private static final String FIND_NEXT_PAGE = "SELECT id, message_payload, content_fingerprint FROM causing_event " +
+            "WHERE id > ? AND " + WITHOUT_FORMAT_MARKER +
+            "ORDER BY id LIMIT ?";
+
+    // A causing event rewritten in the meantime has been written with the configured codec already
+    private static final String UPDATE_PAYLOAD = "UPDATE causing_event SET message_payload = ? " +
+            "WHERE id = ? AND content_fingerprint IS NOT DISTINCT FROM ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PayloadCompression payloadCompression;
+
+    public CausingEventPayloads(DataSource dataSource, PayloadCompression payloadCompression) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.payloadCompression = payloadCompression;
+    }
+
+    /**
+     * Compresses the payloads of the next page of causing events stored without format marker
+     *
+     * @param after    the ID of the last causing event of the previous page, null for the first page
+     * @param pageSize the maximum number of causing events to compress
+     * @return the ID of the last causing event of this page, null if there are no further causing events to compress
+     */
+    @Transactional
+    public UUID compressNextPage(UUID after, int pageSize) {
+        List<StoredPayload> page = after == null ?
+                jdbcTemplate.query(FIND_FIRST_PAGE, (rs, rowNum) -> storedPayload(rs), PayloadCompression.MAGIC, pageSize) :
+                jdbcTemplate.query(FIND_NEXT_PAGE, (rs, rowNum) -> storedPayload(rs), after, PayloadCompression.MAGIC, pageSize);
+        if (page.isEmpty()) {
+            return null;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_PAYLOAD, page, page.size(), (ps, storedPayload) -> {
+            ps.setBytes(1, payloadCompression.compress(storedPayload.payload()));
+            ps.setObject(2, storedPayload.id());
+            ps.setString(3, storedPayload.contentFingerprint());
+        });
+        log.debug("Compressed the payloads of {} causing events", page.size());
+        return page.size() < pageSize ? null : page.getLast().id();
+    }
+
+    private static StoredPayload storedPayload(ResultSet rs) throws SQLException {
+        return new StoredPayload(rs.getObject("id", UUID.class), rs.getBytes("message_payload"), rs.getString("content_fingerprint"));
+    }
+
+    private record StoredPayload(UUID id, byte[] payload, String contentFingerprint) {
+    }
+}
@@ -7,15 +7,19 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface CausingEventRepository extends JpaRepository<CausingEvent, UUID> {
+public interface CausingEventRepository extends JpaRepository<CausingEvent, UUID>, CausingEventRepositoryCustom {
 
     @Query("select c from CausingEvent c where c.metadata.id = ?1")
     Optional<CausingEvent> findByCausingEventId(String eventId);
 
+    @Query("select c from CausingEvent c where c.metadata.id in ?1")
+    List<CausingEvent> findAllByCausingEventIds(Collection<String> eventIds);
+
     @Query("select causingEvent.id from CausingEvent causingEvent left join Error error on causingEvent.id = error.causingEvent.id where error is null")
     Slice<UUID> findCausingEventIdsWithoutError(Pageable pageable);
 
@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CausingEventRepositoryCustom {
+
+    /**
+     * Inserts the causing event or, if a causing event with the same causing event ID already exists, updates the
+     * existing one with the given information. Must be called within a transaction.
+     *
+     * @return the persistent causing event, which carries the ID of the existing causing event in case of an update
+     */
+    CausingEvent upsert(CausingEvent causingEvent);
+
+    /**
+     * Does the same as {@link #upsert(CausingEvent)} for several causing events at once. If a causing event ID occurs
+     * more than once, the latest occurrence wins.
+     *
+     * @return the persistent causing events, one per distinct causing event ID
+     */
+    List<CausingEvent> upsertAll(Collection<CausingEvent> causingEvents);
+}
@@ -0,0 +1,175 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.HeaderRow;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.HeaderWrites;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.UpsertResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * On PostgreSQL, causing events are written with a single {@code INSERT ... ON CONFLICT DO UPDATE} statement (see
+ * {@link CausingEventUpsertStatement}), which neither needs a preceding select nor fails if a concurrent transaction
+ * has stored the same causing event in the meantime. Other databases (i.e. H2 in tests) fall back to
+ * select-then-save. In both cases, existing causing events and their headers are only rewritten if their content
+ * fingerprint has changed. Compact headers (see {@link CausingEventHeaders}) are written with the causing event,
+ * without any header rows. Payloads are written compressed as configured (see {@link PayloadCompression}).
+ */
+@Slf4j
+class CausingEventRepositoryCustomImpl implements CausingEventRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    /**
+     * Keeps the number of bind parameters per statement well below the limit of the PostgreSQL JDBC driver (32767)
+     */
+    private static final int MAX_CAUSING_EVENTS_PER_STATEMENT = 1000;
+
+    private static final String INSERT_HEADER = "INSERT INTO message_header (id, causing_event_id, header_name, header_value) " +
+            "VALUES (nextval('message_header_seq'), ?, ?, ?)";
+
+    private static final String DELETE_HEADERS = "DELETE FROM message_header WHERE causing_event_id IN (:causingEventIds)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PayloadCompression payloadCompression;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean upsertSupported;
+
+    CausingEventRepositoryCustomImpl(DataSource dataSource, ObjectProvider<PayloadCompression> payloadCompression) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.payloadCompression = payloadCompression.getIfAvailable(PayloadCompression::uncompressed);
+    }
+
+    @Override
+    public CausingEvent upsert(CausingEvent causingEvent) {
+        return upsertAll(List.of(causingEvent)).get(0);
+    }
+
+    @Override
+    public List<CausingEvent> upsertAll(Collection<CausingEvent> causingEvents) {
+        List<CausingEvent> latestCausingEvents = new ArrayList<>(causingEvents.stream()
+                .collect(toMap(CausingEventRepositoryCustomImpl::causingEventId, identity(), (first, second) -> second, LinkedHashMap::new))
+                .values());
+        if (latestCausingEvents.isEmpty()) {
+            return List.of();
+        }
+        if (!isUpsertSupported()) {
+            return saveOrUpdate(latestCausingEvents);
+        }
+
+        for (int from = 0; from < latestCausingEvents.size(); from += MAX_CAUSING_EVENTS_PER_STATEMENT) {
+            int to = Math.min(from + MAX_CAUSING_EVENTS_PER_STATEMENT, latestCausingEvents.size());
+            upsertWithHeaders(latestCausingEvents.subList(from, to));
+        }
+        return findAllByCausingEventIds(latestCausingEvents);
+    }
+
+    private void upsertWithHeaders(List<CausingEvent> causingEvents) {
+        List<UpsertResult> upsertResults = jdbcTemplate.query(CausingEventUpsertStatement.sql(causingEvents.size()),
+                ps -> {
+                    int parameterIndex = 1;
+                    for (CausingEvent causingEvent : causingEvents) {
+                        parameterIndex = setUpsertParameters(ps, parameterIndex, causingEvent);
+                    }
+                },
+                CausingEventUpsertStatement.RESULT_MAPPER);
+
+        HeaderWrites headerWrites = CausingEventUpsertStatement.headerWrites(upsertResults, causingEvents);
+        if (!headerWrites.replacedHeadersOf().isEmpty()) {
+            new NamedParameterJdbcTemplate(jdbcTemplate).update(DELETE_HEADERS,
+                    new MapSqlParameterSource("causingEventIds", headerWrites.replacedHeadersOf()));
+        }
+        List<HeaderRow> headerRows = headerWrites.headerRows();
+        if (!headerRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HEADER, headerRows, headerRows.size(), (ps, headerRow) -> {
+                ps.setObject(1, headerRow.causingEventId());
+                ps.setString(2, headerRow.header().getHeaderName());
+                ps.setBytes(3, headerRow.header().getHeaderValue());
+            });
+        }
+    }
+
+    private int setUpsertParameters(PreparedStatement ps, int parameterIndex, CausingEvent causingEvent) throws SQLException {
+        EventMessage message = causingEvent.getMessage();
+        EventMetadata metadata = causingEvent.getMetadata();
+        ps.setObject(parameterIndex++, causingEvent.getId());
+        ps.setBytes(parameterIndex++, payloadCompression.compress(message.getPayload()));
+        ps.setBytes(parameterIndex++, message.getKey());
+        ps.setString(parameterIndex++, message.getTopic());
+        ps.setLong(parameterIndex++, message.getPartition());
+        ps.setLong(parameterIndex++, message.getOffset());
+        ps.setString(parameterIndex++, message.getClusterName());
+        ps.setString(parameterIndex++, metadata.getId());
+        ps.setString(parameterIndex++, metadata.getIdempotenceId());
+        ps.setString(parameterIndex++, metadata.getType().getName());
+        ps.setString(parameterIndex++, metadata.getType().getVersion());
+        ps.setString(parameterIndex++, metadata.getPublisher().getService());
+        ps.setString(parameterIndex++, metadata.getPublisher().getSystem());
+        ps.setObject(parameterIndex++, metadata.getCreated().toOffsetDateTime());
+        ps.setString(parameterIndex++, CausingEventContentFingerprint.of(message, causingEvent.getHeaders(), causingEvent.getCompactHeaders()));
+        ps.setBytes(parameterIndex++, causingEvent.getCompactHeaders());
+        ps.setString(parameterIndex++, causingEvent.getSignatureCertificateDigest());
+        return parameterIndex;
+    }
+
+    /**
+     * Loads the persistent causing events into the persistence context, so that errors referencing them can be
+     * persisted without Hibernate having to check whether they exist.
+     */
+    private List<CausingEvent> findAllByCausingEventIds(List<CausingEvent> causingEvents) {
+        return entityManager.createQuery("select c from CausingEvent c where c.metadata.id in :causingEventIds", CausingEvent.class)
+                .setParameter("causingEventIds", causingEvents.stream().map(CausingEventRepositoryCustomImpl::causingEventId).toList())
+                .getResultList();
+    }
+
+    private List<CausingEvent> saveOrUpdate(List<CausingEvent> causingEvents) {
+        Map<String, CausingEvent> persistentCausingEvents = findAllByCausingEventIds(causingEvents).stream()
+                .collect(toMap(CausingEventRepositoryCustomImpl::causingEventId, identity()));
+
+        List<CausingEvent> savedCausingEvents = new ArrayList<>(causingEvents.size());
+        for (CausingEvent causingEvent : causingEvents) {
+            CausingEvent persistentCausingEvent = persistentCausingEvents.get(causingEventId(causingEvent));
+            if (persistentCausingEvent == null) {
+                entityManager.persist(causingEvent);
+                savedCausingEvents.add(causingEvent);
+            } else if (persistentCausingEvent.hasSameContentAs(causingEvent)) {
+                savedCausingEvents.add(persistentCausingEvent);
+            } else {
+                persistentCausingEvent.update(causingEvent);
+                savedCausingEvents.add(persistentCausingEvent);
+            }
+        }
+        return savedCausingEvents;
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, causing events are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "select-then-save");
+        }
+        return upsertSupported;
+    }
+
+    private static String causingEventId(CausingEvent causingEvent) {
+        return causingEvent.getMetadata().getId();
+    }
+}
@@ -0,0 +1,105 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.Collections.nCopies;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * The PostgreSQL {@code INSERT ... ON CONFLICT DO UPDATE} statement writing causing events, and the header rows to
+ * write according to its result. Only the inserted and the changed causing events are returned by the statement,
+ * with {@code xmax} telling them apart: it is only set for rows which existed before, i.e. for updated rows.
+ */
+final class CausingEventUpsertStatement {
+
+    static final String COLUMNS = "id, message_payload, message_key, message_topic, message_partition, " +
+            "message_offset, message_cluster_name, metadata_id, metadata_idempotence_id, metadata_type_name, " +
+            "metadata_type_version, metadata_publisher_service, metadata_publisher_system, metadata_created, content_fingerprint, " +
+            "compact_headers, signature_certificate_digest";
+
+    static final int PARAMETERS_PER_CAUSING_EVENT = 17;
+
+    private static final String VALUES = "(" + String.join(", ", nCopies(PARAMETERS_PER_CAUSING_EVENT, "?")) + ")";
+
+    private static final String CONFLICT_CLAUSE = " ON CONFLICT (metadata_id) DO UPDATE SET " +
+            "message_payload = EXCLUDED.message_payload, " +
+            "message_key = EXCLUDED.message_key, " +
+            "message_topic = EXCLUDED.message_topic, " +
+            "message_partition = EXCLUDED.message_partition, " +
+            "message_offset = EXCLUDED.message_offset, " +
+            "message_cluster_name = EXCLUDED.message_cluster_name, " +
+            "metadata_idempotence_id = EXCLUDED.metadata_idempotence_id, " +
+            "metadata_type_name = EXCLUDED.metadata_type_name, " +
+            "metadata_type_version = EXCLUDED.metadata_type_version, " +
+            "metadata_publisher_service = EXCLUDED.metadata_publisher_service, " +
+            "metadata_publisher_system = EXCLUDED.metadata_publisher_system, " +
+            "metadata_created = EXCLUDED.metadata_created, " +
+            "content_fingerprint = EXCLUDED.content_fingerprint, " +
+            "compact_headers = EXCLUDED.compact_headers, " +
+            "signature_certificate_digest = EXCLUDED.signature_certificate_digest " +
+            // Unchanged causing events are neither updated nor returned
+            "WHERE causing_event.content_fingerprint IS DISTINCT FROM EXCLUDED.content_fingerprint " +
+            "RETURNING id, metadata_id, (xmax = 0) AS inserted";
+
+    static final RowMapper<UpsertResult> RESULT_MAPPER = (rs, rowNum) ->
+            new UpsertResult(rs.getObject("id", UUID.class), rs.getString("metadata_id"), rs.getBoolean("inserted"));
+
+    private CausingEventUpsertStatement() {
+    }
+
+    /**
+     * @return the statement upserting the given number of causing events, with {@link #COLUMNS} as parameters of each
+     */
+    static String sql(int causingEventCount) {
+        return "INSERT INTO causing_event (" + COLUMNS + ") VALUES " +
+                String.join(", ", nCopies(causingEventCount, VALUES)) + CONFLICT_CLAUSE;
+    }
+
+    /**
+     * The header rows of an updated causing event are replaced by the headers of the latest occurrence, the ones of
+     * an inserted causing event are written for the first time. Unchanged causing events are not returned by the
+     * statement, so their headers are left as they are.
+     *
+     * @param causingEvents the causing events written by the statement
+     */
+    static HeaderWrites headerWrites(List<UpsertResult> upsertResults, List<CausingEvent> causingEvents) {
+        Map<String, CausingEvent> causingEventsById = causingEvents.stream()
+                .collect(toMap(causingEvent -> causingEvent.getMetadata().getId(), identity()));
+        List<UUID> replacedHeadersOf = new ArrayList<>();
+        List<HeaderRow> headerRows = new ArrayList<>();
+        for (UpsertResult upsertResult : upsertResults) {
+            if (!upsertResult.inserted()) {
+                replacedHeadersOf.add(upsertResult.id());
+            }
+            List<MessageHeader> headers = causingEventsById.get(upsertResult.causingEventId()).getHeaders();
+            if (headers != null) {
+                headers.forEach(header -> headerRows.add(new HeaderRow(upsertResult.id(), header)));
+            }
+        }
+        return new HeaderWrites(replacedHeadersOf, headerRows);
+    }
+
+    /**
+     * @param id             the ID of the persistent causing event, which is the ID of the existing row when updated
+     * @param causingEventId the ID of the causing event in its metadata
+     * @param inserted       false if the causing event existed and has been updated
+     */
+    record UpsertResult(UUID id, String causingEventId, boolean inserted) {
+    }
+
+    /**
+     * @param replacedHeadersOf the IDs of the causing events whose header rows are to be deleted
+     * @param headerRows        the header rows to insert
+     */
+    record HeaderWrites(List<UUID> replacedHeadersOf, List<HeaderRow> headerRows) {
+    }
+
+    record HeaderRow(UUID causingEventId, MessageHeader header) {
+    }
+}
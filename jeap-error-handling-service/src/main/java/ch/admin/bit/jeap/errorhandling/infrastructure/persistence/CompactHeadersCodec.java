@@ -0,0 +1,90 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Binary format of the compact headers of a causing event (see {@link CausingEvent#getCompactHeaders()}): a format
+ * version and the number of headers, followed by the name of each header and either its value or the SHA-256 digest
+ * of its value stored in the header dictionary. Headers are written ordered by name, so that the same headers always
+ * result in the same bytes.
+ */
+final class CompactHeadersCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte INLINE_VALUE = 0;
+    private static final byte DICTIONARY_REFERENCE = 1;
+    private static final int DIGEST_LENGTH = 32;
+
+    private CompactHeadersCodec() {
+    }
+
+    static byte[] encode(List<CompactHeader> headers) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(headers.size());
+            for (CompactHeader header : headers.stream().sorted(Comparator.comparing(CompactHeader::name)).toList()) {
+                out.writeUTF(header.name());
+                if (header.isDictionaryReference()) {
+                    out.writeByte(DICTIONARY_REFERENCE);
+                    out.write(HexFormat.of().parseHex(header.digest()));
+                } else {
+                    out.writeByte(INLINE_VALUE);
+                    out.writeInt(header.value().length);
+                    out.write(header.value());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<CompactHeader> decode(byte[] compactHeaders) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(compactHeaders))) {
+            byte formatVersion = in.readByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported compact headers format version " + formatVersion);
+            }
+            int headerCount = in.readInt();
+            List<CompactHeader> headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                byte kind = in.readByte();
+                if (kind == DICTIONARY_REFERENCE) {
+                    headers.add(CompactHeader.dictionaryReference(name, HexFormat.of().formatHex(in.readNBytes(DIGEST_LENGTH))));
+                } else if (kind == INLINE_VALUE) {
+                    headers.add(CompactHeader.inline(name, in.readNBytes(in.readInt())));
+                } else {
+                    throw new IllegalStateException("Unknown kind " + kind + " of compact header " + name);
+                }
+            }
+            return headers;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param value  the header value if stored inline, null if stored in the header dictionary
+     * @param digest the digest of the header value if stored in the header dictionary, null if stored inline
+     */
+    record CompactHeader(String name, byte[] value, String digest) {
+
+        static CompactHeader inline(String name, byte[] value) {
+            return new CompactHeader(name, value, null);
+        }
+
+        static CompactHeader dictionaryReference(String name, String digest) {
+            return new CompactHeader(name, null, digest);
+        }
+
+        boolean isDictionaryReference() {
+            return digest != null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Compresses the payload of causing events when writing and decompresses it when reading, see
+ * {@link PayloadCompression}. Instantiated by Hibernate through the Spring bean container.
+ */
+@Converter
+class CompressedPayloadConverter implements AttributeConverter<byte[], byte[]> {
+
+    private final PayloadCompression payloadCompression;
+
+    CompressedPayloadConverter(ObjectProvider<PayloadCompression> payloadCompression) {
+        this.payloadCompression = payloadCompression.getIfAvailable(PayloadCompression::uncompressed);
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(byte[] payload) {
+        return payloadCompression.compress(payload);
+    }
+
+    @Override
+    public byte[] convertToEntityAttribute(byte[] stored) {
+        return payloadCompression.decompress(stored);
+    }
+}
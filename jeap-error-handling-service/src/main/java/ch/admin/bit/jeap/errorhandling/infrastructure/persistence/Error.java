@@ -3,6 +3,7 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 import lombok.*;
 
 import jakarta.persistence.*;
+
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
@@ -12,7 +13,9 @@ import java.util.UUID;
 @NoArgsConstructor
 @ToString
 @Entity
-public class Error {
+@EntityListeners({ErrorStateCountListener.class, ErrorGroupStatsListener.class, ErrorDimensionListener.class,
+        ErrorChangeListener.class})
+public class Error extends AssignedIdEntity {
     @Id
     @Builder.Default
     @NonNull
@@ -40,6 +43,28 @@ public class Error {
     private String closingReason;
     @ManyToOne(fetch = FetchType.LAZY)
     private ErrorGroup errorGroup;
+    /**
+     * The number of failures of the causing event reported by the publisher of this error so far, including the ones
+     * recorded as {@link ErrorAttempt attempts} of this error and the ones of previous errors of the causing event
+     */
+    @Builder.Default
+    private int attemptCount = 1;
+
+    /**
+     * The state as last read from or written to the database, see {@link ErrorStateCountListener}
+     */
+    @Transient
+    @Getter(AccessLevel.PACKAGE)
+    @ToString.Exclude
+    private ErrorState persistentState;
+
+    /**
+     * The ID of the error group as last read from or written to the database, see {@link ErrorGroupStatsListener}
+     */
+    @Transient
+    @Getter(AccessLevel.PACKAGE)
+    @ToString.Exclude
+    private UUID persistentErrorGroupId;
 
     public void setErrorGroup(ErrorGroup errorGroup) {
         this.errorGroup = errorGroup;
@@ -61,6 +86,21 @@ public class Error {
         modifiedNow();
     }
 
+    /**
+     * Continues the attempt count of the previous error of the causing event reported by the same publisher, if any
+     */
+    public void continueAttemptCount(Error previousError) {
+        attemptCount = previousError != null ? previousError.attemptCount + 1 : 1;
+    }
+
+    /**
+     * Counts a further failure of the causing event, recorded as an {@link ErrorAttempt} of this error
+     */
+    public void countAttempt() {
+        attemptCount++;
+        modifiedNow();
+    }
+
     private void modifiedNow() {
         modified = ZonedDateTime.now();
     }
@@ -73,6 +113,18 @@ public class Error {
         return causingEvent.getMetadata();
     }
 
+    /**
+     * Runs after the callbacks of the {@link ErrorStateCountListener}, the {@link ErrorGroupStatsListener} and the
+     * {@link ErrorChangeListener}, which still see the previous persistent state and error group
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberPersistentState() {
+        persistentState = state;
+        persistentErrorGroupId = errorGroup != null ? errorGroup.getId() : null;
+    }
+
     @Getter
     public enum ErrorState {
         TEMPORARY_RETRY_PENDING(true, true),
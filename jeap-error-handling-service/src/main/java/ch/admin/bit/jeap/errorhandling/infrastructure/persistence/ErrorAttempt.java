@@ -0,0 +1,69 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * A further failure of the causing event of a temporary error, recorded on the error instead of storing a new error
+ * with the same causing event, stack trace and metadata. The failure is either a further error event reported for the
+ * causing event after it has been resent, or a failed resend of the causing event.
+ */
+@Getter
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class ErrorAttempt extends AssignedIdEntity {
+
+    static final int MAX_MESSAGE_LENGTH = 1000;
+
+    @Id
+    private UUID id = UUID.randomUUID();
+    private UUID errorId;
+    private ZonedDateTime created;
+    /**
+     * The idempotence ID of the error event reporting the failure, null for a failed resend
+     */
+    private String errorEventIdempotenceId;
+    private String traceIdString;
+    private String message;
+
+    private ErrorAttempt(UUID errorId, String errorEventIdempotenceId, String traceIdString, String message) {
+        if (errorId == null) {
+            throw new IllegalArgumentException("errorId must be provided");
+        }
+        this.errorId = errorId;
+        this.created = ZonedDateTime.now();
+        this.errorEventIdempotenceId = errorEventIdempotenceId;
+        this.traceIdString = traceIdString;
+        this.message = truncate(message);
+    }
+
+    /**
+     * @param error   the error the attempt is recorded on
+     * @param failure the error reported by the error event of the further failure, which is not stored
+     */
+    public static ErrorAttempt reportedAgain(Error error, Error failure) {
+        OriginalTraceContext traceContext = failure.getOriginalTraceContext();
+        return new ErrorAttempt(error.getId(),
+                failure.getErrorEventMetadata().getIdempotenceId(),
+                traceContext != null ? traceContext.getTraceIdString() : null,
+                failure.getErrorEventData().getMessage());
+    }
+
+    public static ErrorAttempt resendFailed(Error error, String message) {
+        OriginalTraceContext traceContext = error.getOriginalTraceContext();
+        return new ErrorAttempt(error.getId(), null,
+                traceContext != null ? traceContext.getTraceIdString() : null,
+                message);
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message;
+    }
+}
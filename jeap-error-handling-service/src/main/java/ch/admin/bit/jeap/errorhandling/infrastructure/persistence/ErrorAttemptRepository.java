@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface ErrorAttemptRepository extends JpaRepository<ErrorAttempt, UUID> {
+
+    List<ErrorAttempt> findByErrorIdOrderByCreated(UUID errorId);
+
+    boolean existsByErrorEventIdempotenceId(String errorEventIdempotenceId);
+
+    @Query("select distinct a.errorEventIdempotenceId from ErrorAttempt a where a.errorEventIdempotenceId in ?1")
+    List<String> findErrorEventIdempotenceIdsIn(Collection<String> errorEventIdempotenceIds);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select a.errorEventIdempotenceId from ErrorAttempt a where a.errorEventIdempotenceId is not null")
+    Stream<String> streamAllErrorEventIdempotenceIds();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select a.errorEventIdempotenceId from ErrorAttempt a where a.errorEventIdempotenceId is not null and a.created >= ?1")
+    Stream<String> streamErrorEventIdempotenceIdsCreatedSince(ZonedDateTime createdSince);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM error_attempt a WHERE a.error_id in (:errorIds) ")
+    void deleteAllByErrorIdIn(@Param("errorIds") Set<UUID> errorIds);
+}
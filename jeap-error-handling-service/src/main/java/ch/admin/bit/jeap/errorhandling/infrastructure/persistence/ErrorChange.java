@@ -0,0 +1,27 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+
+import java.util.UUID;
+
+/**
+ * An error stored or changed, as broadcast by the {@link ErrorChangeBroadcaster}
+ *
+ * @param errorGroupId the error group of the error, null if it has none
+ */
+public record ErrorChange(Type type, UUID errorId, ErrorState state, String publisher, UUID errorGroupId) {
+
+    public enum Type {
+        CREATED,
+        /**
+         * The state or the error group of the error has changed
+         */
+        CHANGED
+    }
+
+    static ErrorChange of(Type type, Error error) {
+        return new ErrorChange(type, error.getId(), error.getState(),
+                error.getErrorEventMetadata().getPublisher().getService(),
+                error.getErrorGroup() != null ? error.getErrorGroup().getId() : null);
+    }
+}
@@ -0,0 +1,337 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts the committed changes of errors to the subscribers of all instances. On PostgreSQL, the changes are sent
+ * with {@code NOTIFY} on the channel {@value #CHANNEL}; while there are subscribers on an instance, it listens on the
+ * channel with a dedicated connection outside of the connection pool and hands the changes received to its
+ * subscribers. The listening connections are named {@value #LISTENER_APPLICATION_NAME}, so that the changes are only
+ * sent while an instance has subscribers. On other databases (i.e. H2 in tests), the changes are handed to the
+ * subscribers of the instance committing them only. The changes are sent and handed to the subscribers by background
+ * threads, so that a transaction is not delayed by its subscribers. Subscribers must not block, as they are called
+ * one after the other.
+ */
+@Component
+@Slf4j
+public class ErrorChangeBroadcaster {
+
+    static final String CHANNEL = "error_change";
+
+    static final String LISTENER_APPLICATION_NAME = "jeap-eh-error-change-listener";
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    // The payload of a notification must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7500;
+
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    // Subscribers of other instances may miss the changes of this interval after they have subscribed
+    private static final Duration LISTENER_CHECK_INTERVAL = Duration.ofSeconds(5);
+
+    private static final String SELECT_LISTENER_EXISTS = "SELECT EXISTS (SELECT 1 FROM pg_stat_activity " +
+            "WHERE application_name = ? AND datname = current_database())";
+
+    private static final TypeReference<List<ErrorChange>> CHANGE_LIST = new TypeReference<>() {
+    };
+
+    private final DataSource dataSource;
+    private final JsonMapper jsonMapper;
+    private final List<Consumer<ErrorChange>> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService publishExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("error-change-publisher-"));
+    private final Queue<ErrorChange> pendingNotifications = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean notificationsScheduled = new AtomicBoolean();
+
+    private volatile Boolean postgresql;
+    private volatile boolean stopped;
+    private volatile Connection listenerConnection;
+
+    private Thread listenerThread;
+
+    // Only accessed by the publishing thread
+    private boolean listenerFound;
+    private long listenerCheckedAtMillis;
+
+    public ErrorChangeBroadcaster(DataSource dataSource, JsonMapper jsonMapper) {
+        this.dataSource = dataSource;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * @param subscriber called with every change committed from now on, must not block
+     * @return cancels the subscription
+     */
+    public Runnable subscribe(Consumer<ErrorChange> subscriber) {
+        subscribers.add(subscriber);
+        if (isPostgresql()) {
+            startListening();
+        }
+        return () -> subscribers.remove(subscriber);
+    }
+
+    void publish(List<ErrorChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (isPostgresql()) {
+            // The changes of all transactions committed in the meantime are sent together with the next notifications
+            pendingNotifications.addAll(changes);
+            if (notificationsScheduled.compareAndSet(false, true)) {
+                publishExecutor.execute(this::sendPendingNotifications);
+            }
+        } else if (!subscribers.isEmpty()) {
+            publishExecutor.execute(() -> changes.forEach(this::handToSubscribers));
+        }
+    }
+
+    private void sendPendingNotifications() {
+        notificationsScheduled.set(false);
+        List<ErrorChange> changes = new ArrayList<>();
+        for (ErrorChange change = pendingNotifications.poll(); change != null; change = pendingNotifications.poll()) {
+            changes.add(change);
+        }
+        if (!changes.isEmpty() && isListenedTo()) {
+            sendNotifications(changes);
+        }
+    }
+
+    /**
+     * @return true if this or another instance has subscribers, i.e. is listening on the channel
+     */
+    private boolean isListenedTo() {
+        if (!subscribers.isEmpty()) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - listenerCheckedAtMillis >= LISTENER_CHECK_INTERVAL.toMillis()) {
+            try {
+                listenerFound = Boolean.TRUE.equals(new JdbcTemplate(dataSource)
+                        .queryForObject(SELECT_LISTENER_EXISTS, Boolean.class, LISTENER_APPLICATION_NAME));
+            } catch (Exception e) {
+                log.warn("Could not check whether error changes are listened to, sending them anyway", e);
+                listenerFound = true;
+            }
+            listenerCheckedAtMillis = now;
+        }
+        return listenerFound;
+    }
+
+    private void sendNotifications(List<ErrorChange> changes) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (String payload : toPayloads(changes)) {
+                notify.setString(1, CHANNEL);
+                notify.setString(2, payload);
+                notify.execute();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (Exception e) {
+            log.warn("Could not broadcast {} error changes", changes.size(), e);
+        }
+    }
+
+    /**
+     * Packs the changes into as few JSON arrays as the size limit of a notification allows
+     */
+    private List<String> toPayloads(List<ErrorChange> changes) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder();
+        int payloadBytes = 0;
+        for (ErrorChange change : changes) {
+            String json = jsonMapper.writeValueAsString(change);
+            int jsonBytes = json.getBytes(StandardCharsets.UTF_8).length;
+            if (!payload.isEmpty() && payloadBytes + jsonBytes + 2 > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.append(']').toString());
+                payload.setLength(0);
+                payloadBytes = 0;
+            }
+            payload.append(payload.isEmpty() ? '[' : ',').append(json);
+            payloadBytes += jsonBytes + 1;
+        }
+        payloads.add(payload.append(']').toString());
+        return payloads;
+    }
+
+    private synchronized void startListening() {
+        if (stopped) {
+            return;
+        }
+        if (listenerThread == null) {
+            listenerThread = new Thread(this::listen, "error-change-listener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        } else {
+            notifyAll();
+        }
+    }
+
+    private void listen() {
+        while (awaitSubscribers()) {
+            try (Connection connection = openListenerConnection()) {
+                listenerConnection = connection;
+                connection.setClientInfo("ApplicationName", LISTENER_APPLICATION_NAME);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                log.info("Listening for error changes on the channel {}", CHANNEL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                // The connection is closed once the last subscription has been cancelled
+                while (!stopped && !subscribers.isEmpty()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+                // A connection of the data source is returned to it when closed, i.e. without being listened on
+                connection.setClientInfo("ApplicationName", "");
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN " + CHANNEL);
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                log.info("Stopped listening for error changes on the channel {}", CHANNEL);
+            } catch (SQLException e) {
+                if (!stopped) {
+                    log.warn("Listening for error changes failed, listening again in {}", RECONNECT_DELAY, e);
+                    sleep(RECONNECT_DELAY);
+                }
+            } finally {
+                listenerConnection = null;
+            }
+        }
+    }
+
+    /**
+     * @return false once stopped
+     */
+    private synchronized boolean awaitSubscribers() {
+        while (!stopped && subscribers.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !stopped;
+    }
+
+    /**
+     * Opens a connection of its own with the settings of the connection pool, as listening keeps a connection busy as
+     * long as there are subscribers. Falls back to a connection of the data source if it is not a connection pool
+     * configured with a JDBC URL.
+     */
+    private Connection openListenerConnection() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            if (pool.getJdbcUrl() != null) {
+                Properties properties = new Properties();
+                properties.putAll(pool.getDataSourceProperties());
+                if (pool.getUsername() != null) {
+                    properties.setProperty("user", pool.getUsername());
+                }
+                if (pool.getPassword() != null) {
+                    properties.setProperty("password", pool.getPassword());
+                }
+                return DriverManager.getConnection(pool.getJdbcUrl(), properties);
+            }
+        }
+        return dataSource.getConnection();
+    }
+
+    private void receive(String payload) {
+        try {
+            jsonMapper.readValue(payload, CHANGE_LIST).forEach(this::handToSubscribers);
+        } catch (Exception e) {
+            log.warn("Could not read the error changes {}", payload, e);
+        }
+    }
+
+    private void handToSubscribers(ErrorChange change) {
+        for (Consumer<ErrorChange> subscriber : subscribers) {
+            try {
+                subscriber.accept(change);
+            } catch (Exception e) {
+                log.warn("Subscriber failed to handle the error change {}", change, e);
+            }
+        }
+    }
+
+    private boolean isPostgresql() {
+        if (postgresql == null) {
+            String databaseProductName = new JdbcTemplate(dataSource).execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgresql = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, error changes are broadcast {}.", databaseProductName,
+                    postgresql ? "to all instances with LISTEN/NOTIFY" : "to the subscribers of the same instance only");
+        }
+        return postgresql;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        stopped = true;
+        notifyAll();
+        publishExecutor.shutdownNow();
+        Connection connection = listenerConnection;
+        if (connection != null) {
+            try {
+                // Unlike closing it, aborting the connection does not wait for the listener polling it
+                connection.abort(Runnable::run);
+            } catch (SQLException e) {
+                log.warn("Could not close the connection listening for error changes", e);
+            }
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+}
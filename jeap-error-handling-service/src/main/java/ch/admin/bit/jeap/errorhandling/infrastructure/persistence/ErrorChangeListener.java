@@ -0,0 +1,34 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Reports the inserts and the changes of state or error group of errors to the {@link ErrorChangeTracker}, looked up
+ * lazily for the same reason as in the {@link ErrorStateCountListener}.
+ */
+class ErrorChangeListener {
+
+    private final ObjectProvider<ErrorChangeTracker> errorChangeTracker;
+
+    ErrorChangeListener(ObjectProvider<ErrorChangeTracker> errorChangeTracker) {
+        this.errorChangeTracker = errorChangeTracker;
+    }
+
+    @PostPersist
+    void errorInserted(Error error) {
+        errorChangeTracker.ifAvailable(tracker -> tracker.add(ErrorChange.of(ErrorChange.Type.CREATED, error)));
+    }
+
+    @PostUpdate
+    void errorUpdated(Error error) {
+        UUID errorGroupId = error.getErrorGroup() != null ? error.getErrorGroup().getId() : null;
+        if (error.getPersistentState() != error.getState() || !Objects.equals(error.getPersistentErrorGroupId(), errorGroupId)) {
+            errorChangeTracker.ifAvailable(tracker -> tracker.add(ErrorChange.of(ErrorChange.Type.CHANGED, error)));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the changes of errors of a transaction and hands them to the {@link ErrorChangeBroadcaster} once the
+ * transaction has been committed, so that subscribers are only told about committed changes. Changes flushed while
+ * the transaction is being committed are published as well, as the synchronizations to call after the commit are
+ * looked up only then.
+ */
+@Component
+public class ErrorChangeTracker {
+
+    private final ErrorChangeBroadcaster errorChangeBroadcaster;
+    private final ErrorFeedProperties errorFeedProperties;
+
+    public ErrorChangeTracker(ErrorChangeBroadcaster errorChangeBroadcaster, ErrorFeedProperties errorFeedProperties) {
+        this.errorChangeBroadcaster = errorChangeBroadcaster;
+        this.errorFeedProperties = errorFeedProperties;
+    }
+
+    void add(ErrorChange change) {
+        if (!errorFeedProperties.isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            errorChangeBroadcaster.publish(List.of(change));
+            return;
+        }
+        pendingChanges().changes.add(change);
+    }
+
+    /**
+     * Held by a synchronization for the same reason as the deltas of the {@link ErrorStateCountTracker}
+     */
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pendingChanges) {
+                return pendingChanges;
+            }
+        }
+        PendingChanges pendingChanges = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pendingChanges);
+        return pendingChanges;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final List<ErrorChange> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            errorChangeBroadcaster.publish(changes);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+
+import java.util.List;
+
+public record ErrorCountByDimensionsResult(ErrorState state, String publisherService, String errorCode, String eventName, Long errorCount) {
+
+    public List<ErrorDimensionCountKey> keys() {
+        return List.of(
+                new ErrorDimensionCountKey(ErrorDimension.PUBLISHER, publisherService, state),
+                new ErrorDimensionCountKey(ErrorDimension.ERROR_CODE, errorCode, state),
+                new ErrorDimensionCountKey(ErrorDimension.EVENT_NAME, eventName, state));
+    }
+}
@@ -0,0 +1,10 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+
+public record ErrorCountByStateCountKeyResult(ErrorState state, String clusterName, String publisherService, Long errorCount) {
+
+    public ErrorStateCountKey key() {
+        return new ErrorStateCountKey(state, clusterName, publisherService);
+    }
+}
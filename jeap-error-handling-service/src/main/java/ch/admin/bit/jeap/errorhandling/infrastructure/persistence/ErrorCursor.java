@@ -0,0 +1,72 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.criteria.Path;
+import lombok.NonNull;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of an error in a list of errors ordered by creation time and ID. A list continues after the error at the
+ * cursor, which is found by an index seek regardless of how many errors precede it.
+ */
+public record ErrorCursor(@NonNull ZonedDateTime created, @NonNull UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ErrorCursor of(ErrorListItem error) {
+        return new ErrorCursor(error.getCreated(), error.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not an encoded cursor
+     */
+    public static ErrorCursor decode(String encoded) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new ErrorCursor(
+                    Instant.parse(decoded.substring(0, separatorIndex)).atZone(ZoneOffset.UTC),
+                    UUID.fromString(decoded.substring(separatorIndex + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid error cursor: " + encoded, e);
+        }
+    }
+
+    /**
+     * @return an opaque representation of the cursor, to be passed to {@link #decode(String)}
+     */
+    public String encode() {
+        String value = created.toInstant() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the errors following the cursor in the given direction
+     */
+    Specification<Error> following(Sort.Direction direction) {
+        return (root, query, builder) -> {
+            Path<ZonedDateTime> createdPath = root.get("created");
+            Path<UUID> idPath = root.get("id");
+            if (direction.isAscending()) {
+                // The redundant bound on created lets the database seek the index on (created, id)
+                return builder.and(
+                        builder.greaterThanOrEqualTo(createdPath, created),
+                        builder.or(
+                                builder.greaterThan(createdPath, created),
+                                builder.greaterThan(idPath, id)));
+            }
+            return builder.and(
+                    builder.lessThanOrEqualTo(createdPath, created),
+                    builder.or(
+                            builder.lessThan(createdPath, created),
+                            builder.lessThan(idPath, id)));
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Attributes of errors offered as filters of the error search, whose distinct values are kept as
+ * {@link ErrorDimensionValue}s
+ */
+public enum ErrorDimension {
+    /**
+     * The service publishing the error event
+     */
+    PUBLISHER,
+    ERROR_CODE,
+    /**
+     * The name of the type of the causing event
+     */
+    EVENT_NAME;
+
+    String valueOf(Error error) {
+        return switch (this) {
+            case PUBLISHER -> error.getErrorEventMetadata().getPublisher().getService();
+            case ERROR_CODE -> error.getErrorEventData().getCode();
+            case EVENT_NAME -> error.getCausingEvent().getMetadata().getType().getName();
+        };
+    }
+
+    Path<String> path(Root<Error> error) {
+        return switch (this) {
+            case PUBLISHER -> error.get("errorEventMetadata").get("publisher").get("service");
+            case ERROR_CODE -> error.get("errorEventData").get("code");
+            case EVENT_NAME -> error.get("causingEvent").get("metadata").get("type").get("name");
+        };
+    }
+}
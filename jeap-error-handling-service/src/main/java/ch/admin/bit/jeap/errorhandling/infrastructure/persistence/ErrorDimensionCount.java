@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.*;
+
+/**
+ * Number of errors with the same value of an {@link ErrorDimension} and the same state. The counts are maintained by
+ * the {@link ErrorStateCountTracker} together with the error state counts and are only read through JPA.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class ErrorDimensionCount {
+
+    @EmbeddedId
+    @NonNull
+    private ErrorDimensionCountKey key;
+
+    private long errorCount;
+}
@@ -0,0 +1,51 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Dimension value and state the errors of an {@link ErrorDimensionCount} have in common
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Embeddable
+public class ErrorDimensionCountKey implements Serializable, Comparable<ErrorDimensionCountKey> {
+
+    private static final Comparator<ErrorDimensionCountKey> ORDER = Comparator.comparing(ErrorDimensionCountKey::getDimension)
+            .thenComparing(ErrorDimensionCountKey::getDimensionValue)
+            .thenComparing(ErrorDimensionCountKey::getState);
+
+    // Column names are given explicitly, as the implicit naming strategy would prefix them with the ID attribute
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension")
+    private ErrorDimension dimension;
+
+    @NonNull
+    @Column(name = "dimension_value")
+    private String dimensionValue;
+
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state")
+    private ErrorState state;
+
+    static ErrorDimensionCountKey of(Error error, ErrorDimension dimension, ErrorState state) {
+        return new ErrorDimensionCountKey(dimension, dimension.valueOf(error), state);
+    }
+
+    @Override
+    public int compareTo(ErrorDimensionCountKey other) {
+        return ORDER.compare(this, other);
+    }
+}
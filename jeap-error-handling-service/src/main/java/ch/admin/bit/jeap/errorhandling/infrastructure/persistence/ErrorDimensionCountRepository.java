@@ -0,0 +1,24 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ErrorDimensionCountRepository extends JpaRepository<ErrorDimensionCount, ErrorDimensionCountKey>, ErrorDimensionCountRepositoryCustom {
+
+    @Query("select d from ErrorDimensionCount d where d.key.dimension = ?1")
+    List<ErrorDimensionCount> findByDimension(ErrorDimension dimension);
+
+    /**
+     * @return the number of the given errors per state, publisher, error code and event name, as currently stored in
+     * the database
+     */
+    @Query("select new ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCountByDimensionsResult(" +
+            "e.state, e.errorEventMetadata.publisher.service, e.errorEventData.code, e.causingEvent.metadata.type.name, count(e)) " +
+            "from Error e where e.id in ?1 " +
+            "group by e.state, e.errorEventMetadata.publisher.service, e.errorEventData.code, e.causingEvent.metadata.type.name")
+    List<ErrorCountByDimensionsResult> countErrorsByDimensions(Collection<UUID> errorIds);
+}
@@ -0,0 +1,140 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Writes the error counts per dimension value like the {@link ErrorStateCountRepositoryCustomImpl} writes the error
+ * state counts: with {@code INSERT ... ON CONFLICT DO UPDATE} on PostgreSQL and update-then-insert otherwise, in the
+ * order of their keys.
+ */
+@Slf4j
+class ErrorDimensionCountRepositoryCustomImpl implements ErrorDimensionCountRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String UPSERT = "INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (dimension, dimension_value, state) " +
+            "DO UPDATE SET error_count = error_dimension_count.error_count + EXCLUDED.error_count";
+
+    private static final String UPDATE = "UPDATE error_dimension_count SET error_count = error_count + ? " +
+            "WHERE dimension = ? AND dimension_value = ? AND state = ?";
+
+    private static final String INSERT = "INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_COUNTS = "SELECT dimension, dimension_value, state, error_count FROM error_dimension_count";
+
+    private static final String LOCK_COUNTS = "LOCK TABLE error_dimension_count IN EXCLUSIVE MODE";
+
+    private static final String DELETE_COUNTS = "DELETE FROM error_dimension_count";
+
+    private static final List<String> ACTUAL_COUNTS = List.of(
+            "SELECT 'PUBLISHER', e.error_event_metadata_publisher_service, e.state, count(*) FROM error e " +
+                    "GROUP BY e.error_event_metadata_publisher_service, e.state",
+            "SELECT 'ERROR_CODE', e.error_event_data_code, e.state, count(*) FROM error e " +
+                    "GROUP BY e.error_event_data_code, e.state",
+            "SELECT 'EVENT_NAME', c.metadata_type_name, e.state, count(*) FROM error e " +
+                    "JOIN causing_event c ON c.id = e.causing_event_id " +
+                    "GROUP BY c.metadata_type_name, e.state");
+
+    private static final String INSERT_ACTUAL_COUNTS = "INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count) ";
+
+    // The counts of keys inserted by transactions committed since the deletion are replaced by the actual counts
+    private static final String MERGE_ACTUAL_COUNTS = "MERGE INTO error_dimension_count (dimension, dimension_value, state, error_count) " +
+            "KEY (dimension, dimension_value, state) ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    ErrorDimensionCountRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void applyDeltas(Map<ErrorDimensionCountKey, Long> deltas) {
+        List<Map.Entry<ErrorDimensionCountKey, Long>> changes = new TreeMap<>(deltas).entrySet().stream()
+                .filter(change -> change.getValue() != 0)
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (isUpsertSupported()) {
+            jdbcTemplate.batchUpdate(UPSERT, changes, changes.size(), (ps, change) -> {
+                ps.setString(1, change.getKey().getDimension().name());
+                ps.setString(2, change.getKey().getDimensionValue());
+                ps.setString(3, change.getKey().getState().name());
+                ps.setLong(4, change.getValue());
+            });
+            return;
+        }
+        for (Map.Entry<ErrorDimensionCountKey, Long> change : changes) {
+            ErrorDimensionCountKey key = change.getKey();
+            if (update(key, change.getValue()) == 0) {
+                try {
+                    jdbcTemplate.update(INSERT, key.getDimension().name(), key.getDimensionValue(), key.getState().name(), change.getValue());
+                } catch (DuplicateKeyException e) {
+                    // Inserted by a concurrent transaction in the meantime
+                    update(key, change.getValue());
+                }
+            }
+        }
+    }
+
+    private int update(ErrorDimensionCountKey key, long delta) {
+        return jdbcTemplate.update(UPDATE, delta, key.getDimension().name(), key.getDimensionValue(), key.getState().name());
+    }
+
+    /**
+     * Locks the counts like {@link ErrorStateCountRepositoryCustomImpl#reconcile()} locks the error state counts
+     */
+    @Override
+    public int reconcile() {
+        if (isUpsertSupported()) {
+            jdbcTemplate.execute(LOCK_COUNTS);
+        }
+        Map<ErrorDimensionCountKey, Long> trackedCounts = loadCounts();
+        jdbcTemplate.update(DELETE_COUNTS);
+        String insertActualCounts = isUpsertSupported() ? INSERT_ACTUAL_COUNTS : MERGE_ACTUAL_COUNTS;
+        ACTUAL_COUNTS.forEach(query -> jdbcTemplate.update(insertActualCounts + query));
+        Map<ErrorDimensionCountKey, Long> actualCounts = loadCounts();
+
+        Map<ErrorDimensionCountKey, Long> allCounts = new HashMap<>(trackedCounts);
+        actualCounts.forEach(allCounts::putIfAbsent);
+        return (int) allCounts.keySet().stream()
+                .filter(key -> !Objects.equals(trackedCounts.getOrDefault(key, 0L), actualCounts.getOrDefault(key, 0L)))
+                .count();
+    }
+
+    private Map<ErrorDimensionCountKey, Long> loadCounts() {
+        Map<ErrorDimensionCountKey, Long> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_COUNTS, rs -> {
+            ErrorDimensionCountKey key = new ErrorDimensionCountKey(ErrorDimension.valueOf(rs.getString("dimension")),
+                    rs.getString("dimension_value"), ErrorState.valueOf(rs.getString("state")));
+            counts.put(key, rs.getLong("error_count"));
+        });
+        return counts;
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, error dimension counts are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "update-then-insert");
+        }
+        return upsertSupported;
+    }
+}
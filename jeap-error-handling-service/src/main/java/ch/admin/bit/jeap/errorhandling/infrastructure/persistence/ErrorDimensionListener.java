@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Reports the errors to be inserted to the {@link ErrorDimensionTracker}, looked up lazily for the same reason as in
+ * the {@link ErrorStateCountListener}. The errors are reported when they are persisted rather than when they are
+ * inserted, as the insert may only be flushed while the transaction is being committed.
+ */
+class ErrorDimensionListener {
+
+    private final ObjectProvider<ErrorDimensionTracker> errorDimensionTracker;
+
+    ErrorDimensionListener(ObjectProvider<ErrorDimensionTracker> errorDimensionTracker) {
+        this.errorDimensionTracker = errorDimensionTracker;
+    }
+
+    @PrePersist
+    void errorPersisted(Error error) {
+        errorDimensionTracker.ifAvailable(tracker -> tracker.errorPersisted(error));
+    }
+}
@@ -0,0 +1,95 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds the dimension values of the errors stored to the {@link ErrorDimensionValue}s. The values of a transaction are
+ * collected and upserted in one batch just before it is committed. As the values repeat a lot, each instance upserts
+ * a value at most once per {@link #REFRESH_INTERVAL}, so storing an error with known values usually writes nothing.
+ */
+@Component
+public class ErrorDimensionTracker {
+
+    /**
+     * Values not seen for more than twice the interval can be deleted by housekeeping without racing an error being
+     * stored with the value
+     */
+    public static final Duration REFRESH_INTERVAL = Duration.ofHours(1);
+
+    private final ErrorDimensionValueRepository errorDimensionValueRepository;
+
+    /**
+     * When the values have last been upserted by this instance
+     */
+    private final Map<ErrorDimensionValueKey, ZonedDateTime> lastUpserted = new ConcurrentHashMap<>();
+
+    public ErrorDimensionTracker(ErrorDimensionValueRepository errorDimensionValueRepository) {
+        this.errorDimensionValueRepository = errorDimensionValueRepository;
+    }
+
+    void errorPersisted(Error error) {
+        ZonedDateTime refreshDue = ZonedDateTime.now().minus(REFRESH_INTERVAL);
+        for (ErrorDimension dimension : ErrorDimension.values()) {
+            ErrorDimensionValueKey key = ErrorDimensionValueKey.of(error, dimension);
+            ZonedDateTime upserted = lastUpserted.get(key);
+            if (upserted == null || upserted.isBefore(refreshDue)) {
+                add(key);
+            }
+        }
+    }
+
+    private void add(ErrorDimensionValueKey key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            upsert(Set.of(key));
+            return;
+        }
+        pendingValues().keys.add(key);
+    }
+
+    private void upsert(Set<ErrorDimensionValueKey> keys) {
+        ZonedDateTime now = ZonedDateTime.now();
+        errorDimensionValueRepository.upsert(keys, now);
+        keys.forEach(key -> lastUpserted.put(key, now));
+    }
+
+    /**
+     * Held by a synchronization for the same reason as the deltas of the {@link ErrorStateCountTracker}
+     */
+    private PendingValues pendingValues() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingValues pendingValues) {
+                return pendingValues;
+            }
+        }
+        PendingValues pendingValues = new PendingValues();
+        TransactionSynchronizationManager.registerSynchronization(pendingValues);
+        return pendingValues;
+    }
+
+    private class PendingValues implements TransactionSynchronization {
+
+        private final Set<ErrorDimensionValueKey> keys = new HashSet<>();
+        private ZonedDateTime upserted;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            upserted = ZonedDateTime.now();
+            errorDimensionValueRepository.upsert(keys, upserted);
+        }
+
+        @Override
+        public void afterCommit() {
+            // Only values committed are skipped until they are due again
+            keys.forEach(key -> lastUpserted.put(key, upserted));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A value of an {@link ErrorDimension} which errors have been stored with. The values are added by the
+ * {@link ErrorDimensionTracker} and removed by housekeeping once no error has the value anymore, so that the values
+ * offered as search filters can be read without scanning the errors.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class ErrorDimensionValue {
+
+    @EmbeddedId
+    @NonNull
+    private ErrorDimensionValueKey key;
+
+    /**
+     * When an error with the value has last been stored, updated at most once per
+     * {@link ErrorDimensionTracker#REFRESH_INTERVAL} and instance
+     */
+    @NonNull
+    private ZonedDateTime lastSeen;
+}
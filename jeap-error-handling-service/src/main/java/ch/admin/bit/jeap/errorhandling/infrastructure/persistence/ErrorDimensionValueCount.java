@@ -0,0 +1,4 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+public record ErrorDimensionValueCount(String value, Long errorCount) {
+}
@@ -0,0 +1,41 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Embeddable
+public class ErrorDimensionValueKey implements Serializable, Comparable<ErrorDimensionValueKey> {
+
+    private static final Comparator<ErrorDimensionValueKey> ORDER = Comparator.comparing(ErrorDimensionValueKey::getDimension)
+            .thenComparing(ErrorDimensionValueKey::getDimensionValue);
+
+    // Column names are given explicitly, as the implicit naming strategy would prefix them with the ID attribute
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension")
+    private ErrorDimension dimension;
+
+    @NonNull
+    @Column(name = "dimension_value")
+    private String dimensionValue;
+
+    static ErrorDimensionValueKey of(Error error, ErrorDimension dimension) {
+        return new ErrorDimensionValueKey(dimension, dimension.valueOf(error));
+    }
+
+    @Override
+    public int compareTo(ErrorDimensionValueKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,12 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ErrorDimensionValueRepository extends JpaRepository<ErrorDimensionValue, ErrorDimensionValueKey>, ErrorDimensionValueRepositoryCustom {
+
+    @Query("select d.key.dimensionValue from ErrorDimensionValue d where d.key.dimension = ?1 order by d.key.dimensionValue")
+    List<String> findValues(ErrorDimension dimension);
+}
@@ -0,0 +1,20 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+
+public interface ErrorDimensionValueRepositoryCustom {
+
+    /**
+     * Adds the given values, or sets when they have last been seen if they exist already. Must be called within a
+     * transaction.
+     */
+    void upsert(Collection<ErrorDimensionValueKey> keys, ZonedDateTime lastSeen);
+
+    /**
+     * Deletes the values not seen since the given time which no error has anymore
+     *
+     * @return the number of deleted values
+     */
+    int deleteUnused(ZonedDateTime notSeenSince);
+}
@@ -0,0 +1,96 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Writes the dimension values with plain JDBC, like {@link ErrorStateCountRepositoryCustomImpl}: with
+ * {@code INSERT ... ON CONFLICT DO UPDATE} on PostgreSQL, with update-then-insert on other databases (i.e. H2 in
+ * tests), in the order of the keys.
+ */
+@Slf4j
+class ErrorDimensionValueRepositoryCustomImpl implements ErrorDimensionValueRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String UPSERT = "INSERT INTO error_dimension_value (dimension, dimension_value, last_seen) " +
+            "VALUES (?, ?, ?) ON CONFLICT (dimension, dimension_value) DO UPDATE SET last_seen = EXCLUDED.last_seen";
+
+    private static final String UPDATE = "UPDATE error_dimension_value SET last_seen = ? WHERE dimension = ? AND dimension_value = ?";
+
+    private static final String INSERT = "INSERT INTO error_dimension_value (dimension, dimension_value, last_seen) VALUES (?, ?, ?)";
+
+    private static final String DELETE_UNUSED = "DELETE FROM error_dimension_value d WHERE d.dimension = ? AND d.last_seen < ? AND NOT EXISTS ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    ErrorDimensionValueRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void upsert(Collection<ErrorDimensionValueKey> keys, ZonedDateTime lastSeen) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<ErrorDimensionValueKey> orderedKeys = List.copyOf(new TreeSet<>(keys));
+        Timestamp lastSeenTimestamp = Timestamp.from(lastSeen.toInstant());
+        if (isUpsertSupported()) {
+            jdbcTemplate.batchUpdate(UPSERT, orderedKeys, orderedKeys.size(), (ps, key) -> {
+                ps.setString(1, key.getDimension().name());
+                ps.setString(2, key.getDimensionValue());
+                ps.setTimestamp(3, lastSeenTimestamp);
+            });
+            return;
+        }
+        for (ErrorDimensionValueKey key : orderedKeys) {
+            int updatedRows = jdbcTemplate.update(UPDATE, lastSeenTimestamp, key.getDimension().name(), key.getDimensionValue());
+            if (updatedRows == 0) {
+                jdbcTemplate.update(INSERT, key.getDimension().name(), key.getDimensionValue(), lastSeenTimestamp);
+            }
+        }
+    }
+
+    /**
+     * Each candidate value is looked up with the index on its column. Event names are looked up in the causing events,
+     * which are deleted by housekeeping once they have no error anymore, as the errors are not indexed by causing event.
+     */
+    @Override
+    public int deleteUnused(ZonedDateTime notSeenSince) {
+        Timestamp notSeenSinceTimestamp = Timestamp.from(notSeenSince.toInstant());
+        int deleted = 0;
+        for (ErrorDimension dimension : ErrorDimension.values()) {
+            deleted += jdbcTemplate.update(DELETE_UNUSED + usedValueQuery(dimension), dimension.name(), notSeenSinceTimestamp);
+        }
+        return deleted;
+    }
+
+    private static String usedValueQuery(ErrorDimension dimension) {
+        return switch (dimension) {
+            case PUBLISHER -> "(SELECT 1 FROM error e WHERE e.error_event_metadata_publisher_service = d.dimension_value)";
+            case ERROR_CODE -> "(SELECT 1 FROM error e WHERE e.error_event_data_code = d.dimension_value)";
+            case EVENT_NAME -> "(SELECT 1 FROM causing_event c WHERE c.metadata_type_name = d.dimension_value)";
+        };
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, error dimension values are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "update-then-insert");
+        }
+        return upsertSupported;
+    }
+}
@@ -23,8 +23,16 @@ public class ErrorEventData {
     @NonNull
     private String message;
     private String description;
+    /**
+     * The stack trace stored inline by errors created before stack traces were stored as {@link StackTrace}, null
+     * for newer errors, which reference their stack trace by {@link #stackTraceRef}.
+     */
     @ToString.Exclude
     private String stackTrace;
+    /**
+     * The hash of the {@link StackTrace} of the error, null if the error has no stack trace or stores it inline
+     */
+    private String stackTraceRef;
     private String stackTraceHash;
 
     public enum Temporality {TEMPORARY, PERMANENT, UNKNOWN}
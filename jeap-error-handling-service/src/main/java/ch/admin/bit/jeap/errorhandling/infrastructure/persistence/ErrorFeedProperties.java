@@ -0,0 +1,35 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Configuration of the live feed of created and changed errors, see {@link ErrorChangeBroadcaster}
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.error-feed")
+public class ErrorFeedProperties {
+
+    /**
+     * Whether the changes of errors are broadcast and can be subscribed to
+     */
+    private boolean enabled = true;
+    /**
+     * Time after which a subscription is closed; clients are expected to subscribe again
+     */
+    private Duration timeout = Duration.of(30, ChronoUnit.MINUTES);
+    /**
+     * Interval of the comments sent to keep idle subscriptions from being closed by proxies
+     */
+    private Duration heartbeatInterval = Duration.of(20, ChronoUnit.SECONDS);
+    /**
+     * Maximum number of events waiting to be sent to a subscriber; a subscription is closed if its client does not
+     * keep up with the changes
+     */
+    private int maxPendingEvents = 1000;
+}
@@ -1,7 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupListSearchCriteria;
-import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.validation.constraints.NotNull;
 import lombok.experimental.UtilityClass;
@@ -48,31 +47,11 @@ public class ErrorGroupListSearchSpecification {
     }
 
     private Specification<Error> withStacktrace(@NotNull Pattern stacktrace) {
-        return (errorRoot, q, builder) -> {
-            Expression<String> stackTrace = errorRoot.get("errorEventData").get("stackTrace");
-            return builder.isTrue(
-                    builder.function(
-                            "textregexeq",
-                            Boolean.class,
-                            stackTrace,
-                            builder.literal(stacktrace.pattern())
-                    )
-            );
-        };
+        return (errorRoot, q, builder) -> TextSearchPredicates.stackTraceMatchesRegex(errorRoot, q, builder, stacktrace);
     }
 
     private Specification<Error> withMessage(@NotNull Pattern message) {
-        return (errorRoot, q, builder) -> {
-            Expression<String> stackTrace = errorRoot.get("errorEventData").get("message");
-            return builder.isTrue(
-                    builder.function(
-                            "textregexeq",
-                            Boolean.class,
-                            stackTrace,
-                            builder.literal(message.pattern())
-                    )
-            );
-        };
+        return (errorRoot, q, builder) -> TextSearchPredicates.matchesRegex(builder, errorRoot.get("errorEventData").get("message"), message);
     }
 
 
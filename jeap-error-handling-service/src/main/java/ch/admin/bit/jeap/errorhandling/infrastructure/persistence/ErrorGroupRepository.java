@@ -10,7 +10,6 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 
 public interface ErrorGroupRepository extends JpaRepository<ErrorGroup, UUID> {
@@ -28,9 +27,31 @@ public interface ErrorGroupRepository extends JpaRepository<ErrorGroup, UUID> {
                 JOIN e.errorGroup eg
                 WHERE e.state IN ('SEND_TO_MANUALTASK', 'PERMANENT')
             """;
+    String ERROR_GROUP_STATS_AGGREGATED_DATA_SELECTOR = """
+                SELECT eg.id as groupId, eg.created as groupCreatedAt, s.openErrorCount as errorCount,
+                    eg.eventName as errorEvent, eg.errorPublisher as errorPublisher,
+                    eg.errorCode as errorCode,
+                    eg.errorStackTraceHash as stackTraceHash,
+                    eg.errorMessage as errorMessage,
+                    s.firstErrorAt as firstErrorAt,
+                    s.latestErrorAt as latestErrorAt,
+                    eg.ticketNumber as ticketNumber, eg.freeText as freeText
+                FROM ErrorGroupStats s
+                JOIN ErrorGroup eg ON eg.id = s.errorGroupId
+                WHERE s.openErrorCount > 0
+            """;
+    String ERROR_GROUP_FILTERS = """
+                AND ((:source IS NULL OR :source = '') OR eg.errorPublisher = :source)
+                AND ((:messageType IS NULL OR :messageType = '') OR eg.eventName = :messageType)
+                AND ((:errorCode IS NULL OR :errorCode = '') OR eg.errorCode = :errorCode)
+                AND ((:jiraTicket IS NULL OR :jiraTicket = '') OR eg.ticketNumber = :jiraTicket)
+            """;
     String ERROR_GROUP_AGGREGATED_DATA_GROUPING =
             " GROUP BY eg.id, eg.eventName, eg.errorPublisher, eg.errorCode, eg.errorMessage, eg.freeText, eg.ticketNumber ";
 
+    /**
+     * Aggregates over the errors of the groups, as only the errors created within the given period are counted
+     */
     @Query(value = ERROR_GROUP_AGGREGATED_DATA_SELECTOR +
             " " +
             "AND (:noTicket = true AND (eg.ticketNumber IS NULL OR eg.ticketNumber = '') OR :noTicket = false) " +
@@ -64,7 +85,34 @@ public interface ErrorGroupRepository extends JpaRepository<ErrorGroup, UUID> {
             @Param("jiraTicket") String jiraTicket,
             Pageable pageable);
 
-    @Query(ERROR_GROUP_AGGREGATED_DATA_SELECTOR + " AND eg.id = :id " + ERROR_GROUP_AGGREGATED_DATA_GROUPING)
+    /**
+     * Reads the number of open errors and the first and latest error time from the {@link ErrorGroupStats} instead of
+     * aggregating them over the errors of the group. Only groups with open errors are found.
+     */
+    @Query(value = ERROR_GROUP_STATS_AGGREGATED_DATA_SELECTOR +
+            " " +
+            "AND (:noTicket = true AND (eg.ticketNumber IS NULL OR eg.ticketNumber = '') OR :noTicket = false) " +
+            ERROR_GROUP_FILTERS,
+            countQuery = """
+                    SELECT count(s)
+                    FROM ErrorGroupStats s
+                    JOIN ErrorGroup eg ON eg.id = s.errorGroupId
+                    WHERE s.openErrorCount > 0
+                    AND (:noTicket = true AND (eg.ticketNumber IS NULL OR eg.ticketNumber = '') OR :noTicket = false)
+                    """ + ERROR_GROUP_FILTERS)
+    Page<ErrorGroupAggregatedData> findErrorGroupAggregatedDataFromStats(
+            @Param("noTicket") Boolean noTicket,
+            @Param("source") String source,
+            @Param("messageType") String messageType,
+            @Param("errorCode") String errorCode,
+            @Param("jiraTicket") String jiraTicket,
+            Pageable pageable);
+
+    /**
+     * Reads the number of open errors and the first and latest error time from the {@link ErrorGroupStats}, see
+     * {@link #findErrorGroupAggregatedDataFromStats(Boolean, String, String, String, String, Pageable)}
+     */
+    @Query(ERROR_GROUP_STATS_AGGREGATED_DATA_SELECTOR + " AND eg.id = :id")
     Optional<ErrorGroupAggregatedData> findErrorGroupAggregatedData(@Param("id") UUID errorGroupId);
 
     Optional<ErrorGroup> findByErrorPublisherAndErrorCodeAndEventNameAndErrorStackTraceHash(
@@ -74,12 +122,4 @@ public interface ErrorGroupRepository extends JpaRepository<ErrorGroup, UUID> {
     Slice<UUID> findUnreferencedErrorGroups(Pageable pageable);
 
     boolean existsByTicketNumber(String ticketNumber);
-
-    @Query("""
-            select count(eg) from ErrorGroup eg where exists (
-                select e from Error e
-                    where e.errorGroup = eg
-                        and e.state in (:states))
-            """)
-    int countErrorGroupsWithErrorsInStates(Set<Error.ErrorState> states);
 }
@@ -0,0 +1,36 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.*;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Number of open errors of an error group and creation time of its first and latest open error. The statistics are
+ * maintained by the {@link ErrorGroupStatsTracker} and are only read through JPA.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class ErrorGroupStats {
+
+    @Id
+    @NonNull
+    private UUID errorGroupId;
+
+    private long openErrorCount;
+
+    /**
+     * Null if the group has no open errors
+     */
+    private ZonedDateTime firstErrorAt;
+
+    /**
+     * Null if the group has no open errors
+     */
+    private ZonedDateTime latestErrorAt;
+}
@@ -0,0 +1,49 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Change of the {@link ErrorGroupStats} of a group within a transaction
+ *
+ * @param openErrorCount the number of errors which have become open minus the number of errors which are no longer open
+ * @param firstErrorAt   the creation time of the first error which has become open, null if none has
+ * @param latestErrorAt  the creation time of the latest error which has become open, null if none has
+ * @param errorsClosed   true if errors are no longer open, i.e. if the first and latest error time must be recalculated
+ */
+public record ErrorGroupStatsDelta(long openErrorCount, ZonedDateTime firstErrorAt, ZonedDateTime latestErrorAt,
+                                   boolean errorsClosed) {
+
+    static ErrorGroupStatsDelta opened(ZonedDateTime created) {
+        return new ErrorGroupStatsDelta(1, created, created, false);
+    }
+
+    static ErrorGroupStatsDelta closed(long errorCount) {
+        return new ErrorGroupStatsDelta(-errorCount, null, null, true);
+    }
+
+    ErrorGroupStatsDelta merge(ErrorGroupStatsDelta other) {
+        return new ErrorGroupStatsDelta(
+                openErrorCount + other.openErrorCount,
+                earliest(firstErrorAt, other.firstErrorAt),
+                latest(latestErrorAt, other.latestErrorAt),
+                errorsClosed || other.errorsClosed);
+    }
+
+    boolean isEmpty() {
+        return openErrorCount == 0 && firstErrorAt == null && !errorsClosed;
+    }
+
+    private static ZonedDateTime earliest(ZonedDateTime first, ZonedDateTime second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static ZonedDateTime latest(ZonedDateTime first, ZonedDateTime second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        return first.isAfter(second) ? first : second;
+    }
+}
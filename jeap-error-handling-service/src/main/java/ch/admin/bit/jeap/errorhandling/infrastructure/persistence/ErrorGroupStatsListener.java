@@ -0,0 +1,45 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Reports the inserts, changes of state or error group and deletions of errors to the {@link ErrorGroupStatsTracker},
+ * looked up lazily for the same reason as in the {@link ErrorStateCountListener}. Errors becoming managed are reported
+ * as well, see {@link ErrorGroupStatsTracker#errorManaged()}.
+ */
+class ErrorGroupStatsListener {
+
+    private final ObjectProvider<ErrorGroupStatsTracker> errorGroupStatsTracker;
+
+    ErrorGroupStatsListener(ObjectProvider<ErrorGroupStatsTracker> errorGroupStatsTracker) {
+        this.errorGroupStatsTracker = errorGroupStatsTracker;
+    }
+
+    @PrePersist
+    @PostLoad
+    void errorManaged(Error error) {
+        errorGroupStatsTracker.ifAvailable(ErrorGroupStatsTracker::errorManaged);
+    }
+
+    @PostPersist
+    void errorInserted(Error error) {
+        errorGroupStatsTracker.ifAvailable(tracker -> tracker.errorInserted(error));
+    }
+
+    @PostUpdate
+    void errorUpdated(Error error) {
+        errorGroupStatsTracker.ifAvailable(tracker ->
+                tracker.errorChanged(error, error.getPersistentErrorGroupId(), error.getPersistentState()));
+    }
+
+    @PostRemove
+    void errorRemoved(Error error) {
+        errorGroupStatsTracker.ifAvailable(tracker ->
+                tracker.errorRemoved(error.getPersistentErrorGroupId(), error.getPersistentState()));
+    }
+}
@@ -0,0 +1,22 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ErrorGroupStatsRepository extends JpaRepository<ErrorGroupStats, UUID>, ErrorGroupStatsRepositoryCustom {
+
+    long countByOpenErrorCountGreaterThan(long openErrorCount);
+
+    /**
+     * @return the number of open errors among the given errors per error group, as currently stored in the database
+     */
+    @Query("select new ch.admin.bit.jeap.errorhandling.infrastructure.persistence.OpenErrorCountByErrorGroupResult(" +
+            "e.errorGroup.id, count(e)) " +
+            "from Error e where e.id in ?1 and e.errorGroup is not null and e.state in ('PERMANENT', 'SEND_TO_MANUALTASK') " +
+            "group by e.errorGroup.id")
+    List<OpenErrorCountByErrorGroupResult> countOpenErrorsByErrorGroup(Collection<UUID> errorIds);
+}
@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.UUID;
+
+public interface ErrorGroupStatsRepositoryCustom {
+
+    /**
+     * Applies the given deltas to the statistics of the groups, creating missing statistics. Must be called within a
+     * transaction.
+     */
+    void applyDeltas(Map<UUID, ErrorGroupStatsDelta> deltas);
+
+    /**
+     * Replaces all statistics by the statistics of the errors currently stored.
+     *
+     * @return the number of groups whose statistics have been corrected
+     */
+    @Transactional
+    int reconcile();
+}
@@ -0,0 +1,203 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Writes the error group statistics with plain JDBC. On PostgreSQL, a delta is added with a single
+ * {@code INSERT ... ON CONFLICT DO UPDATE} statement, other databases (i.e. H2 in tests) fall back to
+ * update-then-insert. Errors becoming open can only move the first and latest error time outwards, whereas the times
+ * of groups with errors which are no longer open are recalculated from their remaining open errors. Deltas are
+ * applied in the order of the group IDs, so that concurrent transactions updating several groups cannot deadlock.
+ */
+@Slf4j
+class ErrorGroupStatsRepositoryCustomImpl implements ErrorGroupStatsRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String UPSERT = "INSERT INTO error_group_stats (error_group_id, open_error_count, first_error_at, latest_error_at) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (error_group_id) DO UPDATE SET " +
+            "open_error_count = error_group_stats.open_error_count + EXCLUDED.open_error_count, " +
+            "first_error_at = LEAST(error_group_stats.first_error_at, EXCLUDED.first_error_at), " +
+            "latest_error_at = GREATEST(error_group_stats.latest_error_at, EXCLUDED.latest_error_at)";
+
+    // coalesce() makes the result independent of whether the database ignores null arguments of LEAST and GREATEST
+    private static final String UPDATE = "UPDATE error_group_stats SET open_error_count = open_error_count + ?, " +
+            "first_error_at = coalesce(LEAST(first_error_at, ?), first_error_at, ?), " +
+            "latest_error_at = coalesce(GREATEST(latest_error_at, ?), latest_error_at, ?) " +
+            "WHERE error_group_id = ?";
+
+    private static final String INSERT = "INSERT INTO error_group_stats (error_group_id, open_error_count, first_error_at, latest_error_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String OPEN_ERRORS_OF_GROUP = "FROM error e WHERE e.error_group_id = error_group_stats.error_group_id " +
+            "AND e.state IN ('PERMANENT', 'SEND_TO_MANUALTASK')";
+
+    private static final String RECALCULATE_ERROR_TIMES = "UPDATE error_group_stats SET " +
+            "first_error_at = (SELECT min(e.created) " + OPEN_ERRORS_OF_GROUP + "), " +
+            "latest_error_at = (SELECT max(e.created) " + OPEN_ERRORS_OF_GROUP + ") " +
+            "WHERE error_group_id = ?";
+
+    private static final String SELECT_STATS = "SELECT error_group_id, open_error_count, first_error_at, latest_error_at FROM error_group_stats";
+
+    private static final String LOCK_STATS = "LOCK TABLE error_group_stats IN EXCLUSIVE MODE";
+
+    private static final String DELETE_STATS = "DELETE FROM error_group_stats";
+
+    private static final String ACTUAL_STATS = "SELECT e.error_group_id, count(*), min(e.created), max(e.created) FROM error e " +
+            "WHERE e.error_group_id IS NOT NULL AND e.state IN ('PERMANENT', 'SEND_TO_MANUALTASK') " +
+            "GROUP BY e.error_group_id";
+
+    private static final String INSERT_ACTUAL_STATS = "INSERT INTO error_group_stats (error_group_id, open_error_count, first_error_at, latest_error_at) " +
+            ACTUAL_STATS;
+
+    // The statistics of groups inserted by transactions committed since the deletion are replaced by the actual ones
+    private static final String MERGE_ACTUAL_STATS = "MERGE INTO error_group_stats (error_group_id, open_error_count, first_error_at, latest_error_at) " +
+            "KEY (error_group_id) " + ACTUAL_STATS;
+
+    private static final Stats NO_STATS = new Stats(0, null, null);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    ErrorGroupStatsRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Groups with closed errors are upserted as well (possibly with a zero delta), so that all rows are locked in
+     * order before the error times of some of them are recalculated.
+     */
+    @Override
+    public void applyDeltas(Map<UUID, ErrorGroupStatsDelta> deltas) {
+        List<Map.Entry<UUID, ErrorGroupStatsDelta>> changes = new TreeMap<>(deltas).entrySet().stream()
+                .filter(change -> !change.getValue().isEmpty())
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (isUpsertSupported()) {
+            jdbcTemplate.batchUpdate(UPSERT, changes, changes.size(), (ps, change) -> {
+                ps.setObject(1, change.getKey());
+                ps.setLong(2, change.getValue().openErrorCount());
+                setTimestamp(ps, 3, change.getValue().firstErrorAt());
+                setTimestamp(ps, 4, change.getValue().latestErrorAt());
+            });
+        } else {
+            for (Map.Entry<UUID, ErrorGroupStatsDelta> change : changes) {
+                UUID errorGroupId = change.getKey();
+                ErrorGroupStatsDelta delta = change.getValue();
+                if (update(errorGroupId, delta) == 0) {
+                    try {
+                        jdbcTemplate.update(INSERT, ps -> {
+                            ps.setObject(1, errorGroupId);
+                            ps.setLong(2, delta.openErrorCount());
+                            setTimestamp(ps, 3, delta.firstErrorAt());
+                            setTimestamp(ps, 4, delta.latestErrorAt());
+                        });
+                    } catch (DuplicateKeyException e) {
+                        // Inserted by a concurrent transaction in the meantime
+                        update(errorGroupId, delta);
+                    }
+                }
+            }
+        }
+
+        List<UUID> groupsWithClosedErrors = changes.stream()
+                .filter(change -> change.getValue().errorsClosed())
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!groupsWithClosedErrors.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECALCULATE_ERROR_TIMES, groupsWithClosedErrors, groupsWithClosedErrors.size(),
+                    (ps, errorGroupId) -> ps.setObject(1, errorGroupId));
+        }
+    }
+
+    private int update(UUID errorGroupId, ErrorGroupStatsDelta delta) {
+        return jdbcTemplate.update(UPDATE, ps -> {
+            ps.setLong(1, delta.openErrorCount());
+            setTimestamp(ps, 2, delta.firstErrorAt());
+            setTimestamp(ps, 3, delta.firstErrorAt());
+            setTimestamp(ps, 4, delta.latestErrorAt());
+            setTimestamp(ps, 5, delta.latestErrorAt());
+            ps.setObject(6, errorGroupId);
+        });
+    }
+
+    /**
+     * Locks the statistics like {@link ErrorStateCountRepositoryCustomImpl#reconcile()} locks the error counts, so
+     * that the first open error of a group stored meanwhile does not collide with the recalculated statistics.
+     */
+    @Override
+    public int reconcile() {
+        if (isUpsertSupported()) {
+            jdbcTemplate.execute(LOCK_STATS);
+        }
+        Map<UUID, Stats> trackedStats = loadStats();
+        jdbcTemplate.update(DELETE_STATS);
+        insertActualStats();
+        Map<UUID, Stats> actualStats = loadStats();
+
+        Set<UUID> allGroups = new HashSet<>(trackedStats.keySet());
+        allGroups.addAll(actualStats.keySet());
+        return (int) allGroups.stream()
+                .filter(errorGroupId -> !trackedStats.getOrDefault(errorGroupId, NO_STATS).equals(actualStats.getOrDefault(errorGroupId, NO_STATS)))
+                .count();
+    }
+
+    void insertActualStats() {
+        jdbcTemplate.update(isUpsertSupported() ? INSERT_ACTUAL_STATS : MERGE_ACTUAL_STATS);
+    }
+
+    private Map<UUID, Stats> loadStats() {
+        Map<UUID, Stats> stats = new HashMap<>();
+        jdbcTemplate.query(SELECT_STATS, rs -> {
+            stats.put(rs.getObject("error_group_id", UUID.class), new Stats(
+                    rs.getLong("open_error_count"),
+                    toInstant(rs.getObject("first_error_at", OffsetDateTime.class)),
+                    toInstant(rs.getObject("latest_error_at", OffsetDateTime.class))));
+        });
+        return stats;
+    }
+
+    private static Instant toInstant(OffsetDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int parameterIndex, ZonedDateTime timestamp) throws SQLException {
+        if (timestamp == null) {
+            ps.setNull(parameterIndex, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            ps.setObject(parameterIndex, timestamp.toOffsetDateTime(), Types.TIMESTAMP_WITH_TIMEZONE);
+        }
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, error group statistics are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "update-then-insert");
+        }
+        return upsertSupported;
+    }
+
+    /**
+     * Statistics of a group as stored, groups without statistics are equivalent to groups without open errors
+     */
+    private record Stats(long openErrorCount, Instant firstErrorAt, Instant latestErrorAt) {
+    }
+}
@@ -0,0 +1,124 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Keeps the error group statistics up to date with every error which becomes open or is no longer open, i.e. which
+ * is inserted into, assigned to, moved into or out of or deleted from the open states of a group. As with the
+ * {@link ErrorStateCountTracker}, the changes of a transaction are collected and applied just before it is committed.
+ * Inserts, changes and deletions through JPA are reported by the {@link ErrorGroupStatsListener}; errors deleted with
+ * a native query must be reported with {@link #errorsDeleted(Collection)} before deleting them.
+ */
+@Component
+public class ErrorGroupStatsTracker {
+
+    static final Set<ErrorState> OPEN_STATES = EnumSet.of(ErrorState.PERMANENT, ErrorState.SEND_TO_MANUALTASK);
+
+    private final ErrorGroupStatsRepository errorGroupStatsRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ErrorGroupStatsTracker(ErrorGroupStatsRepository errorGroupStatsRepository) {
+        this.errorGroupStatsRepository = errorGroupStatsRepository;
+    }
+
+    /**
+     * Registers the synchronization applying the deltas as soon as an error is persisted or loaded, for the same
+     * reason as {@link ErrorStateCountTracker#errorManaged()}
+     */
+    void errorManaged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingDeltas();
+        }
+    }
+
+    void errorInserted(Error error) {
+        UUID errorGroupId = errorGroupId(error);
+        if (errorGroupId != null && OPEN_STATES.contains(error.getState())) {
+            add(errorGroupId, ErrorGroupStatsDelta.opened(error.getCreated()));
+        }
+    }
+
+    void errorChanged(Error error, UUID previousErrorGroupId, ErrorState previousState) {
+        boolean wasOpen = previousErrorGroupId != null && OPEN_STATES.contains(previousState);
+        UUID errorGroupId = errorGroupId(error);
+        boolean isOpen = errorGroupId != null && OPEN_STATES.contains(error.getState());
+        if (wasOpen == isOpen && Objects.equals(previousErrorGroupId, errorGroupId)) {
+            return;
+        }
+        if (wasOpen) {
+            add(previousErrorGroupId, ErrorGroupStatsDelta.closed(1));
+        }
+        if (isOpen) {
+            add(errorGroupId, ErrorGroupStatsDelta.opened(error.getCreated()));
+        }
+    }
+
+    void errorRemoved(UUID persistentErrorGroupId, ErrorState persistentState) {
+        if (persistentErrorGroupId != null && OPEN_STATES.contains(persistentState)) {
+            add(persistentErrorGroupId, ErrorGroupStatsDelta.closed(1));
+        }
+    }
+
+    public void errorsDeleted(Collection<UUID> errorIds) {
+        if (errorIds.isEmpty()) {
+            return;
+        }
+        errorGroupStatsRepository.countOpenErrorsByErrorGroup(errorIds)
+                .forEach(result -> add(result.errorGroupId(), ErrorGroupStatsDelta.closed(result.errorCount())));
+    }
+
+    private static UUID errorGroupId(Error error) {
+        // Reading the ID does not initialize a lazy error group proxy
+        return error.getErrorGroup() != null ? error.getErrorGroup().getId() : null;
+    }
+
+    private void add(UUID errorGroupId, ErrorGroupStatsDelta delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            errorGroupStatsRepository.applyDeltas(Map.of(errorGroupId, delta));
+            return;
+        }
+        pendingDeltas().add(errorGroupId, delta);
+    }
+
+    /**
+     * Held by a synchronization for the same reason as the deltas of the {@link ErrorStateCountTracker}
+     */
+    private PendingDeltas pendingDeltas() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas pendingDeltas) {
+                return pendingDeltas;
+            }
+        }
+        PendingDeltas pendingDeltas = new PendingDeltas();
+        TransactionSynchronizationManager.registerSynchronization(pendingDeltas);
+        return pendingDeltas;
+    }
+
+    private class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<UUID, ErrorGroupStatsDelta> deltas = new HashMap<>();
+
+        void add(UUID errorGroupId, ErrorGroupStatsDelta delta) {
+            deltas.merge(errorGroupId, delta, ErrorGroupStatsDelta::merge);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!readOnly) {
+                // Changes not flushed yet would otherwise only be written (and reported) during the commit
+                entityManager.flush();
+            }
+            errorGroupStatsRepository.applyDeltas(deltas);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.messaging.kafka.signature.SignatureHeaders;
+import lombok.Value;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The information about an error shown in error lists, read without loading the causing event payload, the stack
+ * trace and the headers of the causing event, see {@link ErrorRepositoryCustom}
+ */
+@Value
+public class ErrorListItem {
+
+    static final String SIGNATURE_CERTIFICATE_HEADER_NAME = SignatureHeaders.SIGNATURE_CERTIFICATE_HEADER_KEY;
+
+    UUID id;
+    ErrorState state;
+    ZonedDateTime created;
+    ZonedDateTime errorEventCreated;
+    String errorMessage;
+    String errorCode;
+    String errorPublisher;
+    String eventName;
+    String eventId;
+    ZonedDateTime eventCreated;
+    String eventPublisher;
+    String originalTraceIdString;
+    String closingReason;
+    UUID errorGroupId;
+    String ticketNumber;
+    String freeText;
+    /**
+     * Value of the signature certificate header of the causing event, null if the causing event is not signed
+     */
+    byte[] signatureCertificate;
+
+    public static ErrorListItem of(Error error) {
+        ErrorGroup errorGroup = error.getErrorGroup();
+        return new ErrorListItem(
+                error.getId(),
+                error.getState(),
+                error.getCreated(),
+                error.getErrorEventMetadata().getCreated(),
+                error.getErrorEventData().getMessage(),
+                error.getErrorEventData().getCode(),
+                error.getErrorEventMetadata().getPublisher().getService(),
+                error.getCausingEventMetadata().getType().getName(),
+                error.getCausingEventMetadata().getId(),
+                error.getCausingEventMetadata().getCreated(),
+                error.getCausingEventMetadata().getPublisher().getService(),
+                error.getOriginalTraceContext() != null ? error.getOriginalTraceContext().getTraceIdString() : null,
+                error.getClosingReason(),
+                errorGroup != null ? errorGroup.getId() : null,
+                errorGroup != null ? errorGroup.getTicketNumber() : null,
+                errorGroup != null ? errorGroup.getFreeText() : null,
+                signatureCertificate(error.getCausingEvent()));
+    }
+
+    private static byte[] signatureCertificate(CausingEvent causingEvent) {
+        if (causingEvent.getCompactHeaders() != null) {
+            HeaderDictionaryEntry signatureCertificate = causingEvent.getSignatureCertificate();
+            return signatureCertificate != null ? signatureCertificate.getHeaderValue() : null;
+        }
+        List<MessageHeader> headers = causingEvent.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        return headers.stream()
+                .filter(header -> header.getHeaderName().equals(SIGNATURE_CERTIFICATE_HEADER_NAME))
+                .map(MessageHeader::getHeaderValue)
+                .findFirst()
+                .orElse(null);
+    }
+}
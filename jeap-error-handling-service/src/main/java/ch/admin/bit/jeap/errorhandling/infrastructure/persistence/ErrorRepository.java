@@ -3,37 +3,64 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupListSearchCriteria;
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchCriteria;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface ErrorRepository extends JpaRepository<Error, UUID>, JpaSpecificationExecutor<Error> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
-    default Page<Error> findByGroupIdAndCriteria(UUID errorGroupId, ErrorGroupListSearchCriteria criteria, Pageable pageable) {
-        return findAll(ErrorGroupListSearchSpecification.fromCriteria(errorGroupId, criteria), pageable);
+public interface ErrorRepository extends JpaRepository<Error, UUID>, JpaSpecificationExecutor<Error>, ErrorRepositoryCustom {
+
+    default Page<ErrorListItem> findByGroupIdAndCriteria(UUID errorGroupId, ErrorGroupListSearchCriteria criteria, Pageable pageable) {
+        return findListItems(ErrorGroupListSearchSpecification.fromCriteria(errorGroupId, criteria), pageable);
     }
 
-    @Query("select e from Error e where (e.state = 'PERMANENT' OR e.state = 'SEND_TO_MANUALTASK') ORDER BY e.created DESC")
-    Page<Error> findAllPermanent(Pageable pageable);
+    boolean existsByErrorEventMetadataIdempotenceId(String errorEventIdempotenceId);
+
+    @Query("select distinct e.errorEventMetadata.idempotenceId from Error e where e.errorEventMetadata.idempotenceId in ?1")
+    List<String> findErrorEventIdempotenceIdsIn(Collection<String> errorEventIdempotenceIds);
 
-    Page<Error> findAllByStateEqualsOrderByCreatedDesc(ErrorState errorState, Pageable pageable);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select e.errorEventMetadata.idempotenceId from Error e")
+    Stream<String> streamAllErrorEventIdempotenceIds();
 
-    @Query("select count(e) from Error e where e.errorEventMetadata.idempotenceId = ?1")
-    int countErrorsByErrorEventIdempotenceId(String errorEventIdempotenceId);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+    @Query("select e.errorEventMetadata.idempotenceId from Error e where e.created >= ?1")
+    Stream<String> streamErrorEventIdempotenceIdsCreatedSince(ZonedDateTime createdSince);
 
     @Query("select count(e) from Error e where e.causingEvent.metadata.id = ?1")
     int countErrorsForCausingEvent(String causingEventId);
 
+    /**
+     * @return the latest error of the causing event reported by the given publisher
+     */
+    Optional<Error> findFirstByCausingEventMetadataIdAndErrorEventMetadataPublisherServiceOrderByCreatedDesc(String causingEventId, String publisherService);
+
+    /**
+     * @return the latest error of each of the causing events per publisher
+     */
+    @Query("select e from Error e where e.causingEvent.metadata.id in ?1 and e.created = (" +
+           "select max(o.created) from Error o where o.causingEvent = e.causingEvent " +
+           "and o.errorEventMetadata.publisher.service = e.errorEventMetadata.publisher.service)")
+    List<Error> findLatestErrorsForCausingEvents(Collection<String> causingEventIds);
+
     @Query("select count(e) from Error e where e.state = 'TEMPORARY_RETRY_PENDING'")
     int countErrorsInStateTemporaryRetryPending();
 
@@ -54,18 +81,23 @@ public interface ErrorRepository extends JpaRepository<Error, UUID>, JpaSpecific
 
     Slice<ErrorQueryResult> findIdByStateInAndCreatedBefore(List<ErrorState> state, ZonedDateTime created, Pageable pageable);
 
-    default Page<Error> search(ErrorSearchCriteria criteria, Pageable pageable) {
-        return findAll(ErrorSearchSpecification.fromCriteria(criteria), pageable);
+    default Page<ErrorListItem> search(ErrorSearchCriteria criteria, Pageable pageable) {
+        return findListItems(ErrorSearchSpecification.fromCriteria(criteria), pageable);
     }
 
-    @Query("select distinct e.errorEventMetadata.publisher.service from Error e")
-    List<String> getAllEventSources();
-
-    @Query("select distinct e.errorEventData.code from Error e")
-    List<String> getAllErrorCodes();
+    default Page<ErrorListItem> findListItemsByStates(Collection<ErrorState> states, Pageable pageable) {
+        Specification<Error> inStates = (root, query, builder) -> root.get("state").in(states);
+        return findListItems(inStates, pageable);
+    }
 
-    @Query("select distinct e.causingEvent.metadata.type.name from Error e")
-    List<String> getAllEventNames();
+    /**
+     * @return at most limit errors matching the specification and following the cursor (if any), ordered by creation
+     * time and ID in the given direction
+     */
+    default List<ErrorListItem> findFollowing(Specification<Error> specification, ErrorCursor cursor, Sort.Direction direction, int limit) {
+        Specification<Error> seekSpecification = cursor == null ? specification : specification.and(cursor.following(direction));
+        return findListItems(seekSpecification, Sort.by(direction, "created", "id"), limit);
+    }
 
     @Modifying
     @Query(nativeQuery = true, value = "DELETE FROM error e WHERE e.id in (:errorIds) ")
@@ -0,0 +1,28 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ErrorRepositoryCustom {
+
+    /**
+     * Reads a page of the errors matching the specification as list items, i.e. without loading the causing events
+     * (including their payload and headers) and the stack traces.
+     */
+    Page<ErrorListItem> findListItems(Specification<Error> specification, Pageable pageable);
+
+    /**
+     * Reads at most limit errors matching the specification as list items, see {@link #findListItems(Specification, Pageable)}
+     */
+    List<ErrorListItem> findListItems(Specification<Error> specification, Sort sort, int limit);
+
+    /**
+     * @return the number of errors matching the specification per value of the dimension, for the values of matching
+     * errors only
+     */
+    List<ErrorDimensionValueCount> countByDimension(Specification<Error> specification, ErrorDimension dimension);
+}
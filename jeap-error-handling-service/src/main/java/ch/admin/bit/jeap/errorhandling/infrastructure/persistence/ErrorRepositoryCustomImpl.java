@@ -0,0 +1,103 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+/**
+ * Selects the columns shown in error lists only. The ticket number and the signature certificate are read by joining
+ * the error group and the certificate header of the causing event instead of loading the associations per error. A
+ * signed causing event carries a single certificate header, so the join does not multiply the errors. The certificate
+ * of a causing event with compact headers is joined from the header dictionary instead.
+ */
+class ErrorRepositoryCustomImpl implements ErrorRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ErrorListItem> findListItems(Specification<Error> specification, Pageable pageable) {
+        List<ErrorListItem> listItems = findListItems(specification, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(listItems, pageable, () -> count(specification));
+    }
+
+    @Override
+    public List<ErrorListItem> findListItems(Specification<Error> specification, Sort sort, int limit) {
+        return findListItems(specification, sort, 0, limit);
+    }
+
+    private List<ErrorListItem> findListItems(Specification<Error> specification, Sort sort, int offset, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ErrorListItem> query = builder.createQuery(ErrorListItem.class);
+        Root<Error> error = query.from(Error.class);
+        Join<Error, CausingEvent> causingEvent = error.join("causingEvent");
+        Join<Error, ErrorGroup> errorGroup = error.join("errorGroup", JoinType.LEFT);
+        Join<CausingEvent, MessageHeader> certificate = causingEvent.join("headers", JoinType.LEFT);
+        certificate.on(builder.equal(certificate.get("headerName"), ErrorListItem.SIGNATURE_CERTIFICATE_HEADER_NAME));
+        Join<CausingEvent, HeaderDictionaryEntry> dictionaryCertificate = causingEvent.join("signatureCertificate", JoinType.LEFT);
+
+        query.select(builder.construct(ErrorListItem.class,
+                error.get("id"),
+                error.get("state"),
+                error.get("created"),
+                error.get("errorEventMetadata").get("created"),
+                error.get("errorEventData").get("message"),
+                error.get("errorEventData").get("code"),
+                error.get("errorEventMetadata").get("publisher").get("service"),
+                causingEvent.get("metadata").get("type").get("name"),
+                causingEvent.get("metadata").get("id"),
+                causingEvent.get("metadata").get("created"),
+                causingEvent.get("metadata").get("publisher").get("service"),
+                error.get("originalTraceContext").get("traceIdString"),
+                error.get("closingReason"),
+                errorGroup.get("id"),
+                errorGroup.get("ticketNumber"),
+                errorGroup.get("freeText"),
+                builder.coalesce(certificate.<byte[]>get("headerValue"), dictionaryCertificate.<byte[]>get("headerValue"))));
+        Predicate predicate = specification.toPredicate(error, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, error, builder));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ErrorDimensionValueCount> countByDimension(Specification<Error> specification, ErrorDimension dimension) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ErrorDimensionValueCount> query = builder.createQuery(ErrorDimensionValueCount.class);
+        Root<Error> error = query.from(Error.class);
+        Path<String> value = dimension.path(error);
+        query.select(builder.construct(ErrorDimensionValueCount.class, value, builder.count(error)));
+        Predicate predicate = specification.toPredicate(error, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.groupBy(value);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private long count(Specification<Error> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Error> error = query.from(Error.class);
+        query.select(builder.count(error));
+        Predicate predicate = specification.toPredicate(error, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -1,7 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchCriteria;
-import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
@@ -72,17 +71,7 @@ public class ErrorSearchSpecification {
     }
 
     private Specification<Error> withStacktrace(@NotNull Pattern stacktrace) {
-        return (errorRoot, q, builder) -> {
-            Expression<String> stackTrace = errorRoot.get("errorEventData").get("stackTrace");
-            return builder.isTrue(
-                    builder.function(
-                            "textregexeq",
-                            Boolean.class,
-                            stackTrace,
-                            builder.literal(stacktrace.pattern())
-                    )
-            );
-        };
+        return (errorRoot, q, builder) -> TextSearchPredicates.stackTraceMatchesRegex(errorRoot, q, builder, stacktrace);
     }
 
     private Specification<Error> withClosingReason(@NotNull String reason) {
@@ -0,0 +1,23 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import lombok.*;
+
+/**
+ * Number of errors with the same state, cluster and publisher. The counts are maintained by the
+ * {@link ErrorStateCountTracker} and are only read through JPA.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class ErrorStateCount {
+
+    @EmbeddedId
+    @NonNull
+    private ErrorStateCountKey key;
+
+    private long errorCount;
+}
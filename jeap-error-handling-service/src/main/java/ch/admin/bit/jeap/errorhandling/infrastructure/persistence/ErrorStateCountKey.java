@@ -0,0 +1,58 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * State, cluster and publisher the errors of an {@link ErrorStateCount} have in common
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor // for JPA
+@ToString
+@Embeddable
+public class ErrorStateCountKey implements Serializable, Comparable<ErrorStateCountKey> {
+
+    /**
+     * Cluster name of errors whose causing event does not carry one
+     */
+    public static final String NO_CLUSTER_NAME = "";
+
+    private static final Comparator<ErrorStateCountKey> ORDER = Comparator.comparing(ErrorStateCountKey::getState)
+            .thenComparing(ErrorStateCountKey::getClusterName)
+            .thenComparing(ErrorStateCountKey::getPublisherService);
+
+    // Column names are given explicitly, as the implicit naming strategy would prefix them with the ID attribute
+    @NonNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state")
+    private ErrorState state;
+
+    @NonNull
+    @Column(name = "cluster_name")
+    private String clusterName;
+
+    @NonNull
+    @Column(name = "publisher_service")
+    private String publisherService;
+
+    static ErrorStateCountKey of(Error error, ErrorState state) {
+        String clusterName = error.getCausingEventMessage().getClusterName();
+        return new ErrorStateCountKey(state,
+                clusterName != null ? clusterName : NO_CLUSTER_NAME,
+                error.getErrorEventMetadata().getPublisher().getService());
+    }
+
+    @Override
+    public int compareTo(ErrorStateCountKey other) {
+        return ORDER.compare(this, other);
+    }
+}
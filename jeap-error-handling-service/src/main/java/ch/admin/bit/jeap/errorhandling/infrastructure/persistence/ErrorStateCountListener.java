@@ -0,0 +1,46 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Reports the inserts, state changes and deletions of errors to the {@link ErrorStateCountTracker}. The tracker is
+ * looked up lazily, as it depends on the entity manager factory which instantiates this listener. In test slices
+ * without a tracker, nothing is reported. Errors becoming managed are reported as well, see
+ * {@link ErrorStateCountTracker#errorManaged()}.
+ */
+class ErrorStateCountListener {
+
+    private final ObjectProvider<ErrorStateCountTracker> errorStateCountTracker;
+
+    ErrorStateCountListener(ObjectProvider<ErrorStateCountTracker> errorStateCountTracker) {
+        this.errorStateCountTracker = errorStateCountTracker;
+    }
+
+    @PrePersist
+    @PostLoad
+    void errorManaged(Error error) {
+        errorStateCountTracker.ifAvailable(ErrorStateCountTracker::errorManaged);
+    }
+
+    @PostPersist
+    void errorInserted(Error error) {
+        errorStateCountTracker.ifAvailable(tracker -> tracker.errorInserted(error));
+    }
+
+    @PostUpdate
+    void errorUpdated(Error error) {
+        if (error.getPersistentState() != error.getState()) {
+            errorStateCountTracker.ifAvailable(tracker -> tracker.errorStateChanged(error, error.getPersistentState()));
+        }
+    }
+
+    @PostRemove
+    void errorRemoved(Error error) {
+        errorStateCountTracker.ifAvailable(tracker -> tracker.errorRemoved(error, error.getPersistentState()));
+    }
+}
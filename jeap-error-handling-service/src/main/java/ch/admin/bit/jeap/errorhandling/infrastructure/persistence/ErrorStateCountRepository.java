@@ -0,0 +1,20 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ErrorStateCountRepository extends JpaRepository<ErrorStateCount, ErrorStateCountKey>, ErrorStateCountRepositoryCustom {
+
+    /**
+     * @return the number of the given errors per state, cluster and publisher, as currently stored in the database
+     */
+    @Query("select new ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCountByStateCountKeyResult(" +
+            "e.state, coalesce(e.causingEvent.message.clusterName, ''), e.errorEventMetadata.publisher.service, count(e)) " +
+            "from Error e where e.id in ?1 " +
+            "group by e.state, coalesce(e.causingEvent.message.clusterName, ''), e.errorEventMetadata.publisher.service")
+    List<ErrorCountByStateCountKeyResult> countErrorsByStateCountKey(Collection<UUID> errorIds);
+}
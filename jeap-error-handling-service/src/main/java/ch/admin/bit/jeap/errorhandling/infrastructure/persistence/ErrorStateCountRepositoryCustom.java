@@ -0,0 +1,21 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+public interface ErrorStateCountRepositoryCustom {
+
+    /**
+     * Adds the given deltas to the error counts, creating missing counts. Must be called within a transaction.
+     */
+    void applyDeltas(Map<ErrorStateCountKey, Long> deltas);
+
+    /**
+     * Replaces all error counts by the counts of the errors currently stored.
+     *
+     * @return the number of counts which have been corrected
+     */
+    @Transactional
+    int reconcile();
+}
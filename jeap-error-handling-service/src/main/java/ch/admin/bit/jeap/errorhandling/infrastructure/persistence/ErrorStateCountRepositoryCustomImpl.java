@@ -0,0 +1,143 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Writes the error counts with plain JDBC. On PostgreSQL, a delta is added with a single
+ * {@code INSERT ... ON CONFLICT DO UPDATE} statement, other databases (i.e. H2 in tests) fall back to
+ * update-then-insert. Deltas are applied in the order of their keys, so that concurrent transactions updating
+ * several counts cannot deadlock.
+ */
+@Slf4j
+class ErrorStateCountRepositoryCustomImpl implements ErrorStateCountRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String UPSERT = "INSERT INTO error_state_count (state, cluster_name, publisher_service, error_count) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (state, cluster_name, publisher_service) " +
+            "DO UPDATE SET error_count = error_state_count.error_count + EXCLUDED.error_count";
+
+    private static final String UPDATE = "UPDATE error_state_count SET error_count = error_count + ? " +
+            "WHERE state = ? AND cluster_name = ? AND publisher_service = ?";
+
+    private static final String INSERT = "INSERT INTO error_state_count (state, cluster_name, publisher_service, error_count) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_COUNTS = "SELECT state, cluster_name, publisher_service, error_count FROM error_state_count";
+
+    private static final String LOCK_COUNTS = "LOCK TABLE error_state_count IN EXCLUSIVE MODE";
+
+    private static final String DELETE_COUNTS = "DELETE FROM error_state_count";
+
+    private static final String ACTUAL_COUNTS = "SELECT e.state, coalesce(c.message_cluster_name, ''), e.error_event_metadata_publisher_service, count(*) " +
+            "FROM error e LEFT JOIN causing_event c ON c.id = e.causing_event_id " +
+            "GROUP BY e.state, coalesce(c.message_cluster_name, ''), e.error_event_metadata_publisher_service";
+
+    private static final String INSERT_ACTUAL_COUNTS = "INSERT INTO error_state_count (state, cluster_name, publisher_service, error_count) " +
+            ACTUAL_COUNTS;
+
+    // The counts of keys inserted by transactions committed since the deletion are replaced by the actual counts
+    private static final String MERGE_ACTUAL_COUNTS = "MERGE INTO error_state_count (state, cluster_name, publisher_service, error_count) " +
+            "KEY (state, cluster_name, publisher_service) " + ACTUAL_COUNTS;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    ErrorStateCountRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void applyDeltas(Map<ErrorStateCountKey, Long> deltas) {
+        List<Map.Entry<ErrorStateCountKey, Long>> changes = new TreeMap<>(deltas).entrySet().stream()
+                .filter(change -> change.getValue() != 0)
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (isUpsertSupported()) {
+            jdbcTemplate.batchUpdate(UPSERT, changes, changes.size(), (ps, change) -> {
+                ps.setString(1, change.getKey().getState().name());
+                ps.setString(2, change.getKey().getClusterName());
+                ps.setString(3, change.getKey().getPublisherService());
+                ps.setLong(4, change.getValue());
+            });
+            return;
+        }
+        for (Map.Entry<ErrorStateCountKey, Long> change : changes) {
+            ErrorStateCountKey key = change.getKey();
+            if (update(key, change.getValue()) == 0) {
+                try {
+                    jdbcTemplate.update(INSERT, key.getState().name(), key.getClusterName(), key.getPublisherService(), change.getValue());
+                } catch (DuplicateKeyException e) {
+                    // Inserted by a concurrent transaction in the meantime
+                    update(key, change.getValue());
+                }
+            }
+        }
+    }
+
+    private int update(ErrorStateCountKey key, long delta) {
+        return jdbcTemplate.update(UPDATE, delta, key.getState().name(), key.getClusterName(), key.getPublisherService());
+    }
+
+    /**
+     * On PostgreSQL, the counts are locked for the whole reconciliation, so that transactions applying their deltas
+     * meanwhile wait and then add them to the recalculated counts. Otherwise, a count inserted by such a transaction
+     * would collide with the recalculated count of the same key. Other databases (i.e. H2 in tests) merge the
+     * recalculated counts into the counts inserted since the deletion instead.
+     */
+    @Override
+    public int reconcile() {
+        if (isUpsertSupported()) {
+            jdbcTemplate.execute(LOCK_COUNTS);
+        }
+        Map<ErrorStateCountKey, Long> trackedCounts = loadCounts();
+        jdbcTemplate.update(DELETE_COUNTS);
+        insertActualCounts();
+        Map<ErrorStateCountKey, Long> actualCounts = loadCounts();
+
+        Map<ErrorStateCountKey, Long> allCounts = new HashMap<>(trackedCounts);
+        actualCounts.forEach(allCounts::putIfAbsent);
+        return (int) allCounts.keySet().stream()
+                .filter(key -> !Objects.equals(trackedCounts.getOrDefault(key, 0L), actualCounts.getOrDefault(key, 0L)))
+                .count();
+    }
+
+    void insertActualCounts() {
+        jdbcTemplate.update(isUpsertSupported() ? INSERT_ACTUAL_COUNTS : MERGE_ACTUAL_COUNTS);
+    }
+
+    private Map<ErrorStateCountKey, Long> loadCounts() {
+        Map<ErrorStateCountKey, Long> counts = new HashMap<>();
+        jdbcTemplate.query(SELECT_COUNTS, rs -> {
+            ErrorStateCountKey key = new ErrorStateCountKey(ErrorState.valueOf(rs.getString("state")),
+                    rs.getString("cluster_name"), rs.getString("publisher_service"));
+            counts.put(key, rs.getLong("error_count"));
+        });
+        return counts;
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, error state counts are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "update-then-insert");
+        }
+        return upsertSupported;
+    }
+}
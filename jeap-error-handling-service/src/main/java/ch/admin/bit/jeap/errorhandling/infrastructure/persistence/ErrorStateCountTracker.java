@@ -0,0 +1,124 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the error state counts and the error counts per dimension value and state ({@link ErrorDimensionCount}) up
+ * to date with every insert, state change and deletion of an error. The changes of a transaction are collected and
+ * applied just before it is committed, so that the counts are locked only briefly and are updated once per
+ * transaction rather than once per error. Inserts, state changes and deletions through JPA are reported by the
+ * {@link ErrorStateCountListener}; errors deleted with a native query must be reported with
+ * {@link #errorsDeleted(Collection)} before deleting them.
+ */
+@Component
+public class ErrorStateCountTracker {
+
+    private final ErrorStateCountRepository errorStateCountRepository;
+    private final ErrorDimensionCountRepository errorDimensionCountRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ErrorStateCountTracker(ErrorStateCountRepository errorStateCountRepository,
+                                  ErrorDimensionCountRepository errorDimensionCountRepository) {
+        this.errorStateCountRepository = errorStateCountRepository;
+        this.errorDimensionCountRepository = errorDimensionCountRepository;
+    }
+
+    /**
+     * Registers the synchronization applying the deltas as soon as an error is persisted or loaded. Its inserts and
+     * updates may only be flushed while the transaction is being committed, when the synchronizations to be notified
+     * have already been determined, so registering it once they are reported could be too late.
+     */
+    void errorManaged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingDeltas();
+        }
+    }
+
+    void errorInserted(Error error) {
+        add(error, error.getState(), 1);
+    }
+
+    void errorStateChanged(Error error, ErrorState previousState) {
+        add(error, previousState, -1);
+        add(error, error.getState(), 1);
+    }
+
+    void errorRemoved(Error error, ErrorState persistentState) {
+        add(error, persistentState, -1);
+    }
+
+    public void errorsDeleted(Collection<UUID> errorIds) {
+        if (errorIds.isEmpty()) {
+            return;
+        }
+        Map<ErrorStateCountKey, Long> stateCountDeltas = new HashMap<>();
+        errorStateCountRepository.countErrorsByStateCountKey(errorIds)
+                .forEach(result -> stateCountDeltas.merge(result.key(), -result.errorCount(), Long::sum));
+        Map<ErrorDimensionCountKey, Long> dimensionCountDeltas = new HashMap<>();
+        errorDimensionCountRepository.countErrorsByDimensions(errorIds)
+                .forEach(result -> result.keys().forEach(key -> dimensionCountDeltas.merge(key, -result.errorCount(), Long::sum)));
+        add(stateCountDeltas, dimensionCountDeltas);
+    }
+
+    private void add(Error error, ErrorState state, long delta) {
+        Map<ErrorDimensionCountKey, Long> dimensionCountDeltas = new HashMap<>();
+        for (ErrorDimension dimension : ErrorDimension.values()) {
+            dimensionCountDeltas.put(ErrorDimensionCountKey.of(error, dimension, state), delta);
+        }
+        add(Map.of(ErrorStateCountKey.of(error, state), delta), dimensionCountDeltas);
+    }
+
+    private void add(Map<ErrorStateCountKey, Long> stateCountDeltas, Map<ErrorDimensionCountKey, Long> dimensionCountDeltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            errorStateCountRepository.applyDeltas(stateCountDeltas);
+            errorDimensionCountRepository.applyDeltas(dimensionCountDeltas);
+            return;
+        }
+        PendingDeltas pendingDeltas = pendingDeltas();
+        stateCountDeltas.forEach((key, delta) -> pendingDeltas.stateCountDeltas.merge(key, delta, Long::sum));
+        dimensionCountDeltas.forEach((key, delta) -> pendingDeltas.dimensionCountDeltas.merge(key, delta, Long::sum));
+    }
+
+    /**
+     * The deltas are held by a synchronization rather than bound as a transaction resource, as synchronizations
+     * (unlike custom resources) are suspended while an inner transaction with its own deltas is running.
+     */
+    private PendingDeltas pendingDeltas() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingDeltas pendingDeltas) {
+                return pendingDeltas;
+            }
+        }
+        PendingDeltas pendingDeltas = new PendingDeltas();
+        TransactionSynchronizationManager.registerSynchronization(pendingDeltas);
+        return pendingDeltas;
+    }
+
+    private class PendingDeltas implements TransactionSynchronization {
+
+        private final Map<ErrorStateCountKey, Long> stateCountDeltas = new HashMap<>();
+        private final Map<ErrorDimensionCountKey, Long> dimensionCountDeltas = new HashMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!readOnly) {
+                // Changes not flushed yet would otherwise only be written (and reported) during the commit
+                entityManager.flush();
+            }
+            errorStateCountRepository.applyDeltas(stateCountDeltas);
+            errorDimensionCountRepository.applyDeltas(dimensionCountDeltas);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and maintains the partitions of the error table, if it has been partitioned by range of its creation time
+ * (PostgreSQL only, see docs/operations.md). The error table is not partitioned by the migrations, so all methods
+ * except {@link #isPartitioned()} must only be called for a partitioned error table.
+ */
+@Component
+@Slf4j
+public class ErrorTablePartitions {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String IS_PARTITIONED = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('error'))";
+
+    // The bounds are null for MINVALUE, MAXVALUE and the default partition
+    private static final String FIND_PARTITIONS = "SELECT c.relname AS name, " +
+            "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''([^'']+)''\\)'))[1]::timestamptz AS lower_bound, " +
+            "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz AS upper_bound " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass('error') " +
+            "ORDER BY lower_bound NULLS FIRST";
+
+    /**
+     * Tables referencing errors. Their foreign keys to the error table are dropped when partitioning it, as they would
+     * have to include the creation time.
+     */
+    private static final List<String> DEPENDENT_TABLES = List.of("scheduled_resend", "audit_log", "task_outbox_entry", "error_attempt");
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'error_p'yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ErrorTablePartitions(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public boolean isPartitioned() {
+        String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return POSTGRESQL.equals(databaseProductName) && Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+    }
+
+    public List<Partition> findPartitions() {
+        return jdbcTemplate.query(FIND_PARTITIONS, (rs, rowNum) -> new Partition(
+                rs.getString("name"),
+                toInstant(rs.getTimestamp("lower_bound")),
+                toInstant(rs.getTimestamp("upper_bound"))));
+    }
+
+    /**
+     * Creates the partition for the errors created from (inclusive) to (exclusive), named after its lower bound
+     */
+    public void createPartition(Instant from, Instant to) {
+        String name = PARTITION_NAME.format(from);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF error " +
+                "FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        log.info("Created partition {} of the error table for the errors created from {} to {}", name, from, to);
+    }
+
+    public boolean containsErrorsInStatesOtherThan(Partition partition, Collection<ErrorState> states) {
+        String stateList = states.stream()
+                .map(state -> "'" + state.name() + "'")
+                .collect(Collectors.joining(", "));
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + quote(partition.name()) +
+                " WHERE state NOT IN (" + stateList + "))", Boolean.class));
+    }
+
+    /**
+     * Deletes the rows of the dependent tables referencing errors of the partition, then detaches and drops the
+     * partition. Detaching the partition briefly locks the error table.
+     *
+     * @return the number of errors dropped with the partition
+     */
+    @Transactional
+    public long dropPartition(Partition partition) {
+        String partitionTable = quote(partition.name());
+        Long errorCount = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partitionTable, Long.class);
+        for (String dependentTable : DEPENDENT_TABLES) {
+            jdbcTemplate.update("DELETE FROM " + dependentTable + " WHERE error_id IN (SELECT id FROM " + partitionTable + ")");
+        }
+        jdbcTemplate.execute("ALTER TABLE error DETACH PARTITION " + partitionTable);
+        jdbcTemplate.execute("DROP TABLE " + partitionTable);
+        log.info("Dropped partition {} of the error table with {} errors", partition.name(), errorCount);
+        return errorCount != null ? errorCount : 0;
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    /**
+     * @param lowerBound inclusive lower bound of the creation time of the errors in the partition, null if unbounded
+     * @param upperBound exclusive upper bound of the creation time of the errors in the partition, null if unbounded
+     */
+    public record Partition(String name, Instant lowerBound, Instant upperBound) {
+    }
+}
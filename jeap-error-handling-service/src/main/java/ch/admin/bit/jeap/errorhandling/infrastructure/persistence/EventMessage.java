@@ -1,5 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
+import jakarta.persistence.Convert;
 import jakarta.persistence.Embeddable;
 import lombok.*;
 
@@ -15,6 +16,7 @@ public class EventMessage {
 
     @NonNull
     @ToString.Exclude
+    @Convert(converter = CompressedPayloadConverter.class)
     private byte[] payload;
 
     @ToString.Exclude
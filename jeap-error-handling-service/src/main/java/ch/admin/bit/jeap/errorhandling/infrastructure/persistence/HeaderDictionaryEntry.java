@@ -0,0 +1,53 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+
+/**
+ * A large header value repeated across causing events, e.g. a signature certificate, stored once and referenced by
+ * the compact headers of the causing events by its digest (see {@link CausingEventHeaders}). Entries are written by
+ * {@link HeaderDictionaryRepositoryCustom#saveIfAbsent(HeaderDictionaryEntry)} and are immutable.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // for JPA
+@ToString
+@Entity
+public class HeaderDictionaryEntry {
+
+    @Id
+    private String digest;
+    @ToString.Exclude
+    private byte[] headerValue;
+    private ZonedDateTime created;
+
+    private HeaderDictionaryEntry(String digest, byte[] headerValue) {
+        this.digest = digest;
+        this.headerValue = headerValue;
+        this.created = ZonedDateTime.now();
+    }
+
+    public static HeaderDictionaryEntry of(byte[] headerValue) {
+        if (headerValue == null) {
+            throw new IllegalArgumentException("headerValue must be provided");
+        }
+        return new HeaderDictionaryEntry(digestOf(headerValue), headerValue);
+    }
+
+    static String digestOf(byte[] headerValue) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(headerValue));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface HeaderDictionaryRepository extends JpaRepository<HeaderDictionaryEntry, String>, HeaderDictionaryRepositoryCustom {
+}
@@ -0,0 +1,12 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+public interface HeaderDictionaryRepositoryCustom {
+
+    /**
+     * Stores the entry unless an entry with the same digest, i.e. the same header value, exists already. Does not
+     * need a transaction, and does not fail if a concurrent transaction stores the same entry.
+     *
+     * @return the digest referencing the stored entry
+     */
+    String saveIfAbsent(HeaderDictionaryEntry entry);
+}
@@ -0,0 +1,60 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * On PostgreSQL, dictionary entries are written with {@code INSERT ... ON CONFLICT DO NOTHING}. Other databases (i.e.
+ * H2 in tests) fall back to an insert guarded by {@code NOT EXISTS}, ignoring a duplicate key caused by a concurrent
+ * insert.
+ */
+@Slf4j
+class HeaderDictionaryRepositoryCustomImpl implements HeaderDictionaryRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String INSERT_ON_CONFLICT_DO_NOTHING = "INSERT INTO header_dictionary_entry (digest, header_value, created) " +
+            "VALUES (?, ?, ?) ON CONFLICT (digest) DO NOTHING";
+
+    private static final String INSERT_IF_NOT_EXISTS = "INSERT INTO header_dictionary_entry (digest, header_value, created) " +
+            "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM header_dictionary_entry WHERE digest = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    HeaderDictionaryRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public String saveIfAbsent(HeaderDictionaryEntry entry) {
+        if (isUpsertSupported()) {
+            jdbcTemplate.update(INSERT_ON_CONFLICT_DO_NOTHING,
+                    entry.getDigest(), entry.getHeaderValue(), entry.getCreated().toOffsetDateTime());
+        } else {
+            try {
+                jdbcTemplate.update(INSERT_IF_NOT_EXISTS,
+                        entry.getDigest(), entry.getHeaderValue(), entry.getCreated().toOffsetDateTime(), entry.getDigest());
+            } catch (DuplicateKeyException e) {
+                log.debug("Header dictionary entry {} has been stored by a concurrent transaction", entry.getDigest());
+            }
+        }
+        return entry.getDigest();
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, header dictionary entries are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO NOTHING" : "INSERT ... WHERE NOT EXISTS");
+        }
+        return upsertSupported;
+    }
+}
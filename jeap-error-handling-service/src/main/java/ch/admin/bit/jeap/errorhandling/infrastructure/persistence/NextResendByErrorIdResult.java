@@ -0,0 +1,7 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+public record NextResendByErrorIdResult(UUID errorId, ZonedDateTime resendAt) {
+}
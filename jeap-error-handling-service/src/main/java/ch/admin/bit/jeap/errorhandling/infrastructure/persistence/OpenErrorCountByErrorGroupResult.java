@@ -0,0 +1,6 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.util.UUID;
+
+public record OpenErrorCountByErrorGroupResult(UUID errorGroupId, Long errorCount) {
+}
@@ -0,0 +1,89 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Codecs for causing event payloads, see {@link PayloadCompression}. The payloads are compressed with lz4-java and
+ * zstd-jni directly, as a single LZ4 block respectively a single Zstandard frame. The uncompressed length needed to
+ * decompress them is part of the format marker.
+ */
+public enum PayloadCodec {
+
+    /**
+     * Payloads are stored uncompressed
+     */
+    NONE(0) {
+        @Override
+        byte[] compress(byte[] value) {
+            return value;
+        }
+
+        @Override
+        byte[] decompress(ByteBuffer value, int uncompressedLength) {
+            byte[] uncompressed = new byte[value.remaining()];
+            value.get(uncompressed);
+            return uncompressed;
+        }
+    },
+    LZ4(1) {
+        @Override
+        byte[] compress(byte[] value) {
+            return LZ4_COMPRESSOR.compress(value);
+        }
+
+        @Override
+        byte[] decompress(ByteBuffer value, int uncompressedLength) {
+            ByteBuffer uncompressed = ByteBuffer.allocate(uncompressedLength);
+            LZ4_DECOMPRESSOR.decompress(value, uncompressed);
+            return uncompressed.hasRemaining() ? Arrays.copyOf(uncompressed.array(), uncompressed.position()) : uncompressed.array();
+        }
+    },
+    ZSTD(2) {
+        @Override
+        byte[] compress(byte[] value) {
+            return Zstd.compress(value, Zstd.defaultCompressionLevel());
+        }
+
+        @Override
+        byte[] decompress(ByteBuffer value, int uncompressedLength) {
+            byte[] compressed = new byte[value.remaining()];
+            value.get(compressed);
+            return Zstd.decompress(compressed, uncompressedLength);
+        }
+    };
+
+    private static final LZ4Compressor LZ4_COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor LZ4_DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    private final byte id;
+
+    PayloadCodec(int id) {
+        this.id = (byte) id;
+    }
+
+    byte id() {
+        return id;
+    }
+
+    static PayloadCodec ofId(byte id) {
+        for (PayloadCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    abstract byte[] compress(byte[] value);
+
+    /**
+     * @param uncompressedLength the length of the payload before compression, as stored in the format marker
+     */
+    abstract byte[] decompress(ByteBuffer value, int uncompressedLength);
+}
@@ -0,0 +1,168 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compresses causing event payloads with the configured {@link PayloadCodec} before they are stored (see
+ * {@link CompressedPayloadConverter}). A stored payload written with a codec starts with a format marker: the
+ * {@link #MAGIC} bytes, the ID of the codec and the length of the uncompressed payload. Payloads without format
+ * marker, i.e. payloads stored before a codec was configured, are read as they are. If a codec does not shrink a
+ * payload, e.g. an encrypted one, the payload is stored uncompressed with the marker of {@link PayloadCodec#NONE}.
+ * A payload with format marker which cannot be decompressed is corrupt, reading it fails.
+ * <p>
+ * The ratio of the uncompressed to the compressed size of the payloads written and the CPU time spent in the codecs
+ * are published as metrics.
+ */
+@Component
+@Slf4j
+public class PayloadCompression {
+
+    /**
+     * Unlikely start of an uncompressed payload. Avro payloads start with the magic byte 0.
+     */
+    static final byte[] MAGIC = {(byte) 0xE4, 'E', 'H', 'C'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Integer.BYTES;
+
+    static final String COMPRESSED_BYTES_METRIC = "eh_payload_compression_bytes";
+    static final String COMPRESSION_RATIO_METRIC = "eh_payload_compression_ratio";
+    static final String CODEC_CPU_TIME_METRIC = "eh_payload_codec_cpu_time";
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final PayloadCodec codec;
+    private final Counter uncompressedBytes;
+    private final Counter compressedBytes;
+    private final Timer compressionTime;
+    private final Map<PayloadCodec, Timer> decompressionTimes = new EnumMap<>(PayloadCodec.class);
+
+    @Autowired
+    public PayloadCompression(PayloadCompressionProperties properties, MeterRegistry meterRegistry) {
+        this(properties.getCodec(), meterRegistry);
+        log.info("Causing event payloads are stored with codec {}", codec);
+    }
+
+    private PayloadCompression(PayloadCodec codec, MeterRegistry meterRegistry) {
+        this.codec = codec;
+        this.uncompressedBytes = Counter.builder(COMPRESSED_BYTES_METRIC)
+                .description("Size of the payloads written, before compression")
+                .tag("type", "uncompressed")
+                .register(meterRegistry);
+        this.compressedBytes = Counter.builder(COMPRESSED_BYTES_METRIC)
+                .description("Size of the payloads written, after compression")
+                .tag("type", "compressed")
+                .register(meterRegistry);
+        Gauge.builder(COMPRESSION_RATIO_METRIC, this, PayloadCompression::compressionRatio)
+                .description("Ratio of the uncompressed to the compressed size of the payloads written")
+                .register(meterRegistry);
+        this.compressionTime = codecCpuTime(meterRegistry, "compress", codec);
+        for (PayloadCodec payloadCodec : PayloadCodec.values()) {
+            decompressionTimes.put(payloadCodec, codecCpuTime(meterRegistry, "decompress", payloadCodec));
+        }
+    }
+
+    /**
+     * Stores payloads uncompressed and does not publish metrics, but reads compressed payloads. Used if the
+     * persistence layer is used without the application context, e.g. in repository tests.
+     */
+    static PayloadCompression uncompressed() {
+        return new PayloadCompression(PayloadCodec.NONE, new CompositeMeterRegistry());
+    }
+
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    public byte[] compress(byte[] payload) {
+        if (payload == null || codec == PayloadCodec.NONE) {
+            return payload;
+        }
+        byte[] compressed = measureCpuTime(compressionTime, () -> codec.compress(payload));
+        PayloadCodec storedCodec = codec;
+        if (compressed.length >= payload.length) {
+            compressed = payload;
+            storedCodec = PayloadCodec.NONE;
+        }
+        byte[] stored = ByteBuffer.allocate(HEADER_LENGTH + compressed.length)
+                .put(MAGIC)
+                .put(storedCodec.id())
+                .putInt(payload.length)
+                .put(compressed)
+                .array();
+        uncompressedBytes.increment(payload.length);
+        compressedBytes.increment(stored.length);
+        return stored;
+    }
+
+    /**
+     * @throws IllegalStateException if the payload has a format marker but cannot be decompressed, i.e. is corrupt
+     */
+    public byte[] decompress(byte[] stored) {
+        if (!hasFormatMarker(stored)) {
+            return stored;
+        }
+        PayloadCodec storedCodec = PayloadCodec.ofId(stored[MAGIC.length]);
+        int uncompressedLength = ByteBuffer.wrap(stored, MAGIC.length + 1, Integer.BYTES).getInt();
+        if (storedCodec == null) {
+            throw new IllegalStateException("Payload has been stored with unknown codec ID " + stored[MAGIC.length]);
+        }
+        ByteBuffer compressed = ByteBuffer.wrap(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH).slice();
+        byte[] payload;
+        try {
+            payload = measureCpuTime(decompressionTimes.get(storedCodec), () -> storedCodec.decompress(compressed, uncompressedLength));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Payload cannot be decompressed with codec " + storedCodec, e);
+        }
+        if (payload.length != uncompressedLength) {
+            throw new IllegalStateException("Payload decompressed with codec %s has %d instead of %d bytes"
+                    .formatted(storedCodec, payload.length, uncompressedLength));
+        }
+        return payload;
+    }
+
+    /**
+     * @return true if the given stored payload has been written with a codec, i.e. does not need to be recompressed
+     */
+    public boolean hasFormatMarker(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && Arrays.equals(stored, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    private double compressionRatio() {
+        double compressed = compressedBytes.count();
+        return compressed > 0 ? uncompressedBytes.count() / compressed : 1.0;
+    }
+
+    private static Timer codecCpuTime(MeterRegistry meterRegistry, String operation, PayloadCodec codec) {
+        return Timer.builder(CODEC_CPU_TIME_METRIC)
+                .description("CPU time spent compressing or decompressing payloads")
+                .tag("operation", operation)
+                .tag("codec", codec.name())
+                .register(meterRegistry);
+    }
+
+    private static <T> T measureCpuTime(Timer timer, Supplier<T> operation) {
+        boolean cpuTimeSupported = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+        long start = cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            long end = cpuTimeSupported ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+            timer.record(end - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Configuration of the compression of causing event payloads, see {@link PayloadCompression}
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "jeap.errorhandling.payload-compression")
+public class PayloadCompressionProperties {
+
+    /**
+     * Codec used to compress the payloads of new causing events. Payloads stored with any codec remain readable.
+     */
+    private PayloadCodec codec = PayloadCodec.NONE;
+
+    /**
+     * Compression of the payloads of causing events stored before a codec was configured
+     */
+    private Recompression recompression = new Recompression();
+
+    @Data
+    public static class Recompression {
+        /**
+         * Whether the payloads stored uncompressed are compressed with the configured codec in the background
+         */
+        private boolean enabled = false;
+        /**
+         * When to compress stored payloads? Must be a cron expression,
+         * see {@link org.springframework.scheduling.support.CronExpression}
+         */
+        private String cronExpression = "0 10 1 * * *";
+        /**
+         * Causing events per page; each page is compressed in its own transaction.
+         */
+        @Min(1)
+        private int pageSize = 100;
+        /**
+         * Maximum number of pages compressed per run
+         */
+        @Min(1)
+        private int maxPages = 10000;
+        /**
+         * Minimal time to keep a lock at this job,
+         * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+         */
+        private Duration lockAtLeast = Duration.of(5, ChronoUnit.SECONDS);
+        /**
+         * Maximal time to keep a lock at this job,
+         * see {@link net.javacrumbs.shedlock.spring.annotation.SchedulerLock}
+         */
+        private Duration lockAtMost = Duration.of(2, ChronoUnit.HOURS);
+    }
+}
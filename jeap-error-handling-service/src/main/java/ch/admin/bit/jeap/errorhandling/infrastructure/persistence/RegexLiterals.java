@@ -0,0 +1,139 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the literal substrings every match of a regular expression must contain, e.g. {@code NullPointerException}
+ * and {@code at ch.admin} from {@code NullPointerException.*at ch\.admin}. Only literals outside of groups and
+ * character classes are extracted, and none at all if the expression contains a top-level alternation, inline flags,
+ * lookarounds or quoting, or has been compiled with flags. The extraction is therefore incomplete, but never yields a
+ * literal that a match might not contain.
+ */
+final class RegexLiterals {
+
+    private RegexLiterals() {
+    }
+
+    static List<String> requiredLiterals(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return List.of();
+        }
+        String regex = pattern.pattern();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int groupDepth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                char escaped = regex.charAt(i + 1);
+                if (escaped == 'Q') {
+                    return List.of();
+                }
+                i += 2;
+                if (groupDepth > 0 || Character.isLetterOrDigit(escaped)) {
+                    // Character classes like \d, back references etc.
+                    endLiteral(literal, literals);
+                } else {
+                    i = appendUnlessOptional(regex, i, escaped, literal, literals);
+                }
+            } else if (c == '[') {
+                endLiteral(literal, literals);
+                i = skipCharacterClass(regex, i);
+            } else if (c == '(') {
+                if (regex.startsWith("(?", i) && !regex.startsWith("(?:", i)) {
+                    // Inline flags or lookarounds
+                    return List.of();
+                }
+                endLiteral(literal, literals);
+                groupDepth++;
+                i++;
+            } else if (c == ')') {
+                groupDepth--;
+                i++;
+            } else if (c == '|' && groupDepth == 0) {
+                return List.of();
+            } else if (groupDepth > 0) {
+                i++;
+            } else if (".^$*+?{}".indexOf(c) >= 0) {
+                endLiteral(literal, literals);
+                i = skipQuantifier(regex, i);
+            } else {
+                i = appendUnlessOptional(regex, i + 1, c, literal, literals);
+            }
+        }
+        endLiteral(literal, literals);
+        return literals;
+    }
+
+    /**
+     * @param next index of the character following c
+     * @return the index of the next character to process
+     */
+    private static int appendUnlessOptional(String regex, int next, char c, StringBuilder literal, List<String> literals) {
+        char quantifier = next < regex.length() ? regex.charAt(next) : 0;
+        if (quantifier == '*' || quantifier == '?' || quantifier == '{') {
+            // c may occur zero times
+            endLiteral(literal, literals);
+            return skipQuantifier(regex, next);
+        }
+        literal.append(c);
+        if (quantifier == '+') {
+            // c occurs at least once, but what follows it is not adjacent to the literal
+            endLiteral(literal, literals);
+            return skipQuantifier(regex, next);
+        }
+        return next;
+    }
+
+    private static int skipQuantifier(String regex, int i) {
+        if (regex.charAt(i) == '{') {
+            int end = regex.indexOf('}', i);
+            i = end < 0 ? regex.length() : end + 1;
+        } else {
+            i++;
+        }
+        // Lazy and possessive modifiers
+        while (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipCharacterClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                // A closing bracket right after the opening one (or its negation) is a literal
+                if (regex.startsWith("[]", i) || regex.startsWith("[^]", i)) {
+                    i += regex.charAt(i + 1) == '^' ? 2 : 1;
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    i++;
+                    break;
+                }
+            }
+            i++;
+        }
+        // A quantified character class does not affect the literals around it
+        return i < regex.length() && "*+?{".indexOf(regex.charAt(i)) >= 0 ? skipQuantifier(regex, i) : i;
+    }
+
+    private static void endLiteral(StringBuilder literal, List<String> literals) {
+        if (!literal.isEmpty()) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the function {@value #REGEX_MATCHES}, which tells whether a text matches a regular expression. On
+ * PostgreSQL, it is rendered as the operator {@code ~} rather than as the equivalent function {@code textregexeq}, as
+ * only the operator can be served by a trigram index. Other databases (i.e. H2 in tests) use {@code regexp_like}.
+ */
+public class RegexMatchFunctionContributor implements FunctionContributor {
+
+    static final String REGEX_MATCHES = "regex_matches";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN);
+        String pattern = functionContributions.getDialect() instanceof PostgreSQLDialect ? "(?1 ~ ?2)" : "regexp_like(?1, ?2)";
+        functionContributions.getFunctionRegistry().registerPattern(REGEX_MATCHES, pattern, booleanType);
+    }
+}
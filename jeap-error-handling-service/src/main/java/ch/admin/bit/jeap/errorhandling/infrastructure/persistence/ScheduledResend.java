@@ -15,7 +15,7 @@ import java.util.UUID;
 @NoArgsConstructor // for JPA
 @ToString
 @Entity
-public class ScheduledResend {
+public class ScheduledResend extends AssignedIdEntity {
 
     @Id
     private UUID id = UUID.randomUUID();
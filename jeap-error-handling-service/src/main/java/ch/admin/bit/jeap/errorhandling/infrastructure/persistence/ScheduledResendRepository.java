@@ -8,12 +8,13 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
-public interface ScheduledResendRepository extends JpaRepository<ScheduledResend, UUID> {
+public interface ScheduledResendRepository extends JpaRepository<ScheduledResend, UUID>, ScheduledResendRepositoryCustom {
 
     @Query("select sr from ScheduledResend sr where sr.resentAt is null and not sr.cancelled = TRUE and sr.resendAt <= ?1 order by sr.resendAt")
     List<ScheduledResend> findNextScheduledResendsOldestFirst(ZonedDateTime notAfter, Pageable pageable);
@@ -24,12 +25,17 @@ public interface ScheduledResendRepository extends JpaRepository<ScheduledResend
 
     List<ScheduledResend> findByErrorId(UUID errorId);
 
+    List<ScheduledResend> findByErrorIdIn(Collection<UUID> errorIds);
+
     Optional<ScheduledResend> findFirstByErrorIdAndCancelledIsFalseAndResentAtIsNullOrderByResendAtAsc(UUID errorId);
 
     default Optional<ScheduledResend> findNextScheduledResend(UUID errorId) {
         return findFirstByErrorIdAndCancelledIsFalseAndResentAtIsNullOrderByResendAtAsc(errorId);
     }
 
+    @Query("select new ch.admin.bit.jeap.errorhandling.infrastructure.persistence.NextResendByErrorIdResult(sr.errorId, min(sr.resendAt)) from ScheduledResend sr where sr.errorId in ?1 and sr.cancelled = false and sr.resentAt is null group by sr.errorId")
+    List<NextResendByErrorIdResult> findNextResendsByErrorIds(Collection<UUID> errorIds);
+
     @Modifying
     @Query(nativeQuery = true, value = "DELETE FROM scheduled_resend sr WHERE sr.error_id in (:errorIds) ")
     void deleteAllByErrorIdIn(@Param("errorIds") Set<UUID> errorIds);
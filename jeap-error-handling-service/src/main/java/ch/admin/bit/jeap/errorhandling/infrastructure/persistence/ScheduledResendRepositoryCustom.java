@@ -0,0 +1,29 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface ScheduledResendRepositoryCustom {
+
+    /**
+     * Claims the due scheduled resends which are not claimed by anyone else, oldest first. Scheduled resends locked by
+     * a concurrent claim are skipped rather than waited for. The claim is committed immediately and expires after the
+     * given lease.
+     *
+     * @return the IDs of the claimed scheduled resends
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    List<UUID> claimDueScheduledResends(String claimant, ZonedDateTime notAfter, Duration lease, int maxNumItemsToClaim);
+
+    /**
+     * Releases the claims of the claimant on the given scheduled resends
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    void releaseClaims(String claimant, Collection<UUID> scheduledResendIds);
+}
@@ -0,0 +1,62 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The claim columns are deliberately not mapped in {@link ScheduledResend}, so that JPA updates of a scheduled
+ * resend never overwrite a claim.
+ */
+class ScheduledResendRepositoryCustomImpl implements ScheduledResendRepositoryCustom {
+
+    private static final String SELECT_CLAIMABLE = "SELECT id FROM scheduled_resend " +
+            "WHERE resent_at IS NULL AND cancelled = FALSE AND resend_at <= :notAfter " +
+            "AND (claimed_until IS NULL OR claimed_until < :now) " +
+            "ORDER BY resend_at LIMIT :maxNumItemsToClaim FOR UPDATE SKIP LOCKED";
+
+    private static final String CLAIM = "UPDATE scheduled_resend SET claimed_by = :claimant, claimed_until = :claimedUntil " +
+            "WHERE id IN (:ids)";
+
+    private static final String RELEASE = "UPDATE scheduled_resend SET claimed_by = NULL, claimed_until = NULL " +
+            "WHERE id IN (:ids) AND claimed_by = :claimant";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    ScheduledResendRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Override
+    public List<UUID> claimDueScheduledResends(String claimant, ZonedDateTime notAfter, Duration lease, int maxNumItemsToClaim) {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<UUID> ids = jdbcTemplate.query(SELECT_CLAIMABLE, new MapSqlParameterSource()
+                        .addValue("notAfter", notAfter.toOffsetDateTime())
+                        .addValue("now", now.toOffsetDateTime())
+                        .addValue("maxNumItemsToClaim", maxNumItemsToClaim),
+                (rs, rowNum) -> rs.getObject("id", UUID.class));
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(CLAIM, new MapSqlParameterSource()
+                    .addValue("claimant", claimant)
+                    .addValue("claimedUntil", now.plus(lease).toOffsetDateTime())
+                    .addValue("ids", ids));
+        }
+        return ids;
+    }
+
+    @Override
+    public void releaseClaims(String claimant, Collection<UUID> scheduledResendIds) {
+        if (scheduledResendIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(RELEASE, new MapSqlParameterSource()
+                .addValue("claimant", claimant)
+                .addValue("ids", scheduledResendIds));
+    }
+}
@@ -0,0 +1,70 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+
+/**
+ * A stack trace reported by error events, stored once per distinct text and referenced by the errors by its hash
+ * (see {@link ErrorEventData#getStackTraceRef()}). Stack traces are written by
+ * {@link StackTraceRepositoryCustom#saveIfAbsent(StackTrace)} and are only read through JPA.
+ * <p>
+ * The hash is computed from the text by the error handling service. The stack trace hash reported by the error
+ * events is not used as key, as it is optional and only meant to group similar stack traces.
+ * <p>
+ * {@link #getLastUsed()} is refreshed whenever an error references the stack trace, at most once per
+ * {@link #LAST_USED_REFRESH_INTERVAL}. Housekeeping only deletes stack traces not used for a while, so that a stack
+ * trace is not deleted while an error referencing it has not been committed yet.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED) // for JPA
+@ToString
+@Entity
+public class StackTrace {
+
+    /**
+     * Stack traces not used for more than twice the interval can be deleted by housekeeping without racing an error
+     * being stored with the stack trace
+     */
+    public static final Duration LAST_USED_REFRESH_INTERVAL = Duration.ofHours(1);
+
+    @Id
+    private String hash;
+    @ToString.Exclude
+    private String stackTrace;
+    private ZonedDateTime created;
+    private ZonedDateTime lastUsed;
+
+    private StackTrace(String hash, String stackTrace) {
+        this.hash = hash;
+        this.stackTrace = stackTrace;
+        this.created = ZonedDateTime.now();
+        this.lastUsed = created;
+    }
+
+    public static StackTrace of(String stackTrace) {
+        if (stackTrace == null) {
+            throw new IllegalArgumentException("stackTrace must be provided");
+        }
+        return new StackTrace(hashOf(stackTrace), stackTrace);
+    }
+
+    static String hashOf(String stackTrace) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(stackTrace.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+}
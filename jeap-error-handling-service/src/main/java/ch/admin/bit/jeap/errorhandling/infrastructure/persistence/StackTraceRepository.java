@@ -0,0 +1,27 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public interface StackTraceRepository extends JpaRepository<StackTrace, String>, StackTraceRepositoryCustom {
+
+    @Query("select s.hash from StackTrace s where s.lastUsed < ?1 and not exists " +
+            "(select e.id from Error e where e.errorEventData.stackTraceRef = s.hash)")
+    Slice<String> findUnreferencedStackTraceHashes(ZonedDateTime notUsedSince, Pageable pageable);
+
+    /**
+     * Skips the stack traces referenced again by an error stored in the meantime. Errors not committed yet are not
+     * seen, which is why only stack traces not used since the given time are deleted.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM stack_trace s WHERE s.hash in (:hashes) AND s.last_used < :notUsedSince " +
+            "AND NOT EXISTS (SELECT 1 FROM error e WHERE e.error_event_data_stack_trace_ref = s.hash)")
+    void deleteAllByHashIn(@Param("hashes") List<String> hashes, @Param("notUsedSince") ZonedDateTime notUsedSince);
+}
@@ -0,0 +1,13 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+public interface StackTraceRepositoryCustom {
+
+    /**
+     * Stores the stack trace unless a stack trace with the same hash, i.e. the same text, exists already, in which
+     * case its last use is refreshed if due (see {@link StackTrace#LAST_USED_REFRESH_INTERVAL}). Does not need a
+     * transaction, and does not fail if a concurrent transaction stores the same stack trace.
+     *
+     * @return the hash referencing the stored stack trace
+     */
+    String saveIfAbsent(StackTrace stackTrace);
+}
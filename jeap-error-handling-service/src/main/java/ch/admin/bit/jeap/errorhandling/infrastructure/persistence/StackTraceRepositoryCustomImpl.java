@@ -0,0 +1,70 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+
+/**
+ * On PostgreSQL, stack traces are written with {@code INSERT ... ON CONFLICT DO UPDATE}, which refreshes the last use
+ * of an existing stack trace if due and locks it in any case, so that housekeeping cannot delete it concurrently.
+ * Other databases (i.e. H2 in tests) fall back to an insert guarded by {@code NOT EXISTS}, ignoring a duplicate key
+ * caused by a concurrent insert, and to an update refreshing the last use.
+ */
+@Slf4j
+class StackTraceRepositoryCustomImpl implements StackTraceRepositoryCustom {
+
+    private static final String POSTGRESQL = "PostgreSQL";
+
+    private static final String UPSERT = "INSERT INTO stack_trace (hash, stack_trace, created, last_used) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (hash) DO UPDATE SET last_used = EXCLUDED.last_used " +
+            "WHERE stack_trace.last_used < ?";
+
+    private static final String INSERT_IF_NOT_EXISTS = "INSERT INTO stack_trace (hash, stack_trace, created, last_used) " +
+            "SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM stack_trace WHERE hash = ?)";
+
+    private static final String REFRESH_LAST_USED = "UPDATE stack_trace SET last_used = ? WHERE hash = ? AND last_used < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean upsertSupported;
+
+    StackTraceRepositoryCustomImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public String saveIfAbsent(StackTrace stackTrace) {
+        OffsetDateTime created = stackTrace.getCreated().toOffsetDateTime();
+        OffsetDateTime lastUsed = stackTrace.getLastUsed().toOffsetDateTime();
+        OffsetDateTime refreshDue = lastUsed.minus(StackTrace.LAST_USED_REFRESH_INTERVAL);
+        if (isUpsertSupported()) {
+            jdbcTemplate.update(UPSERT, stackTrace.getHash(), stackTrace.getStackTrace(), created, lastUsed, refreshDue);
+        } else {
+            try {
+                int insertedRows = jdbcTemplate.update(INSERT_IF_NOT_EXISTS,
+                        stackTrace.getHash(), stackTrace.getStackTrace(), created, lastUsed, stackTrace.getHash());
+                if (insertedRows == 0) {
+                    jdbcTemplate.update(REFRESH_LAST_USED, lastUsed, stackTrace.getHash(), refreshDue);
+                }
+            } catch (DuplicateKeyException e) {
+                log.debug("Stack trace {} has been stored by a concurrent transaction", stackTrace.getHash());
+            }
+        }
+        return stackTrace.getHash();
+    }
+
+    private boolean isUpsertSupported() {
+        if (upsertSupported == null) {
+            String databaseProductName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSupported = POSTGRESQL.equals(databaseProductName);
+            log.info("Database is {}, stack traces are written using {}.", databaseProductName,
+                    upsertSupported ? "INSERT ... ON CONFLICT DO UPDATE" : "INSERT ... WHERE NOT EXISTS");
+        }
+        return upsertSupported;
+    }
+}
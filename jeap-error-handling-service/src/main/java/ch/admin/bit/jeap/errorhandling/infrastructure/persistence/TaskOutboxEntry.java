@@ -0,0 +1,66 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * A call to the task management service which is due for an error. Entries are written in the same transaction as
+ * the state change of the error and removed once the call has been made.
+ */
+@Getter
+@NoArgsConstructor // for JPA
+@ToString
+@Entity
+public class TaskOutboxEntry extends AssignedIdEntity {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Action {
+        CREATE_TASK(ErrorState.SEND_TO_MANUALTASK),
+        CLOSE_TASK(ErrorState.RESOLVE_ON_MANUALTASK),
+        DELETE_TASK(ErrorState.DELETE_ON_MANUALTASK);
+
+        /**
+         * The state of an error waiting for this action
+         */
+        private final ErrorState pendingState;
+    }
+
+    @Id
+    private UUID id = UUID.randomUUID();
+    private UUID errorId;
+    @Enumerated(EnumType.STRING)
+    private Action action;
+    private ZonedDateTime created;
+    private ZonedDateTime nextAttemptAt;
+    private int attempts;
+
+    public TaskOutboxEntry(UUID errorId, Action action) {
+        if (errorId == null) {
+            throw new IllegalArgumentException("errorId must be provided");
+        }
+        if (action == null) {
+            throw new IllegalArgumentException("action must be provided");
+        }
+        this.errorId = errorId;
+        this.action = action;
+        this.created = ZonedDateTime.now();
+        this.nextAttemptAt = created;
+    }
+
+    public void scheduleRetry(Duration backoff) {
+        attempts++;
+        nextAttemptAt = ZonedDateTime.now().plus(backoff);
+    }
+}
@@ -0,0 +1,39 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public interface TaskOutboxEntryRepository extends JpaRepository<TaskOutboxEntry, UUID> {
+
+    @Query("select t from TaskOutboxEntry t where t.nextAttemptAt <= ?1 order by t.nextAttemptAt")
+    List<TaskOutboxEntry> findDueOldestFirst(ZonedDateTime notAfter, Pageable pageable);
+
+    default List<TaskOutboxEntry> findDueOldestFirst(ZonedDateTime notAfter, int maxNumItemsToFind) {
+        return findDueOldestFirst(notAfter, PageRequest.of(0, maxNumItemsToFind));
+    }
+
+    /**
+     * @return the IDs of the errors in the given state for which no outbox entry exists
+     */
+    @Query("select e.id from Error e where e.state = ?1 and not exists (select t.id from TaskOutboxEntry t where t.errorId = e.id) order by e.created")
+    List<UUID> findErrorIdsWithoutOutboxEntry(ErrorState state, Pageable pageable);
+
+    default List<UUID> findErrorIdsWithoutOutboxEntry(ErrorState state, int maxNumItemsToFind) {
+        return findErrorIdsWithoutOutboxEntry(state, PageRequest.of(0, maxNumItemsToFind));
+    }
+
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM task_outbox_entry t WHERE t.error_id in (:errorIds) ")
+    void deleteAllByErrorIdIn(@Param("errorIds") Set<UUID> errorIds);
+
+}
@@ -0,0 +1,72 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.experimental.UtilityClass;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Predicates searching the stack trace and message of errors. A regular expression search is preceded by a
+ * {@code LIKE '%literal%'} condition for each literal every match must contain (see {@link RegexLiterals}). The
+ * conditions do not change the result, but allow the database to narrow down the candidates using a trigram index
+ * before the regular expression is evaluated on the remaining rows.
+ */
+@UtilityClass
+class TextSearchPredicates {
+
+    /**
+     * Trigram indexes cannot narrow down the candidates for shorter literals
+     */
+    private static final int MIN_INDEXABLE_LITERAL_LENGTH = 3;
+    private static final char LIKE_ESCAPE = '\\';
+
+    Predicate matchesRegex(CriteriaBuilder builder, Expression<String> text, Pattern pattern) {
+        List<Predicate> predicates = new ArrayList<>();
+        for (String literal : RegexLiterals.requiredLiterals(pattern)) {
+            if (literal.length() >= MIN_INDEXABLE_LITERAL_LENGTH) {
+                predicates.add(builder.like(text, "%" + escapeLike(literal) + "%", LIKE_ESCAPE));
+            }
+        }
+        predicates.add(builder.isTrue(builder.function(
+                RegexMatchFunctionContributor.REGEX_MATCHES,
+                Boolean.class,
+                text,
+                builder.literal(pattern.pattern()))));
+        return builder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    /**
+     * Matches the stack trace referenced by the error as well as the stack trace stored inline by older errors. The
+     * regular expression is evaluated once per distinct stack trace, the matching errors are then found by their
+     * reference.
+     */
+    Predicate stackTraceMatchesRegex(Root<Error> errorRoot, CriteriaQuery<?> query, CriteriaBuilder builder, Pattern pattern) {
+        Path<ErrorEventData> errorEventData = errorRoot.get("errorEventData");
+        Subquery<String> matchingStackTraces = query.subquery(String.class);
+        Root<StackTrace> stackTrace = matchingStackTraces.from(StackTrace.class);
+        matchingStackTraces.select(stackTrace.get("hash"))
+                .where(matchesRegex(builder, stackTrace.get("stackTrace"), pattern));
+        return builder.or(
+                errorEventData.get("stackTraceRef").in(matchingStackTraces),
+                matchesRegex(builder, errorEventData.get("stackTrace"), pattern));
+    }
+
+    private String escapeLike(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length());
+        for (char c : literal.toCharArray()) {
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
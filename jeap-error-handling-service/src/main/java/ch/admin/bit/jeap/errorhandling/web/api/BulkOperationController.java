@@ -0,0 +1,154 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import ch.admin.bit.jeap.errorhandling.domain.bulk.BulkOperationService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.PAGE_DEFAULT_VALUE;
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.SIZE_DEFAULT_VALUE;
+import static ch.admin.bit.jeap.errorhandling.web.api.DateTimeUtils.timestamp;
+import static ch.admin.bit.jeap.errorhandling.web.api.ErrorController.toErrorGroupListSearchCriteria;
+import static ch.admin.bit.jeap.errorhandling.web.api.ErrorController.toErrorSearchCriteria;
+
+@Tag(name = "BulkOperation")
+@RestController
+@RequestMapping("/api/error")
+@Slf4j
+public class BulkOperationController {
+
+    private final BulkOperationService bulkOperationService;
+
+    public BulkOperationController(BulkOperationService bulkOperationService) {
+        this.bulkOperationService = bulkOperationService;
+    }
+
+    @Schema(description = "Starts republishing the events which caused the errors matching the filter in the background")
+    @PostMapping("/bulk/retry")
+    @PreAuthorize("hasRole('error','retry')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationDTO retryErrors(@RequestBody ErrorSearchFormDto errorSearchFormDto) {
+        return submit(() -> bulkOperationService.submitResend(
+                toErrorSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, errorSearchFormDto)));
+    }
+
+    @Schema(description = "Starts deleting the errors matching the filter in the background")
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("hasRole('error','delete')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationDTO deleteErrors(@RequestBody ErrorSearchFormDto errorSearchFormDto,
+                                         @RequestParam(required = false) String reason) {
+        return submit(() -> bulkOperationService.submitDelete(
+                toErrorSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, errorSearchFormDto), reason));
+    }
+
+    @Schema(description = "Starts republishing the events which caused the errors of an error group matching the criterias in the background")
+    @PostMapping("/group/bulk/retry")
+    @PreAuthorize("hasRole('error','retry')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationDTO retryErrorsOfGroup(@RequestParam(name = "errorGroupId") UUID errorGroupId,
+                                               @RequestBody(required = false) ErrorGroupListSearchFormDto errorGroupListSearchFormDto) {
+        ErrorGroupListSearchFormDto formDto = errorGroupListSearchFormDto != null ? errorGroupListSearchFormDto : new ErrorGroupListSearchFormDto();
+        return submit(() -> bulkOperationService.submitResend(errorGroupId,
+                toErrorGroupListSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, formDto)));
+    }
+
+    @Schema(description = "Starts deleting the errors of an error group matching the criterias in the background")
+    @PostMapping("/group/bulk/delete")
+    @PreAuthorize("hasRole('error','delete')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationDTO deleteErrorsOfGroup(@RequestParam(name = "errorGroupId") UUID errorGroupId,
+                                                @RequestParam(required = false) String reason,
+                                                @RequestBody(required = false) ErrorGroupListSearchFormDto errorGroupListSearchFormDto) {
+        ErrorGroupListSearchFormDto formDto = errorGroupListSearchFormDto != null ? errorGroupListSearchFormDto : new ErrorGroupListSearchFormDto();
+        return submit(() -> bulkOperationService.submitDelete(errorGroupId,
+                toErrorGroupListSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, formDto), reason));
+    }
+
+    @Schema(description = "Returns the recent bulk operations, the latest first")
+    @GetMapping("/bulk")
+    @PreAuthorize("hasRole('error','view')")
+    public List<BulkOperationDTO> getBulkOperations() {
+        return bulkOperationService.findRecentOperations().stream()
+                .map(BulkOperationController::mapToDTO)
+                .toList();
+    }
+
+    @Schema(description = "Returns the progress of a bulk operation")
+    @GetMapping("/bulk/{operationId}")
+    @PreAuthorize("hasRole('error','view')")
+    public ResponseEntity<BulkOperationDTO> getBulkOperation(@PathVariable UUID operationId) {
+        return ResponseEntity.of(bulkOperationService.findOperation(operationId)
+                .map(BulkOperationController::mapToDTO));
+    }
+
+    @Schema(description = "Cancels a bulk operation after the errors being processed")
+    @PostMapping("/bulk/{operationId}/cancel")
+    @PreAuthorize("hasRole('error','retry') or hasRole('error','delete')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BulkOperationDTO cancelBulkOperation(@PathVariable UUID operationId) {
+        return bulkOperationService.cancel(operationId)
+                .map(BulkOperationController::mapToDTO)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown bulk operation " + operationId));
+    }
+
+    private static BulkOperationDTO submit(Supplier<BulkOperation> submission) {
+        BulkOperation operation;
+        try {
+            operation = submission.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        log.info("Bulk operation {} submitted", operation.getId());
+        return mapToDTO(operation);
+    }
+
+    private static BulkOperationDTO mapToDTO(BulkOperation operation) {
+        return BulkOperationDTO.builder()
+                .id(operation.getId().toString())
+                .action(operation.getAction().name())
+                .state(operation.getState().name())
+                .errorGroupId(operation.getErrorGroupId() != null ? operation.getErrorGroupId().toString() : null)
+                .reason(operation.getReason())
+                .submittedBy(name(operation.getUser()))
+                .created(timestamp(operation.getCreated()))
+                .updated(timestamp(operation.getUpdated()))
+                .finished(timestamp(operation.getFinished()))
+                .errorsMatched(operation.getErrorsMatched())
+                .errorsProcessed(operation.getErrorsProcessed())
+                .errorsSkipped(operation.getErrorsSkipped())
+                .errorsFailed(operation.getErrorsFailed())
+                .cancelRequested(operation.isCancelRequested())
+                .failureMessage(operation.getFailureMessage())
+                .build();
+    }
+
+    private static String name(User user) {
+        String name = Stream.of(user.getGivenName(), user.getFamilyName())
+                .filter(part -> part != null && !part.isBlank())
+                .collect(Collectors.joining(" "));
+        return name.isEmpty() ? user.getSubject() : name;
+    }
+}
@@ -0,0 +1,43 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class BulkOperationDTO {
+    private String id;
+    private String action;
+    private String state;
+    /**
+     * The error group whose errors are processed, null for the errors matching a search
+     */
+    private String errorGroupId;
+    private String reason;
+    /**
+     * The name of the user who submitted the operation, or their subject if the name is unknown
+     */
+    private String submittedBy;
+    private String created;
+    private String updated;
+    private String finished;
+    /**
+     * The number of errors matching when the operation started, null until then
+     */
+    private Long errorsMatched;
+    private long errorsProcessed;
+    /**
+     * Errors matching, but no longer in a state allowing the action when processed
+     */
+    private long errorsSkipped;
+    /**
+     * Errors whose causing event could not be resent
+     */
+    private long errorsFailed;
+    private boolean cancelRequested;
+    private String failureMessage;
+}
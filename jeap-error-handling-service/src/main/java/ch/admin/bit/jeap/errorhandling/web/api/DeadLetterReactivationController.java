@@ -1,11 +1,15 @@
 package ch.admin.bit.jeap.errorhandling.web.api;
 
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DeadLetterReactivationJob;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaDeadLetterBatchConsumerProducer;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -13,6 +17,11 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+import java.util.UUID;
+
+import static ch.admin.bit.jeap.errorhandling.web.api.DateTimeUtils.timestamp;
+
 @Tag(name = "DeadLetterReactivation")
 @RestController
 @RequestMapping("/api/deadletter")
@@ -25,18 +34,66 @@ public class DeadLetterReactivationController {
         this.kafkaDeadLetterBatchConsumerProducer = kafkaDeadLetterBatchConsumerProducer;
     }
 
-    @Schema(description = "Reactivates messages from the dead-letter queue and produces them to the target topic")
+    @Schema(description = "Starts a job reactivating messages from the dead-letter queue by producing them to the error topic")
     @PostMapping("/reactivate")
     @PreAuthorize("hasRole('error','retry')")
     @ResponseStatus(HttpStatus.ACCEPTED)
-    public void reactivateDeadLetters(@RequestParam int maxRecords) {
+    public DeadLetterReactivationJobDTO reactivateDeadLetters(@RequestParam int maxRecords) {
         if (maxRecords < 1 || maxRecords > 100000) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxRecords must be between 1 and 500");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxRecords must be between 1 and 100000");
         }
         log.info("Starting dead-letter reactivation process with maxRecords={}", maxRecords);
 
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(maxRecords);
+        DeadLetterReactivationJob job;
+        try {
+            job = kafkaDeadLetterBatchConsumerProducer.start(maxRecords);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+
+        log.info("Dead-letter reactivation process {} started", job.getId());
+        return mapToDTO(job);
+    }
+
+    @Schema(description = "Returns the recent dead-letter reactivation jobs of this instance, the latest first")
+    @GetMapping("/reactivate")
+    @PreAuthorize("hasRole('error','retry')")
+    public List<DeadLetterReactivationJobDTO> getReactivationJobs() {
+        return kafkaDeadLetterBatchConsumerProducer.findJobs().stream()
+                .map(DeadLetterReactivationController::mapToDTO)
+                .toList();
+    }
+
+    @Schema(description = "Returns the progress of a dead-letter reactivation job")
+    @GetMapping("/reactivate/{jobId}")
+    @PreAuthorize("hasRole('error','retry')")
+    public ResponseEntity<DeadLetterReactivationJobDTO> getReactivationJob(@PathVariable UUID jobId) {
+        return ResponseEntity.of(kafkaDeadLetterBatchConsumerProducer.findJob(jobId)
+                .map(DeadLetterReactivationController::mapToDTO));
+    }
+
+    @Schema(description = "Cancels a running dead-letter reactivation job after the messages read so far have been reactivated")
+    @PostMapping("/reactivate/{jobId}/cancel")
+    @PreAuthorize("hasRole('error','retry')")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DeadLetterReactivationJobDTO cancelReactivationJob(@PathVariable UUID jobId) {
+        return kafkaDeadLetterBatchConsumerProducer.cancel(jobId)
+                .map(DeadLetterReactivationController::mapToDTO)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown dead-letter reactivation " + jobId));
+    }
 
-        log.info("Dead-letter reactivation process completed");
+    private static DeadLetterReactivationJobDTO mapToDTO(DeadLetterReactivationJob job) {
+        return DeadLetterReactivationJobDTO.builder()
+                .id(job.getId().toString())
+                .state(job.getState().name())
+                .maxRecords(job.getMaxRecords())
+                .started(timestamp(job.getStarted()))
+                .finished(timestamp(job.getFinished()))
+                .recordsRead(job.getRecordsRead())
+                .recordsWritten(job.getRecordsWritten())
+                .committedOffsets(job.getCommittedOffsets())
+                .throughput(job.getThroughput())
+                .failureMessage(job.getFailureMessage())
+                .build();
     }
 }
@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class DeadLetterReactivationJobDTO {
+    private String id;
+    private String state;
+    private int maxRecords;
+    private String started;
+    private String finished;
+    private long recordsRead;
+    private long recordsWritten;
+    /**
+     * The committed offset, i.e. the offset of the next record to reactivate, by partition of the dead letter topic
+     */
+    private Map<Integer, Long> committedOffsets;
+    /**
+     * Records written to the error topic per second
+     */
+    private double throughput;
+    private String failureMessage;
+}
@@ -0,0 +1,20 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class ErrorAttemptDTO {
+
+    @NotNull
+    private String created;
+    private String errorEventIdempotenceId;
+    private String traceIdString;
+    private String message;
+}
@@ -0,0 +1,24 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class ErrorChangeDTO {
+    /**
+     * CREATED or CHANGED (state or error group)
+     */
+    private String type;
+    private String errorId;
+    private String state;
+    private String publisher;
+    /**
+     * Null if the error has no error group
+     */
+    private String errorGroupId;
+}
@@ -4,31 +4,38 @@ import ch.admin.bit.jeap.errorhandling.domain.audit.AuditLogService;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorList;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSearchService;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSlice;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSliceRequest;
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchResendResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DomainEventDeserializer;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendClusterProvider;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.*;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
-import ch.admin.bit.jeap.messaging.kafka.signature.SignatureHeaders;
 import ch.admin.bit.jeap.security.resource.semanticAuthentication.ServletSemanticAuthorization;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HexFormat;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.PAGE_DEFAULT_VALUE;
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.SIZE_DEFAULT_VALUE;
 import static ch.admin.bit.jeap.errorhandling.web.api.DateTimeUtils.parseDate;
 
 @Tag(name = "Errors")
@@ -81,8 +88,29 @@ public class ErrorController {
             @RequestParam(name = "pageSize", required = false, defaultValue = "10") int pageSize,
             @RequestBody ErrorSearchFormDto errorSearchFormDto) {
 
+        ErrorList errorList = errorSearchService.search(toErrorSearchCriteria(pageIndex, pageSize, errorSearchFormDto));
+        return buildErrorList(errorList);
+    }
+
+    @PostMapping("/slice")
+    @PreAuthorize("hasRole('error','view')")
+    @Schema(description = "Find Errors by Filter, ordered by creation time and continuing after the cursor of the previous slice")
+    @Transactional(readOnly = true)
+    public ErrorSliceDTO findErrorSlice(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = "10") int pageSize,
+            @RequestParam(name = "withTotalCount", required = false, defaultValue = "false") boolean withTotalCount,
+            @RequestBody ErrorSearchFormDto errorSearchFormDto) {
+
+        ErrorSliceRequest request = toSliceRequest(cursor, pageSize, withTotalCount,
+                errorSearchFormDto.getSortField(), errorSearchFormDto.getSortOrder());
+        ErrorSlice errorSlice = errorSearchService.searchSlice(toErrorSearchCriteria(0, pageSize, errorSearchFormDto), request);
+        return buildErrorSlice(errorSlice);
+    }
+
+    static ErrorSearchCriteria toErrorSearchCriteria(int pageIndex, int pageSize, ErrorSearchFormDto errorSearchFormDto) {
         String[] sort = {errorSearchFormDto.getSortField(), errorSearchFormDto.getSortOrder()};
-        ErrorSearchCriteria errorSearchCriteria = ErrorSearchCriteria.builder()
+        return ErrorSearchCriteria.builder()
                 .pageIndex(pageIndex)
                 .pageSize(pageSize)
                 .from(parseDate(errorSearchFormDto.getDateFrom()))
@@ -91,7 +119,7 @@ public class ErrorController {
                 .traceId(errorSearchFormDto.getTraceId())
                 .eventId(errorSearchFormDto.getEventId())
                 .serviceName(errorSearchFormDto.getEventSource())
-                .states(this.convertErrorStates(errorSearchFormDto.getStates()))
+                .states(convertErrorStates(errorSearchFormDto.getStates()))
                 .errorCode(errorSearchFormDto.getErrorCode())
                 .stacktracePattern(errorSearchFormDto.getStacktracePattern())
                 .closingReason(errorSearchFormDto.getClosingReason())
@@ -99,9 +127,6 @@ public class ErrorController {
                 .noTicket(errorSearchFormDto.getNoTicket())
                 .sort(sort)
                 .build();
-
-        ErrorList errorList = errorSearchService.search(errorSearchCriteria);
-        return buildErrorList(errorList);
     }
 
     @PostMapping("/group")
@@ -118,9 +143,36 @@ public class ErrorController {
             errorGroupListSearchFormDto = new ErrorGroupListSearchFormDto();
         }
 
-        String[] sort = {errorGroupListSearchFormDto.getSortField(), errorGroupListSearchFormDto.getSortOrder()};
+        ErrorGroupListSearchCriteria errorGroupListSearchCriteria = toErrorGroupListSearchCriteria(pageIndex, pageSize, errorGroupListSearchFormDto);
+        ErrorList errorList = errorService.getErrorListByGroupId(errorGroupId, errorGroupListSearchCriteria);
+        return buildErrorList(errorList);
+    }
+
+    @PostMapping("/group/slice")
+    @PreAuthorize("hasRole('error','view')")
+    @Schema(description = "Find Errors by errorGroupId and criterias, ordered by creation time and continuing after the cursor of the previous slice")
+    @Transactional(readOnly = true)
+    public ErrorSliceDTO findErrorSliceByGroupId(
+            @RequestParam(name = "errorGroupId") UUID errorGroupId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = "10") int pageSize,
+            @RequestParam(name = "withTotalCount", required = false, defaultValue = "false") boolean withTotalCount,
+            @RequestBody ErrorGroupListSearchFormDto errorGroupListSearchFormDto) {
 
-        ErrorGroupListSearchCriteria errorGroupListSearchCriteria = ErrorGroupListSearchCriteria.builder()
+        if (errorGroupListSearchFormDto == null) {
+            errorGroupListSearchFormDto = new ErrorGroupListSearchFormDto();
+        }
+
+        ErrorSliceRequest request = toSliceRequest(cursor, pageSize, withTotalCount,
+                errorGroupListSearchFormDto.getSortField(), errorGroupListSearchFormDto.getSortOrder());
+        ErrorSlice errorSlice = errorService.getErrorSliceByGroupId(errorGroupId,
+                toErrorGroupListSearchCriteria(0, pageSize, errorGroupListSearchFormDto), request);
+        return buildErrorSlice(errorSlice);
+    }
+
+    static ErrorGroupListSearchCriteria toErrorGroupListSearchCriteria(int pageIndex, int pageSize, ErrorGroupListSearchFormDto errorGroupListSearchFormDto) {
+        String[] sort = {errorGroupListSearchFormDto.getSortField(), errorGroupListSearchFormDto.getSortOrder()};
+        return ErrorGroupListSearchCriteria.builder()
                 .dateFrom(parseDate(errorGroupListSearchFormDto.getDateFrom()))
                 .dateTo(parseDate(errorGroupListSearchFormDto.getDateTo()))
                 .stacktracePattern(errorGroupListSearchFormDto.getStacktracePattern())
@@ -129,9 +181,44 @@ public class ErrorController {
                 .pageSize(pageSize)
                 .sort(sort)
                 .build();
+    }
 
-        ErrorList errorList = errorService.getErrorListByGroupId(errorGroupId, errorGroupListSearchCriteria);
-        return buildErrorList(errorList);
+    private static ErrorSliceRequest toSliceRequest(String cursor, int pageSize, boolean withTotalCount, String sortField, String sortOrder) {
+        if (pageSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageSize must be positive");
+        }
+        if (!"created".equals(sortField)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Slices can only be sorted by created");
+        }
+        try {
+            return new ErrorSliceRequest(
+                    cursor == null ? null : ErrorCursor.decode(cursor),
+                    Sort.Direction.fromString(sortOrder),
+                    pageSize,
+                    withTotalCount);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/facets")
+    @PreAuthorize("hasRole('error','view')")
+    @Schema(description = "Count the errors matching the filter per event source, error code and event name")
+    @Transactional(readOnly = true)
+    public ErrorFacetsDTO getFacets(@RequestBody ErrorSearchFormDto errorSearchFormDto) {
+        ErrorSearchCriteria criteria = toErrorSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, errorSearchFormDto);
+        Map<ErrorDimension, List<ErrorDimensionValueCount>> facets = errorSearchService.getFacets(criteria);
+        return ErrorFacetsDTO.builder()
+                .eventSources(toFacetValues(facets.get(ErrorDimension.PUBLISHER)))
+                .errorCodes(toFacetValues(facets.get(ErrorDimension.ERROR_CODE)))
+                .eventNames(toFacetValues(facets.get(ErrorDimension.EVENT_NAME)))
+                .build();
+    }
+
+    private static List<ErrorFacetsDTO.FacetValueDTO> toFacetValues(List<ErrorDimensionValueCount> valueCounts) {
+        return valueCounts.stream()
+                .map(valueCount -> new ErrorFacetsDTO.FacetValueDTO(valueCount.value(), valueCount.errorCount()))
+                .toList();
     }
 
     @GetMapping("/eventsources")
@@ -184,6 +271,14 @@ public class ErrorController {
         return buildErrorList(errorList);
     }
 
+    private ErrorSliceDTO buildErrorSlice(ErrorSlice errorSlice) {
+        return ErrorSliceDTO.builder()
+                .errors(toErrorDtos(errorSlice.getErrors()))
+                .nextCursor(errorSlice.getNextCursor() == null ? null : errorSlice.getNextCursor().encode())
+                .totalErrorCount(errorSlice.getTotalElements())
+                .build();
+    }
+
     private ErrorListDTO buildErrorList(ErrorList errorList) {
         return ErrorListDTO.builder()
                 .totalErrorCount(errorList.getTotalElements())
@@ -237,7 +332,11 @@ public class ErrorController {
     @PostMapping(value = "/event/retry")
     @PreAuthorize("hasRole('error','retry')")
     public void retryEventList(@RequestBody List<UUID> errorIds) {
-        errorIds.forEach(errorService::manualResend);
+        BatchResendResult result = errorService.manualResends(errorIds);
+        // The errors whose events have been resent are updated nonetheless, as the transaction has been committed
+        result.failures().values().stream().findFirst().ifPresent(failure -> {
+            throw failure;
+        });
     }
 
 
@@ -267,29 +366,28 @@ public class ErrorController {
         return ResponseEntity.ok(DeleteErrorsResultDTO.builder().totalItems(totalItems).totalErrors(totalErrors).build());
     }
 
-    private List<ErrorDTO> toErrorDtos(List<Error> errors) {
+    private List<ErrorDTO> toErrorDtos(List<ErrorListItem> errors) {
+        Map<UUID, ZonedDateTime> nextResendTimestamps = scheduledResendService.getNextResendTimestamps(
+                errors.stream().map(ErrorListItem::getId).toList());
         return errors.stream()
-                .map(this::toErrorDto)
+                .map(error -> toErrorDtoBuilder(error, nextResendTimestamps.get(error.getId())).build())
                 .toList();
     }
 
-    private ErrorDTO toErrorDto(Error error) {
-        return toErrorDtoBuilder(error).build();
-    }
-
     private ErrorDTO toErrorDtoWithDetails(Error error, boolean userCanRetry, boolean userCanDelete) {
         boolean canRetry = error.getState().isRetryAllowed() && userCanRetry;
         boolean canDelete = error.getState().isDeleteAllowed() && userCanDelete;
-        int errorCountForEvent = errorService.getErrorCountForCausingEvent(error.getCausingEventMetadata().getId());
-        return toErrorDtoBuilder(error)
+        ZonedDateTime nextResendTimestamp = scheduledResendService.getNextResendTimestamp(error.getId());
+        return toErrorDtoBuilder(ErrorListItem.of(error), nextResendTimestamp)
                 .canRetry(canRetry)
                 .canDelete(canDelete)
-                .errorCountForEvent(errorCountForEvent)
+                .errorCountForEvent(error.getAttemptCount())
                 .errorTemporality(error.getErrorEventData().getTemporality().name())
-                .stacktrace(error.getErrorEventData().getStackTrace())
+                .stacktrace(errorService.getStackTrace(error))
                 .eventTopicDetails(topicDetails(error.getCausingEventMessage()))
                 .eventClusterName(resendClusterProvider.getResendClusterNameFor(error.getCausingEvent()))
                 .auditLogDTOs(getAuditLogDtos(error))
+                .attemptDTOs(getAttemptDtos(error))
                 .build();
     }
 
@@ -299,6 +397,17 @@ public class ErrorController {
                 .collect(Collectors.toList());
     }
 
+    private List<ErrorAttemptDTO> getAttemptDtos(Error error) {
+        return errorService.getErrorAttempts(error.getId()).stream()
+                .map(attempt -> ErrorAttemptDTO.builder()
+                        .created(timestamp(attempt.getCreated()))
+                        .errorEventIdempotenceId(attempt.getErrorEventIdempotenceId())
+                        .traceIdString(attempt.getTraceIdString())
+                        .message(attempt.getMessage())
+                        .build())
+                .toList();
+    }
+
     private AuditLogDTO toAuditLogDto(AuditLog auditLog) {
         final User user = auditLog.getUser();
         return AuditLogDTO.builder()
@@ -319,58 +428,36 @@ public class ErrorController {
     }
 
     @SuppressWarnings("java:S1854") // jeapCert is not unused!
-    private ErrorDTO.ErrorDTOBuilder toErrorDtoBuilder(Error error) {
-        final String jeapCert = extractJeapCert(error.getCausingEvent().getHeaders());
+    private ErrorDTO.ErrorDTOBuilder toErrorDtoBuilder(ErrorListItem error, ZonedDateTime nextResendTimestamp) {
+        final String jeapCert = error.getSignatureCertificate() != null ? bytesToHex(error.getSignatureCertificate()) : null;
         return ErrorDTO.builder()
                 .id(error.getId().toString())
                 .errorState(error.getState().name())
-                .timestamp(timestamp(error.getErrorEventMetadata().getCreated()))
-                .errorMessage(error.getErrorEventData().getMessage())
-                .errorCode(longStringEllipis(error.getErrorEventData().getCode()))
-                .errorPublisher(error.getErrorEventMetadata().getPublisher().getService())
-                .nextResendTimestamp(timestamp(scheduledResendService.getNextResendTimestamp(error.getId())))
-                .eventName(error.getCausingEventMetadata().getType().getName())
-                .eventId(error.getCausingEventMetadata().getId())
-                .eventTimestamp(timestamp(error.getCausingEventMetadata().getCreated()))
-                .eventPublisher(error.getCausingEventMetadata().getPublisher().getService())
-                .originalTraceIdString(error.getOriginalTraceContext() != null ? error.getOriginalTraceContext().getTraceIdString() : null)
+                .timestamp(timestamp(error.getErrorEventCreated()))
+                .errorMessage(error.getErrorMessage())
+                .errorCode(longStringEllipis(error.getErrorCode()))
+                .errorPublisher(error.getErrorPublisher())
+                .nextResendTimestamp(timestamp(nextResendTimestamp))
+                .eventName(error.getEventName())
+                .eventId(error.getEventId())
+                .eventTimestamp(timestamp(error.getEventCreated()))
+                .eventPublisher(error.getEventPublisher())
+                .originalTraceIdString(error.getOriginalTraceIdString())
                 .closingReason(error.getClosingReason())
-                .ticketNumber(error.getErrorGroup() != null ? error.getErrorGroup().getTicketNumber() : null)
-                .freeText(error.getErrorGroup() != null ? error.getErrorGroup().getFreeText() : null)
+                .ticketNumber(error.getTicketNumber())
+                .freeText(error.getFreeText())
                 .signed(jeapCert != null)
                 .jeapCert(jeapCert)
                 .canRetry(error.getState().isRetryAllowed())
                 .canDelete(error.getState().isDeleteAllowed())
-                .errorGroupId(
-                        Optional.ofNullable(error.getErrorGroup())
-                                .map(ErrorGroup::getId)
-                                .map(UUID::toString)
-                                .orElse(null)
-                );
-    }
-
-    private String extractJeapCert(List<MessageHeader> headers) {
-        return extractHeaderValue(SignatureHeaders.SIGNATURE_CERTIFICATE_HEADER_KEY, headers);
-    }
-
-    @SuppressWarnings("SameParameterValue")
-    private String extractHeaderValue(String headerName, List<MessageHeader> headers) {
-        if (headers == null) {
-            return null;
-        }
-        return headers.stream()
-                .filter(header -> header.getHeaderName().equals(headerName))
-                .map(MessageHeader::getHeaderValue)
-                .map(this::bytesToHex)
-                .findFirst()
-                .orElse(null);
+                .errorGroupId(error.getErrorGroupId() != null ? error.getErrorGroupId().toString() : null);
     }
 
     private String bytesToHex(byte[] bytes) {
         return HexFormat.of().withDelimiter(" ").formatHex(bytes).toUpperCase();
     }
 
-    private List<Error.ErrorState> convertErrorStates(List<String> states) {
+    private static List<Error.ErrorState> convertErrorStates(List<String> states) {
         if (states == null) return null;
         return states.stream().map(Error.ErrorState::valueOf).toList();
     }
@@ -35,6 +35,7 @@ class ErrorDTO {
     private String originalTraceIdString;
     private String closingReason;
     private List<AuditLogDTO> auditLogDTOs;
+    private List<ErrorAttemptDTO> attemptDTOs;
     private String ticketNumber;
     private String freeText;
     private boolean signed;
@@ -0,0 +1,78 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorExportFormat;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorExportProperties;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorExportService;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.PAGE_DEFAULT_VALUE;
+import static ch.admin.bit.jeap.errorhandling.web.api.BaseSearchCriteria.SIZE_DEFAULT_VALUE;
+import static ch.admin.bit.jeap.errorhandling.web.api.ErrorController.toErrorSearchCriteria;
+
+@Tag(name = "ErrorExport")
+@RestController
+@RequestMapping("/api/error")
+@Slf4j
+public class ErrorExportController {
+
+    private final ErrorExportService errorExportService;
+    private final ErrorExportProperties errorExportProperties;
+
+    public ErrorExportController(ErrorExportService errorExportService, ErrorExportProperties errorExportProperties) {
+        this.errorExportService = errorExportService;
+        this.errorExportProperties = errorExportProperties;
+    }
+
+    /**
+     * The export is written by an asynchronous task instead of a {@code StreamingResponseBody}, so that its timeout
+     * can be configured for exports only.
+     */
+    @Schema(description = "Exports all errors matching the filter as NDJSON or CSV, ordered by creation time and streamed while they are read")
+    @PostMapping("/export")
+    @PreAuthorize("hasRole('error','view')")
+    public WebAsyncTask<Void> exportErrors(
+            @RequestParam(name = "format", required = false, defaultValue = "NDJSON") ErrorExportFormat format,
+            @RequestParam(name = "withStackTraces", required = false, defaultValue = "false") boolean withStackTraces,
+            @RequestParam(name = "withPayloads", required = false, defaultValue = "false") boolean withPayloads,
+            @RequestBody ErrorSearchFormDto errorSearchFormDto,
+            HttpServletResponse response) {
+
+        if (!"created".equals(errorSearchFormDto.getSortField())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Exports can only be sorted by created");
+        }
+        Sort.Direction direction = Sort.Direction.fromOptionalString(errorSearchFormDto.getSortOrder())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sort order"));
+        ErrorSearchCriteria criteria = toErrorSearchCriteria(PAGE_DEFAULT_VALUE, SIZE_DEFAULT_VALUE, errorSearchFormDto);
+        log.info("Exporting errors as {} (stack traces: {}, payloads: {})", format, withStackTraces, withPayloads);
+        response.setContentType(format.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("errors." + format.getFileExtension())
+                .build()
+                .toString());
+        WebAsyncTask<Void> export = new WebAsyncTask<>(errorExportProperties.getTimeout().toMillis(), () -> {
+            errorExportService.export(criteria, direction, format, withStackTraces, withPayloads, response.getOutputStream());
+            return null;
+        });
+        export.onTimeout(() -> {
+            log.warn("Export of errors as {} timed out after {}", format, errorExportProperties.getTimeout());
+            throw new AsyncRequestTimeoutException();
+        });
+        return export;
+    }
+}
@@ -0,0 +1,31 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The number of errors matching a filter per value of the filters eventSource, errorCode and eventName. The counts
+ * of a filter ignore the value filtered by in the filter itself.
+ */
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class ErrorFacetsDTO {
+    private List<FacetValueDTO> eventSources;
+    private List<FacetValueDTO> errorCodes;
+    private List<FacetValueDTO> eventNames;
+
+    @Data
+    @Builder
+    @NoArgsConstructor // for Jackson
+    @AllArgsConstructor
+    public static class FacetValueDTO {
+        private String value;
+        private long errorCount;
+    }
+}
@@ -0,0 +1,148 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorChange;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorChangeBroadcaster;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorFeedProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The subscriptions of clients to the changes of errors, which are pushed to them as server-sent events named after
+ * the {@link ErrorChange.Type type} of the change. Idle subscriptions are kept open by sending comments regularly.
+ * Every subscription sends its events with a virtual thread of its own, so that a slow client does not delay the
+ * others. A subscription is closed if sending to it fails or if its client does not keep up with the changes.
+ */
+@Component
+@Slf4j
+class ErrorFeed {
+
+    private final ErrorChangeBroadcaster errorChangeBroadcaster;
+    private final ErrorFeedProperties errorFeedProperties;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    ErrorFeed(ErrorChangeBroadcaster errorChangeBroadcaster, ErrorFeedProperties errorFeedProperties) {
+        this.errorChangeBroadcaster = errorChangeBroadcaster;
+        this.errorFeedProperties = errorFeedProperties;
+    }
+
+    /**
+     * @param publisher    only changes of errors published by this service are pushed, if given
+     * @param errorGroupId only changes of errors of this error group are pushed, if given
+     */
+    SseEmitter subscribe(String publisher, UUID errorGroupId) {
+        SseEmitter emitter = new SseEmitter(errorFeedProperties.getTimeout().toMillis());
+        Subscription subscription = new Subscription(emitter);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        subscriptions.add(subscription);
+        subscription.unsubscribe = errorChangeBroadcaster.subscribe(change -> {
+            if (matches(change, publisher, errorGroupId)) {
+                subscription.push(toEvent(change));
+            }
+        });
+        if (!subscriptions.contains(subscription)) {
+            // Closed in the meantime
+            subscription.unsubscribe.run();
+        }
+        log.debug("Subscribed to error changes (publisher: {}, error group: {}), {} subscriptions", publisher, errorGroupId, subscriptions.size());
+        subscription.push(SseEmitter.event().comment("subscribed"));
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "#{@errorFeedProperties.heartbeatInterval.toString()}")
+    void sendHeartbeats() {
+        subscriptions.forEach(subscription -> subscription.push(SseEmitter.event().comment("heartbeat")));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscriptions.forEach(subscription -> {
+            if (subscription.close()) {
+                subscription.emitter.complete();
+            }
+        });
+    }
+
+    private static boolean matches(ErrorChange change, String publisher, UUID errorGroupId) {
+        return (publisher == null || publisher.equals(change.publisher())) &&
+                (errorGroupId == null || errorGroupId.equals(change.errorGroupId()));
+    }
+
+    private static SseEventBuilder toEvent(ErrorChange change) {
+        ErrorChangeDTO dto = ErrorChangeDTO.builder()
+                .type(change.type().name())
+                .errorId(change.errorId().toString())
+                .state(change.state().name())
+                .publisher(change.publisher())
+                .errorGroupId(Objects.toString(change.errorGroupId(), null))
+                .build();
+        return SseEmitter.event()
+                .name(change.type().name())
+                .data(dto, MediaType.APPLICATION_JSON);
+    }
+
+    private class Subscription {
+
+        private final SseEmitter emitter;
+        private final ThreadPoolExecutor sender;
+        private volatile Runnable unsubscribe = () -> {
+        };
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(errorFeedProperties.getMaxPendingEvents()),
+                    Thread.ofVirtual().name("error-feed-", 0).factory());
+        }
+
+        void push(SseEventBuilder event) {
+            try {
+                sender.execute(() -> send(event));
+            } catch (RejectedExecutionException e) {
+                if (close()) {
+                    log.debug("Closing a subscription of error changes whose client does not keep up with the changes");
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+
+        private void send(SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away or the subscription has been completed in the meantime
+                log.debug("Could not push to a subscription of error changes: {}", e.getMessage());
+                close();
+                emitter.completeWithError(e);
+            }
+        }
+
+        /**
+         * @return false if the subscription has been closed before
+         */
+        boolean close() {
+            if (!subscriptions.remove(this)) {
+                return false;
+            }
+            unsubscribe.run();
+            sender.shutdownNow();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorFeedProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@Tag(name = "ErrorFeed")
+@RestController
+@RequestMapping("/api/error")
+public class ErrorFeedController {
+
+    private final ErrorFeed errorFeed;
+    private final ErrorFeedProperties errorFeedProperties;
+
+    ErrorFeedController(ErrorFeed errorFeed, ErrorFeedProperties errorFeedProperties) {
+        this.errorFeed = errorFeed;
+        this.errorFeedProperties = errorFeedProperties;
+    }
+
+    @Schema(description = "Pushes the errors created or changing their state or error group as server-sent events, " +
+            "optionally only the ones of a publisher or an error group")
+    @GetMapping(path = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('error','view')")
+    public SseEmitter subscribe(@RequestParam(name = "publisher", required = false) String publisher,
+                                @RequestParam(name = "errorGroupId", required = false) UUID errorGroupId) {
+        if (!errorFeedProperties.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The error feed is disabled");
+        }
+        return errorFeed.subscribe(publisher, errorGroupId);
+    }
+}
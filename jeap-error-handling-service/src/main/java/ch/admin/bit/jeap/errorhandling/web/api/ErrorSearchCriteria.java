@@ -1,6 +1,7 @@
 package ch.admin.bit.jeap.errorhandling.web.api;
 
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimension;
 import lombok.Builder;
 
 import java.time.ZonedDateTime;
@@ -8,7 +9,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
-@Builder
+@Builder(toBuilder = true)
 public class ErrorSearchCriteria extends BaseSearchCriteria {
 
     private ZonedDateTime from;
@@ -64,6 +65,43 @@ public class ErrorSearchCriteria extends BaseSearchCriteria {
         return Optional.ofNullable(this.noTicket);
     }
 
+    /**
+     * @return true if the errors are at most filtered by their states and the service publishing their error event
+     */
+    public boolean restrictsStatesAndServiceNameOnly() {
+        return from == null && to == null && eventName == null && traceId == null && eventId == null &&
+                errorCode == null && stacktracePattern == null && closingReason == null && ticketNumber == null &&
+                !Boolean.TRUE.equals(noTicket);
+    }
+
+    /**
+     * @return true if the errors are at most filtered by their states
+     */
+    public boolean restrictsStatesOnly() {
+        return restrictsStatesAndServiceNameOnly() && serviceName == null;
+    }
+
+    /**
+     * @return the restrictions of these criteria without paging and sort, which can be compared, e.g. to cache the
+     * results of a search
+     */
+    public Filter getFilter() {
+        return new Filter(from, to, eventName, traceId, eventId, serviceName, states, errorCode,
+                stacktracePattern != null ? stacktracePattern.pattern() : null, closingReason, ticketNumber, noTicket);
+    }
+
+    /**
+     * @return these criteria without the restriction of the given dimension, so that the errors can be counted per
+     * value of the dimension to offer as alternatives to the value filtered by
+     */
+    public ErrorSearchCriteria withoutRestrictionOf(ErrorDimension dimension) {
+        return switch (dimension) {
+            case PUBLISHER -> toBuilder().serviceName(null).build();
+            case ERROR_CODE -> toBuilder().errorCode(null).build();
+            case EVENT_NAME -> toBuilder().eventName(null).build();
+        };
+    }
+
     @Override
     protected Integer getPageIndex() { return pageIndex; }
     @Override
@@ -71,4 +109,8 @@ public class ErrorSearchCriteria extends BaseSearchCriteria {
     @Override
     protected String[] getSort() { return sort;}
 
+    public record Filter(ZonedDateTime from, ZonedDateTime to, String eventName, String traceId, String eventId,
+                         String serviceName, List<Error.ErrorState> states, String errorCode, String stacktracePattern,
+                         String closingReason, String ticketNumber, Boolean noTicket) {
+    }
 }
@@ -0,0 +1,21 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor // for Jackson
+@AllArgsConstructor
+public class ErrorSliceDTO {
+    private List<ErrorDTO> errors;
+    @Schema(description = "Cursor to pass to get the next slice, null if there are no further errors")
+    private String nextCursor;
+    @Schema(description = "Total number of errors, null if not requested")
+    private Long totalErrorCount;
+}
@@ -0,0 +1,55 @@
+package db.migration.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.List;
+
+/**
+ * Creates trigram indexes for the search in stack traces, error messages and closing reasons on PostgreSQL. The
+ * indexes require the extension pg_trgm. If it cannot be created (e.g. because the database user lacks the privileges
+ * to do so), the indexes are skipped and the search falls back to a sequential scan, as before. They can then be
+ * created manually after an administrator has created the extension, see docs/operations.md.
+ */
+@Slf4j
+public class V21_0_0__AddTrigramSearchIndexes extends BaseJavaMigration {
+
+    private static final List<String> CREATE_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS error_event_data_stack_trace_trgm ON error USING gin (error_event_data_stack_trace gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS error_event_data_message_trgm ON error USING gin (error_event_data_message gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS error_closing_reason_trgm ON error USING gin (closing_reason gin_trgm_ops)");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        if (!createTrigramExtension(connection, jdbcTemplate)) {
+            return;
+        }
+        CREATE_INDEXES.forEach(jdbcTemplate::execute);
+    }
+
+    private boolean createTrigramExtension(Connection connection, JdbcTemplate jdbcTemplate) throws SQLException {
+        // A failed statement aborts the whole transaction on PostgreSQL, unless it is rolled back to a savepoint
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            connection.releaseSavepoint(savepoint);
+            return true;
+        } catch (Exception e) {
+            connection.rollback(savepoint);
+            log.warn("Could not create the extension pg_trgm, the search in stack traces, error messages and closing " +
+                     "reasons will not be supported by indexes: {}", e.getMessage());
+            return false;
+        }
+    }
+}
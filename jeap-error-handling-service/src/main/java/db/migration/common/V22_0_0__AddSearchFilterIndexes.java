@@ -0,0 +1,92 @@
+package db.migration.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Adds the indexes for the filters of the error search and the open error lists, and for the due scheduled resends.
+ * On PostgreSQL, the indexes are built (and the ones they replace dropped) concurrently, so that errors can still be
+ * stored while the migration runs. This requires the migration to run outside of a transaction. An index left invalid
+ * by an interrupted concurrent build is dropped and built again when the migration is retried.
+ * <p>
+ * Other databases (i.e. H2 in tests) do not support concurrent builds nor partial indexes, the indexes are created
+ * there without their predicate.
+ */
+@Slf4j
+public class V22_0_0__AddSearchFilterIndexes extends BaseJavaMigration {
+
+    private static final String OPEN_STATES = "state IN ('PERMANENT', 'SEND_TO_MANUALTASK')";
+
+    private static final List<Index> INDEXES = List.of(
+            // Error search by states, and by publisher, ordered by creation time. Replace the indexes on state and on
+            // error_event_metadata_publisher_service, which they cover.
+            new Index("error_state_created_id", "error", "state, created, id", null),
+            new Index("error_publisher_service_created_id", "error", "error_event_metadata_publisher_service, created, id", null),
+            // Error search by trace ID
+            new Index("error_original_trace_context_trace_id_string", "error", "original_trace_context_trace_id_string", null),
+            // Error search by causing event ID and event name, which select the causing events first
+            new Index("error_causing_event_id", "error", "causing_event_id", null),
+            // List of open errors, open errors of a group and the error group statistics
+            new Index("error_open_created_id", "error", "created, id", OPEN_STATES),
+            new Index("error_open_error_group_id_created", "error", "error_group_id, created", OPEN_STATES),
+            // Due scheduled resends
+            new Index("scheduled_resend_pending_resend_at", "scheduled_resend", "resend_at", "resent_at IS NULL AND cancelled = FALSE"));
+
+    private static final List<String> REPLACED_INDEXES = List.of(
+            "error_state",
+            "error_event_metadata_publisher_service");
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // CREATE INDEX CONCURRENTLY cannot run inside a transaction block
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean postgresql = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+
+        for (Index index : INDEXES) {
+            if (postgresql) {
+                dropIfInvalid(jdbcTemplate, index.name());
+                jdbcTemplate.execute(index.createConcurrently());
+            } else {
+                jdbcTemplate.execute(index.createWithoutPredicate());
+            }
+        }
+        for (String replacedIndex : REPLACED_INDEXES) {
+            jdbcTemplate.execute((postgresql ? "DROP INDEX CONCURRENTLY IF EXISTS " : "DROP INDEX IF EXISTS ") + replacedIndex);
+        }
+    }
+
+    private static void dropIfInvalid(JdbcTemplate jdbcTemplate, String indexName) {
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid WHERE c.relname = ?",
+                Boolean.class, indexName);
+        if (valid.contains(Boolean.FALSE)) {
+            log.warn("Dropping the index {} left invalid by an interrupted build", indexName);
+            jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        }
+    }
+
+    private record Index(String name, String table, String columns, String predicate) {
+
+        String createConcurrently() {
+            return "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")" +
+                   (predicate != null ? " WHERE " + predicate : "");
+        }
+
+        String createWithoutPredicate() {
+            return "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")";
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package db.migration.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the trigram index for the search in the stack traces stored once per distinct text on PostgreSQL, if the
+ * extension pg_trgm has been created (see {@link V21_0_0__AddTrigramSearchIndexes}).
+ */
+@Slf4j
+public class V25_0_0__AddStackTraceTrigramIndex extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class))) {
+            log.warn("The extension pg_trgm does not exist, the search in stack traces will not be supported by an index");
+            return;
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS stack_trace_stack_trace_trgm ON stack_trace USING gin (stack_trace gin_trgm_ops)");
+    }
+}
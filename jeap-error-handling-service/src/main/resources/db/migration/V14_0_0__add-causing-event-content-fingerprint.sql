@@ -0,0 +1,4 @@
+-- SHA-256 over the message content and headers of a causing event. A repeated failure of the same causing event with
+-- an unchanged fingerprint does not rewrite the causing event and its headers. Existing rows carry NULL and are
+-- rewritten (and fingerprinted) on their next failure.
+ALTER TABLE causing_event ADD content_fingerprint varchar(64);
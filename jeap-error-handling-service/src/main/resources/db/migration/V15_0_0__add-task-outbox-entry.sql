@@ -0,0 +1,13 @@
+-- No foreign key to error: entries of errors deleted in the meantime are discarded by the task outbox worker
+CREATE TABLE task_outbox_entry
+(
+    id                  uuid                        PRIMARY KEY,
+    error_id            uuid                        NOT NULL,
+    action              varchar                     NOT NULL,
+    created             timestamp with time zone    NOT NULL,
+    next_attempt_at     timestamp with time zone    NOT NULL,
+    attempts            integer                     NOT NULL
+);
+
+CREATE INDEX task_outbox_entry_next_attempt_at ON task_outbox_entry (next_attempt_at);
+CREATE INDEX task_outbox_entry_error_id ON task_outbox_entry (error_id);
@@ -0,0 +1,16 @@
+-- Number of errors per state, cluster and publisher, maintained incrementally with every insert, state change
+-- and deletion of an error. Errors without a cluster name are counted with the cluster name ''.
+CREATE TABLE error_state_count
+(
+    state             varchar NOT NULL,
+    cluster_name      varchar NOT NULL,
+    publisher_service varchar NOT NULL,
+    error_count       bigint  NOT NULL,
+    CONSTRAINT error_state_count_pkey PRIMARY KEY (state, cluster_name, publisher_service)
+);
+
+INSERT INTO error_state_count (state, cluster_name, publisher_service, error_count)
+SELECT e.state, coalesce(c.message_cluster_name, ''), e.error_event_metadata_publisher_service, count(*)
+FROM error e
+         LEFT JOIN causing_event c ON c.id = e.causing_event_id
+GROUP BY e.state, coalesce(c.message_cluster_name, ''), e.error_event_metadata_publisher_service;
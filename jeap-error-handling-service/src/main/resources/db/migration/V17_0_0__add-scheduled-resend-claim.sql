@@ -0,0 +1,4 @@
+-- Claims of scheduled resends by the instances of the claiming resend scheduler. A claim expires at claimed_until,
+-- so that the resends claimed by a crashed instance are picked up by another one.
+ALTER TABLE scheduled_resend ADD COLUMN claimed_by varchar;
+ALTER TABLE scheduled_resend ADD COLUMN claimed_until timestamp with time zone;
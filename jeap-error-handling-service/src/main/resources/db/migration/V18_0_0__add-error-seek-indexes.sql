@@ -0,0 +1,5 @@
+-- Error lists are paged by seeking on (created, id) instead of by offset. The index on (created, id) replaces the one
+-- on created, which it covers. The index on error_group_id is kept, as it backs the foreign key to error_group.
+CREATE INDEX error_created_id ON error (created, id);
+DROP INDEX error_created;
+CREATE INDEX error_error_group_id_created_id ON error (error_group_id, created, id);
@@ -0,0 +1,3 @@
+-- Scheduled resends are looked up by error (next resend of the errors in a list, cancellation of the resends of an
+-- error), which required a full scan of scheduled_resend so far
+CREATE INDEX scheduled_resend_error_id_resend_at ON scheduled_resend (error_id, resend_at);
@@ -0,0 +1,22 @@
+-- Number of open errors (states PERMANENT and SEND_TO_MANUALTASK) and creation time of the first and the latest open
+-- error per error group, maintained incrementally with every insert, state change and deletion of an error. The
+-- statistics of a group are deleted together with the group.
+CREATE TABLE error_group_stats
+(
+    error_group_id   uuid                     NOT NULL PRIMARY KEY,
+    open_error_count bigint                   NOT NULL,
+    first_error_at   timestamp with time zone,
+    latest_error_at  timestamp with time zone,
+    CONSTRAINT error_group_stats_error_group_id_fk
+        FOREIGN KEY (error_group_id) REFERENCES error_group (id) ON DELETE CASCADE
+);
+
+-- Default sort order of the error group overview
+CREATE INDEX error_group_stats_latest_error_at ON error_group_stats (latest_error_at);
+
+INSERT INTO error_group_stats (error_group_id, open_error_count, first_error_at, latest_error_at)
+SELECT e.error_group_id, count(*), min(e.created), max(e.created)
+FROM error e
+WHERE e.error_group_id IS NOT NULL
+  AND e.state IN ('PERMANENT', 'SEND_TO_MANUALTASK')
+GROUP BY e.error_group_id;
@@ -0,0 +1,32 @@
+-- Further failures of the causing event of a temporary error are recorded as attempts of the error instead of new
+-- errors. attempt_count is the number of failures of the causing event reported by the error's publisher so far,
+-- including the ones recorded on previous errors of the causing event.
+ALTER TABLE error ADD COLUMN attempt_count integer DEFAULT 1 NOT NULL;
+
+-- Errors stored as one error per failure so far count the previous errors of their causing event and publisher
+UPDATE error e
+SET attempt_count = (SELECT count(*)
+                     FROM error o
+                     WHERE o.causing_event_id = e.causing_event_id
+                       AND o.error_event_metadata_publisher_service = e.error_event_metadata_publisher_service
+                       AND o.created <= e.created)
+WHERE e.causing_event_id IN (SELECT causing_event_id
+                             FROM error
+                             GROUP BY causing_event_id
+                             HAVING count(*) > 1);
+
+-- No foreign key to error, so that the error table can be partitioned (see docs/operations.md). Attempts are deleted
+-- together with their error by housekeeping.
+CREATE TABLE error_attempt
+(
+    id                         uuid                     PRIMARY KEY,
+    error_id                   uuid                     NOT NULL,
+    created                    timestamp with time zone NOT NULL,
+    error_event_idempotence_id varchar,
+    trace_id_string            varchar,
+    message                    varchar(1000)
+);
+
+CREATE INDEX error_attempt_error_id_created ON error_attempt (error_id, created);
+CREATE INDEX error_attempt_error_event_idempotence_id ON error_attempt (error_event_idempotence_id);
+CREATE INDEX error_attempt_created ON error_attempt (created);
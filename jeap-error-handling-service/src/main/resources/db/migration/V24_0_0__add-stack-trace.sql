@@ -0,0 +1,13 @@
+-- Stack traces are stored once per distinct text and referenced by the errors by the SHA-256 hash of the text. The
+-- inline stack trace of errors created before remains in error_event_data_stack_trace until the errors are deleted by
+-- housekeeping (see docs/operations.md for moving them to stack_trace right away).
+CREATE TABLE stack_trace
+(
+    hash        varchar(64)              PRIMARY KEY,
+    stack_trace varchar                  NOT NULL,
+    created     timestamp with time zone NOT NULL
+);
+
+ALTER TABLE error ADD COLUMN error_event_data_stack_trace_ref varchar(64);
+
+CREATE INDEX error_stack_trace_ref ON error (error_event_data_stack_trace_ref);
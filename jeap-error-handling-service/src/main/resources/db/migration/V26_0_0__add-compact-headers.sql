@@ -0,0 +1,13 @@
+-- Alternative storage of the headers of a causing event: all headers serialized into causing_event.compact_headers
+-- instead of one message_header row per header. Large repeated header values, i.e. the signature certificate, are
+-- stored once in header_dictionary_entry and referenced by the SHA-256 digest of the value. Causing events stored
+-- before keep their message_header rows, which remain readable.
+CREATE TABLE header_dictionary_entry
+(
+    digest       varchar(64)              PRIMARY KEY,
+    header_value bytea                    NOT NULL,
+    created      timestamp with time zone NOT NULL
+);
+
+ALTER TABLE causing_event ADD COLUMN compact_headers bytea;
+ALTER TABLE causing_event ADD COLUMN signature_certificate_digest varchar(64);
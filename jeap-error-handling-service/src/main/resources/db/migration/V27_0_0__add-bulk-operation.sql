@@ -0,0 +1,26 @@
+-- Bulk retries and deletions of the errors matching a search, run as background operations. The progress is stored,
+-- so that it can be read from any instance; the operation itself runs on the instance it has been submitted to.
+CREATE TABLE bulk_operation
+(
+    id                uuid                     PRIMARY KEY,
+    action            varchar                  NOT NULL,
+    state             varchar                  NOT NULL,
+    error_group_id    uuid,
+    reason            varchar(1000),
+    user_auth_context varchar                  NOT NULL,
+    user_subject      varchar                  NOT NULL,
+    user_ext_id       varchar,
+    user_given_name   varchar,
+    user_family_name  varchar,
+    created           timestamp with time zone NOT NULL,
+    updated           timestamp with time zone NOT NULL,
+    finished          timestamp with time zone,
+    errors_matched    bigint,
+    errors_processed  bigint                   DEFAULT 0 NOT NULL,
+    errors_skipped    bigint                   DEFAULT 0 NOT NULL,
+    errors_failed     bigint                   DEFAULT 0 NOT NULL,
+    cancel_requested  boolean                  DEFAULT false NOT NULL,
+    failure_message   varchar(1000)
+);
+
+CREATE INDEX bulk_operation_created ON bulk_operation (created);
@@ -0,0 +1,25 @@
+-- The distinct publishers, error codes and event names of the errors, offered as search filters without scanning the
+-- errors. Values are added when errors are stored and deleted by housekeeping once no error has them anymore.
+CREATE TABLE error_dimension_value
+(
+    dimension       varchar                  NOT NULL,
+    dimension_value varchar                  NOT NULL,
+    last_seen       timestamp with time zone NOT NULL,
+    CONSTRAINT error_dimension_value_pkey PRIMARY KEY (dimension, dimension_value)
+);
+
+INSERT INTO error_dimension_value (dimension, dimension_value, last_seen)
+SELECT 'PUBLISHER', e.error_event_metadata_publisher_service, max(e.created)
+FROM error e
+GROUP BY e.error_event_metadata_publisher_service;
+
+INSERT INTO error_dimension_value (dimension, dimension_value, last_seen)
+SELECT 'ERROR_CODE', e.error_event_data_code, max(e.created)
+FROM error e
+GROUP BY e.error_event_data_code;
+
+INSERT INTO error_dimension_value (dimension, dimension_value, last_seen)
+SELECT 'EVENT_NAME', c.metadata_type_name, max(e.created)
+FROM error e
+         JOIN causing_event c ON c.id = e.causing_event_id
+GROUP BY c.metadata_type_name;
@@ -0,0 +1,4 @@
+-- When a stack trace has last been referenced by a stored error, refreshed at most once per hour. Housekeeping only
+-- deletes stack traces not used for a while, as an error referencing an existing stack trace may not be committed yet
+-- when housekeeping looks for unreferenced stack traces. Existing stack traces count as used now.
+ALTER TABLE stack_trace ADD COLUMN last_used timestamp with time zone DEFAULT CURRENT_TIMESTAMP NOT NULL;
@@ -0,0 +1,27 @@
+-- Number of errors per dimension value (publisher, error code and event name) and state, maintained incrementally with
+-- every insert, state change and deletion of an error, so that the unfiltered facets of the error search can be read
+-- without scanning the errors.
+CREATE TABLE error_dimension_count
+(
+    dimension       varchar NOT NULL,
+    dimension_value varchar NOT NULL,
+    state           varchar NOT NULL,
+    error_count     bigint  NOT NULL,
+    CONSTRAINT error_dimension_count_pkey PRIMARY KEY (dimension, dimension_value, state)
+);
+
+INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count)
+SELECT 'PUBLISHER', e.error_event_metadata_publisher_service, e.state, count(*)
+FROM error e
+GROUP BY e.error_event_metadata_publisher_service, e.state;
+
+INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count)
+SELECT 'ERROR_CODE', e.error_event_data_code, e.state, count(*)
+FROM error e
+GROUP BY e.error_event_data_code, e.state;
+
+INSERT INTO error_dimension_count (dimension, dimension_value, state, error_count)
+SELECT 'EVENT_NAME', c.metadata_type_name, e.state, count(*)
+FROM error e
+         JOIN causing_event c ON c.id = e.causing_event_id
+GROUP BY c.metadata_type_name, e.state;
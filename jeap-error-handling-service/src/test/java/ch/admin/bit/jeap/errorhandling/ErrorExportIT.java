@@ -0,0 +1,147 @@
+package ch.admin.bit.jeap.errorhandling;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEvent;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorEventData;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventMessage;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventMetadata;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventPublisher;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventType;
+import ch.admin.bit.jeap.errorhandling.web.api.ErrorSearchFormDto;
+import ch.admin.bit.jeap.security.resource.semanticAuthentication.SemanticApplicationRole;
+import ch.admin.bit.jeap.security.resource.token.JeapAuthenticationContext;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+
+class ErrorExportIT extends ErrorHandlingITBase {
+
+    private static final String EXPORT_URL = "/api/error/export";
+    private static final SemanticApplicationRole VIEW_ROLE = SemanticApplicationRole.builder()
+            .system("jme")
+            .resource("error")
+            .operation("view")
+            .build();
+    private static final String SUBJECT = "69368608-D736-43C8-5F76-55B7BF168299";
+    private static final JeapAuthenticationContext CONTEXT = JeapAuthenticationContext.SYS;
+    private final RequestSpecification apiSpec;
+
+    public ErrorExportIT(@Value("${server.port}") int serverPort) {
+        apiSpec = new RequestSpecBuilder()
+                .setPort(serverPort).build();
+    }
+
+    @Test
+    void export_ndjson_matchingErrorsStreamedInCreationOrder() {
+        Error older = saveError("export", ZonedDateTime.now().minusDays(2), "because this is a test");
+        Error newer = saveError("export", ZonedDateTime.now().minusDays(1), "because this is a test");
+        saveError("other", ZonedDateTime.now(), "because this is a test");
+
+        Response response = export("NDJSON", "export", "created", "asc");
+
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.CONTENT_TYPE, startsWith("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"errors.ndjson\"");
+        List<String> lines = response.asString().lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("{\"id\":\"" + older.getId() + "\",\"state\":\"PERMANENT\"");
+        assertThat(lines.get(1)).startsWith("{\"id\":\"" + newer.getId() + "\"");
+    }
+
+    @Test
+    void export_csv_formulasEscaped() {
+        Error error = saveError("export", ZonedDateTime.now(), "=HYPERLINK(\"http://localhost\")");
+
+        Response response = export("CSV", "export", "created", "desc");
+
+        response.then()
+                .statusCode(HttpStatus.OK.value())
+                .header(HttpHeaders.CONTENT_TYPE, startsWith("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"errors.csv\"");
+        List<String> lines = response.asString().lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("id,state,created,");
+        assertThat(lines.get(1))
+                .startsWith(error.getId() + ",PERMANENT,")
+                .contains(",\"'=HYPERLINK(\"\"http://localhost\"\")\",");
+    }
+
+    @Test
+    void export_sortedByOtherFieldThanCreated_badRequest() {
+        export("CSV", "export", "errorCode", "desc").then()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    private Response export(String format, String errorCode, String sortField, String sortOrder) {
+        ErrorSearchFormDto searchForm = ErrorSearchFormDto.builder()
+                .errorCode(errorCode)
+                .sortField(sortField)
+                .sortOrder(sortOrder)
+                .build();
+        return given()
+                .spec(apiSpec)
+                .auth().oauth2(createAuthTokenForUserRoles(VIEW_ROLE))
+                .contentType("application/json")
+                .queryParam("format", format)
+                .body(searchForm)
+                .when()
+                .post(EXPORT_URL);
+    }
+
+    private String createAuthTokenForUserRoles(SemanticApplicationRole... userroles) {
+        return jwsBuilderFactory.createValidForFixedLongPeriodBuilder(SUBJECT, CONTEXT).
+                withUserRoles(userroles).
+                build().serialize();
+    }
+
+    private Error saveError(String errorCode, ZonedDateTime created, String closingReason) {
+        EventMetadata metadata = EventMetadata.builder()
+                .id(UUID.randomUUID().toString())
+                .created(ZonedDateTime.now())
+                .idempotenceId(UUID.randomUUID().toString())
+                .publisher(EventPublisher.builder()
+                        .service("service")
+                        .system("system")
+                        .build())
+                .type(EventType.builder()
+                        .name("eventName")
+                        .version("1.0.0")
+                        .build())
+                .build();
+        CausingEvent causingEvent = causingEventRepository.save(CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload("test".getBytes(StandardCharsets.UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(metadata)
+                .build());
+        return errorRepository.save(Error.builder()
+                .state(Error.ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorEventData(ErrorEventData.builder()
+                        .code(errorCode)
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message("test")
+                        .build())
+                .errorEventMetadata(metadata)
+                .closingReason(closingReason)
+                .created(created)
+                .build());
+    }
+}
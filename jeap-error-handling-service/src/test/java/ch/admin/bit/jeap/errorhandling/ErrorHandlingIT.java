@@ -283,9 +283,10 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
                 .until(() -> !scheduledResendRepository.findByErrorId(error.getId()).isEmpty() && scheduledResendRepository.findByErrorId(error.getId()).stream()
                         .allMatch(sr -> sr.getResentAt() != null));
 
-        // Then assert that more errors have been created
-        await("errors have been created").atMost(FORTY_SECONDS)
-                .until(() -> errorRepository.countErrorsForCausingEvent(domainEventId) > 1);
+        // Then assert that the further failures have been recorded as attempts of the error
+        await("attempts have been recorded").atMost(FORTY_SECONDS)
+                .until(() -> !errorAttemptRepository.findByErrorIdOrderByCreated(error.getId()).isEmpty());
+        assertEquals(1, errorRepository.countErrorsForCausingEvent(domainEventId));
     }
 
     @SuppressWarnings("DataFlowIssue")
@@ -343,8 +344,9 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
         assertArrayEquals(headerValueSign2, signatureHeaderValue, "Signature header value is updated");
         assertArrayEquals(headerValueSignKey2, signatureKeyHeaderValue, "Signature key header value is updated");
 
-        await("errors have been created").atMost(FORTY_SECONDS)
-                .until(() -> errorRepository.countErrorsForCausingEvent(domainEventId) == 3);
+        await("attempts have been recorded").atMost(FORTY_SECONDS)
+                .until(() -> errorAttemptRepository.findByErrorIdOrderByCreated(error.getId()).size() >= 2);
+        assertEquals(1, errorRepository.countErrorsForCausingEvent(domainEventId));
     }
 
     private static ProducerRecord<AvroMessageKey, AvroMessage> createProducerRecord(
@@ -424,7 +426,8 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
                         statusCode(HttpStatus.OK.value()).
                         extract().as(ErrorDTO.class);
         assertEquals(error.getId().toString(), errorDTO.getId());
-        assertEquals(error.getErrorEventData().getStackTrace(), errorDTO.getStacktrace());
+        String stackTrace = stackTraceRepository.findById(error.getErrorEventData().getStackTraceRef()).orElseThrow().getStackTrace();
+        assertEquals(stackTrace, errorDTO.getStacktrace());
 
         // Check if the event payload can be read as JSON
         String eventAsJsonString =
@@ -462,7 +465,8 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
                         statusCode(HttpStatus.OK.value()).
                         extract().as(ErrorDTO.class);
         assertEquals(error.getId().toString(), errorDTO.getId());
-        assertEquals(error.getErrorEventData().getStackTrace(), errorDTO.getStacktrace());
+        String stackTrace = stackTraceRepository.findById(error.getErrorEventData().getStackTraceRef()).orElseThrow().getStackTrace();
+        assertEquals(stackTrace, errorDTO.getStacktrace());
 
         // Check if the event payload can be read as JSON
         String commandAsJsonString =
@@ -487,7 +491,7 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
 
         // then
         Error error = awaitSingleErrorInRepository();
-        assertEquals(ErrorState.PERMANENT, error.getState());
+        awaitErrorState(error, ErrorState.PERMANENT);
         assertTrue(auditLogRepository.findAllByErrorId(error.getId()).isEmpty());
 
         given().
@@ -536,7 +540,7 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
 
         // then
         Error error = awaitSingleErrorInRepository();
-        assertEquals(ErrorState.PERMANENT, error.getState());
+        awaitErrorState(error, ErrorState.PERMANENT);
 
         given().
                 spec(apiSpec).
@@ -581,7 +585,7 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
 
         // then
         Error error = awaitSingleErrorInRepository();
-        assertEquals(ErrorState.PERMANENT, error.getState());
+        awaitErrorState(error, ErrorState.PERMANENT);
 
         given().
                 spec(apiSpec).
@@ -686,6 +690,11 @@ class ErrorHandlingIT extends ErrorHandlingITBase {
         return assertAndGetSingleFailure();
     }
 
+    private void awaitErrorState(Error error, ErrorState state) {
+        await("error is in state " + state).atMost(FORTY_SECONDS)
+                .until(() -> errorRepository.findById(error.getId()).orElseThrow().getState() == state);
+    }
+
     @SuppressWarnings("SameParameterValue")
     private List<Error> awaitErrorsInRepository(int numErrors) {
         await(numErrors + " failures have been recorded in repository").atMost(FORTY_SECONDS)
@@ -75,6 +75,18 @@ public abstract class ErrorHandlingITBase extends KafkaIntegrationTestBase {
     @Autowired
     protected AuditLogRepository auditLogRepository;
     @Autowired
+    protected TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @Autowired
+    protected ErrorAttemptRepository errorAttemptRepository;
+    @Autowired
+    protected ErrorStateCountRepository errorStateCountRepository;
+    @Autowired
+    protected ErrorDimensionCountRepository errorDimensionCountRepository;
+    @Autowired
+    protected StackTraceRepository stackTraceRepository;
+    @Autowired
+    protected ErrorDimensionValueRepository errorDimensionValueRepository;
+    @Autowired
     protected KafkaTemplate<AvroMessageKey, AvroMessage> kafkaTemplate;
     @Autowired
     protected TestConsumer testConsumer;
@@ -91,10 +103,16 @@ public abstract class ErrorHandlingITBase extends KafkaIntegrationTestBase {
     void clearRepository() {
         log.info("Clearing repositories");
         scheduledResendRepository.deleteAll();
+        taskOutboxEntryRepository.deleteAll();
+        errorAttemptRepository.deleteAll();
         auditLogRepository.deleteAll();
         errorRepository.deleteAll();
+        errorStateCountRepository.deleteAll();
+        errorDimensionCountRepository.deleteAll();
         errorGroupRepository.deleteAll();
         causingEventRepository.deleteAll();
+        stackTraceRepository.deleteAll();
+        errorDimensionValueRepository.deleteAll();
         testConsumer.reset();
     }
 
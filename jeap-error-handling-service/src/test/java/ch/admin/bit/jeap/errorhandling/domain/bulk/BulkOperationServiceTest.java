@@ -0,0 +1,159 @@
+package ch.admin.bit.jeap.errorhandling.domain.bulk;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.BulkBatchResult;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.user.UserService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation.State;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperationRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCursor;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkOperationServiceTest {
+
+    private static final User USER = User.builder().authContext("USER").subject("subject").build();
+
+    @Mock
+    private BulkOperationRepository bulkOperationRepository;
+    @Mock
+    private ErrorRepository errorRepository;
+    @Mock
+    private ErrorService errorService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private Specification<Error> specification;
+
+    private BulkOperationService bulkOperationService;
+
+    @BeforeEach
+    void setUp() {
+        BulkOperationProperties properties = new BulkOperationProperties();
+        properties.setBatchSize(2);
+        bulkOperationService = new BulkOperationService(bulkOperationRepository, errorRepository, errorService,
+                userService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkOperationService.shutdown();
+    }
+
+    @Test
+    void run_processesMatchingErrorsBatchByBatch() {
+        BulkOperation operation = BulkOperation.resend(null, USER);
+        ErrorListItem error1 = errorListItem();
+        ErrorListItem error2 = errorListItem();
+        ErrorListItem error3 = errorListItem();
+        when(errorRepository.count(specification)).thenReturn(3L);
+        when(bulkOperationRepository.start(operation.getId(), 3L)).thenReturn(1);
+        when(errorRepository.findFollowing(specification, null, Sort.Direction.ASC, 2)).thenReturn(List.of(error1, error2));
+        when(errorRepository.findFollowing(specification, ErrorCursor.of(error2), Sort.Direction.ASC, 2)).thenReturn(List.of(error3));
+        when(errorService.resendForBulkOperation(List.of(error1.getId(), error2.getId()), USER)).thenReturn(new BulkBatchResult(1, 1, 0));
+        when(errorService.resendForBulkOperation(List.of(error3.getId()), USER)).thenReturn(new BulkBatchResult(0, 0, 1));
+
+        bulkOperationService.run(operation, specification);
+
+        verify(bulkOperationRepository).addProgress(operation.getId(), 1, 1, 0);
+        verify(bulkOperationRepository).addProgress(operation.getId(), 0, 0, 1);
+        verify(bulkOperationRepository).finish(operation.getId(), State.COMPLETED, null);
+    }
+
+    @Test
+    void run_stopsWhenCancelRequested() {
+        BulkOperation operation = BulkOperation.delete(UUID.randomUUID(), "reason", USER);
+        ErrorListItem error1 = errorListItem();
+        ErrorListItem error2 = errorListItem();
+        when(errorRepository.count(specification)).thenReturn(3L);
+        when(bulkOperationRepository.start(operation.getId(), 3L)).thenReturn(1);
+        when(bulkOperationRepository.isCancelRequested(operation.getId())).thenReturn(false, true);
+        when(errorRepository.findFollowing(specification, null, Sort.Direction.ASC, 2)).thenReturn(List.of(error1, error2));
+        when(errorService.deleteForBulkOperation(List.of(error1.getId(), error2.getId()), "reason", USER)).thenReturn(new BulkBatchResult(2, 0, 0));
+
+        bulkOperationService.run(operation, specification);
+
+        verify(bulkOperationRepository).addProgress(operation.getId(), 2, 0, 0);
+        verify(bulkOperationRepository).finish(operation.getId(), State.CANCELLED, null);
+        verify(errorRepository, times(1)).findFollowing(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void run_notStartedIfCancelledBefore() {
+        BulkOperation operation = BulkOperation.resend(null, USER);
+        when(errorRepository.count(specification)).thenReturn(3L);
+        when(bulkOperationRepository.start(operation.getId(), 3L)).thenReturn(0);
+
+        bulkOperationService.run(operation, specification);
+
+        verifyNoInteractions(errorService);
+        verify(bulkOperationRepository, never()).finish(any(), any(), any());
+    }
+
+    @Test
+    void run_failedOperationRecorded() {
+        BulkOperation operation = BulkOperation.resend(null, USER);
+        when(errorRepository.count(specification)).thenReturn(1L);
+        when(bulkOperationRepository.start(operation.getId(), 1L)).thenReturn(1);
+        when(errorRepository.findFollowing(specification, null, Sort.Direction.ASC, 2)).thenThrow(new IllegalStateException("database down"));
+
+        bulkOperationService.run(operation, specification);
+
+        verify(bulkOperationRepository).finish(operation.getId(), State.FAILED, "database down");
+    }
+
+    @Test
+    void submitDelete_rejectsTooLongReason() {
+        assertThatThrownBy(() -> bulkOperationService.submitDelete(UUID.randomUUID(), null, "x".repeat(1001)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(bulkOperationRepository, userService);
+    }
+
+    @Test
+    void findOperation_failsStaleOperationsFirst() {
+        UUID operationId = UUID.randomUUID();
+
+        bulkOperationService.findOperation(operationId);
+
+        verify(bulkOperationRepository).failStale(any(ZonedDateTime.class));
+        verify(bulkOperationRepository).findById(operationId);
+    }
+
+    @Test
+    void cancel() {
+        UUID operationId = UUID.randomUUID();
+        when(bulkOperationRepository.cancel(operationId)).thenReturn(true);
+
+        bulkOperationService.cancel(operationId);
+
+        verify(bulkOperationRepository).cancel(operationId);
+        verify(bulkOperationRepository).findById(operationId);
+        verifyNoInteractions(errorService);
+    }
+
+    private static ErrorListItem errorListItem() {
+        ErrorListItem errorListItem = mock(ErrorListItem.class);
+        lenient().when(errorListItem.getId()).thenReturn(UUID.randomUUID());
+        lenient().when(errorListItem.getCreated()).thenReturn(ZonedDateTime.now());
+        return errorListItem;
+    }
+}
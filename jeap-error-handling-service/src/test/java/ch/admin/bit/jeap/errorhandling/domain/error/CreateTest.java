@@ -8,12 +8,14 @@ import ch.admin.bit.jeap.errorhandling.domain.metrics.ErrorHandlingMetricsServic
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.strategy.ResendingStrategy;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaFailedEventResender;
-import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskDto;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementClient;
-import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventMetadata;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventPublisher;
 import org.junit.jupiter.api.Assertions;
@@ -28,6 +30,7 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.ZonedDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -37,7 +40,6 @@ import static org.mockito.Mockito.*;
 @Import(ErrorService.class)
 class CreateTest {
     private static final UUID errorId = UUID.randomUUID();
-    private static final UUID taskId = UUID.randomUUID();
     private static final ZonedDateTime resentAt = ZonedDateTime.now();
     private static final String CAUSING_SERVICE = ErrorStubs.CAUSING_EVENT_PUBLISHER_SERVICE;
     @MockitoBean
@@ -55,13 +57,17 @@ class CreateTest {
     @MockitoBean
     private ResendingStrategy resendingStrategy;
     @MockitoBean
-    private ErrorFactory errorFactory;
+    private ErrorAttemptRepository errorAttemptRepository;
+    @MockitoBean
+    private StackTraceRepository stackTraceRepository;
     @MockitoBean
     private TaskFactory taskFactory;
     @MockitoBean
     private AuditLogService auditLogService;
-    @Mock(lenient = true)
-    private TaskDto taskDto;
+    @MockitoBean
+    private ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    @MockitoBean
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
     @Mock(lenient = true)
     private Error error;
     @Mock(lenient = true)
@@ -81,35 +87,20 @@ class CreateTest {
         when(eventMetadata.getPublisher()).thenReturn(eventPublisher);
         when(error.getErrorEventMetadata()).thenReturn(eventMetadata);
         when(error.getState()).then(a -> state);
-        when(taskFactory.create(error)).thenReturn(taskDto);
-        when(taskDto.getId()).thenReturn(taskId);
         doAnswer(a -> state = a.getArgument(0)).when(error).setState(any());
         when(errorRepository.save(any())).thenAnswer(a -> a.getArgument(0));
     }
 
     @Test
-    void createPermanent() throws TaskManagementException {
-        target.createPermanent(error);
-
-        Assertions.assertEquals(ErrorState.PERMANENT, state);
-        verify(taskManagementClient).createTask(taskDto);
-        verify(error).setManualTaskId(taskId);
-        verify(errorRepository, atLeastOnce()).save(error);
-        verify(errorGroupService).assignToErrorGroup(error);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient);
-    }
-
-    @Test
-    void createPermanentSendToManualTaskFailed() throws TaskManagementException {
-        doThrow(mock(TaskManagementException.class)).when(taskManagementClient).createTask(taskDto);
-
+    void createPermanent() {
         target.createPermanent(error);
 
         Assertions.assertEquals(ErrorState.SEND_TO_MANUALTASK, state);
-        verify(taskManagementClient).createTask(taskDto);
         verify(errorRepository).save(error);
         verify(errorGroupService).assignToErrorGroup(error);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient);
+        verify(taskOutboxEntryRepository).save(argThat(entry ->
+                entry.getErrorId().equals(errorId) && entry.getAction() == TaskOutboxEntry.Action.CREATE_TASK));
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, taskOutboxEntryRepository);
     }
 
     @Test
@@ -119,6 +110,48 @@ class CreateTest {
         Assertions.assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, state);
         verify(errorRepository).save(error);
         verify(scheduledResendService).scheduleResend(errorId, resentAt);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, errorGroupService);
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, errorGroupService, taskOutboxEntryRepository);
+    }
+
+    @Test
+    void handleTemporaryError_recordedAsAttemptOfErrorBeingRetried() {
+        Error previousError = ErrorStubs.createTemporaryError();
+        previousError.setState(ErrorState.TEMPORARY_RETRIED);
+        Error failure = ErrorStubs.createTemporaryError();
+        whenLatestErrorOfCausingEventIs(failure, previousError);
+        when(resendingStrategy.determineResend(eq(1), any(), any(), any(), any())).thenReturn(Optional.of(resentAt));
+
+        target.handleTemporaryError(failure);
+
+        Assertions.assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, previousError.getState());
+        Assertions.assertEquals(2, previousError.getAttemptCount());
+        verify(errorAttemptRepository).save(argThat(attempt -> attempt.getErrorId().equals(previousError.getId()) &&
+                attempt.getErrorEventIdempotenceId().equals(failure.getErrorEventMetadata().getIdempotenceId())));
+        verify(errorEventDuplicateFilter).markHandled(failure.getErrorEventMetadata().getIdempotenceId());
+        verify(errorRepository).save(previousError);
+        verify(errorRepository, never()).save(failure);
+        verify(scheduledResendService).scheduleResend(previousError.getId(), resentAt);
+    }
+
+    @Test
+    void handleTemporaryError_newErrorContinuesAttemptCountOfPreviousError() {
+        Error previousError = ErrorStubs.createPermanentError();
+        Error failure = ErrorStubs.createTemporaryError();
+        whenLatestErrorOfCausingEventIs(failure, previousError);
+        when(resendingStrategy.determineResend(eq(1), any(), any(), any(), any())).thenReturn(Optional.of(resentAt));
+
+        target.handleTemporaryError(failure);
+
+        Assertions.assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, failure.getState());
+        Assertions.assertEquals(2, failure.getAttemptCount());
+        verify(errorRepository).save(failure);
+        verify(scheduledResendService).scheduleResend(failure.getId(), resentAt);
+        verifyNoInteractions(errorAttemptRepository);
+    }
+
+    private void whenLatestErrorOfCausingEventIs(Error failure, Error latestError) {
+        when(errorRepository.findFirstByCausingEventMetadataIdAndErrorEventMetadataPublisherServiceOrderByCreatedDesc(
+                failure.getCausingEventMetadata().getId(), failure.getErrorEventMetadata().getPublisher().getService()))
+                .thenReturn(Optional.of(latestError));
     }
 }
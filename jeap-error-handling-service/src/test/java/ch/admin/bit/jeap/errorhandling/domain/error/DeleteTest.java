@@ -12,7 +12,12 @@ import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementC
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +27,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -49,12 +55,18 @@ class DeleteTest {
     @Mock
     private ResendingStrategy resendingStrategy;
     @Mock
-    private ErrorFactory errorFactory;
-    @Mock
     private TaskFactory taskFactory;
     @Mock
     private AuditLogService auditLogService;
     @Mock
+    private ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    @Mock
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @Mock
+    private ErrorAttemptRepository errorAttemptRepository;
+    @Mock
+    private StackTraceRepository stackTraceRepository;
+    @Mock
     private Error error;
     private ErrorState state;
     private ErrorService target;
@@ -68,12 +80,16 @@ class DeleteTest {
                 taskManagementClient,
                 taskFactory,
                 resendingStrategy,
-                errorFactory,
                 errorHandlingMetricsService,
                 auditLogService,
-                errorGroupService);
+                errorGroupService,
+                errorEventDuplicateFilter,
+                taskOutboxEntryRepository,
+                errorAttemptRepository,
+                stackTraceRepository);
 
         when(errorRepository.getReferenceById(errorId)).thenReturn(error);
+        when(error.getId()).thenReturn(errorId);
         when(error.getState()).then(a -> state);
         doAnswer(a -> state = a.getArgument(0)).when(error).setState(any());
         lenient().when(error.getManualTaskId()).thenReturn(taskId);
@@ -92,28 +108,16 @@ class DeleteTest {
     }
 
     @Test
-    void deletePermanent() throws TaskManagementException {
+    void deletePermanent() {
         state = ErrorState.PERMANENT;
 
         target.delete(errorId, "");
 
-        Assertions.assertEquals(ErrorState.DELETED, state);
-        verify(taskManagementClient).closeTask(taskId);
-        verify(auditLogService).logDeleteError(error);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, errorGroupService);
-    }
-
-    @Test
-    void deletePermanentFailedOnManualTask() throws TaskManagementException {
-        state = ErrorState.PERMANENT;
-        doThrow(mock(TaskManagementException.class)).when(taskManagementClient).closeTask(taskId);
-
-        target.delete(errorId, "");
-
         Assertions.assertEquals(ErrorState.DELETE_ON_MANUALTASK, state);
-        verify(taskManagementClient).closeTask(taskId);
+        verify(taskOutboxEntryRepository).save(argThat(entry ->
+                entry.getErrorId().equals(errorId) && entry.getAction() == TaskOutboxEntry.Action.DELETE_TASK));
         verify(auditLogService).logDeleteError(error);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, errorGroupService);
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, errorGroupService, taskOutboxEntryRepository);
     }
 
     @Test
@@ -137,4 +141,26 @@ class DeleteTest {
         Assertions.assertEquals(ErrorState.DELETED, state);
         verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, errorGroupService);
     }
+
+    @Test
+    void deleteForBulkOperation_skipsErrorsNoLongerDeletable() {
+        state = ErrorState.PERMANENT;
+        Error deletedError = mock(Error.class);
+        when(deletedError.getState()).thenReturn(ErrorState.DELETED);
+        User user = User.builder().authContext("USER").subject("subject").build();
+        UUID deletedErrorId = UUID.randomUUID();
+        when(errorRepository.findAllById(List.of(errorId, deletedErrorId))).thenReturn(List.of(error, deletedError));
+
+        BulkBatchResult result = target.deleteForBulkOperation(List.of(errorId, deletedErrorId), "reason", user);
+
+        Assertions.assertEquals(new BulkBatchResult(1, 1, 0), result);
+        Assertions.assertEquals(ErrorState.DELETE_ON_MANUALTASK, state);
+        verify(error).setClosingReason("reason");
+        verify(deletedError, never()).setState(any());
+        verify(taskOutboxEntryRepository).save(argThat(entry ->
+                entry.getErrorId().equals(errorId) && entry.getAction() == TaskOutboxEntry.Action.DELETE_TASK));
+        verify(scheduledResendService).cancelScheduledResends(List.of(error));
+        verify(auditLogService).logDeleteErrors(List.of(error), user);
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, errorGroupService, taskOutboxEntryRepository);
+    }
 }
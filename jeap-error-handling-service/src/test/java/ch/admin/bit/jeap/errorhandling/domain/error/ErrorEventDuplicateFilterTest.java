@@ -0,0 +1,187 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ErrorEventDuplicateFilterTest {
+
+    @Mock
+    private ErrorRepository errorRepository;
+    @Mock
+    private ErrorAttemptRepository errorAttemptRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ErrorEventDuplicateFilterProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ErrorEventDuplicateFilterProperties();
+        properties.setBloomFilterMinExpectedInsertions(1_000);
+        when(errorRepository.streamErrorEventIdempotenceIdsCreatedSince(any())).thenAnswer(invocation -> Stream.empty());
+    }
+
+    @Test
+    void isDuplicate_bloomFilterNotYetBuilt_looksUpDatabase() {
+        when(errorRepository.existsByErrorEventMetadataIdempotenceId("new")).thenReturn(false);
+        ErrorEventDuplicateFilter filter = new ErrorEventDuplicateFilter(errorRepository, errorAttemptRepository, properties, transactionManager);
+
+        assertThat(filter.isDuplicate("new")).isFalse();
+
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("new");
+    }
+
+    @Test
+    void isDuplicate_notInBloomFilter_noDatabaseLookup() {
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf("handled");
+        clearInvocations(transactionManager);
+
+        assertThat(filter.isDuplicate("new")).isFalse();
+
+        verify(errorRepository, never()).existsByErrorEventMetadataIdempotenceId(anyString());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void isDuplicate_mightBeInBloomFilter_looksUpDatabase() {
+        when(errorRepository.existsByErrorEventMetadataIdempotenceId("handled")).thenReturn(true);
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf("handled");
+        clearInvocations(transactionManager);
+
+        assertThat(filter.isDuplicate("handled")).isTrue();
+
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("handled");
+        verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    void isDuplicate_notInBloomFilterShortlyAfterPartitionAssignment_looksUpDatabase() {
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf();
+        filter.onErrorTopicPartitionsAssigned();
+        // Stored by the previous owner of the partition after the refresh at the assignment
+        when(errorRepository.existsByErrorEventMetadataIdempotenceId("handled-by-previous-owner")).thenReturn(true);
+
+        assertThat(filter.isDuplicate("handled-by-previous-owner")).isTrue();
+        assertThat(filter.findDuplicates(List.of("new"))).isEmpty();
+
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("handled-by-previous-owner");
+        verify(errorRepository).findErrorEventIdempotenceIdsIn(List.of("new"));
+    }
+
+    @Test
+    void isDuplicate_notInBloomFilterAfterRebalanceVerificationPeriod_noDatabaseLookup() {
+        properties.setRebalanceVerificationPeriod(Duration.ZERO);
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf();
+        filter.onErrorTopicPartitionsAssigned();
+
+        assertThat(filter.isDuplicate("new")).isFalse();
+
+        verify(errorRepository, never()).existsByErrorEventMetadataIdempotenceId(anyString());
+    }
+
+    @Test
+    void isDuplicate_markedHandled_noDatabaseLookup() {
+        ErrorEventDuplicateFilter filter = new ErrorEventDuplicateFilter(errorRepository, errorAttemptRepository, properties, transactionManager);
+
+        filter.markHandled("handled");
+
+        assertThat(filter.isDuplicate("handled")).isTrue();
+        verify(errorRepository, never()).existsByErrorEventMetadataIdempotenceId(anyString());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void isDuplicate_handledByOtherInstance_foundAfterPartitionAssignment() {
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf();
+        when(errorRepository.streamErrorEventIdempotenceIdsCreatedSince(any())).thenAnswer(invocation -> Stream.of("handled-elsewhere"));
+
+        filter.onErrorTopicPartitionsAssigned();
+
+        assertThat(filter.isDuplicate("handled-elsewhere")).isTrue();
+        verify(errorRepository, never()).existsByErrorEventMetadataIdempotenceId(anyString());
+    }
+
+    @Test
+    void isDuplicate_refreshFailed_bloomFilterDiscarded() {
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf();
+        when(errorRepository.streamErrorEventIdempotenceIdsCreatedSince(any())).thenThrow(new DataAccessResourceFailureException("DB down"));
+
+        filter.onErrorTopicPartitionsAssigned();
+
+        assertThat(filter.isDuplicate("new")).isFalse();
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("new");
+    }
+
+    @Test
+    void isDuplicate_disabled_alwaysLooksUpDatabase() {
+        properties.setEnabled(false);
+        ErrorEventDuplicateFilter filter = new ErrorEventDuplicateFilter(errorRepository, errorAttemptRepository, properties, transactionManager);
+
+        filter.markHandled("handled");
+        filter.isDuplicate("handled");
+
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("handled");
+    }
+
+    @Test
+    void findDuplicates_looksUpOnlyIdempotenceIdsWhichMightBeDuplicates() {
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf("handled", "recently-handled");
+        filter.markHandled("recently-handled");
+        when(errorRepository.findErrorEventIdempotenceIdsIn(List.of("handled"))).thenReturn(List.of("handled"));
+
+        assertThat(filter.findDuplicates(List.of("handled", "recently-handled", "new")))
+                .containsExactlyInAnyOrder("handled", "recently-handled");
+
+        verify(errorRepository).findErrorEventIdempotenceIdsIn(List.of("handled"));
+    }
+
+    @Test
+    void isDuplicate_recordedAsAttempt_looksUpAttempts() {
+        when(errorAttemptRepository.streamAllErrorEventIdempotenceIds()).thenAnswer(invocation -> Stream.of("attempt"));
+        when(errorAttemptRepository.existsByErrorEventIdempotenceId("attempt")).thenReturn(true);
+        ErrorEventDuplicateFilter filter = createFilterWithBloomFilterOf();
+
+        assertThat(filter.isDuplicate("attempt")).isTrue();
+
+        verify(errorRepository).existsByErrorEventMetadataIdempotenceId("attempt");
+    }
+
+    @Test
+    void findDuplicates_looksUpAttemptsOfIdempotenceIdsWithoutError() {
+        properties.setEnabled(false);
+        ErrorEventDuplicateFilter filter = new ErrorEventDuplicateFilter(errorRepository, errorAttemptRepository, properties, transactionManager);
+        when(errorRepository.findErrorEventIdempotenceIdsIn(List.of("handled", "attempt", "new"))).thenReturn(List.of("handled"));
+        when(errorAttemptRepository.findErrorEventIdempotenceIdsIn(List.of("attempt", "new"))).thenReturn(List.of("attempt"));
+
+        assertThat(filter.findDuplicates(List.of("handled", "attempt", "new")))
+                .containsExactlyInAnyOrder("handled", "attempt");
+    }
+
+    private ErrorEventDuplicateFilter createFilterWithBloomFilterOf(String... idempotenceIds) {
+        when(errorRepository.count()).thenReturn((long) idempotenceIds.length);
+        when(errorRepository.streamAllErrorEventIdempotenceIds()).thenAnswer(invocation -> Stream.of(idempotenceIds));
+        ErrorEventDuplicateFilter filter = new ErrorEventDuplicateFilter(errorRepository, errorAttemptRepository, properties, transactionManager);
+        filter.buildBloomFilter();
+        return filter;
+    }
+}
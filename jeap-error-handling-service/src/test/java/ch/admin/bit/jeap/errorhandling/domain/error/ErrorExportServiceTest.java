@@ -0,0 +1,26 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorExportServiceTest {
+
+    @Test
+    void csvValue_quotedOnlyIfRequired() {
+        assertThat(ErrorExportService.csvValue(null)).isEmpty();
+        assertThat(ErrorExportService.csvValue("plain")).isEqualTo("plain");
+        assertThat(ErrorExportService.csvValue("a,b")).isEqualTo("\"a,b\"");
+        assertThat(ErrorExportService.csvValue("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(ErrorExportService.csvValue("line\nbreak")).isEqualTo("\"line\nbreak\"");
+    }
+
+    @Test
+    void csvValue_formulaEscaped() {
+        assertThat(ErrorExportService.csvValue("=HYPERLINK(\"http://evil\")")).isEqualTo("\"'=HYPERLINK(\"\"http://evil\"\")\"");
+        assertThat(ErrorExportService.csvValue("+1")).isEqualTo("'+1");
+        assertThat(ErrorExportService.csvValue("-1")).isEqualTo("'-1");
+        assertThat(ErrorExportService.csvValue("@SUM(A1)")).isEqualTo("'@SUM(A1)");
+        assertThat(ErrorExportService.csvValue("a=b")).isEqualTo("a=b");
+    }
+}
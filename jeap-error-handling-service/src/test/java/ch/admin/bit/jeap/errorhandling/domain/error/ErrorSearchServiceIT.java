@@ -9,10 +9,15 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.Sort;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -24,6 +29,8 @@ class ErrorSearchServiceIT extends ErrorHandlingITBase {
     private ErrorSearchService service;
     @Autowired
     private CacheManager cacheManager;
+    @Autowired
+    private ErrorExportService errorExportService;
 
     @BeforeEach
     void clearRepository() {
@@ -97,9 +104,9 @@ class ErrorSearchServiceIT extends ErrorHandlingITBase {
         //then
         assertThat(result.getTotalElements()).isEqualTo(5);
         assertThat(result.getErrors()).hasSize(5);
-        assertThat(result.getErrors().get(0).getCausingEventMetadata().getType().getName()).isEqualTo("eventName2");
-        assertThat(result.getErrors().get(1).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
-        assertThat(result.getErrors().get(2).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(0).getEventName()).isEqualTo("eventName2");
+        assertThat(result.getErrors().get(1).getEventName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(2).getEventName()).isEqualTo("eventName");
     }
 
     @Test
@@ -114,11 +121,11 @@ class ErrorSearchServiceIT extends ErrorHandlingITBase {
         //then
         assertThat(result.getTotalElements()).isEqualTo(5);
         assertThat(result.getErrors()).hasSize(5);
-        assertThat(result.getErrors().get(0).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
-        assertThat(result.getErrors().get(1).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
-        assertThat(result.getErrors().get(2).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
-        assertThat(result.getErrors().get(3).getCausingEventMetadata().getType().getName()).isEqualTo("eventName");
-        assertThat(result.getErrors().get(4).getCausingEventMetadata().getType().getName()).isEqualTo("eventName2");
+        assertThat(result.getErrors().get(0).getEventName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(1).getEventName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(2).getEventName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(3).getEventName()).isEqualTo("eventName");
+        assertThat(result.getErrors().get(4).getEventName()).isEqualTo("eventName2");
     }
 
     @Test
@@ -135,6 +142,48 @@ class ErrorSearchServiceIT extends ErrorHandlingITBase {
         assertTrue(cacheManager.getCacheNames().contains("eventNames"));
     }
 
+    @Test
+    void getFacets_countsIgnoringTheRestrictionOfTheDimensionItself() {
+        storeErrors();
+        ErrorSearchCriteria criteria = ErrorSearchCriteria.builder()
+                .states(List.of(Error.ErrorState.PERMANENT))
+                .serviceName("service")
+                .build();
+
+        Map<ErrorDimension, List<ErrorDimensionValueCount>> facets = service.getFacets(criteria);
+
+        assertThat(facets.get(ErrorDimension.PUBLISHER)).containsExactly(
+                new ErrorDimensionValueCount("service", 3L),
+                new ErrorDimensionValueCount("service2", 1L));
+        assertThat(facets.get(ErrorDimension.ERROR_CODE)).containsExactly(
+                new ErrorDimensionValueCount("123", 2L),
+                new ErrorDimensionValueCount("321", 1L));
+        assertThat(facets.get(ErrorDimension.EVENT_NAME)).containsExactly(
+                new ErrorDimensionValueCount("eventName", 2L),
+                new ErrorDimensionValueCount("eventName2", 1L));
+    }
+
+    @Test
+    void getFacets_restrictedToStatesOnly_countsFromMaintainedCounts() {
+        storeErrors();
+        ErrorSearchCriteria criteria = ErrorSearchCriteria.builder()
+                .states(List.of(Error.ErrorState.PERMANENT))
+                .build();
+
+        Map<ErrorDimension, List<ErrorDimensionValueCount>> facets = service.getFacets(criteria);
+
+        assertThat(errorDimensionCountRepository.findByDimension(ErrorDimension.ERROR_CODE)).isNotEmpty();
+        assertThat(facets.get(ErrorDimension.PUBLISHER)).containsExactly(
+                new ErrorDimensionValueCount("service", 3L),
+                new ErrorDimensionValueCount("service2", 1L));
+        assertThat(facets.get(ErrorDimension.ERROR_CODE)).containsExactly(
+                new ErrorDimensionValueCount("123", 3L),
+                new ErrorDimensionValueCount("321", 1L));
+        assertThat(facets.get(ErrorDimension.EVENT_NAME)).containsExactly(
+                new ErrorDimensionValueCount("eventName", 3L),
+                new ErrorDimensionValueCount("eventName2", 1L));
+    }
+
     @Test
     void search_withParams_listOfStates_twoStates_errorsFound() {
 
@@ -223,6 +272,95 @@ class ErrorSearchServiceIT extends ErrorHandlingITBase {
         assertThat(service.search(criteriaNoTicketFalse).getTotalElements()).isEqualTo(3);
     }
 
+    @Test
+    void searchSlice_followingCursors_allErrorsFoundOnceInOrder() {
+        storeErrors();
+        ErrorSearchCriteria criteria = ErrorSearchCriteria.builder().build();
+
+        List<ErrorListItem> errors = new ArrayList<>();
+        ErrorSlice slice = service.searchSlice(criteria, new ErrorSliceRequest(null, Sort.Direction.DESC, 2, false));
+        errors.addAll(slice.getErrors());
+        while (slice.getNextCursor() != null) {
+            assertThat(slice.getErrors()).hasSize(2);
+            slice = service.searchSlice(criteria, new ErrorSliceRequest(slice.getNextCursor(), Sort.Direction.DESC, 2, false));
+            errors.addAll(slice.getErrors());
+        }
+
+        assertThat(slice.getTotalElements()).isNull();
+        assertThat(errors).extracting(ErrorListItem::getId)
+                .containsExactlyElementsOf(service.search(ErrorSearchCriteria.builder()
+                                .sort(new String[]{"created,desc", "id,desc"}).build())
+                        .getErrors().stream().map(ErrorListItem::getId).toList());
+    }
+
+    @Test
+    void searchSlice_ascending_oldestErrorsFirst() {
+        final Error oldest = saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now().minusDays(3), "123", "myTraceId");
+        final Error older = saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now().minusDays(2), "123", "myTraceId");
+        storeErrors();
+
+        ErrorSlice slice = service.searchSlice(ErrorSearchCriteria.builder().build(), new ErrorSliceRequest(null, Sort.Direction.ASC, 1, false));
+        assertThat(slice.getErrors()).extracting(ErrorListItem::getId).containsExactly(oldest.getId());
+
+        slice = service.searchSlice(ErrorSearchCriteria.builder().build(), new ErrorSliceRequest(slice.getNextCursor(), Sort.Direction.ASC, 1, false));
+        assertThat(slice.getErrors()).extracting(ErrorListItem::getId).containsExactly(older.getId());
+    }
+
+    @Test
+    void searchSlice_withTotalCount_errorsCounted() {
+        storeErrors();
+
+        ErrorSearchCriteria byStateAndService = ErrorSearchCriteria.builder()
+                .states(List.of(Error.ErrorState.PERMANENT))
+                .serviceName("service")
+                .build();
+        ErrorSlice slice = service.searchSlice(byStateAndService, new ErrorSliceRequest(null, Sort.Direction.DESC, 1, true));
+        assertThat(slice.getTotalElements()).isEqualTo(3);
+
+        ErrorSearchCriteria byErrorCode = ErrorSearchCriteria.builder()
+                .errorCode("123")
+                .build();
+        slice = service.searchSlice(byErrorCode, new ErrorSliceRequest(null, Sort.Direction.DESC, 1, true));
+        assertThat(slice.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    void export_ndjson_matchingErrorsInCreationOrder() throws IOException {
+        final Error older = saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now().minusDays(3), "456", "myTraceId");
+        final Error newer = saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now().minusDays(1), "456", "myTraceId");
+        storeErrors();
+        ErrorSearchCriteria criteria = ErrorSearchCriteria.builder()
+                .errorCode("456")
+                .sort(new String[]{"created,desc"}).build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = errorExportService.export(criteria, Sort.Direction.DESC, ErrorExportFormat.NDJSON, false, false, output);
+
+        assertThat(count).isEqualTo(2);
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("{\"id\":\"" + newer.getId() + "\",\"state\":\"PERMANENT\"");
+        assertThat(lines.get(1)).startsWith("{\"id\":\"" + older.getId() + "\"");
+        assertThat(lines.get(0)).doesNotContain("stackTrace", "payload");
+    }
+
+    @Test
+    void export_csv_withStackTraces() throws IOException {
+        final Error error = saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now(), "456", "myTraceId", "closed, finally");
+        ErrorSearchCriteria criteria = ErrorSearchCriteria.builder()
+                .errorCode("456")
+                .sort(new String[]{"created,desc"}).build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = errorExportService.export(criteria, Sort.Direction.DESC, ErrorExportFormat.CSV, true, false, output);
+
+        assertThat(count).isEqualTo(1);
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).startsWith("id,state,created,").endsWith(",freeText,stackTrace");
+        assertThat(lines.get(1)).startsWith(error.getId() + ",PERMANENT,").contains(",\"closed, finally\",");
+    }
+
     private void storeErrors() {
         saveError(Error.ErrorState.TEMPORARY_RETRIED, "service", "eventName", ZonedDateTime.now(), "123", "myTraceId");
         saveError(Error.ErrorState.PERMANENT, "service", "eventName", ZonedDateTime.now(), "321", "myTraceId");
@@ -0,0 +1,52 @@
+package ch.admin.bit.jeap.errorhandling.domain.error;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotenceIdBloomFilterTest {
+
+    @Test
+    void mightContain_noFalseNegatives() {
+        IdempotenceIdBloomFilter bloomFilter = IdempotenceIdBloomFilter.create(10_000, 0.01);
+        String[] idempotenceIds = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toArray(String[]::new);
+
+        for (String idempotenceId : idempotenceIds) {
+            bloomFilter.put(idempotenceId);
+        }
+
+        assertThat(idempotenceIds).allMatch(bloomFilter::mightContain);
+        assertThat(bloomFilter.isSaturated()).isFalse();
+    }
+
+    @Test
+    void mightContain_falsePositiveProbabilityAsConfigured() {
+        IdempotenceIdBloomFilter bloomFilter = IdempotenceIdBloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> bloomFilter.put("idempotence-id-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> bloomFilter.mightContain("other-idempotence-id-" + i))
+                .count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void isSaturated_moreInsertionsThanExpected() {
+        IdempotenceIdBloomFilter bloomFilter = IdempotenceIdBloomFilter.create(2, 0.01);
+
+        IntStream.range(0, 3).forEach(i -> bloomFilter.put("idempotence-id-" + i));
+
+        assertThat(bloomFilter.isSaturated()).isTrue();
+    }
+
+    @Test
+    void create_invalidArguments() {
+        assertThatThrownBy(() -> IdempotenceIdBloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IdempotenceIdBloomFilter.create(100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -7,13 +7,19 @@ import ch.admin.bit.jeap.errorhandling.domain.manualtask.taskFactory.TaskFactory
 import ch.admin.bit.jeap.errorhandling.domain.metrics.ErrorHandlingMetricsService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.strategy.ResendingStrategy;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchResendResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaFailedEventResender;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendFailedException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementClient;
-import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +31,8 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -52,13 +60,19 @@ class ManualResendTest {
     @MockitoBean
     private TaskManagementClient taskManagementClient;
     @MockitoBean
-    private ErrorFactory errorFactory;
-    @MockitoBean
     private ResendingStrategy resendingStrategy;
     @MockitoBean
     private TaskFactory taskFactory;
     @MockitoBean
     private AuditLogService auditLogService;
+    @MockitoBean
+    private ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    @MockitoBean
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @MockitoBean
+    private ErrorAttemptRepository errorAttemptRepository;
+    @MockitoBean
+    private StackTraceRepository stackTraceRepository;
     @Mock(lenient = true)
     private Error error;
     private ErrorState state;
@@ -69,6 +83,7 @@ class ManualResendTest {
     @BeforeEach
     void setup() {
         when(errorRepository.getReferenceById(errorId)).thenReturn(error);
+        when(error.getId()).thenReturn(errorId);
         when(error.getState()).then(a -> state);
         doAnswer(a -> state = a.getArgument(0)).when(error).setState(any());
         when(error.getManualTaskId()).thenReturn(taskId);
@@ -88,16 +103,17 @@ class ManualResendTest {
     }
 
     @Test
-    void manualResendPermanent() throws TaskManagementException {
+    void manualResendPermanent() {
         state = ErrorState.PERMANENT;
 
         target.manualResend(errorId);
 
-        Assertions.assertEquals(ErrorState.PERMANENT_RETRIED, state);
-        verify(taskManagementClient).closeTask(taskId);
+        Assertions.assertEquals(ErrorState.RESOLVE_ON_MANUALTASK, state);
+        verify(taskOutboxEntryRepository).save(argThat(entry ->
+                entry.getErrorId().equals(errorId) && entry.getAction() == TaskOutboxEntry.Action.CLOSE_TASK));
         verify(failedEventResender).resend(error);
         verify(auditLogService).logResendCausingEvent(error);
-        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService, taskOutboxEntryRepository);
     }
 
     @Test
@@ -113,26 +129,86 @@ class ManualResendTest {
     }
 
     @Test
-    void manualResendPermanentFailedManualTask() throws TaskManagementException {
-        state = ErrorState.PERMANENT;
-        doThrow(mock(TaskManagementException.class)).when(taskManagementClient).closeTask(taskId);
+    void manualResendAlreadyClosed() {
+        state = ErrorState.TEMPORARY_RETRIED;
 
-        target.manualResend(errorId);
+        Assertions.assertThrows(IllegalStateException.class, () -> target.manualResend(errorId));
 
-        Assertions.assertEquals(ErrorState.RESOLVE_ON_MANUALTASK, state);
-        verify(taskManagementClient).closeTask(taskId);
-        verify(failedEventResender).resend(error);
+        verify(error, never()).setState(any());
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
+    }
+
+    @Test
+    void manualResends() {
+        state = ErrorState.SEND_TO_MANUALTASK;
+        when(failedEventResender.resendAll(List.of(error))).thenReturn(new BatchResendResult(Map.of()));
+
+        BatchResendResult result = target.manualResends(List.of(errorId, errorId));
+
+        Assertions.assertTrue(result.isResent(error));
+        Assertions.assertEquals(ErrorState.PERMANENT_RETRIED, state);
+        verify(failedEventResender).resendAll(List.of(error));
         verify(auditLogService).logResendCausingEvent(error);
         verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
     }
 
     @Test
-    void manualResendAlreadyClosed() {
+    void manualResendsFailed_errorUnchanged() {
+        state = ErrorState.SEND_TO_MANUALTASK;
+        ResendFailedException failure = ResendFailedException.resendToKafkaFailed("causing-event-id", errorId, "topic", "default", new RuntimeException());
+        when(failedEventResender.resendAll(List.of(error))).thenReturn(new BatchResendResult(Map.of(errorId, failure)));
+
+        BatchResendResult result = target.manualResends(List.of(errorId));
+
+        Assertions.assertSame(failure, result.getFailure(error));
+        Assertions.assertEquals(ErrorState.SEND_TO_MANUALTASK, state);
+        verify(error, never()).setState(any());
+        verify(failedEventResender).resendAll(List.of(error));
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
+    }
+
+    @Test
+    void manualResendsAlreadyClosed_nothingResent() {
         state = ErrorState.TEMPORARY_RETRIED;
 
-        Assertions.assertThrows(IllegalStateException.class, () -> target.manualResend(errorId));
+        Assertions.assertThrows(IllegalStateException.class, () -> target.manualResends(List.of(errorId)));
 
         verify(error, never()).setState(any());
         verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
     }
+
+    @Test
+    void resendForBulkOperation_skipsErrorsNoLongerRetryable() {
+        state = ErrorState.TEMPORARY_RETRY_PENDING;
+        Error retriedError = mock(Error.class);
+        when(retriedError.getState()).thenReturn(ErrorState.TEMPORARY_RETRIED);
+        User user = User.builder().authContext("USER").subject("subject").build();
+        UUID retriedErrorId = UUID.randomUUID();
+        when(errorRepository.findAllById(List.of(errorId, retriedErrorId))).thenReturn(List.of(error, retriedError));
+        when(failedEventResender.resendAll(List.of(error))).thenReturn(new BatchResendResult(Map.of()));
+
+        BulkBatchResult result = target.resendForBulkOperation(List.of(errorId, retriedErrorId), user);
+
+        Assertions.assertEquals(new BulkBatchResult(1, 1, 0), result);
+        Assertions.assertEquals(ErrorState.TEMPORARY_RETRIED, state);
+        verify(retriedError, never()).setState(any());
+        verify(scheduledResendService).cancelScheduledResends(List.of(error));
+        verify(auditLogService).logResendCausingEvents(List.of(error), user);
+        verifyNoMoreInteractions(scheduledResendService, failedEventResender, taskManagementClient, auditLogService);
+    }
+
+    @Test
+    void resendForBulkOperation_failedResendCounted() {
+        state = ErrorState.SEND_TO_MANUALTASK;
+        User user = User.builder().authContext("USER").subject("subject").build();
+        ResendFailedException failure = ResendFailedException.resendToKafkaFailed("causing-event-id", errorId, "topic", "default", new RuntimeException());
+        when(errorRepository.findAllById(List.of(errorId))).thenReturn(List.of(error));
+        when(failedEventResender.resendAll(List.of(error))).thenReturn(new BatchResendResult(Map.of(errorId, failure)));
+
+        BulkBatchResult result = target.resendForBulkOperation(List.of(errorId), user);
+
+        Assertions.assertEquals(new BulkBatchResult(0, 0, 1), result);
+        verify(error, never()).setState(any());
+        verify(auditLogService).logResendCausingEvents(List.of(), user);
+    }
 }
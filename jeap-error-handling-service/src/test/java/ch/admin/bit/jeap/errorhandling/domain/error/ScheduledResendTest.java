@@ -8,14 +8,20 @@ import ch.admin.bit.jeap.errorhandling.domain.manualtask.taskFactory.TaskFactory
 import ch.admin.bit.jeap.errorhandling.domain.metrics.ErrorHandlingMetricsService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.strategy.ResendingStrategy;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchResendResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaFailedEventResender;
-import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskDto;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendFailedException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementClient;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttempt;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,13 +32,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
-import org.springframework.context.annotation.Profile;
-import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -40,13 +45,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
-@ActiveProfiles("scheduled-resend-test")
 @SpringBootTest
 @ExtendWith(MockitoExtension.class)
 @Import(ErrorService.class)
 class ScheduledResendTest {
     private static final UUID errorId = UUID.randomUUID();
-    private static final UUID newErrorId = UUID.randomUUID();
     @MockitoBean
     private ErrorGroupConfigProperties errorGroupConfigProperties;
     @MockitoBean
@@ -71,27 +74,20 @@ class ScheduledResendTest {
     private ScheduledResend scheduledResend;
     @MockitoBean
     private AuditLogService auditLogService;
-    @Mock
-    private TaskDto taskDto;
+    @MockitoBean
+    private ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    @MockitoBean
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @MockitoBean
+    private ErrorAttemptRepository errorAttemptRepository;
+    @MockitoBean
+    private StackTraceRepository stackTraceRepository;
+    @Captor
+    private ArgumentCaptor<ErrorAttempt> attemptCapture;
     @Captor
-    private ArgumentCaptor<Error> newErrorCapture;
-    private final UUID taskId = UUID.randomUUID();
+    private ArgumentCaptor<TaskOutboxEntry> taskOutboxEntryCapture;
     private Error error;
 
-    @Configuration
-    @Profile("scheduled-resend-test")
-    static class TestConfig {
-        @Bean
-        ErrorFactory errorFactory() {
-            return new ErrorFactory() {
-                @Override
-                UUID randomErrorId() {
-                    return newErrorId;
-                }
-            };
-        }
-    }
-
     @SuppressWarnings("SpringJavaAutowiredMembersInspection")
     @Autowired
     private ErrorService target;
@@ -100,7 +96,7 @@ class ScheduledResendTest {
     void setup() {
         when(scheduledResend.getErrorId()).thenReturn(errorId);
         error = ErrorStubs.createTemporaryError();
-        when(errorRepository.getReferenceById(errorId)).thenReturn(error);
+        lenient().when(errorRepository.getReferenceById(errorId)).thenReturn(error);
     }
 
     @Test
@@ -115,44 +111,125 @@ class ScheduledResendTest {
     }
 
     @Test
-    void scheduledResendFails_createPermanentError() {
-        doReturn(taskId).when(taskDto).getId();
-        doReturn(taskDto).when(taskFactory).create(any());
-        doThrow(new RuntimeException()).when(failedEventResender).resend(error);
+    void scheduledResendFails_errorBecomesPermanent() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doThrow(new RuntimeException("resend failed")).when(failedEventResender).resend(error);
+        doReturn(Optional.empty()).when(resendingStrategy).determineResend(eq(1), any(), any(), any(), any());
+        doReturn(error).when(errorRepository).save(error);
 
         target.scheduledResend(scheduledResend);
 
-        assertEquals(ErrorState.TEMPORARY_RETRIED, error.getState());
+        assertEquals(ErrorState.SEND_TO_MANUALTASK, error.getState());
+        assertEquals(2, error.getAttemptCount());
         verify(scheduledResendService).setResent(scheduledResend);
         verify(failedEventResender).resend(error);
-        verify(taskManagementClient).createTask(taskDto);
+        verify(errorAttemptRepository).save(attemptCapture.capture());
+        verify(taskOutboxEntryRepository).save(taskOutboxEntryCapture.capture());
         verify(errorRepository, atLeastOnce()).getReferenceById(errorId);
-        verify(errorRepository, atLeastOnce()).countErrorsForCausingEvent(error.getCausingEventMetadata().getId());
-        verify(errorRepository, atLeastOnce()).save(newErrorCapture.capture());
+        verify(errorRepository).save(error);
         verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
-        assertEquals(newErrorId, newErrorCapture.getValue().getId());
-        assertEquals(taskId, newErrorCapture.getValue().getManualTaskId());
-        assertEquals(ErrorState.PERMANENT, newErrorCapture.getValue().getState());
+        assertEquals(errorId, attemptCapture.getValue().getErrorId());
+        assertEquals("resend failed", attemptCapture.getValue().getMessage());
+        assertNull(attemptCapture.getValue().getErrorEventIdempotenceId());
+        assertEquals(errorId, taskOutboxEntryCapture.getValue().getErrorId());
+        assertEquals(TaskOutboxEntry.Action.CREATE_TASK, taskOutboxEntryCapture.getValue().getAction());
     }
 
     @Test
-    void scheduledResendFails_createTemporaryError() {
-        doThrow(new RuntimeException()).when(failedEventResender).resend(error);
-        doReturn(Optional.of(ZonedDateTime.now())).when(resendingStrategy).determineResend(anyInt(), any(), any(), any(), any());
+    void scheduledResendFails_resendErrorAgain() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doThrow(new RuntimeException("resend failed")).when(failedEventResender).resend(error);
+        doReturn(Optional.of(ZonedDateTime.now())).when(resendingStrategy).determineResend(eq(1), any(), any(), any(), any());
         doReturn(error).when(errorRepository).save(error);
 
         target.scheduledResend(scheduledResend);
 
-        assertEquals(ErrorState.TEMPORARY_RETRIED, error.getState());
+        assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, error.getState());
+        assertEquals(2, error.getAttemptCount());
+        assertNull(error.getManualTaskId());
         verify(scheduledResendService).setResent(scheduledResend);
-        verify(scheduledResendService).scheduleResend(eq(newErrorId), any());
+        verify(scheduledResendService).scheduleResend(eq(errorId), any());
         verify(failedEventResender).resend(error);
+        verify(errorAttemptRepository).save(attemptCapture.capture());
         verify(errorRepository, atLeastOnce()).getReferenceById(errorId);
-        verify(errorRepository, atLeastOnce()).countErrorsForCausingEvent(error.getCausingEventMetadata().getId());
-        verify(errorRepository, atLeastOnce()).save(newErrorCapture.capture());
+        verify(errorRepository).save(error);
+        verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
+        verifyNoInteractions(taskOutboxEntryRepository);
+        assertEquals(errorId, attemptCapture.getValue().getErrorId());
+    }
+
+    @Test
+    void sendScheduledResends() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doReturn(List.of(error)).when(errorRepository).findAllById(List.of(errorId));
+        doReturn(new BatchResendResult(Map.of())).when(failedEventResender).resendAll(List.of(error));
+
+        List<ScheduledResendOutcome> outcomes = target.sendScheduledResends(List.of(scheduledResend));
+
+        assertEquals(List.of(new ScheduledResendOutcome(scheduledResend, null)), outcomes);
+        assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, error.getState());
+        verify(failedEventResender).resendAll(List.of(error));
+        verify(errorRepository).findAllById(List.of(errorId));
+        verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
+    }
+
+    @Test
+    void sendScheduledResendsFail_failureInOutcome() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doReturn(List.of(error)).when(errorRepository).findAllById(List.of(errorId));
+        ResendFailedException failure = ResendFailedException.resendToKafkaFailed("causing-event-id", errorId, "topic", "default", new RuntimeException());
+        doReturn(new BatchResendResult(Map.of(errorId, failure))).when(failedEventResender).resendAll(List.of(error));
+
+        List<ScheduledResendOutcome> outcomes = target.sendScheduledResends(List.of(scheduledResend));
+
+        assertEquals(List.of(new ScheduledResendOutcome(scheduledResend, failure.getMessage())), outcomes);
+    }
+
+    @Test
+    void recordScheduledResends() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doReturn(List.of(error)).when(errorRepository).findAllById(List.of(errorId));
+
+        target.recordScheduledResends(List.of(new ScheduledResendOutcome(scheduledResend, null)));
+
+        assertEquals(ErrorState.TEMPORARY_RETRIED, error.getState());
+        verify(scheduledResendService).setResent(scheduledResend);
+        verify(errorRepository).findAllById(List.of(errorId));
+        verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
+    }
+
+    @Test
+    void recordScheduledResendsFailed_resendErrorAgain() {
+        ReflectionTestUtils.setField(error, "id", errorId);
+        doReturn(List.of(error)).when(errorRepository).findAllById(List.of(errorId));
+        doReturn(Optional.of(ZonedDateTime.now())).when(resendingStrategy).determineResend(eq(1), any(), any(), any(), any());
+        doReturn(error).when(errorRepository).save(error);
+
+        target.recordScheduledResends(List.of(new ScheduledResendOutcome(scheduledResend, "resend failed")));
+
+        assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, error.getState());
+        assertEquals(2, error.getAttemptCount());
+        verify(scheduledResendService).setResent(scheduledResend);
+        verify(scheduledResendService).scheduleResend(eq(errorId), any());
+        verify(errorAttemptRepository).save(attemptCapture.capture());
+        verify(errorRepository).findAllById(List.of(errorId));
+        verify(errorRepository).save(error);
+        verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
+        assertEquals("resend failed", attemptCapture.getValue().getMessage());
+    }
+
+    @Test
+    void scheduledResendsOfDeletedError_skippedAndMarkedAsResent() {
+        doReturn(List.of()).when(errorRepository).findAllById(List.of(errorId));
+        doReturn(new BatchResendResult(Map.of())).when(failedEventResender).resendAll(List.of());
+
+        List<ScheduledResendOutcome> outcomes = target.sendScheduledResends(List.of(scheduledResend));
+        target.recordScheduledResends(outcomes);
+
+        verify(scheduledResendService).setResentIfExists(scheduledResend);
+        verify(errorRepository, times(2)).findAllById(List.of(errorId));
+        verify(failedEventResender).resendAll(List.of());
         verifyNoMoreInteractions(errorRepository, scheduledResendService, failedEventResender, taskManagementClient);
-        assertEquals(newErrorId, newErrorCapture.getValue().getId());
-        assertNull(newErrorCapture.getValue().getManualTaskId());
-        assertEquals(ErrorState.TEMPORARY_RETRY_PENDING, newErrorCapture.getValue().getState());
+        verifyNoInteractions(errorAttemptRepository);
     }
 }
@@ -13,8 +13,12 @@ import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementC
 import ch.admin.bit.jeap.errorhandling.infrastructure.manualtask.TaskManagementException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorAttemptRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepository;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,6 +30,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -35,6 +40,7 @@ import static org.mockito.Mockito.*;
 @Import(ErrorService.class)
 class SyncWithManualTasksTest {
     private final static UUID taskId = UUID.randomUUID();
+    private final static UUID errorId = UUID.randomUUID();
     @MockitoBean
     private ErrorGroupConfigProperties errorGroupConfigProperties;
     @MockitoBean
@@ -54,11 +60,17 @@ class SyncWithManualTasksTest {
     @MockitoBean
     private ResendingStrategy resendingStrategy;
     @MockitoBean
-    private ErrorFactory errorFactory;
-    @MockitoBean
     private TaskFactory taskFactory;
     @MockitoBean
     private AuditLogService auditLogService;
+    @MockitoBean
+    private ErrorEventDuplicateFilter errorEventDuplicateFilter;
+    @MockitoBean
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @MockitoBean
+    private ErrorAttemptRepository errorAttemptRepository;
+    @MockitoBean
+    private StackTraceRepository stackTraceRepository;
     @Mock(lenient = true)
     TaskDto taskDto;
     @Mock(lenient = true)
@@ -75,6 +87,45 @@ class SyncWithManualTasksTest {
         when(taskFactory.create(error)).thenReturn(taskDto);
         when(taskDto.getId()).thenReturn(taskId);
         doAnswer(a -> state = a.getArgument(0)).when(error).setState(any());
+        when(errorRepository.findById(errorId)).thenReturn(Optional.of(error));
+    }
+
+    @Test
+    void executeTaskOutboxEntry_createTask() throws TaskManagementException {
+        state = ErrorState.SEND_TO_MANUALTASK;
+        TaskOutboxEntry entry = new TaskOutboxEntry(errorId, TaskOutboxEntry.Action.CREATE_TASK);
+
+        boolean completed = target.executeTaskOutboxEntry(entry);
+
+        Assertions.assertTrue(completed);
+        Assertions.assertEquals(ErrorState.PERMANENT, state);
+        verify(taskManagementClient).createTask(taskDto);
+        verify(taskOutboxEntryRepository).deleteById(entry.getId());
+    }
+
+    @Test
+    void executeTaskOutboxEntry_closeTaskFailed_keepsEntry() throws TaskManagementException {
+        state = ErrorState.RESOLVE_ON_MANUALTASK;
+        doThrow(mock(TaskManagementException.class)).when(taskManagementClient).closeTask(taskId);
+        TaskOutboxEntry entry = new TaskOutboxEntry(errorId, TaskOutboxEntry.Action.CLOSE_TASK);
+
+        boolean completed = target.executeTaskOutboxEntry(entry);
+
+        Assertions.assertFalse(completed);
+        Assertions.assertEquals(ErrorState.RESOLVE_ON_MANUALTASK, state);
+        verify(taskOutboxEntryRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void executeTaskOutboxEntry_errorNoLongerPending_removesEntryWithoutCall() {
+        state = ErrorState.DELETED;
+        TaskOutboxEntry entry = new TaskOutboxEntry(errorId, TaskOutboxEntry.Action.CREATE_TASK);
+
+        boolean completed = target.executeTaskOutboxEntry(entry);
+
+        Assertions.assertTrue(completed);
+        verify(taskOutboxEntryRepository).deleteById(entry.getId());
+        verifyNoInteractions(taskManagementClient);
     }
 
     @Test
@@ -0,0 +1,161 @@
+package ch.admin.bit.jeap.errorhandling.domain.eventHandler;
+
+import ch.admin.bit.jeap.errorhandling.TestMessageProcessingException;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.*;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEventBuilder;
+import ch.admin.bit.jeap.messaging.avro.security.AvroClassSecurity;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static ch.admin.bit.jeap.messaging.avro.errorevent.MessageHandlerExceptionInformation.Temporality.PERMANENT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Import(PersistenceTestConfig.class)
+@ExtendWith(MockitoExtension.class)
+class ErrorEventBatchHandlerServiceTest {
+
+    private static final String CLUSTER_NAME = "testcluster";
+
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ErrorService errorServiceMock;
+    @Mock
+    private ErrorEventMapper errorEventMapperMock;
+    @Mock
+    private Error firstErrorMock;
+    @Mock
+    private Error secondErrorMock;
+
+    private ErrorEventBatchHandlerService errorEventBatchHandlerService;
+
+    @BeforeAll
+    static void installAvroClassSecurity() {
+        AvroClassSecurity.installDefaultIfMissing();
+    }
+
+    @BeforeEach
+    void setUp() {
+        errorEventBatchHandlerService = new ErrorEventBatchHandlerService(errorServiceMock,
+                causingEventRepository, errorEventMapperMock, transactionManager);
+    }
+
+    @Test
+    void handleBatch() {
+        MessageProcessingFailedEvent firstFailedEvent = createMessageProcessingFailedEvent(1);
+        MessageProcessingFailedEvent secondFailedEvent = createMessageProcessingFailedEvent(2);
+        doReturn(createCausingEvent("first")).when(errorEventMapperMock).toCausingEvent(CLUSTER_NAME, firstFailedEvent);
+        doReturn(createCausingEvent("second")).when(errorEventMapperMock).toCausingEvent(CLUSTER_NAME, secondFailedEvent);
+        doReturn(firstErrorMock).when(errorEventMapperMock).toError(eq(firstFailedEvent), any());
+        doReturn(secondErrorMock).when(errorEventMapperMock).toError(eq(secondFailedEvent), any());
+
+        errorEventBatchHandlerService.handleBatch(CLUSTER_NAME, List.of(firstFailedEvent, secondFailedEvent, firstFailedEvent));
+
+        verify(errorServiceMock).handleErrorBatch(List.of(firstErrorMock, secondErrorMock));
+        verify(errorServiceMock, never()).createManualTask(any());
+        assertTrue(causingEventRepository.findByCausingEventId("first").isPresent());
+        assertTrue(causingEventRepository.findByCausingEventId("second").isPresent());
+    }
+
+    @Test
+    void handleBatch_skipsAlreadyHandledErrorEvents() {
+        MessageProcessingFailedEvent handledFailedEvent = createMessageProcessingFailedEvent(1);
+        MessageProcessingFailedEvent newFailedEvent = createMessageProcessingFailedEvent(2);
+        doReturn(Set.of(handledFailedEvent.getIdentity().getIdempotenceId())).when(errorServiceMock).findHandledErrorEvents(any());
+        doReturn(createCausingEvent("new")).when(errorEventMapperMock).toCausingEvent(CLUSTER_NAME, newFailedEvent);
+        doReturn(secondErrorMock).when(errorEventMapperMock).toError(eq(newFailedEvent), any());
+
+        errorEventBatchHandlerService.handleBatch(CLUSTER_NAME, List.of(handledFailedEvent, newFailedEvent));
+
+        verify(errorEventMapperMock, never()).toCausingEvent(CLUSTER_NAME, handledFailedEvent);
+        verify(errorServiceMock).handleErrorBatch(List.of(secondErrorMock));
+    }
+
+    @Test
+    void handleBatch_onlyDuplicates() {
+        MessageProcessingFailedEvent handledFailedEvent = createMessageProcessingFailedEvent(1);
+        doReturn(Set.of(handledFailedEvent.getIdentity().getIdempotenceId())).when(errorServiceMock).findHandledErrorEvents(any());
+
+        errorEventBatchHandlerService.handleBatch(CLUSTER_NAME, List.of(handledFailedEvent));
+
+        verifyNoInteractions(errorEventMapperMock);
+        verify(errorServiceMock, never()).handleErrorBatch(any());
+    }
+
+    @Test
+    void handleBatch_updatesExistingCausingEventWithLatestOccurrence() {
+        causingEventRepository.saveAndFlush(createCausingEvent("existing", new byte[]{0, 52, 52, 52}));
+        MessageProcessingFailedEvent failedEvent = createMessageProcessingFailedEvent(1);
+        doReturn(createCausingEvent("existing", new byte[]{4, 52, 52, 52})).when(errorEventMapperMock).toCausingEvent(CLUSTER_NAME, failedEvent);
+        doReturn(firstErrorMock).when(errorEventMapperMock).toError(eq(failedEvent), any());
+
+        errorEventBatchHandlerService.handleBatch(CLUSTER_NAME, List.of(failedEvent));
+
+        CausingEvent persistentCausingEvent = causingEventRepository.findByCausingEventId("existing").orElseThrow();
+        assertArrayEquals(new byte[]{4, 52, 52, 52}, persistentCausingEvent.getMessage().getPayload());
+    }
+
+    private MessageProcessingFailedEvent createMessageProcessingFailedEvent(long offset) {
+        ConsumerRecord<?, ?> consumerRecord = new ConsumerRecord<>("Topic", 1, offset, null, "payload");
+        TestMessageProcessingException eventHandleException = new TestMessageProcessingException(PERMANENT, "500", "Payload");
+        return MessageProcessingFailedEventBuilder.create()
+                .eventHandleException(eventHandleException)
+                .serviceName("service")
+                .systemName("system")
+                .originalMessage(consumerRecord, null)
+                .build();
+    }
+
+    private CausingEvent createCausingEvent(String eventId) {
+        return createCausingEvent(eventId, "test".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CausingEvent createCausingEvent(String eventId, byte[] payload) {
+        return CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload(payload)
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(EventMetadata.builder()
+                        .id(eventId)
+                        .created(ZonedDateTime.now())
+                        .idempotenceId("idem-" + eventId)
+                        .publisher(EventPublisher.builder()
+                                .service("service")
+                                .system("system")
+                                .build())
+                        .type(EventType.builder()
+                                .name("name")
+                                .version("1.0.0")
+                                .build())
+                        .build())
+                .build();
+    }
+}
@@ -1,7 +1,10 @@
 package ch.admin.bit.jeap.errorhandling.domain.eventHandler;
 
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DomainEventDeserializerProvider;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventHeaders;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.OriginalTraceContext;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTrace;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.StackTraceRepository;
 import ch.admin.bit.jeap.messaging.kafka.properties.KafkaProperties;
 import ch.admin.bit.jeap.messaging.kafka.tracing.TraceContext;
 import ch.admin.bit.jeap.messaging.kafka.tracing.TraceContextProvider;
@@ -11,8 +14,8 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import java.lang.reflect.Method;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 class ErrorEventMapperTest {
 
@@ -22,7 +25,7 @@ class ErrorEventMapperTest {
         TraceContextProvider provider = mock(TraceContextProvider.class);
         when(provider.getTraceContext()).thenReturn(
                 new TraceContext(1L, 2L, 3L, 4L, "00000000000000010000000000000002", sampled));
-        ErrorEventMapper mapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), provider, mock(KafkaProperties.class));
+        ErrorEventMapper mapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), provider, mock(KafkaProperties.class), mock(StackTraceRepository.class), mock(CausingEventHeaders.class));
 
         OriginalTraceContext result = mapper.retrieveTraceContextFromCurrentTraceContext();
 
@@ -35,7 +38,7 @@ class ErrorEventMapperTest {
     void retrieveTraceContextFromCurrentTraceContext_returnsNull_whenNoTraceContextActive() {
         TraceContextProvider provider = mock(TraceContextProvider.class);
         when(provider.getTraceContext()).thenReturn(null);
-        ErrorEventMapper mapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), provider, mock(KafkaProperties.class));
+        ErrorEventMapper mapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), provider, mock(KafkaProperties.class), mock(StackTraceRepository.class), mock(CausingEventHeaders.class));
 
         OriginalTraceContext result = mapper.retrieveTraceContextFromCurrentTraceContext();
 
@@ -44,7 +47,7 @@ class ErrorEventMapperTest {
 
     @Test
     void replaceNullCharWithBlank_stringWithNullChar_returnStringWithBlank() throws Exception {
-        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class));
+        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class), mock(StackTraceRepository.class), mock(CausingEventHeaders.class));
         final char nullChar = '\u0000';
         final String result = (String) getReplaceNullCharWithBlankMethod().invoke(errorEventMapper, "myString" + nullChar + "Test" + nullChar);
         assertThat(result).isEqualTo("myString Test ");
@@ -52,12 +55,37 @@ class ErrorEventMapperTest {
 
     @Test
     void replaceNullCharWithBlank_stringIsNull_returnNull() throws Exception {
-        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class));
+        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class), mock(StackTraceRepository.class), mock(CausingEventHeaders.class));
         final String myString = null;
         final String result = (String) getReplaceNullCharWithBlankMethod().invoke(errorEventMapper, myString);
         assertThat(result).isNull();
     }
 
+    @Test
+    void storeStackTrace_storesStackTraceOnceAndReturnsReference() throws Exception {
+        StackTraceRepository stackTraceRepository = mock(StackTraceRepository.class);
+        when(stackTraceRepository.saveIfAbsent(any())).thenAnswer(invocation -> invocation.getArgument(0, StackTrace.class).getHash());
+        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class), stackTraceRepository, mock(CausingEventHeaders.class));
+        Method storeStackTrace = ErrorEventMapper.class.getDeclaredMethod("storeStackTrace", String.class);
+        storeStackTrace.setAccessible(true);
+
+        String reference = (String) storeStackTrace.invoke(errorEventMapper, "java.lang.NullPointerException");
+
+        assertThat(reference).isEqualTo(StackTrace.of("java.lang.NullPointerException").getHash());
+        verify(stackTraceRepository).saveIfAbsent(argThat(stackTrace -> stackTrace.getStackTrace().equals("java.lang.NullPointerException")));
+    }
+
+    @Test
+    void storeStackTrace_noStackTrace_returnNull() throws Exception {
+        StackTraceRepository stackTraceRepository = mock(StackTraceRepository.class);
+        ErrorEventMapper errorEventMapper = new ErrorEventMapper(mock(DomainEventDeserializerProvider.class), mock(TraceContextProvider.class), mock(KafkaProperties.class), stackTraceRepository, mock(CausingEventHeaders.class));
+        Method storeStackTrace = ErrorEventMapper.class.getDeclaredMethod("storeStackTrace", String.class);
+        storeStackTrace.setAccessible(true);
+
+        assertThat(storeStackTrace.invoke(errorEventMapper, (Object) null)).isNull();
+        verifyNoInteractions(stackTraceRepository);
+    }
+
     private Method getReplaceNullCharWithBlankMethod() throws NoSuchMethodException {
         final Method method = ErrorEventMapper.class.getDeclaredMethod("replaceNullCharWithBlank", String.class);
         method.setAccessible(true);
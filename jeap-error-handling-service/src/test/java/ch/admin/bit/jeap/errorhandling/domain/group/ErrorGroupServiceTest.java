@@ -10,18 +10,26 @@ import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepo
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventMetadata;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventPublisher;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.EventType;
+import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
 class ErrorGroupServiceTest {
@@ -72,6 +80,43 @@ class ErrorGroupServiceTest {
         Mockito.verify(errorGroupRepository, never()).save(errorGroup);
     }
 
+    @Test
+    void testAssignToErrorGroup_cachedGroup_resolvedWithoutLookup() {
+        Error error = mockError("test-service", "test-event", "test-code", "test-stack-trace-hash", "test-stack-trace", "test-error-message");
+        Error otherError = mockError("test-service", "test-event", "test-code", "test-stack-trace-hash", "test-stack-trace", "other-error-message");
+        ErrorGroupRepository errorGroupRepository = mockErrorGroupRepository();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ErrorGroupService errorGroupService = createErrorGroupService(errorGroupRepository, meterRegistry);
+        ErrorGroup errorGroup = errorGroupService.assignToErrorGroup(error);
+        when(errorGroupRepository.getReferenceById(errorGroup.getId())).thenReturn(errorGroup);
+
+        ErrorGroup errorGroupAssigned = errorGroupService.assignToErrorGroup(otherError);
+
+        assertThat(errorGroupAssigned).isSameAs(errorGroup);
+        Mockito.verify(otherError).setErrorGroup(errorGroup);
+        Mockito.verify(errorGroupRepository).findByErrorPublisherAndErrorCodeAndEventNameAndErrorStackTraceHash(any(), any(), any(), any());
+        Mockito.verify(errorGroupRepository).save(any());
+        assertThat(cacheGets(meterRegistry, "hit")).isEqualTo(1);
+        assertThat(cacheGets(meterRegistry, "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void testAssignToErrorGroup_evictedGroup_lookedUpAgain() {
+        Error error = mockError("test-service", "test-event", "test-code", "test-stack-trace-hash", "test-stack-trace", "test-error-message");
+        ErrorGroupRepository errorGroupRepository = mockErrorGroupRepository();
+        ErrorGroupConfigProperties errorGroupConfigProperties = new ErrorGroupConfigProperties();
+        ErrorGroupIdCache errorGroupIdCache = new ErrorGroupIdCache(errorGroupConfigProperties, new SimpleMeterRegistry());
+        ErrorGroupService errorGroupService = new ErrorGroupService(errorGroupConfigProperties, errorGroupRepository,
+                mock(PlatformTransactionManager.class), null, null, null, errorGroupIdCache);
+        ErrorGroup errorGroup = errorGroupService.assignToErrorGroup(error);
+
+        errorGroupIdCache.evict(List.of(errorGroup.getId()));
+        errorGroupService.assignToErrorGroup(error);
+
+        Mockito.verify(errorGroupRepository, times(2)).findByErrorPublisherAndErrorCodeAndEventNameAndErrorStackTraceHash(any(), any(), any(), any());
+        Mockito.verify(errorGroupRepository, never()).getReferenceById(any());
+    }
+
     @Test
     void testAssignToErrorGroup_WhenNoStackTraceHash_ThenNoGroup() {
         Error error = mockError("test-service", "test-event", "test-code", null, null, "test-error-message");
@@ -184,6 +229,40 @@ class ErrorGroupServiceTest {
         assertThat(result).isSameAs(errorGroupAggregatedData);
     }
 
+    @Test
+    void testFindErrorGroupAggregatedData_withoutPeriod_readFromStats() {
+        final ErrorGroupAggregatedData errorGroupAggregatedData = mock(ErrorGroupAggregatedData.class);
+        ErrorGroupRepository errorGroupRepository = mockErrorGroupRepository();
+        when(errorGroupRepository.findErrorGroupAggregatedDataFromStats(any(), any(), any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(List.of(errorGroupAggregatedData)));
+        ErrorGroupService errorGroupService = createErrorGroupService(errorGroupRepository, false);
+
+        ErrorGroupAggregatedDataList result = errorGroupService.findErrorGroupAggregatedData(
+                ErrorGroupSearchCriteria.builder().source("source").build());
+
+        assertThat(result.groups()).containsExactly(errorGroupAggregatedData);
+        Mockito.verify(errorGroupRepository).findErrorGroupAggregatedDataFromStats(eq(false), eq("source"), isNull(), isNull(), isNull(), any());
+        Mockito.verify(errorGroupRepository, never()).findErrorGroupAggregatedData(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testFindErrorGroupAggregatedData_withPeriod_aggregatedOverErrors() {
+        final ErrorGroupAggregatedData errorGroupAggregatedData = mock(ErrorGroupAggregatedData.class);
+        final ZonedDateTime dateFrom = ZonedDateTime.now().minusDays(1);
+        ErrorGroupRepository errorGroupRepository = mockErrorGroupRepository();
+        when(errorGroupRepository.findErrorGroupAggregatedData(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(List.of(errorGroupAggregatedData)));
+        ErrorGroupService errorGroupService = createErrorGroupService(errorGroupRepository, false);
+
+        ErrorGroupAggregatedDataList result = errorGroupService.findErrorGroupAggregatedData(
+                ErrorGroupSearchCriteria.builder().dateFrom(dateFrom).build());
+
+        assertThat(result.groups()).containsExactly(errorGroupAggregatedData);
+        Mockito.verify(errorGroupRepository).findErrorGroupAggregatedData(eq(false), eq(dateFrom),
+                eq(ZonedDateTime.parse(ErrorGroupService.FAR_FAR_IN_THE_FUTURE)), isNull(), isNull(), isNull(), isNull(), any());
+        Mockito.verify(errorGroupRepository, never()).findErrorGroupAggregatedDataFromStats(any(), any(), any(), any(), any(), any());
+    }
+
     @Test
     void testCreateIssue_Success() {
         final UUID errorGroupId = UUID.randomUUID();
@@ -256,7 +335,22 @@ class ErrorGroupServiceTest {
     private ErrorGroupService createErrorGroupService(ErrorGroupRepository errorGroupRepository, boolean errorGroupingEnabled) {
         ErrorGroupConfigProperties errorGroupConfigProperties = new ErrorGroupConfigProperties();
         errorGroupConfigProperties.setErrorGroupingEnabled(errorGroupingEnabled);
-        return new ErrorGroupService(errorGroupConfigProperties, errorGroupRepository, mock(PlatformTransactionManager.class), null, null, null);
+        return new ErrorGroupService(errorGroupConfigProperties, errorGroupRepository, mock(PlatformTransactionManager.class), null, null, null,
+                new ErrorGroupIdCache(errorGroupConfigProperties, new SimpleMeterRegistry()));
+    }
+
+    private ErrorGroupService createErrorGroupService(ErrorGroupRepository errorGroupRepository, SimpleMeterRegistry meterRegistry) {
+        ErrorGroupConfigProperties errorGroupConfigProperties = new ErrorGroupConfigProperties();
+        return new ErrorGroupService(errorGroupConfigProperties, errorGroupRepository, mock(PlatformTransactionManager.class), null, null, null,
+                new ErrorGroupIdCache(errorGroupConfigProperties, meterRegistry));
+    }
+
+    private static double cacheGets(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", ErrorGroupIdCache.CACHE_NAME)
+                .tag("result", result)
+                .functionCounter()
+                .count();
     }
 
     private ErrorGroupService createErrorGroupServiceWithIssueTracking(ErrorGroupRepository errorGroupRepository,
@@ -271,7 +365,7 @@ class ErrorGroupServiceTest {
         issueTrackingProperties.setErrorHandlingServiceGroupUrlTemplate("http://localhost:8080/error-handling-service/error-group/{errorGroupId}");
         errorGroupConfigProperties.setIssueTracking(issueTrackingProperties);
         return new ErrorGroupService(errorGroupConfigProperties, errorGroupRepository, mock(PlatformTransactionManager.class),
-                descriptionGenerator, summaryGenerator, issueTracking);
+                descriptionGenerator, summaryGenerator, issueTracking, new ErrorGroupIdCache(errorGroupConfigProperties, new SimpleMeterRegistry()));
     }
 
     private ErrorGroupRepository mockErrorGroupRepository() {
@@ -0,0 +1,124 @@
+package ch.admin.bit.jeap.errorhandling.domain.housekeeping;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorDimensionCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorTablePartitions;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorTablePartitions.Partition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static ch.admin.bit.jeap.errorhandling.domain.housekeeping.RepositoryHousekeeping.ERROR_STATES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ErrorPartitionHousekeepingTest {
+
+    private static final ZonedDateTime NOW = ZonedDateTime.parse("2026-10-18T10:15:00+02:00");
+
+    @Mock
+    private ErrorTablePartitions errorTablePartitions;
+    @Mock
+    private ErrorStateCountRepository errorStateCountRepository;
+    @Mock
+    private ErrorDimensionCountRepository errorDimensionCountRepository;
+    @Mock
+    private ErrorGroupStatsRepository errorGroupStatsRepository;
+
+    private HouseKeepingServiceConfigProperties configProperties;
+    private ErrorPartitionHousekeeping errorPartitionHousekeeping;
+
+    @BeforeEach
+    void setUp() {
+        configProperties = new HouseKeepingServiceConfigProperties();
+        configProperties.setErrorPartitionMonthsAhead(2);
+        errorPartitionHousekeeping = new ErrorPartitionHousekeeping(errorTablePartitions, errorStateCountRepository,
+                errorDimensionCountRepository, errorGroupStatsRepository, configProperties);
+    }
+
+    @Test
+    void createPartitions_followingTheLastPartition() {
+        when(errorTablePartitions.findPartitions()).thenReturn(List.of(
+                partition("error_legacy", null, "2026-09-18T00:00:00Z"),
+                partition("error_default", null, null)));
+
+        errorPartitionHousekeeping.createPartitions(NOW);
+
+        InOrder inOrder = inOrder(errorTablePartitions);
+        inOrder.verify(errorTablePartitions).createPartition(instant("2026-09-18T00:00:00Z"), instant("2026-10-01T00:00:00Z"));
+        inOrder.verify(errorTablePartitions).createPartition(instant("2026-10-01T00:00:00Z"), instant("2026-11-01T00:00:00Z"));
+        inOrder.verify(errorTablePartitions).createPartition(instant("2026-11-01T00:00:00Z"), instant("2026-12-01T00:00:00Z"));
+        inOrder.verify(errorTablePartitions).createPartition(instant("2026-12-01T00:00:00Z"), instant("2027-01-01T00:00:00Z"));
+        verify(errorTablePartitions, times(4)).createPartition(any(), any());
+    }
+
+    @Test
+    void createPartitions_noneIfPartitionsExistAlready() {
+        when(errorTablePartitions.findPartitions()).thenReturn(List.of(
+                partition("error_p20261201", "2026-12-01T00:00:00Z", "2027-01-01T00:00:00Z")));
+
+        errorPartitionHousekeeping.createPartitions(NOW);
+
+        verify(errorTablePartitions, never()).createPartition(any(), any());
+    }
+
+    @Test
+    void createPartitions_noneIfLastPartitionIsUnbounded() {
+        when(errorTablePartitions.findPartitions()).thenReturn(List.of(
+                partition("error_rest", "2026-01-01T00:00:00Z", null)));
+
+        errorPartitionHousekeeping.createPartitions(NOW);
+
+        verify(errorTablePartitions, never()).createPartition(any(), any());
+    }
+
+    @Test
+    void dropExpiredPartitions_onlyExpiredPartitionsWithoutErrorsToKeep() {
+        Partition expired = partition("error_p20260301", "2026-03-01T00:00:00Z", "2026-04-01T00:00:00Z");
+        Partition expiredWithErrorsToKeep = partition("error_p20260401", "2026-04-01T00:00:00Z", "2026-05-01T00:00:00Z");
+        Partition notExpired = partition("error_p20260501", "2026-05-01T00:00:00Z", "2026-06-01T00:00:00Z");
+        when(errorTablePartitions.findPartitions()).thenReturn(List.of(
+                partition("error_default", null, null), expired, expiredWithErrorsToKeep, notExpired));
+        when(errorTablePartitions.containsErrorsInStatesOtherThan(expired, ERROR_STATES)).thenReturn(false);
+        when(errorTablePartitions.containsErrorsInStatesOtherThan(expiredWithErrorsToKeep, ERROR_STATES)).thenReturn(true);
+        when(errorTablePartitions.dropPartition(expired)).thenReturn(42L);
+
+        long droppedErrors = errorPartitionHousekeeping.dropExpiredPartitions(ZonedDateTime.parse("2026-05-15T00:00:00Z"));
+
+        assertThat(droppedErrors).isEqualTo(42);
+        verify(errorTablePartitions, never()).dropPartition(expiredWithErrorsToKeep);
+        verify(errorTablePartitions, never()).dropPartition(notExpired);
+        verify(errorStateCountRepository).reconcile();
+        verify(errorDimensionCountRepository).reconcile();
+        verify(errorGroupStatsRepository).reconcile();
+    }
+
+    @Test
+    void dropExpiredPartitions_noReconciliationIfNothingDropped() {
+        when(errorTablePartitions.findPartitions()).thenReturn(List.of(
+                partition("error_p20260501", "2026-05-01T00:00:00Z", "2026-06-01T00:00:00Z")));
+
+        long droppedErrors = errorPartitionHousekeeping.dropExpiredPartitions(ZonedDateTime.parse("2026-05-15T00:00:00Z"));
+
+        assertThat(droppedErrors).isZero();
+        verifyNoInteractions(errorStateCountRepository, errorDimensionCountRepository, errorGroupStatsRepository);
+    }
+
+    private static Partition partition(String name, String lowerBound, String upperBound) {
+        return new Partition(name, lowerBound != null ? instant(lowerBound) : null, upperBound != null ? instant(upperBound) : null);
+    }
+
+    private static Instant instant(String instant) {
+        return Instant.parse(instant);
+    }
+}
@@ -35,6 +35,7 @@ class HouseKeepingServiceIT extends ErrorHandlingITBase {
         assertThat(scheduledResendRepository.count()).isEqualTo(4);
         assertThat(auditLogRepository.count()).isEqualTo(4);
         assertThat(errorGroupRepository.count()).isEqualTo(4);
+        assertThat(stackTraceRepository.count()).isEqualTo(4);
 
         // when
         houseKeepingService.cleanup();
@@ -45,6 +46,7 @@ class HouseKeepingServiceIT extends ErrorHandlingITBase {
         assertThat(scheduledResendRepository.count()).isEqualTo(1);
         assertThat(auditLogRepository.count()).isEqualTo(1);
         assertThat(errorGroupRepository.count()).isEqualTo(1);
+        assertThat(stackTraceRepository.count()).isEqualTo(1);
     }
 
     @Test
@@ -71,6 +73,7 @@ class HouseKeepingServiceIT extends ErrorHandlingITBase {
         assertThat(scheduledResendRepository.count()).isEqualTo(2);
         assertThat(auditLogRepository.count()).isEqualTo(2);
         assertThat(errorGroupRepository.count()).isEqualTo(2);
+        assertThat(stackTraceRepository.count()).isEqualTo(2);
     }
 
     private UUID saveError(ZonedDateTime created) {
@@ -122,7 +125,7 @@ class HouseKeepingServiceIT extends ErrorHandlingITBase {
                         .code("123")
                         .temporality(ErrorEventData.Temporality.PERMANENT)
                         .message("test")
-                        .stackTrace("stacktrace")
+                        .stackTraceRef(stackTraceRepository.saveIfAbsent(StackTrace.of("stacktrace of " + metadata.getId())))
                         .stackTraceHash(UUID.randomUUID().toString())
                         .build())
                 .errorEventMetadata(metadata)
@@ -0,0 +1,81 @@
+package ch.admin.bit.jeap.errorhandling.domain.manualtask.outbox;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaskOutboxWorkerTest {
+
+    @Mock
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+    @Mock
+    private ErrorService errorService;
+
+    private TaskOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        TaskOutboxProperties properties = new TaskOutboxProperties();
+        properties.setInitialRetryDelay(Duration.ofSeconds(30));
+        properties.setMaxRetryDelay(Duration.ofMinutes(5));
+        worker = new TaskOutboxWorker(taskOutboxEntryRepository, errorService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void processBatch_completedEntriesAreNotRetried() {
+        TaskOutboxEntry completedEntry = new TaskOutboxEntry(UUID.randomUUID(), TaskOutboxEntry.Action.CREATE_TASK);
+        TaskOutboxEntry failedEntry = new TaskOutboxEntry(UUID.randomUUID(), TaskOutboxEntry.Action.CLOSE_TASK);
+        when(errorService.executeTaskOutboxEntry(completedEntry)).thenReturn(true);
+        when(errorService.executeTaskOutboxEntry(failedEntry)).thenReturn(false);
+
+        int completedEntries = worker.processBatch(List.of(completedEntry, failedEntry));
+
+        assertThat(completedEntries).isEqualTo(1);
+        assertThat(completedEntry.getAttempts()).isZero();
+        assertThat(failedEntry.getAttempts()).isEqualTo(1);
+        assertThat(failedEntry.getNextAttemptAt()).isAfter(ZonedDateTime.now().plusSeconds(20));
+        verify(taskOutboxEntryRepository).save(failedEntry);
+        verifyNoMoreInteractions(taskOutboxEntryRepository);
+    }
+
+    @Test
+    void processBatch_exceptionIsRetried() {
+        TaskOutboxEntry entry = new TaskOutboxEntry(UUID.randomUUID(), TaskOutboxEntry.Action.DELETE_TASK);
+        when(errorService.executeTaskOutboxEntry(entry)).thenThrow(new IllegalStateException("test"));
+
+        int completedEntries = worker.processBatch(List.of(entry));
+
+        assertThat(completedEntries).isZero();
+        assertThat(entry.getAttempts()).isEqualTo(1);
+        verify(taskOutboxEntryRepository).save(entry);
+    }
+
+    @Test
+    void retryDelay_doublesUpToMaximum() {
+        assertThat(worker.retryDelay(0)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(worker.retryDelay(1)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(worker.retryDelay(3)).isEqualTo(Duration.ofMinutes(4));
+        assertThat(worker.retryDelay(4)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(worker.retryDelay(1000)).isEqualTo(Duration.ofMinutes(5));
+    }
+}
@@ -1,8 +1,9 @@
 package ch.admin.bit.jeap.errorhandling.domain.metrics;
 
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorCountByClusterNameResult;
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupRepository;
-import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorGroupStatsRepository;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCount;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountKey;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorStateCountRepository;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
@@ -10,16 +11,12 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
-import java.util.Set;
 
 import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
-import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,16 +25,16 @@ class ErrorHandlingMetricsServiceTest {
     private SimpleMeterRegistry meterRegistry;
 
     @Mock
-    private ErrorRepository errorRepository;
+    private ErrorStateCountRepository errorStateCountRepository;
     @Mock
-    private ErrorGroupRepository errorGroupRepository;
+    private ErrorGroupStatsRepository errorGroupStatsRepository;
 
     private ErrorHandlingMetricsService metricsService;
 
     @BeforeEach
     void setUp() {
         meterRegistry = new SimpleMeterRegistry();
-        metricsService = new ErrorHandlingMetricsService(meterRegistry, errorRepository, errorGroupRepository);
+        metricsService = new ErrorHandlingMetricsService(meterRegistry, errorStateCountRepository, errorGroupStatsRepository);
     }
 
     @AfterEach
@@ -47,16 +44,17 @@ class ErrorHandlingMetricsServiceTest {
 
     @Test
     void initializeRegistersGaugesWithCountsFromRepositories() {
-        when(errorRepository.countErrorsInStateTemporaryRetryPending()).thenReturn(3);
-        when(errorRepository.countErrorsInStatesPermanentOrSendToManualTask()).thenReturn(7);
-        when(errorRepository.countErrorsInStateSendToManualTask()).thenReturn(4);
-        when(errorRepository.countErrorsInStateResolveOnManualTask()).thenReturn(2);
-        when(errorRepository.countErrorsInStateDeleteOnManualTask()).thenReturn(1);
-        when(errorGroupRepository.countErrorGroupsWithErrorsInStates(any())).thenReturn(5);
-        when(errorRepository.countOpenErrorsByStateAndClusterName()).thenReturn(List.of(
-                new ErrorCountByClusterNameResult("cluster-a", 10L),
-                new ErrorCountByClusterNameResult("cluster-b", 5L)
+        when(errorStateCountRepository.findAll()).thenReturn(List.of(
+                count(ErrorState.TEMPORARY_RETRY_PENDING, "cluster-a", "service-a", 2),
+                count(ErrorState.TEMPORARY_RETRY_PENDING, "cluster-b", "service-a", 1),
+                count(ErrorState.PERMANENT, "cluster-a", "service-a", 3),
+                count(ErrorState.SEND_TO_MANUALTASK, "cluster-a", "service-b", 4),
+                count(ErrorState.SEND_TO_MANUALTASK, "cluster-b", "service-b", 0),
+                count(ErrorState.RESOLVE_ON_MANUALTASK, "cluster-a", "service-a", 2),
+                count(ErrorState.DELETE_ON_MANUALTASK, "cluster-b", "service-a", 1),
+                count(ErrorState.PERMANENT_RETRIED, "cluster-b", "service-a", 8)
         ));
+        when(errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0)).thenReturn(5L);
 
         metricsService.initialize();
 
@@ -66,32 +64,30 @@ class ErrorHandlingMetricsServiceTest {
         Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_resolve").gauge().value()).isEqualTo(2);
         Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_delete").gauge().value()).isEqualTo(1);
         Assertions.assertThat(meterRegistry.get("eh_error_groups_with_open_errors").gauge().value()).isEqualTo(5);
-        Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-a").gauge().value()).isEqualTo(10);
-        Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-b").gauge().value()).isEqualTo(5);
-
-        @SuppressWarnings("unchecked")
-        ArgumentCaptor<Set<ErrorState>> statesCaptor = ArgumentCaptor.forClass(Set.class);
-        verify(errorGroupRepository).countErrorGroupsWithErrorsInStates(statesCaptor.capture());
-        Assertions.assertThat(statesCaptor.getValue())
-                .containsExactlyInAnyOrder(ErrorState.PERMANENT, ErrorState.SEND_TO_MANUALTASK);
+        Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-a").gauge().value()).isEqualTo(9);
+        Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-b").gauge().value()).isEqualTo(1);
     }
 
     @Test
     void updateGaugesRefreshesValues() {
-        when(errorRepository.countErrorsInStateTemporaryRetryPending()).thenReturn(1, 6);
-        when(errorRepository.countErrorsInStatesPermanentOrSendToManualTask()).thenReturn(2, 8);
-        when(errorRepository.countErrorsInStateSendToManualTask()).thenReturn(3, 4);
-        when(errorRepository.countErrorsInStateResolveOnManualTask()).thenReturn(4, 1);
-        when(errorRepository.countErrorsInStateDeleteOnManualTask()).thenReturn(5, 0);
-        when(errorGroupRepository.countErrorGroupsWithErrorsInStates(any())).thenReturn(2, 7);
-        when(errorRepository.countOpenErrorsByStateAndClusterName()).thenReturn(
+        when(errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0)).thenReturn(2L, 7L);
+        when(errorStateCountRepository.findAll()).thenReturn(
                 List.of(
-                        new ErrorCountByClusterNameResult("cluster-a", 10L),
-                        new ErrorCountByClusterNameResult("cluster-b", 5L)
+                        count(ErrorState.TEMPORARY_RETRY_PENDING, "cluster-a", "service-a", 1),
+                        count(ErrorState.PERMANENT, "cluster-a", "service-a", 9),
+                        count(ErrorState.RESOLVE_ON_MANUALTASK, "cluster-a", "service-a", 4),
+                        count(ErrorState.DELETE_ON_MANUALTASK, "cluster-a", "service-a", 5),
+                        count(ErrorState.SEND_TO_MANUALTASK, "cluster-b", "service-a", 5)
                 ),
                 List.of(
-                        new ErrorCountByClusterNameResult("cluster-a", 15L),
-                        new ErrorCountByClusterNameResult("cluster-c", 3L)
+                        count(ErrorState.TEMPORARY_RETRY_PENDING, "cluster-a", "service-a", 6),
+                        count(ErrorState.PERMANENT, "cluster-a", "service-a", 4),
+                        count(ErrorState.SEND_TO_MANUALTASK, "cluster-a", "service-a", 4),
+                        count(ErrorState.SEND_TO_MANUALTASK, "cluster-a", "service-b", 1),
+                        count(ErrorState.RESOLVE_ON_MANUALTASK, "cluster-a", "service-a", 1),
+                        count(ErrorState.DELETE_ON_MANUALTASK, "cluster-a", "service-a", 0),
+                        count(ErrorState.SEND_TO_MANUALTASK, "cluster-b", "service-a", 0),
+                        count(ErrorState.PERMANENT, "cluster-c", "service-a", 3)
                 )
         );
 
@@ -100,22 +96,22 @@ class ErrorHandlingMetricsServiceTest {
         metricsService.updateGauges();
 
         Assertions.assertThat(meterRegistry.get("eh_temporary_retry_pending").gauge().value()).isEqualTo(6);
-        Assertions.assertThat(meterRegistry.get("eh_permanent_open").gauge().value()).isEqualTo(8);
-        Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_create").gauge().value()).isEqualTo(4);
+        Assertions.assertThat(meterRegistry.get("eh_permanent_open").gauge().value()).isEqualTo(12);
+        Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_create").gauge().value()).isEqualTo(5);
         Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_resolve").gauge().value()).isEqualTo(1);
         Assertions.assertThat(meterRegistry.get("eh_permanent_pending_manualtask_delete").gauge().value()).isZero();
         Assertions.assertThat(meterRegistry.get("eh_error_groups_with_open_errors").gauge().value()).isEqualTo(7);
         Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-a").gauge().value()).isEqualTo(15);
         Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-c").gauge().value()).isEqualTo(3);
-        // cluster-b is not in the second result set anymore and is therefore reported as zero (and not removed)
+        // cluster-b has no open errors anymore and is therefore reported as zero (and not removed)
         Assertions.assertThat(meterRegistry.get("eh_open_errors_by_cluster").tag("cluster", "cluster-b").gauge().value()).isZero();
     }
 
     @Test
     void updateGaugesDoesNotReRegisterClusterGauges() {
-        when(errorRepository.countOpenErrorsByStateAndClusterName()).thenReturn(
-                List.of(new ErrorCountByClusterNameResult("cluster-a", 10L)),
-                List.of(new ErrorCountByClusterNameResult("cluster-a", 15L))
+        when(errorStateCountRepository.findAll()).thenReturn(
+                List.of(count(ErrorState.PERMANENT, "cluster-a", "service-a", 10)),
+                List.of(count(ErrorState.PERMANENT, "cluster-a", "service-a", 15))
         );
 
         metricsService.initialize();
@@ -132,14 +128,9 @@ class ErrorHandlingMetricsServiceTest {
 
     @Test
     void updateClusterMetricsHandlesNullClusterName() {
-        when(errorRepository.countErrorsInStateTemporaryRetryPending()).thenReturn(1);
-        when(errorRepository.countErrorsInStatesPermanentOrSendToManualTask()).thenReturn(1);
-        when(errorRepository.countErrorsInStateSendToManualTask()).thenReturn(1);
-        when(errorRepository.countErrorsInStateResolveOnManualTask()).thenReturn(1);
-        when(errorRepository.countErrorsInStateDeleteOnManualTask()).thenReturn(1);
-        when(errorGroupRepository.countErrorGroupsWithErrorsInStates(any())).thenReturn(1);
-        when(errorRepository.countOpenErrorsByStateAndClusterName()).thenReturn(List.of(
-                new ErrorCountByClusterNameResult(null, 7L)
+        when(errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0)).thenReturn(1L);
+        when(errorStateCountRepository.findAll()).thenReturn(List.of(
+                count(ErrorState.PERMANENT, ErrorStateCountKey.NO_CLUSTER_NAME, "service-a", 7)
         ));
 
         metricsService.initialize();
@@ -170,4 +161,8 @@ class ErrorHandlingMetricsServiceTest {
         Assertions.assertThat(meterRegistry.get("eh_created_permanent_errors").tags("causing_service", "service-b")
                 .counter().count()).isEqualTo(1);
     }
+
+    private static ErrorStateCount count(ErrorState state, String clusterName, String publisherService, long errorCount) {
+        return new ErrorStateCount(new ErrorStateCountKey(state, clusterName, publisherService), errorCount);
+    }
 }
@@ -0,0 +1,100 @@
+package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResendRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClaimingResendSchedulerTest {
+
+    @Mock
+    private ScheduledResendRepository scheduledResendRepository;
+    @Mock
+    private ScheduledResendExecutor scheduledResendExecutor;
+
+    private ClaimingResendScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ResendSchedulerConfigProperties properties = new ResendSchedulerConfigProperties();
+        properties.setClaimingEnabled(true);
+        scheduler = new ClaimingResendScheduler(scheduledResendRepository, properties, scheduledResendExecutor);
+    }
+
+    @Test
+    void executePendingSchedules_resendsClaimedScheduledResendsAndReleasesClaims() {
+        ScheduledResend second = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(1));
+        ScheduledResend first = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(2));
+        List<UUID> claimedIds = List.of(first.getId(), second.getId());
+        when(scheduledResendRepository.claimDueScheduledResends(anyString(), any(), any(), anyInt()))
+                .thenReturn(claimedIds, List.of());
+        when(scheduledResendRepository.findAllById(claimedIds)).thenReturn(List.of(second, first));
+
+        scheduler.executePendingSchedules();
+
+        verify(scheduledResendExecutor).resend(List.of(first, second));
+        verify(scheduledResendRepository).releaseClaims(anyString(), eq(claimedIds));
+    }
+
+    @Test
+    void executePendingSchedules_failedScheduledResendsStayClaimed() {
+        ScheduledResend failing = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(2));
+        ScheduledResend succeeding = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(1));
+        List<UUID> claimedIds = List.of(failing.getId(), succeeding.getId());
+        when(scheduledResendRepository.claimDueScheduledResends(anyString(), any(), any(), anyInt()))
+                .thenReturn(claimedIds, List.of());
+        when(scheduledResendRepository.findAllById(claimedIds)).thenReturn(List.of(failing, succeeding));
+        when(scheduledResendExecutor.resend(List.of(failing, succeeding))).thenReturn(List.of(failing));
+
+        scheduler.executePendingSchedules();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UUID>> releasedIds = ArgumentCaptor.forClass(Collection.class);
+        verify(scheduledResendRepository).releaseClaims(anyString(), releasedIds.capture());
+        assertThat(releasedIds.getValue()).containsExactly(succeeding.getId());
+    }
+
+    @Test
+    void executePendingSchedules_skipsScheduledResendsHandledInTheMeantime() {
+        ScheduledResend cancelled = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(1));
+        cancelled.cancel();
+        List<UUID> claimedIds = List.of(cancelled.getId());
+        when(scheduledResendRepository.claimDueScheduledResends(anyString(), any(), any(), anyInt()))
+                .thenReturn(claimedIds, List.of());
+        when(scheduledResendRepository.findAllById(claimedIds)).thenReturn(List.of(cancelled));
+
+        scheduler.executePendingSchedules();
+
+        verify(scheduledResendExecutor).resend(List.of());
+        verify(scheduledResendRepository).releaseClaims(anyString(), eq(claimedIds));
+    }
+
+    @Test
+    void executePendingSchedules_stopsAfterMaxConsecutiveChunks() {
+        ScheduledResend scheduledResend = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(1));
+        List<UUID> claimedIds = List.of(scheduledResend.getId());
+        when(scheduledResendRepository.claimDueScheduledResends(anyString(), any(), any(), anyInt())).thenReturn(claimedIds);
+        when(scheduledResendRepository.findAllById(claimedIds)).thenReturn(List.of(scheduledResend));
+
+        scheduler.executePendingSchedules();
+
+        verify(scheduledResendRepository, times(50)).claimDueScheduledResends(anyString(), any(), any(), eq(20));
+    }
+}
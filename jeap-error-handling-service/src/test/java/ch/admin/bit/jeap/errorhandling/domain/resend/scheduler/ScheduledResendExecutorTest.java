@@ -0,0 +1,76 @@
+package ch.admin.bit.jeap.errorhandling.domain.resend.scheduler;
+
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.error.ScheduledResendOutcome;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ScheduledResend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduledResendExecutorTest {
+
+    @Mock
+    private ErrorService errorService;
+    @InjectMocks
+    private ScheduledResendExecutor scheduledResendExecutor;
+
+    private ScheduledResend first;
+    private ScheduledResend second;
+    private List<ScheduledResendOutcome> outcomes;
+
+    @BeforeEach
+    void setUp() {
+        first = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(2));
+        second = new ScheduledResend(UUID.randomUUID(), ZonedDateTime.now().minusMinutes(1));
+        outcomes = List.of(new ScheduledResendOutcome(first, null), new ScheduledResendOutcome(second, "failed"));
+    }
+
+    @Test
+    void resend_sendsChunkAndRecordsOutcome() {
+        when(errorService.sendScheduledResends(List.of(first, second))).thenReturn(outcomes);
+
+        List<ScheduledResend> failed = scheduledResendExecutor.resend(List.of(first, second));
+
+        assertThat(failed).isEmpty();
+        verify(errorService).recordScheduledResends(outcomes);
+        verifyNoMoreInteractions(errorService);
+    }
+
+    @Test
+    void resend_recordingFails_recordsOneByOneWithoutSendingAgain() {
+        when(errorService.sendScheduledResends(List.of(first, second))).thenReturn(outcomes);
+        doThrow(new IllegalStateException("test")).when(errorService).recordScheduledResends(outcomes);
+        doThrow(new IllegalStateException("test")).when(errorService).recordScheduledResend(outcomes.get(1));
+
+        List<ScheduledResend> failed = scheduledResendExecutor.resend(List.of(first, second));
+
+        assertThat(failed).containsExactly(second);
+        verify(errorService).recordScheduledResend(outcomes.get(0));
+        verify(errorService).sendScheduledResends(any());
+        verify(errorService, never()).scheduledResend(any());
+    }
+
+    @Test
+    void resend_sendingFails_resendsOneByOne() {
+        doThrow(new IllegalStateException("test")).when(errorService).sendScheduledResends(List.of(first, second));
+        doThrow(new IllegalStateException("test")).when(errorService).scheduledResend(first);
+
+        List<ScheduledResend> failed = scheduledResendExecutor.resend(List.of(first, second));
+
+        assertThat(failed).containsExactly(first);
+        verify(errorService).scheduledResend(second);
+        verify(errorService, never()).recordScheduledResends(any());
+    }
+}
@@ -45,13 +45,13 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         assertThat(errorRepository.findAll()).isEmpty();
 
         //when
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(1);
+        reactivate(1);
 
         //then
         awaitSingleErrorInRepository(1);
 
         //when
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(1);
+        reactivate(1);
 
         //then
         awaitSingleErrorInRepository(2);
@@ -66,7 +66,7 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         assertThat(errorRepository.findAll()).isEmpty();
 
         //when
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(3);
+        reactivate(3);
 
         //then
         awaitSingleErrorInRepository(3);
@@ -80,7 +80,7 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         assertThat(errorRepository.findAll()).isEmpty();
 
         //when
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(3);
+        reactivate(3);
 
         //then
         awaitSingleErrorInRepository(2);
@@ -91,7 +91,7 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         sendSync(DEAD_LETTER_TOPIC, createMessageProcessingFailedEvent());
         sendSync(DEAD_LETTER_TOPIC, createMessageProcessingFailedEvent());
 
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(2);
+        reactivate(2);
         awaitSingleErrorInRepository(2);
 
         // poll the dead-letter topic with the same consumer group used by the batch consumer
@@ -109,6 +109,28 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         }
     }
 
+    @Test
+    void start_jobReportsProgress() {
+        sendSync(DEAD_LETTER_TOPIC, createMessageProcessingFailedEvent());
+        sendSync(DEAD_LETTER_TOPIC, createMessageProcessingFailedEvent());
+
+        DeadLetterReactivationJob job = reactivate(5);
+
+        assertThat(job.getState()).isEqualTo(DeadLetterReactivationJob.State.COMPLETED);
+        assertThat(job.getRecordsRead()).isEqualTo(2);
+        assertThat(job.getRecordsWritten()).isEqualTo(2);
+        assertThat(job.getCommittedOffsets()).isNotEmpty();
+        assertThat(kafkaDeadLetterBatchConsumerProducer.findJob(job.getId())).contains(job);
+        awaitSingleErrorInRepository(2);
+    }
+
+    private DeadLetterReactivationJob reactivate(int maxRecords) {
+        DeadLetterReactivationJob job = kafkaDeadLetterBatchConsumerProducer.start(maxRecords);
+        await("dead letter reactivation has finished").atMost(FORTY_SECONDS)
+                .until(job::isFinished);
+        return job;
+    }
+
     private void awaitSingleErrorInRepository(int size) {
         await("failure has been recorded in repository").atMost(FORTY_SECONDS)
                 .until(() -> errorRepository.findAll().size() == size);
@@ -188,7 +210,7 @@ class KafkaDeadLetterBatchConsumerProducerIT extends ErrorHandlingITBase {
         assertThat(errorRepository.findAll()).isEmpty();
 
         // when
-        kafkaDeadLetterBatchConsumerProducer.consumeAndProduce(1);
+        reactivate(1);
 
         // then
         awaitSingleErrorInRepository(1);
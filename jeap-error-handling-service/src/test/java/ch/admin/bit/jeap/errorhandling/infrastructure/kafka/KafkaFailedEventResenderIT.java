@@ -34,6 +34,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -213,6 +214,22 @@ class KafkaFailedEventResenderIT extends ErrorHandlingITBase {
         }
     }
 
+    @Test
+    void resendAll_allEventsResentInOrder() {
+        final Error first = ErrorStubs.createTemporaryErrorWithAvroMagicBytePayload(KafkaProperties.DEFAULT_CLUSTER);
+        final Error second = ErrorStubs.createTemporaryErrorWithAvroMagicBytePayload(KafkaProperties.DEFAULT_CLUSTER);
+        final Error third = ErrorStubs.createTemporaryErrorWithAvroMagicBytePayload(KafkaProperties.DEFAULT_CLUSTER);
+
+        BatchResendResult result = kafkaFailedEventResender.resendAll(List.of(first, second, third));
+
+        assertThat(result.failures()).isEmpty();
+        ConsumerRecords<Object, Object> consumerRecords = consumeAllEvents();
+        assertThat(Streams.stream(consumerRecords).map(consumerRecord -> (byte[]) consumerRecord.value()).toList())
+                .containsExactly(first.getCausingEventMessage().getPayload(),
+                        second.getCausingEventMessage().getPayload(),
+                        third.getCausingEventMessage().getPayload());
+    }
+
     @SuppressWarnings("SameParameterValue")
     private void assertHeaders(ConsumerRecord<Object, Object> consumerRecord, String headerName, int expectedCount, String expectedValue) {
         Iterable<Header> allHeaders = consumerRecord.headers().headers(headerName);
@@ -0,0 +1,122 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.kafka;
+
+import ch.admin.bit.jeap.messaging.avro.errorevent.MessageProcessingFailedEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageProcessingFailedEventBatchListenerTest {
+
+    private static final String CLUSTER_NAME = "test-cluster";
+
+    @Mock
+    private BatchErrorEventHandler batchErrorEventHandler;
+
+    @Mock
+    private ErrorEventHandler errorEventHandler;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private MessageProcessingFailedEvent firstEvent;
+
+    @Mock
+    private MessageProcessingFailedEvent secondEvent;
+
+    private MessageProcessingFailedEventBatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new MessageProcessingFailedEventBatchListener(batchErrorEventHandler, errorEventHandler, CLUSTER_NAME);
+    }
+
+    @Test
+    void onMessage_shouldProcessBatchAndAcknowledgeWhenSuccessful() {
+        listener.onMessage(createConsumerRecords(firstEvent, secondEvent), acknowledgment);
+
+        verify(batchErrorEventHandler).handleBatch(CLUSTER_NAME, List.of(firstEvent, secondEvent));
+        verifyNoInteractions(errorEventHandler);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void onMessage_shouldFallBackToRecordByRecordProcessingWhenBatchFails() {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(batchErrorEventHandler).handleBatch(anyString(), anyList());
+
+        listener.onMessage(createConsumerRecords(firstEvent, secondEvent), acknowledgment);
+
+        verify(errorEventHandler).handle(CLUSTER_NAME, firstEvent);
+        verify(errorEventHandler).handle(CLUSTER_NAME, secondEvent);
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void onMessage_shouldThrowBatchListenerFailedExceptionForFailingRecord() {
+        List<ConsumerRecord<Object, MessageProcessingFailedEvent>> consumerRecords = createConsumerRecords(firstEvent, secondEvent);
+        doThrow(new IllegalStateException("batch failed"))
+                .when(batchErrorEventHandler).handleBatch(anyString(), anyList());
+        doNothing().when(errorEventHandler).handle(CLUSTER_NAME, firstEvent);
+        doThrow(new NullPointerException("poison"))
+                .when(errorEventHandler).handle(CLUSTER_NAME, secondEvent);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> listener.onMessage(consumerRecords, acknowledgment));
+
+        assertSame(consumerRecords.get(1), exception.getRecord());
+        assertInstanceOf(FatalEhsProcessingException.class, exception.getCause());
+        verify(errorEventHandler).handle(CLUSTER_NAME, firstEvent);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void onMessage_shouldClassifyRecoverableExceptionOfFailingRecord() {
+        List<ConsumerRecord<Object, MessageProcessingFailedEvent>> consumerRecords = createConsumerRecords(firstEvent);
+        DataAccessResourceFailureException dbDown = new DataAccessResourceFailureException("DB connection failed");
+        doThrow(dbDown).when(batchErrorEventHandler).handleBatch(anyString(), anyList());
+        doThrow(dbDown).when(errorEventHandler).handle(CLUSTER_NAME, firstEvent);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> listener.onMessage(consumerRecords, acknowledgment));
+
+        assertInstanceOf(RecoverableEhsProcessingException.class, exception.getCause());
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void onMessage_shouldProcessRecordByRecordWhenARecordCouldNotBeDeserialized() {
+        List<ConsumerRecord<Object, MessageProcessingFailedEvent>> consumerRecords = createConsumerRecords(firstEvent, null);
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class,
+                () -> listener.onMessage(consumerRecords, acknowledgment));
+
+        assertSame(consumerRecords.get(1), exception.getRecord());
+        verifyNoInteractions(batchErrorEventHandler);
+        verify(errorEventHandler).handle(CLUSTER_NAME, firstEvent);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    private List<ConsumerRecord<Object, MessageProcessingFailedEvent>> createConsumerRecords(MessageProcessingFailedEvent... events) {
+        List<ConsumerRecord<Object, MessageProcessingFailedEvent>> consumerRecords = new ArrayList<>();
+        for (int offset = 0; offset < events.length; offset++) {
+            consumerRecords.add(new ConsumerRecord<>("test-topic", 0, offset, null, events[offset]));
+        }
+        return consumerRecords;
+    }
+}
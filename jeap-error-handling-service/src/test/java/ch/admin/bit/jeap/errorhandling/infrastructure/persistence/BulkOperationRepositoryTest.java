@@ -0,0 +1,106 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PersistenceTestConfig.class)
+class BulkOperationRepositoryTest {
+
+    private static final User USER = User.builder()
+            .authContext("USER")
+            .subject("subject")
+            .givenName("Given")
+            .familyName("Family")
+            .build();
+
+    @Autowired
+    private BulkOperationRepository bulkOperationRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void start_progress_finish() {
+        UUID id = bulkOperationRepository.save(BulkOperation.resend(null, USER)).getId();
+
+        assertThat(bulkOperationRepository.start(id, 3L)).isEqualTo(1);
+        bulkOperationRepository.addProgress(id, 2, 1, 0);
+        bulkOperationRepository.addProgress(id, 0, 0, 1);
+        bulkOperationRepository.finish(id, State.COMPLETED, null);
+
+        BulkOperation operation = read(id);
+        assertThat(operation.getState()).isEqualTo(State.COMPLETED);
+        assertThat(operation.getErrorsMatched()).isEqualTo(3L);
+        assertThat(operation.getErrorsProcessed()).isEqualTo(2);
+        assertThat(operation.getErrorsSkipped()).isEqualTo(1);
+        assertThat(operation.getErrorsFailed()).isEqualTo(1);
+        assertThat(operation.getFinished()).isNotNull();
+        assertThat(operation.getUser()).isEqualTo(USER);
+    }
+
+    @Test
+    void cancel_queuedOperationIsCancelledRightAway() {
+        UUID id = bulkOperationRepository.save(BulkOperation.delete(UUID.randomUUID(), "reason", USER)).getId();
+
+        assertThat(bulkOperationRepository.cancel(id)).isTrue();
+
+        assertThat(read(id).getState()).isEqualTo(State.CANCELLED);
+        assertThat(bulkOperationRepository.start(id, 1L)).isZero();
+    }
+
+    @Test
+    void cancel_runningOperationIsRequestedToStop() {
+        UUID id = bulkOperationRepository.save(BulkOperation.resend(null, USER)).getId();
+        bulkOperationRepository.start(id, 1L);
+
+        assertThat(bulkOperationRepository.cancel(id)).isTrue();
+
+        assertThat(bulkOperationRepository.isCancelRequested(id)).isTrue();
+        assertThat(read(id).getState()).isEqualTo(State.RUNNING);
+    }
+
+    @Test
+    void cancel_finishedOperationIsUnchanged() {
+        UUID id = bulkOperationRepository.save(BulkOperation.resend(null, USER)).getId();
+        bulkOperationRepository.start(id, 1L);
+        bulkOperationRepository.finish(id, State.COMPLETED, null);
+
+        assertThat(bulkOperationRepository.cancel(id)).isFalse();
+
+        assertThat(read(id).getState()).isEqualTo(State.COMPLETED);
+        assertThat(read(id).isCancelRequested()).isFalse();
+    }
+
+    @Test
+    void failStale_onlyUnfinishedOperationsWithoutProgress() {
+        UUID stale = bulkOperationRepository.save(BulkOperation.resend(null, USER)).getId();
+        UUID finished = bulkOperationRepository.save(BulkOperation.resend(null, USER)).getId();
+        bulkOperationRepository.start(stale, 1L);
+        bulkOperationRepository.start(finished, 1L);
+        bulkOperationRepository.finish(finished, State.COMPLETED, null);
+
+        assertThat(bulkOperationRepository.failStale(ZonedDateTime.now().minusMinutes(10))).isZero();
+        assertThat(bulkOperationRepository.failStale(ZonedDateTime.now().plusMinutes(1))).isEqualTo(1);
+
+        BulkOperation staleOperation = read(stale);
+        assertThat(staleOperation.getState()).isEqualTo(State.FAILED);
+        assertThat(staleOperation.getFailureMessage()).isEqualTo("Interrupted");
+        assertThat(read(finished).getState()).isEqualTo(State.COMPLETED);
+    }
+
+    private BulkOperation read(UUID id) {
+        testEntityManager.flush();
+        testEntityManager.clear();
+        return bulkOperationRepository.findById(id).orElseThrow();
+    }
+}
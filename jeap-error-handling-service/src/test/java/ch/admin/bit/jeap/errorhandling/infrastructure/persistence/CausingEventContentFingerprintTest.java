@@ -0,0 +1,69 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CausingEventContentFingerprintTest {
+
+    private static final MessageHeader FIRST_HEADER = header("first", "value-1");
+    private static final MessageHeader SECOND_HEADER = header("second", "value-2");
+
+    @Test
+    void of_sameContent_sameFingerprint() {
+        String fingerprint = CausingEventContentFingerprint.of(message("payload", 1), List.of(FIRST_HEADER, SECOND_HEADER), null);
+
+        assertThat(fingerprint)
+                .hasSize(64)
+                .isEqualTo(CausingEventContentFingerprint.of(message("payload", 1), List.of(FIRST_HEADER, SECOND_HEADER), null));
+    }
+
+    @Test
+    void of_ignoresOffsetAndHeaderOrder() {
+        assertThat(CausingEventContentFingerprint.of(message("payload", 1), List.of(FIRST_HEADER, SECOND_HEADER), null))
+                .isEqualTo(CausingEventContentFingerprint.of(message("payload", 42), List.of(SECOND_HEADER, FIRST_HEADER), null));
+    }
+
+    @Test
+    void of_differentPayloadOrHeaders_differentFingerprint() {
+        String fingerprint = CausingEventContentFingerprint.of(message("payload", 1), List.of(FIRST_HEADER), null);
+
+        assertThat(CausingEventContentFingerprint.of(message("other-payload", 1), List.of(FIRST_HEADER), null))
+                .isNotEqualTo(fingerprint);
+        assertThat(CausingEventContentFingerprint.of(message("payload", 1), List.of(FIRST_HEADER, SECOND_HEADER), null))
+                .isNotEqualTo(fingerprint);
+        assertThat(CausingEventContentFingerprint.of(message("payload", 1), null, null))
+                .isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void of_differentCompactHeaders_differentFingerprint() {
+        byte[] compactHeaders = CompactHeadersCodec.encode(List.of(CompactHeadersCodec.CompactHeader.inline("first", "value-1".getBytes(UTF_8))));
+        byte[] otherCompactHeaders = CompactHeadersCodec.encode(List.of(CompactHeadersCodec.CompactHeader.inline("first", "other".getBytes(UTF_8))));
+        String fingerprint = CausingEventContentFingerprint.of(message("payload", 1), List.of(), compactHeaders);
+
+        assertThat(CausingEventContentFingerprint.of(message("payload", 1), List.of(), compactHeaders.clone()))
+                .isEqualTo(fingerprint);
+        assertThat(CausingEventContentFingerprint.of(message("payload", 1), List.of(), otherCompactHeaders))
+                .isNotEqualTo(fingerprint);
+    }
+
+    private static EventMessage message(String payload, long offset) {
+        return EventMessage.builder()
+                .payload(payload.getBytes(UTF_8))
+                .topic("topic")
+                .clusterName("clusterName")
+                .offset(offset)
+                .build();
+    }
+
+    private static MessageHeader header(String name, String value) {
+        return MessageHeader.builder()
+                .headerName(name)
+                .headerValue(value.getBytes(UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorListItem.SIGNATURE_CERTIFICATE_HEADER_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+@DataJpaTest
+@Import(PersistenceTestConfig.class)
+class CausingEventHeadersTest {
+
+    private static final byte[] CERTIFICATE = "certificate".getBytes(UTF_8);
+
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private HeaderDictionaryRepository headerDictionaryRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void applyStorageFormat_compact_certificateStoredOnceInDictionary() {
+        CausingEventHeaders causingEventHeaders = causingEventHeaders(true);
+        CausingEvent first = createCausingEvent("event-id-1", header(SIGNATURE_CERTIFICATE_HEADER_NAME, CERTIFICATE), header("jeap-sign", "sign-1"));
+        CausingEvent second = createCausingEvent("event-id-2", header(SIGNATURE_CERTIFICATE_HEADER_NAME, CERTIFICATE), header("jeap-sign", "sign-2"));
+        causingEventHeaders.applyStorageFormat(first);
+        causingEventHeaders.applyStorageFormat(second);
+
+        causingEventRepository.upsertAll(List.of(first, second));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(countRows("message_header")).isZero();
+        assertThat(headerDictionaryRepository.findAll())
+                .extracting(HeaderDictionaryEntry::getHeaderValue)
+                .containsExactly(CERTIFICATE);
+        CausingEvent persistentFirst = causingEventRepository.findByCausingEventId("event-id-1").orElseThrow();
+        assertThat(persistentFirst.getHeaders()).isEmpty();
+        assertThat(persistentFirst.getSignatureCertificateDigest()).isEqualTo(HeaderDictionaryEntry.digestOf(CERTIFICATE));
+        assertThat(persistentFirst.getSignatureCertificate().getHeaderValue()).isEqualTo(CERTIFICATE);
+    }
+
+    @Test
+    void headersOf_compactHeadersAndHeaderRows() {
+        CausingEvent compact = createCausingEvent("event-id-1", header(SIGNATURE_CERTIFICATE_HEADER_NAME, CERTIFICATE), header("jeap-sign", "sign-1"));
+        causingEventHeaders(true).applyStorageFormat(compact);
+        CausingEvent rows = createCausingEvent("event-id-2", header("jeap-sign", "sign-2"));
+        causingEventHeaders(false).applyStorageFormat(rows);
+        causingEventRepository.upsertAll(List.of(compact, rows));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<CausingEvent> persistentCausingEvents = causingEventRepository.findAllByCausingEventIds(List.of("event-id-1", "event-id-2"));
+        Map<UUID, List<MessageHeader>> headers = causingEventHeaders(false).headersOf(persistentCausingEvents);
+
+        assertThat(headers.get(compact.getId()))
+                .extracting(MessageHeader::getHeaderName, header -> new String(header.getHeaderValue(), UTF_8))
+                .containsExactlyInAnyOrder(
+                        tuple(SIGNATURE_CERTIFICATE_HEADER_NAME, "certificate"),
+                        tuple("jeap-sign", "sign-1"));
+        assertThat(headers.get(rows.getId()))
+                .extracting(MessageHeader::getHeaderName)
+                .containsExactly("jeap-sign");
+    }
+
+    @Test
+    void applyStorageFormat_configuredDictionaryHeader() {
+        CausingEventHeadersProperties properties = new CausingEventHeadersProperties();
+        properties.setCompact(true);
+        properties.setDictionaryHeaderNames(Set.of("large-header"));
+        CausingEventHeaders causingEventHeaders = new CausingEventHeaders(properties, headerDictionaryRepository, new SimpleMeterRegistry());
+        CausingEvent causingEvent = createCausingEvent("event-id-1", header("large-header", "large-value"));
+
+        causingEventHeaders.applyStorageFormat(causingEvent);
+
+        assertThat(causingEvent.getSignatureCertificateDigest()).isNull();
+        assertThat(headerDictionaryRepository.findAll())
+                .extracting(HeaderDictionaryEntry::getHeaderValue)
+                .containsExactly("large-value".getBytes(UTF_8));
+        assertThat(causingEventHeaders.headersOf(causingEvent))
+                .extracting(MessageHeader::getHeaderValue)
+                .containsExactly("large-value".getBytes(UTF_8));
+    }
+
+    @Test
+    void applyStorageFormat_notCompact_headersUnchanged() {
+        CausingEvent causingEvent = createCausingEvent("event-id-1", header(SIGNATURE_CERTIFICATE_HEADER_NAME, CERTIFICATE));
+
+        causingEventHeaders(false).applyStorageFormat(causingEvent);
+
+        assertThat(causingEvent.getCompactHeaders()).isNull();
+        assertThat(causingEvent.getHeaders()).hasSize(1);
+        assertThat(headerDictionaryRepository.count()).isZero();
+    }
+
+    private CausingEventHeaders causingEventHeaders(boolean compact) {
+        CausingEventHeadersProperties properties = new CausingEventHeadersProperties();
+        properties.setCompact(compact);
+        return new CausingEventHeaders(properties, headerDictionaryRepository, new SimpleMeterRegistry());
+    }
+
+    private int countRows(String table) {
+        return ((Number) testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from " + table).getSingleResult()).intValue();
+    }
+
+    private static MessageHeader header(String name, String value) {
+        return header(name, value.getBytes(UTF_8));
+    }
+
+    private static MessageHeader header(String name, byte[] value) {
+        return MessageHeader.builder()
+                .headerName(name)
+                .headerValue(value)
+                .build();
+    }
+
+    private static CausingEvent createCausingEvent(String eventId, MessageHeader... headers) {
+        return CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload("payload".getBytes(UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(EventMetadata.builder()
+                        .id(eventId)
+                        .created(ZonedDateTime.now())
+                        .idempotenceId("idem")
+                        .publisher(EventPublisher.builder()
+                                .service("service")
+                                .system("system")
+                                .build())
+                        .type(EventType.builder()
+                                .name("name")
+                                .version("1.0.0")
+                                .build())
+                        .build())
+                .headers(new ArrayList<>(List.of(headers)))
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
@@ -9,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.sql.DataSource;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +31,8 @@ class CausingEventRepositoryTest {
     private TestEntityManager testEntityManager;
     @Autowired
     private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
 
 
     @Test
@@ -88,6 +92,82 @@ class CausingEventRepositoryTest {
                 .isZero();
     }
 
+    @Test
+    void upsert_newCausingEvent() {
+        CausingEvent causingEvent = createCausingEvent(getEventMetadata("event-id-1"), "payload");
+
+        CausingEvent persistentCausingEvent = causingEventRepository.upsert(causingEvent);
+        testEntityManager.flush();
+
+        assertThat(persistentCausingEvent.getId()).isEqualTo(causingEvent.getId());
+        assertThat(causingEventRepository.findByCausingEventId("event-id-1")).isPresent();
+    }
+
+    @Test
+    void upsert_existingCausingEvent_updatesExistingCausingEvent() {
+        MessageHeader persistedHeader = MessageHeader.builder()
+                .headerName("the-header")
+                .headerValue("the-value".getBytes(UTF_8))
+                .build();
+        CausingEvent existingCausingEvent = saveCausingEvent(getEventMetadata("event-id-1"), persistedHeader);
+        testEntityManager.flush();
+
+        MessageHeader newHeader = MessageHeader.builder()
+                .headerName("new-header")
+                .headerValue("new-value".getBytes(UTF_8))
+                .build();
+        CausingEvent persistentCausingEvent = causingEventRepository.upsert(createCausingEvent(getEventMetadata("event-id-1"), "new-payload", newHeader));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(persistentCausingEvent.getId()).isEqualTo(existingCausingEvent.getId());
+        CausingEvent causingEvent = causingEventRepository.findByCausingEventId("event-id-1").orElseThrow();
+        assertThat(causingEvent.getMessage().getPayload()).isEqualTo("new-payload".getBytes(UTF_8));
+        assertThat(causingEvent.getHeaders())
+                .extracting(MessageHeader::getHeaderName)
+                .containsExactly("new-header");
+    }
+
+    @Test
+    void upsert_unchangedContent_doesNotRewriteCausingEvent() {
+        CausingEvent existingCausingEvent = saveCausingEvent(getEventMetadata("event-id-1"), MessageHeader.builder()
+                .headerName("the-header")
+                .headerValue("the-value".getBytes(UTF_8))
+                .build());
+        testEntityManager.flush();
+        Long existingHeaderId = existingCausingEvent.getHeaders().get(0).getId();
+        testEntityManager.clear();
+
+        CausingEvent sameContent = createCausingEvent(getEventMetadata("event-id-1"), "test", MessageHeader.builder()
+                .headerName("the-header")
+                .headerValue("the-value".getBytes(UTF_8))
+                .build());
+        causingEventRepository.upsert(sameContent);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        CausingEvent causingEvent = causingEventRepository.findByCausingEventId("event-id-1").orElseThrow();
+        assertThat(causingEvent.getContentFingerprint()).isNotNull();
+        assertThat(causingEvent.getHeaders())
+                .extracting(MessageHeader::getId)
+                .containsExactly(existingHeaderId);
+    }
+
+    @Test
+    void upsertAll_sameCausingEventIdMoreThanOnce_latestOccurrenceWins() {
+        List<CausingEvent> persistentCausingEvents = causingEventRepository.upsertAll(List.of(
+                createCausingEvent(getEventMetadata("event-id-1"), "first"),
+                createCausingEvent(getEventMetadata("event-id-2"), "other"),
+                createCausingEvent(getEventMetadata("event-id-1"), "latest")));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(persistentCausingEvents).hasSize(2);
+        assertThat(causingEventRepository.count()).isEqualTo(2);
+        assertThat(causingEventRepository.findByCausingEventId("event-id-1").orElseThrow().getMessage().getPayload())
+                .isEqualTo("latest".getBytes(UTF_8));
+    }
+
     @Test
     void findCausingEventIdsWithoutError_foundNone() {
         CausingEvent causingEvent1 = saveCausingEvent(getEventMetadata("event-id-1"));
@@ -118,6 +198,35 @@ class CausingEventRepositoryTest {
         assertSlice(resultPage, false);
     }
 
+    @Test
+    void compressNextPage_compressesStoredPayloadsPageByPage() {
+        String payload = "uncompressed payload ".repeat(50);
+        causingEventRepository.save(createCausingEvent(getEventMetadata("event-id-1"), payload));
+        causingEventRepository.save(createCausingEvent(getEventMetadata("event-id-2"), payload));
+        testEntityManager.flush();
+        testEntityManager.clear();
+        PayloadCompressionProperties properties = new PayloadCompressionProperties();
+        properties.setCodec(PayloadCodec.LZ4);
+        CausingEventPayloads causingEventPayloads = new CausingEventPayloads(dataSource, new PayloadCompression(properties, new SimpleMeterRegistry()));
+
+        UUID lastOfFirstPage = causingEventPayloads.compressNextPage(null, 1);
+        UUID lastOfSecondPage = causingEventPayloads.compressNextPage(lastOfFirstPage, 1);
+
+        assertThat(lastOfFirstPage).isNotNull();
+        assertThat(lastOfSecondPage).isNotNull();
+        assertThat(causingEventPayloads.compressNextPage(lastOfSecondPage, 1)).isNull();
+        assertThat(causingEventPayloads.compressNextPage(null, 1)).isNull();
+        List<?> storedPayloads = testEntityManager.getEntityManager()
+                .createNativeQuery("select message_payload from causing_event").getResultList();
+        assertThat(storedPayloads)
+                .hasSize(2)
+                .allSatisfy(storedPayload -> assertThat((byte[]) storedPayload)
+                        .startsWith(PayloadCompression.MAGIC)
+                        .hasSizeLessThan(payload.length()));
+        assertThat(causingEventRepository.findByCausingEventId("event-id-2").orElseThrow().getMessage().getPayload())
+                .isEqualTo(payload.getBytes(UTF_8));
+    }
+
     private void assertSlice(Slice<UUID> slice, boolean hasNext) {
         assertThat(slice.hasNext()).isEqualTo(hasNext);
         assertThat(slice.getContent()).hasSize(1);
@@ -125,17 +234,20 @@ class CausingEventRepositoryTest {
 
 
     private CausingEvent saveCausingEvent(EventMetadata metadata, MessageHeader... messageHeaders) {
-        CausingEvent causingEvent = CausingEvent.builder()
+        return causingEventRepository.save(createCausingEvent(metadata, "test", messageHeaders));
+    }
+
+    private CausingEvent createCausingEvent(EventMetadata metadata, String payload, MessageHeader... messageHeaders) {
+        return CausingEvent.builder()
                 .message(EventMessage.builder()
                         .offset(1)
-                        .payload("test".getBytes(UTF_8))
+                        .payload(payload.getBytes(UTF_8))
                         .topic("topic")
                         .clusterName("clusterName")
                         .build())
                 .metadata(metadata)
                 .headers(List.of(messageHeaders))
                 .build();
-        return causingEventRepository.save(causingEvent);
     }
 
     private EventMetadata getEventMetadata(String eventId) {
@@ -0,0 +1,115 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.HeaderRow;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.HeaderWrites;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CausingEventUpsertStatement.UpsertResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CausingEventUpsertStatementTest {
+
+    private static final MessageHeader HEADER = MessageHeader.builder()
+            .headerName("name")
+            .headerValue("value".getBytes(UTF_8))
+            .build();
+
+    @Test
+    void sql_oneParameterPerColumnAndCausingEvent() {
+        String sql = CausingEventUpsertStatement.sql(3);
+
+        int columnCount = CausingEventUpsertStatement.COLUMNS.split(",").length;
+        assertThat(columnCount).isEqualTo(CausingEventUpsertStatement.PARAMETERS_PER_CAUSING_EVENT);
+        assertThat(sql.chars().filter(c -> c == '?').count()).isEqualTo(3L * columnCount);
+        assertThat(sql)
+                .startsWith("INSERT INTO causing_event (" + CausingEventUpsertStatement.COLUMNS + ") VALUES (")
+                .contains(" ON CONFLICT (metadata_id) DO UPDATE SET ")
+                .contains("WHERE causing_event.content_fingerprint IS DISTINCT FROM EXCLUDED.content_fingerprint")
+                .endsWith("RETURNING id, metadata_id, (xmax = 0) AS inserted");
+    }
+
+    @Test
+    void resultMapper_readsWhetherTheCausingEventHasBeenInserted() throws Exception {
+        UUID id = UUID.randomUUID();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getObject("id", UUID.class)).thenReturn(id);
+        when(resultSet.getString("metadata_id")).thenReturn("causing-event");
+        when(resultSet.getBoolean("inserted")).thenReturn(false);
+
+        UpsertResult upsertResult = CausingEventUpsertStatement.RESULT_MAPPER.mapRow(resultSet, 0);
+
+        assertThat(upsertResult).isEqualTo(new UpsertResult(id, "causing-event", false));
+    }
+
+    @Test
+    void headerWrites_insertedCausingEvent_insertsHeadersOnly() {
+        UUID id = UUID.randomUUID();
+
+        HeaderWrites headerWrites = CausingEventUpsertStatement.headerWrites(
+                List.of(new UpsertResult(id, "inserted", true)),
+                List.of(causingEvent("inserted", List.of(HEADER))));
+
+        assertThat(headerWrites.replacedHeadersOf()).isEmpty();
+        assertThat(headerWrites.headerRows()).containsExactly(new HeaderRow(id, HEADER));
+    }
+
+    @Test
+    void headerWrites_updatedCausingEvent_replacesHeadersOfTheExistingRow() {
+        UUID existingId = UUID.randomUUID();
+
+        HeaderWrites headerWrites = CausingEventUpsertStatement.headerWrites(
+                List.of(new UpsertResult(existingId, "updated", false)),
+                List.of(causingEvent("updated", List.of(HEADER))));
+
+        assertThat(headerWrites.replacedHeadersOf()).containsExactly(existingId);
+        assertThat(headerWrites.headerRows()).containsExactly(new HeaderRow(existingId, HEADER));
+    }
+
+    @Test
+    void headerWrites_updatedToCompactHeaders_deletesHeaderRowsWithoutInsertingAny() {
+        UUID existingId = UUID.randomUUID();
+
+        HeaderWrites headerWrites = CausingEventUpsertStatement.headerWrites(
+                List.of(new UpsertResult(existingId, "compact", false)),
+                List.of(causingEvent("compact", null)));
+
+        assertThat(headerWrites.replacedHeadersOf()).containsExactly(existingId);
+        assertThat(headerWrites.headerRows()).isEmpty();
+    }
+
+    @Test
+    void headerWrites_unchangedCausingEventNotReturned_keepsItsHeaders() {
+        HeaderWrites headerWrites = CausingEventUpsertStatement.headerWrites(
+                List.of(),
+                List.of(causingEvent("unchanged", List.of(HEADER))));
+
+        assertThat(headerWrites.replacedHeadersOf()).isEmpty();
+        assertThat(headerWrites.headerRows()).isEmpty();
+    }
+
+    private static CausingEvent causingEvent(String causingEventId, List<MessageHeader> headers) {
+        return CausingEvent.builder()
+                .metadata(EventMetadata.builder()
+                        .id(causingEventId)
+                        .idempotenceId("idempotence-" + causingEventId)
+                        .created(ZonedDateTime.now())
+                        .type(EventType.builder().name("name").version("1.0.0").build())
+                        .publisher(EventPublisher.builder().service("service").system("system").build())
+                        .build())
+                .message(EventMessage.builder()
+                        .payload("payload".getBytes(UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .headers(headers)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.CompactHeadersCodec.CompactHeader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactHeadersCodecTest {
+
+    private static final String DIGEST = HeaderDictionaryEntry.digestOf("certificate".getBytes(UTF_8));
+
+    @Test
+    void encode_decode_inlineValuesAndDictionaryReferences() {
+        byte[] compactHeaders = CompactHeadersCodec.encode(List.of(
+                CompactHeader.inline("jeap-sign", "signature".getBytes(UTF_8)),
+                CompactHeader.dictionaryReference("jeap-cert", DIGEST),
+                CompactHeader.inline("empty", new byte[0])));
+
+        List<CompactHeader> headers = CompactHeadersCodec.decode(compactHeaders);
+
+        assertThat(headers)
+                .extracting(CompactHeader::name)
+                .containsExactly("empty", "jeap-cert", "jeap-sign");
+        assertThat(headers.get(0).value()).isEmpty();
+        assertThat(headers.get(1).isDictionaryReference()).isTrue();
+        assertThat(headers.get(1).digest()).isEqualTo(DIGEST);
+        assertThat(headers.get(2).value()).isEqualTo("signature".getBytes(UTF_8));
+    }
+
+    @Test
+    void encode_headerOrderNotSignificant() {
+        CompactHeader first = CompactHeader.inline("first", "value-1".getBytes(UTF_8));
+        CompactHeader second = CompactHeader.dictionaryReference("second", DIGEST);
+
+        assertThat(CompactHeadersCodec.encode(List.of(first, second)))
+                .isEqualTo(CompactHeadersCodec.encode(List.of(second, first)));
+    }
+
+    @Test
+    void encode_dictionaryReferenceStoredAsRawDigest() {
+        byte[] inline = CompactHeadersCodec.encode(List.of(CompactHeader.inline("jeap-cert", new byte[2048])));
+        byte[] reference = CompactHeadersCodec.encode(List.of(CompactHeader.dictionaryReference("jeap-cert", DIGEST)));
+
+        assertThat(reference).hasSizeLessThan(64);
+        assertThat(inline).hasSizeGreaterThan(2048);
+    }
+
+    @Test
+    void decode_unsupportedFormatVersion_throws() {
+        assertThatThrownBy(() -> CompactHeadersCodec.decode(new byte[]{42, 0, 0, 0, 0}))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,100 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.ErrorChange.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DataJpaTest
+@Import({PersistenceTestConfig.class, ErrorChangeTracker.class, ErrorChangeBroadcaster.class, ErrorFeedProperties.class,
+        ErrorChangeTrackerTest.JsonMapperConfig.class})
+// The changes are only published when a transaction is committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ErrorChangeTrackerTest {
+
+    @Autowired
+    private ErrorChangeBroadcaster errorChangeBroadcaster;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<ErrorChange> changes = new CopyOnWriteArrayList<>();
+    private Runnable unsubscribe;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        unsubscribe = errorChangeBroadcaster.subscribe(changes::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        unsubscribe.run();
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+    }
+
+    @Test
+    void publishesInsertsAndStateChanges() {
+        Error error = storeError("1");
+        transactionTemplate.executeWithoutResult(status ->
+                errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.PERMANENT_RETRIED));
+
+        await().untilAsserted(() -> assertThat(changes).containsExactly(
+                new ErrorChange(Type.CREATED, error.getId(), ErrorState.PERMANENT, "service", null),
+                new ErrorChange(Type.CHANGED, error.getId(), ErrorState.PERMANENT_RETRIED, "service", null)));
+    }
+
+    @Test
+    void doesNotPublishRolledBackOrOtherChanges() {
+        Error error = storeError("1");
+        transactionTemplate.executeWithoutResult(status -> {
+            errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.DELETED);
+            errorRepository.flush();
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                errorRepository.findById(error.getId()).orElseThrow().setClosingReason("not a change of state"));
+        Error otherError = storeError("2");
+
+        // Changes are published in the order they have been committed
+        await().untilAsserted(() -> assertThat(changes).extracting(ErrorChange::errorId)
+                .containsExactly(error.getId(), otherError.getId()));
+    }
+
+    private Error storeError(String causingEventId) {
+        return transactionTemplate.execute(status ->
+                errorRepository.save(error(saveCausingEvent(causingEventRepository, causingEventId)).build()));
+    }
+
+    @TestConfiguration
+    static class JsonMapperConfig {
+        @Bean
+        JsonMapper jsonMapper() {
+            return JsonMapper.builder().build();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.errorEventData;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static java.util.stream.Collectors.toMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({PersistenceTestConfig.class, ErrorStateCountTracker.class})
+// The counts are only updated when a transaction is committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ErrorDimensionCountRepositoryTest {
+
+    private static final ErrorDimensionCountKey CODE_PENDING = new ErrorDimensionCountKey(ErrorDimension.ERROR_CODE, "code", ErrorState.TEMPORARY_RETRY_PENDING);
+    private static final ErrorDimensionCountKey CODE_RETRIED = new ErrorDimensionCountKey(ErrorDimension.ERROR_CODE, "code", ErrorState.TEMPORARY_RETRIED);
+    private static final ErrorDimensionCountKey PUBLISHER_PENDING = new ErrorDimensionCountKey(ErrorDimension.PUBLISHER, "service", ErrorState.TEMPORARY_RETRY_PENDING);
+    private static final ErrorDimensionCountKey PUBLISHER_RETRIED = new ErrorDimensionCountKey(ErrorDimension.PUBLISHER, "service", ErrorState.TEMPORARY_RETRIED);
+    private static final ErrorDimensionCountKey EVENT_NAME_PENDING = new ErrorDimensionCountKey(ErrorDimension.EVENT_NAME, "name", ErrorState.TEMPORARY_RETRY_PENDING);
+    private static final ErrorDimensionCountKey EVENT_NAME_RETRIED = new ErrorDimensionCountKey(ErrorDimension.EVENT_NAME, "name", ErrorState.TEMPORARY_RETRIED);
+
+    @Autowired
+    private ErrorDimensionCountRepository errorDimensionCountRepository;
+    @Autowired
+    private ErrorStateCountRepository errorStateCountRepository;
+    @Autowired
+    private ErrorStateCountTracker errorStateCountTracker;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+        errorStateCountRepository.deleteAll();
+        errorDimensionCountRepository.deleteAll();
+    }
+
+    @Test
+    void tracksInsertsStateChangesAndDeletions() {
+        Error error1 = storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        Error error2 = storeError("2", ErrorState.TEMPORARY_RETRY_PENDING);
+        assertThat(counts()).containsOnly(
+                Map.entry(CODE_PENDING, 2L), Map.entry(PUBLISHER_PENDING, 2L), Map.entry(EVENT_NAME_PENDING, 2L));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Error error = errorRepository.findById(error1.getId()).orElseThrow();
+            error.setState(ErrorState.TEMPORARY_RETRIED);
+        });
+        assertThat(counts())
+                .containsEntry(CODE_PENDING, 1L).containsEntry(CODE_RETRIED, 1L)
+                .containsEntry(PUBLISHER_PENDING, 1L).containsEntry(PUBLISHER_RETRIED, 1L)
+                .containsEntry(EVENT_NAME_PENDING, 1L).containsEntry(EVENT_NAME_RETRIED, 1L);
+
+        transactionTemplate.executeWithoutResult(status -> errorRepository.deleteById(error2.getId()));
+        assertThat(counts()).containsEntry(CODE_PENDING, 0L).containsEntry(CODE_RETRIED, 1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorStateCountTracker.errorsDeleted(Set.of(error1.getId()));
+            errorRepository.deleteAllById(Set.of(error1.getId()));
+        });
+        assertThat(counts().values()).containsOnly(0L);
+    }
+
+    @Test
+    void doesNotCountRolledBackChanges() {
+        Error error = storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.TEMPORARY_RETRIED);
+            errorRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(counts()).containsEntry(CODE_PENDING, 1L).doesNotContainKey(CODE_RETRIED);
+    }
+
+    @Test
+    void applyDeltas() {
+        transactionTemplate.executeWithoutResult(status ->
+                errorDimensionCountRepository.applyDeltas(Map.of(CODE_PENDING, 3L, CODE_RETRIED, 0L)));
+        transactionTemplate.executeWithoutResult(status ->
+                errorDimensionCountRepository.applyDeltas(Map.of(CODE_PENDING, -1L)));
+
+        assertThat(counts()).containsOnly(Map.entry(CODE_PENDING, 2L));
+    }
+
+    @Test
+    void reconcile() {
+        storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        storeError("2", ErrorState.TEMPORARY_RETRIED);
+        transactionTemplate.executeWithoutResult(status ->
+                errorDimensionCountRepository.applyDeltas(Map.of(CODE_PENDING, 5L,
+                        new ErrorDimensionCountKey(ErrorDimension.ERROR_CODE, "other-code", ErrorState.PERMANENT), 1L)));
+
+        int correctedCounts = errorDimensionCountRepository.reconcile();
+
+        assertThat(correctedCounts).isEqualTo(2);
+        assertThat(counts()).containsOnly(
+                Map.entry(CODE_PENDING, 1L), Map.entry(CODE_RETRIED, 1L),
+                Map.entry(PUBLISHER_PENDING, 1L), Map.entry(PUBLISHER_RETRIED, 1L),
+                Map.entry(EVENT_NAME_PENDING, 1L), Map.entry(EVENT_NAME_RETRIED, 1L));
+        assertThat(errorDimensionCountRepository.reconcile()).isZero();
+    }
+
+    private Map<ErrorDimensionCountKey, Long> counts() {
+        return errorDimensionCountRepository.findAll().stream()
+                .collect(toMap(ErrorDimensionCount::getKey, ErrorDimensionCount::getErrorCount));
+    }
+
+    private Error storeError(String causingEventId, ErrorState state) {
+        return transactionTemplate.execute(status -> errorRepository.save(
+                error(saveCausingEvent(causingEventRepository, causingEventId))
+                        .state(state)
+                        .errorEventData(errorEventData("code", ErrorEventData.Temporality.TEMPORARY))
+                        .build()));
+    }
+}
@@ -0,0 +1,126 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.causingEvent;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.errorEventData;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.eventMetadata;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({PersistenceTestConfig.class, ErrorDimensionTracker.class})
+// The values are only added when a transaction is committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ErrorDimensionValueRepositoryTest {
+
+    @Autowired
+    private ErrorDimensionValueRepository errorDimensionValueRepository;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    // The tracker remembers the values it has added across tests, so every test uses values of its own
+    private String suffix;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        suffix = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+        errorDimensionValueRepository.deleteAll();
+    }
+
+    @Test
+    void addsValuesOfStoredErrors() {
+        transactionTemplate.executeWithoutResult(status -> {
+            storeError("1");
+            storeError("2");
+        });
+
+        assertThat(errorDimensionValueRepository.findValues(ErrorDimension.PUBLISHER)).containsExactly("service-" + suffix);
+        assertThat(errorDimensionValueRepository.findValues(ErrorDimension.ERROR_CODE)).containsExactly("errorCode-" + suffix);
+        assertThat(errorDimensionValueRepository.findValues(ErrorDimension.EVENT_NAME)).containsExactly("name-" + suffix);
+    }
+
+    @Test
+    void doesNotAddValuesOfRolledBackErrors() {
+        transactionTemplate.executeWithoutResult(status -> {
+            storeError("1");
+            errorRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(errorDimensionValueRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void upsert() {
+        ErrorDimensionValueKey key = new ErrorDimensionValueKey(ErrorDimension.ERROR_CODE, "errorCode-" + suffix);
+        ZonedDateTime lastSeen = ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        transactionTemplate.executeWithoutResult(status ->
+                errorDimensionValueRepository.upsert(List.of(key), lastSeen.minusDays(1)));
+        transactionTemplate.executeWithoutResult(status ->
+                errorDimensionValueRepository.upsert(List.of(key), lastSeen));
+
+        assertThat(errorDimensionValueRepository.findAll())
+                .singleElement()
+                .satisfies(value -> assertThat(value.getLastSeen().toInstant()).isEqualTo(lastSeen.toInstant()));
+    }
+
+    @Test
+    void deleteUnused() {
+        transactionTemplate.executeWithoutResult(status -> storeError("1"));
+        ZonedDateTime longAgo = ZonedDateTime.now().minusDays(1);
+        ErrorDimensionValueKey used = new ErrorDimensionValueKey(ErrorDimension.ERROR_CODE, "errorCode-" + suffix);
+        ErrorDimensionValueKey unused = new ErrorDimensionValueKey(ErrorDimension.ERROR_CODE, "unused-" + suffix);
+        ErrorDimensionValueKey unusedButRecent = new ErrorDimensionValueKey(ErrorDimension.ERROR_CODE, "recent-" + suffix);
+        transactionTemplate.executeWithoutResult(status -> {
+            errorDimensionValueRepository.upsert(List.of(used, unused), longAgo);
+            errorDimensionValueRepository.upsert(List.of(unusedButRecent), ZonedDateTime.now());
+        });
+
+        int deleted = transactionTemplate.execute(status ->
+                errorDimensionValueRepository.deleteUnused(ZonedDateTime.now().minusHours(2)));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(errorDimensionValueRepository.findValues(ErrorDimension.ERROR_CODE))
+                .containsExactly("errorCode-" + suffix, "recent-" + suffix);
+        assertThat(errorDimensionValueRepository.findValues(ErrorDimension.PUBLISHER)).containsExactly("service-" + suffix);
+    }
+
+    private void storeError(String causingEventId) {
+        CausingEvent causingEvent = causingEventRepository.save(
+                causingEvent(eventMetadata(causingEventId, "service-" + suffix, "name-" + suffix)));
+        errorRepository.save(error(causingEvent)
+                .errorEventData(errorEventData("errorCode-" + suffix, ErrorEventData.Temporality.PERMANENT))
+                .errorEventMetadata(eventMetadata(causingEventId + "-error-event", "service-" + suffix, "name-" + suffix))
+                .build());
+    }
+}
@@ -2,6 +2,7 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 
 import ch.admin.bit.jeap.errorhandling.domain.group.ErrorGroupAggregatedData;
 import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -17,7 +18,6 @@ import org.springframework.test.context.jdbc.Sql;
 
 import java.time.ZonedDateTime;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -30,6 +30,14 @@ class ErrorGroupRepositoryTest {
 
     @Autowired
     private ErrorGroupRepository errorGroupRepository;
+    @Autowired
+    private ErrorGroupStatsRepository errorGroupStatsRepository;
+
+    @BeforeEach
+    void calculateErrorGroupStats() {
+        // The errors inserted by the scripts are not tracked
+        errorGroupStatsRepository.reconcile();
+    }
 
     @Test
     void testExistByTicketNumber_whenTicketExists_returnTrue() {
@@ -204,17 +212,39 @@ class ErrorGroupRepositoryTest {
     }
 
     @Test
-    void countErrorGroupsWithErrorsInStates_whenStateMatches_returnsNumberOfGroups() {
-        int count = errorGroupRepository.countErrorGroupsWithErrorsInStates(Set.of(Error.ErrorState.PERMANENT));
+    void testFindErrorGroupAggregatedDataFromStats_returnsSameDataAsAggregatedOverErrors() {
+        Pageable pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "latestErrorAt"));
+
+        Page<ErrorGroupAggregatedData> fromStats = errorGroupRepository.findErrorGroupAggregatedDataFromStats(
+                false, null, null, null, null, pageable);
+        Page<ErrorGroupAggregatedData> aggregated = errorGroupRepository.findErrorGroupAggregatedData(
+                false, null, null, null, null, null, null, pageable);
+
+        Assertions.assertThat(fromStats.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(fromStats.getContent())
+                .extracting(ErrorGroupAggregatedData::getGroupId, ErrorGroupAggregatedData::getErrorCount,
+                        data -> data.getFirstErrorAt().toInstant(), data -> data.getLatestErrorAt().toInstant())
+                .containsExactlyElementsOf(aggregated.getContent().stream()
+                        .map(data -> Assertions.tuple(data.getGroupId(), data.getErrorCount(),
+                                data.getFirstErrorAt().toInstant(), data.getLatestErrorAt().toInstant()))
+                        .toList());
+    }
+
+    @Test
+    void testFindErrorGroupAggregatedDataFromStats_appliesFilters() {
+        Page<ErrorGroupAggregatedData> result = errorGroupRepository.findErrorGroupAggregatedDataFromStats(
+                false, null, null, null, "TAPAS-144", PageRequest.of(0, 10));
 
-        Assertions.assertThat(count).isEqualTo(2);
+        Assertions.assertThat(result.getContent())
+                .extracting(ErrorGroupAggregatedData::getGroupId)
+                .containsExactly(UUID.fromString("4709d1b8-8585-4e13-91dd-eeab2392be71"));
     }
 
     @Test
-    void countErrorGroupsWithErrorsInStates_whenStateDoesNotMatch_returnsZero() {
-        int count = errorGroupRepository.countErrorGroupsWithErrorsInStates(Set.of(Error.ErrorState.SEND_TO_MANUALTASK));
+    void countByOpenErrorCountGreaterThan_returnsNumberOfGroupsWithOpenErrors() {
+        long count = errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0);
 
-        Assertions.assertThat(count).isZero();
+        Assertions.assertThat(count).isEqualTo(2);
     }
 
 }
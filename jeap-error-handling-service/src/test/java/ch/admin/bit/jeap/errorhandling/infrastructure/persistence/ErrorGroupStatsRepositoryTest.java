@@ -0,0 +1,185 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({PersistenceTestConfig.class, ErrorGroupStatsTracker.class})
+// The statistics are only updated when a transaction is committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ErrorGroupStatsRepositoryTest {
+
+    private static final ZonedDateTime FIRST = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(3);
+    private static final ZonedDateTime SECOND = FIRST.plusHours(1);
+    private static final ZonedDateTime THIRD = FIRST.plusHours(2);
+
+    @Autowired
+    private ErrorGroupStatsRepository errorGroupStatsRepository;
+    @Autowired
+    private ErrorGroupStatsTracker errorGroupStatsTracker;
+    @Autowired
+    private ErrorGroupRepository errorGroupRepository;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+    private ErrorGroup errorGroup;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        errorGroup = errorGroupRepository.save(new ErrorGroup("errorCode", "name", "service", "test", "stackTraceHash"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+        errorGroupRepository.deleteAll();
+    }
+
+    @Test
+    void tracksOpenErrorsOfGroup() {
+        Error error1 = storeError("1", ErrorState.SEND_TO_MANUALTASK, errorGroup, SECOND);
+        Error error2 = storeError("2", ErrorState.PERMANENT, errorGroup, FIRST);
+        Error error3 = storeError("3", ErrorState.PERMANENT, errorGroup, THIRD);
+        storeError("4", ErrorState.TEMPORARY_RETRY_PENDING, errorGroup, FIRST);
+        assertStats(3, FIRST, THIRD);
+
+        transactionTemplate.executeWithoutResult(status ->
+                errorRepository.findById(error2.getId()).orElseThrow().setState(ErrorState.PERMANENT_RETRIED));
+        assertStats(2, SECOND, THIRD);
+
+        transactionTemplate.executeWithoutResult(status -> errorRepository.deleteById(error3.getId()));
+        assertStats(1, SECOND, SECOND);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorGroupStatsTracker.errorsDeleted(Set.of(error1.getId()));
+            errorRepository.deleteAllById(Set.of(error1.getId()));
+        });
+        assertStats(0, null, null);
+        assertThat(errorGroupStatsRepository.countByOpenErrorCountGreaterThan(0)).isZero();
+    }
+
+    @Test
+    void tracksChangesOnlyFlushedWhileCommitting() {
+        // Neither the insert nor the assignment to the group is flushed before the transaction manager commits
+        Error error = storeError("1", ErrorState.PERMANENT, null, SECOND);
+        storeError("2", ErrorState.PERMANENT, errorGroup, FIRST);
+        assertStats(1, FIRST, FIRST);
+
+        transactionTemplate.executeWithoutResult(status ->
+                errorRepository.findById(error.getId()).orElseThrow().setErrorGroup(errorGroup));
+
+        assertStats(2, FIRST, SECOND);
+    }
+
+    @Test
+    void doesNotTrackRolledBackChanges() {
+        Error error = storeError("1", ErrorState.PERMANENT, errorGroup, FIRST);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.DELETED);
+            errorRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertStats(1, FIRST, FIRST);
+    }
+
+    @Test
+    void applyDeltas() {
+        UUID errorGroupId = errorGroup.getId();
+        transactionTemplate.executeWithoutResult(status ->
+                errorGroupStatsRepository.applyDeltas(Map.of(errorGroupId, ErrorGroupStatsDelta.opened(SECOND))));
+        transactionTemplate.executeWithoutResult(status ->
+                errorGroupStatsRepository.applyDeltas(Map.of(errorGroupId,
+                        ErrorGroupStatsDelta.opened(FIRST).merge(ErrorGroupStatsDelta.opened(THIRD)))));
+
+        assertStats(3, FIRST, THIRD);
+    }
+
+    @Test
+    void reconcile() {
+        storeError("1", ErrorState.PERMANENT, errorGroup, FIRST);
+        storeError("2", ErrorState.PERMANENT, null, SECOND);
+        transactionTemplate.executeWithoutResult(status ->
+                errorGroupStatsRepository.applyDeltas(Map.of(errorGroup.getId(), ErrorGroupStatsDelta.opened(THIRD))));
+
+        int correctedGroups = errorGroupStatsRepository.reconcile();
+
+        assertThat(correctedGroups).isEqualTo(1);
+        assertStats(1, FIRST, FIRST);
+        assertThat(errorGroupStatsRepository.reconcile()).isZero();
+    }
+
+    @Test
+    void reconcile_firstOpenErrorOfAGroupStoredMeanwhile_notCountedTwice() {
+        storeError("1", ErrorState.PERMANENT, errorGroup, FIRST);
+        ErrorGroup otherErrorGroup = errorGroupRepository.save(new ErrorGroup("errorCode", "name", "service", "test", "otherStackTraceHash"));
+        ErrorGroupStatsRepositoryCustomImpl reconciliation = new ErrorGroupStatsRepositoryCustomImpl(dataSource) {
+            @Override
+            void insertActualStats() {
+                // Another transaction stores the first open error of a group after the statistics have been deleted
+                CompletableFuture.runAsync(() -> storeError("2", ErrorState.PERMANENT, otherErrorGroup, SECOND)).join();
+                super.insertActualStats();
+            }
+        };
+
+        transactionTemplate.executeWithoutResult(status -> reconciliation.reconcile());
+
+        assertStats(1, FIRST, FIRST);
+        ErrorGroupStats otherStats = errorGroupStatsRepository.findById(otherErrorGroup.getId()).orElseThrow();
+        assertThat(otherStats.getOpenErrorCount()).isEqualTo(1);
+        assertThat(toInstant(otherStats.getFirstErrorAt())).isEqualTo(toInstant(SECOND));
+        assertThat(errorGroupStatsRepository.reconcile()).isZero();
+    }
+
+    private void assertStats(long openErrorCount, ZonedDateTime firstErrorAt, ZonedDateTime latestErrorAt) {
+        ErrorGroupStats stats = errorGroupStatsRepository.findById(errorGroup.getId()).orElseThrow();
+        assertThat(stats.getOpenErrorCount()).isEqualTo(openErrorCount);
+        assertThat(toInstant(stats.getFirstErrorAt())).isEqualTo(toInstant(firstErrorAt));
+        assertThat(toInstant(stats.getLatestErrorAt())).isEqualTo(toInstant(latestErrorAt));
+    }
+
+    private static Instant toInstant(ZonedDateTime timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private Error storeError(String causingEventId, ErrorState state, ErrorGroup errorGroup, ZonedDateTime created) {
+        return transactionTemplate.execute(status -> errorRepository.save(
+                error(saveCausingEvent(causingEventRepository, causingEventId))
+                        .state(state)
+                        .errorGroup(errorGroup)
+                        .created(created)
+                        .build()));
+    }
+}
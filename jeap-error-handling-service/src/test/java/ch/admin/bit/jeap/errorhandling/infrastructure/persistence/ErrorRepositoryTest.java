@@ -3,20 +3,25 @@ package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
 import ch.admin.bit.jeap.errorhandling.domain.housekeeping.RepositoryHousekeeping;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
 import ch.admin.bit.jeap.errorhandling.web.api.ErrorGroupListSearchCriteria;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +37,12 @@ class ErrorRepositoryTest {
     private CausingEventRepository causingEventRepository;
     @Autowired
     private ErrorGroupRepository errorGroupRepository;
+    @Autowired
+    private StackTraceRepository stackTraceRepository;
+    @Autowired
+    private HeaderDictionaryRepository headerDictionaryRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
 
     @BeforeEach
     void saveTestData() {
@@ -74,13 +85,22 @@ class ErrorRepositoryTest {
     }
 
     @Test
-    void countErrorsByErrorEventIdempotenceId() {
+    void existsByErrorEventMetadataIdempotenceId() {
         Error error = errorRepository.findAll().getFirst();
-        int counterNonExisting = errorRepository.countErrorsByErrorEventIdempotenceId("does-not-exist");
-        int counterOneError = errorRepository.countErrorsByErrorEventIdempotenceId(error.getErrorEventMetadata().getIdempotenceId());
 
-        assertEquals(0, counterNonExisting);
-        assertEquals(1, counterOneError);
+        assertThat(errorRepository.existsByErrorEventMetadataIdempotenceId(error.getErrorEventMetadata().getIdempotenceId())).isTrue();
+        assertThat(errorRepository.existsByErrorEventMetadataIdempotenceId("does-not-exist")).isFalse();
+    }
+
+    @Test
+    void streamErrorEventIdempotenceIdsCreatedSince() {
+        saveErrorWithOldData();
+
+        try (Stream<String> allIdempotenceIds = errorRepository.streamAllErrorEventIdempotenceIds();
+             Stream<String> recentIdempotenceIds = errorRepository.streamErrorEventIdempotenceIdsCreatedSince(ZonedDateTime.now().minusYears(1))) {
+            assertThat(allIdempotenceIds).hasSize((int) errorRepository.count());
+            assertThat(recentIdempotenceIds).hasSize((int) errorRepository.count() - 8);
+        }
     }
 
     @Test
@@ -92,17 +112,16 @@ class ErrorRepositoryTest {
     }
 
     @Test
-    void getAllEventSources() {
-        List<String> eventSources = errorRepository.getAllEventSources();
-        assertEquals(1, eventSources.size());
-        assertEquals("service", eventSources.getFirst());
-    }
-
-    @Test
-    void getAllErrorCodes() {
-        List<String> errorCodes = errorRepository.getAllErrorCodes();
-        assertEquals(1, errorCodes.size());
-        assertEquals("errorCode1", errorCodes.getFirst());
+    void countByDimension() {
+        Specification<Error> permanent = (root, query, builder) -> builder.equal(root.get("state"), ErrorState.PERMANENT);
+        long expectedCount = ErrorState.PERMANENT.ordinal() + 1;
+
+        assertThat(errorRepository.countByDimension(permanent, ErrorDimension.PUBLISHER))
+                .containsExactly(new ErrorDimensionValueCount("service", expectedCount));
+        assertThat(errorRepository.countByDimension(permanent, ErrorDimension.ERROR_CODE))
+                .containsExactly(new ErrorDimensionValueCount("errorCode1", expectedCount));
+        assertThat(errorRepository.countByDimension(permanent, ErrorDimension.EVENT_NAME))
+                .containsExactly(new ErrorDimensionValueCount("name", expectedCount));
     }
 
     @Test
@@ -130,9 +149,9 @@ class ErrorRepositoryTest {
                 .build();
         errorRepository.save(error);
 
-        Page<Error> result = errorRepository.findByGroupIdAndCriteria(errorGroup.getId(), null, Pageable.ofSize(10));
+        Page<ErrorListItem> result = errorRepository.findByGroupIdAndCriteria(errorGroup.getId(), null, Pageable.ofSize(10));
         assertThat(result.getContent()).hasSize(1);
-        assertEquals(errorGroup.getId(), result.getContent().getFirst().getErrorGroup().getId());
+        assertEquals(errorGroup.getId(), result.getContent().getFirst().getErrorGroupId());
     }
 
     @Test
@@ -165,17 +184,149 @@ class ErrorRepositoryTest {
                 .dateTo(ZonedDateTime.now().plusDays(1))
                 .build();
 
-        Page<Error> result = errorRepository.findByGroupIdAndCriteria(errorGroup.getId(), criteria, Pageable.ofSize(10));
+        Page<ErrorListItem> result = errorRepository.findByGroupIdAndCriteria(errorGroup.getId(), criteria, Pageable.ofSize(10));
         assertThat(result.getContent()).hasSize(1);
-        assertEquals(errorGroup.getId(), result.getContent().getFirst().getErrorGroup().getId());
+        assertEquals(errorGroup.getId(), result.getContent().getFirst().getErrorGroupId());
+    }
+
+    @Test
+    void findByGroupId_matchesStacktraceAndMessagePatterns() {
+        CausingEvent causingEvent = saveCausingEvent(getEventMetadata("event-id-group"));
+        ErrorGroup errorGroup = errorGroupRepository.save(new ErrorGroup("group-error-code", "group-event-name", "group-error-publisher", "group-error-message", "group-error-stack-trace-hash"));
+        // Errors created before stack traces were stored once per distinct text store their stack trace inline
+        Error nullPointer = saveErrorInGroupReferencingStackTrace(causingEvent, errorGroup, "Value of id_1 is null",
+                "java.lang.NullPointerException\n\tat ch.admin.bit.Service.process(Service.java:42)");
+        Error illegalState = saveErrorInGroup(causingEvent, errorGroup, "Value of id21 is 100% invalid",
+                "java.lang.IllegalStateException\n\tat ch.admin.bit.Service.validate(Service.java:17)");
+
+        assertThat(findIdsInGroup(errorGroup, ErrorGroupListSearchCriteria.builder()
+                .stacktracePattern(Pattern.compile("at ch\\.admin\\.bit\\.Service\\.process\\("))
+                .build()))
+                .containsExactly(nullPointer.getId());
+        assertThat(findIdsInGroup(errorGroup, ErrorGroupListSearchCriteria.builder()
+                .stacktracePattern(Pattern.compile("Service\\.java:\\d+"))
+                .build()))
+                .containsExactlyInAnyOrder(nullPointer.getId(), illegalState.getId());
+        assertThat(findIdsInGroup(errorGroup, ErrorGroupListSearchCriteria.builder()
+                .stacktracePattern(Pattern.compile("(Null|Illegal)[A-Za-z]*Exception"))
+                .messagePattern(Pattern.compile("100% invalid$"))
+                .build()))
+                .containsExactly(illegalState.getId());
+        assertThat(findIdsInGroup(errorGroup, ErrorGroupListSearchCriteria.builder()
+                .messagePattern(Pattern.compile("id_1 is"))
+                .build()))
+                .containsExactly(nullPointer.getId());
+        assertThat(findIdsInGroup(errorGroup, ErrorGroupListSearchCriteria.builder()
+                .stacktracePattern(Pattern.compile("ClassCastException"))
+                .build()))
+                .isEmpty();
     }
 
     @Test
     void findByGroupIdWithNotExistingGroupId_returnsEmpty() {
-        Page<Error> emptyResult = errorRepository.findByGroupIdAndCriteria(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), null, Pageable.ofSize(10));
+        Page<ErrorListItem> emptyResult = errorRepository.findByGroupIdAndCriteria(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"), null, Pageable.ofSize(10));
         assertThat(emptyResult.getContent()).isEmpty();
     }
 
+    @Test
+    void findListItems_ticketNumberAndSignatureCertificateJoined() {
+        byte[] certificate = "certificate".getBytes(StandardCharsets.UTF_8);
+        CausingEvent causingEvent = CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload("test".getBytes(StandardCharsets.UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(getEventMetadata("signed-event-id"))
+                .headers(new ArrayList<>(List.of(
+                        MessageHeader.builder().headerName("other-header").headerValue("other".getBytes(StandardCharsets.UTF_8)).build(),
+                        MessageHeader.builder().headerName(ErrorListItem.SIGNATURE_CERTIFICATE_HEADER_NAME).headerValue(certificate).build())))
+                .build();
+        causingEventRepository.save(causingEvent);
+        ErrorGroup errorGroup = new ErrorGroup("group-error-code", "group-event-name", "group-error-publisher", "group-error-message", "group-error-stack-trace-hash");
+        errorGroup.setTicketNumber("JEAP-1234");
+        errorGroupRepository.save(errorGroup);
+        Error error = Error.builder()
+                .state(ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorGroup(errorGroup)
+                .errorEventData(ErrorEventData.builder()
+                        .code("errorCode1")
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message("test")
+                        .stackTrace("test-stack-trace")
+                        .stackTraceHash("test-stack-trace-hash")
+                        .build())
+                .errorEventMetadata(getEventMetadata(UUID.randomUUID().toString()))
+                .created(ZonedDateTime.now())
+                .build();
+        errorRepository.save(error);
+
+        Page<ErrorListItem> result = errorRepository.findListItemsByStates(List.of(ErrorState.PERMANENT), Pageable.ofSize(100));
+
+        assertThat(result.getTotalElements()).isEqualTo(ErrorState.PERMANENT.ordinal() + 2);
+        ErrorListItem signedError = result.getContent().stream()
+                .filter(listItem -> listItem.getId().equals(error.getId()))
+                .findFirst().orElseThrow();
+        assertThat(signedError.getSignatureCertificate()).isEqualTo(certificate);
+        assertThat(signedError.getTicketNumber()).isEqualTo("JEAP-1234");
+        assertThat(signedError.getErrorGroupId()).isEqualTo(errorGroup.getId());
+        assertThat(signedError.getEventId()).isEqualTo("signed-event-id");
+        assertThat(result.getContent())
+                .filteredOn(listItem -> !listItem.getId().equals(error.getId()))
+                .allSatisfy(listItem -> {
+                    assertThat(listItem.getSignatureCertificate()).isNull();
+                    assertThat(listItem.getTicketNumber()).isNull();
+                });
+    }
+
+    @Test
+    void findListItems_signatureCertificateOfCompactHeadersJoinedFromDictionary() {
+        byte[] certificate = "certificate".getBytes(StandardCharsets.UTF_8);
+        CausingEvent causingEvent = CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload("test".getBytes(StandardCharsets.UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(getEventMetadata("compact-signed-event-id"))
+                .headers(new ArrayList<>(List.of(
+                        MessageHeader.builder().headerName(ErrorListItem.SIGNATURE_CERTIFICATE_HEADER_NAME).headerValue(certificate).build())))
+                .build();
+        CausingEventHeadersProperties properties = new CausingEventHeadersProperties();
+        properties.setCompact(true);
+        new CausingEventHeaders(properties, headerDictionaryRepository, new SimpleMeterRegistry()).applyStorageFormat(causingEvent);
+        causingEventRepository.save(causingEvent);
+        Error error = Error.builder()
+                .state(ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorEventData(ErrorEventData.builder()
+                        .code("errorCode1")
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message("test")
+                        .build())
+                .errorEventMetadata(getEventMetadata(UUID.randomUUID().toString()))
+                .created(ZonedDateTime.now())
+                .build();
+        errorRepository.save(error);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        Page<ErrorListItem> result = errorRepository.findListItemsByStates(List.of(ErrorState.PERMANENT), Pageable.ofSize(100));
+
+        ErrorListItem signedError = result.getContent().stream()
+                .filter(listItem -> listItem.getId().equals(error.getId()))
+                .findFirst().orElseThrow();
+        assertThat(signedError.getSignatureCertificate()).isEqualTo(certificate);
+        assertThat(ErrorListItem.of(errorRepository.findById(error.getId()).orElseThrow()).getSignatureCertificate())
+                .isEqualTo(certificate);
+        assertThat(result.getContent())
+                .filteredOn(listItem -> !listItem.getId().equals(error.getId()))
+                .allSatisfy(listItem -> assertThat(listItem.getSignatureCertificate()).isNull());
+    }
+
     @Test
     void countOpenErrorsByStateAndClusterName() {
         errorRepository.deleteAll();
@@ -327,4 +478,46 @@ class ErrorRepositoryTest {
                 .build();
         errorRepository.save(error);
     }
+
+    private Error saveErrorInGroup(CausingEvent causingEvent, ErrorGroup errorGroup, String message, String stackTrace) {
+        Error error = Error.builder()
+                .state(ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorGroup(errorGroup)
+                .errorEventData(ErrorEventData.builder()
+                        .code("errorCode1")
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message(message)
+                        .stackTrace(stackTrace)
+                        .stackTraceHash("test-stack-trace-hash")
+                        .build())
+                .errorEventMetadata(getEventMetadata(UUID.randomUUID().toString()))
+                .created(ZonedDateTime.now())
+                .build();
+        return errorRepository.save(error);
+    }
+
+    private Error saveErrorInGroupReferencingStackTrace(CausingEvent causingEvent, ErrorGroup errorGroup, String message, String stackTrace) {
+        Error error = Error.builder()
+                .state(ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorGroup(errorGroup)
+                .errorEventData(ErrorEventData.builder()
+                        .code("errorCode1")
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message(message)
+                        .stackTraceRef(stackTraceRepository.saveIfAbsent(StackTrace.of(stackTrace)))
+                        .stackTraceHash("test-stack-trace-hash")
+                        .build())
+                .errorEventMetadata(getEventMetadata(UUID.randomUUID().toString()))
+                .created(ZonedDateTime.now())
+                .build();
+        return errorRepository.save(error);
+    }
+
+    private List<UUID> findIdsInGroup(ErrorGroup errorGroup, ErrorGroupListSearchCriteria criteria) {
+        return errorRepository.findByGroupIdAndCriteria(errorGroup.getId(), criteria, Pageable.ofSize(10)).getContent().stream()
+                .map(ErrorListItem::getId)
+                .toList();
+    }
 }
@@ -0,0 +1,169 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.errorEventData;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static java.util.stream.Collectors.toMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({PersistenceTestConfig.class, ErrorStateCountTracker.class})
+// The counts are only updated when a transaction is committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ErrorStateCountRepositoryTest {
+
+    private static final ErrorStateCountKey RETRY_PENDING = new ErrorStateCountKey(ErrorState.TEMPORARY_RETRY_PENDING, "clusterName", "service");
+    private static final ErrorStateCountKey RETRIED = new ErrorStateCountKey(ErrorState.TEMPORARY_RETRIED, "clusterName", "service");
+    private static final ErrorStateCountKey PERMANENT = new ErrorStateCountKey(ErrorState.PERMANENT, "clusterName", "service");
+
+    @Autowired
+    private ErrorStateCountRepository errorStateCountRepository;
+    @Autowired
+    private ErrorDimensionCountRepository errorDimensionCountRepository;
+    @Autowired
+    private ErrorStateCountTracker errorStateCountTracker;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+        errorStateCountRepository.deleteAll();
+        errorDimensionCountRepository.deleteAll();
+    }
+
+    @Test
+    void tracksInsertsStateChangesAndDeletions() {
+        Error error1 = storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        Error error2 = storeError("2", ErrorState.TEMPORARY_RETRY_PENDING);
+        assertThat(counts()).containsEntry(RETRY_PENDING, 2L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Error error = errorRepository.findById(error1.getId()).orElseThrow();
+            error.setState(ErrorState.TEMPORARY_RETRIED);
+        });
+        assertThat(counts()).containsEntry(RETRY_PENDING, 1L).containsEntry(RETRIED, 1L);
+
+        transactionTemplate.executeWithoutResult(status -> errorRepository.deleteById(error2.getId()));
+        assertThat(counts()).containsEntry(RETRY_PENDING, 0L).containsEntry(RETRIED, 1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorStateCountTracker.errorsDeleted(Set.of(error1.getId()));
+            errorRepository.deleteAllById(Set.of(error1.getId()));
+        });
+        assertThat(counts()).containsEntry(RETRY_PENDING, 0L).containsEntry(RETRIED, 0L);
+    }
+
+    @Test
+    void tracksChangesOnlyFlushedWhileCommitting() {
+        // Neither the insert nor the state change is flushed before the transaction manager commits the transaction
+        Error error = storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        assertThat(counts()).containsEntry(RETRY_PENDING, 1L);
+
+        transactionTemplate.executeWithoutResult(status ->
+                errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.TEMPORARY_RETRIED));
+
+        assertThat(counts()).containsEntry(RETRY_PENDING, 0L).containsEntry(RETRIED, 1L);
+    }
+
+    @Test
+    void doesNotCountRolledBackChanges() {
+        Error error = storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            errorRepository.findById(error.getId()).orElseThrow().setState(ErrorState.TEMPORARY_RETRIED);
+            errorRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(counts()).containsEntry(RETRY_PENDING, 1L).doesNotContainKey(RETRIED);
+    }
+
+    @Test
+    void applyDeltas() {
+        transactionTemplate.executeWithoutResult(status ->
+                errorStateCountRepository.applyDeltas(Map.of(RETRY_PENDING, 3L, RETRIED, 0L)));
+        transactionTemplate.executeWithoutResult(status ->
+                errorStateCountRepository.applyDeltas(Map.of(RETRY_PENDING, -1L)));
+
+        assertThat(counts()).containsOnly(Map.entry(RETRY_PENDING, 2L));
+    }
+
+    @Test
+    void reconcile() {
+        storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        storeError("2", ErrorState.TEMPORARY_RETRIED);
+        transactionTemplate.executeWithoutResult(status ->
+                errorStateCountRepository.applyDeltas(Map.of(RETRY_PENDING, 5L,
+                        new ErrorStateCountKey(ErrorState.PERMANENT, ErrorStateCountKey.NO_CLUSTER_NAME, "other-service"), 1L)));
+
+        int correctedCounts = errorStateCountRepository.reconcile();
+
+        assertThat(correctedCounts).isEqualTo(2);
+        assertThat(counts()).containsOnly(Map.entry(RETRY_PENDING, 1L), Map.entry(RETRIED, 1L));
+        assertThat(errorStateCountRepository.reconcile()).isZero();
+    }
+
+    @Test
+    void reconcile_countOfANewKeyInsertedMeanwhile_notCountedTwice() {
+        storeError("1", ErrorState.TEMPORARY_RETRY_PENDING);
+        ErrorStateCountRepositoryCustomImpl reconciliation = new ErrorStateCountRepositoryCustomImpl(dataSource) {
+            @Override
+            void insertActualCounts() {
+                // Another transaction stores an error with a new key after the counts have been deleted
+                CompletableFuture.runAsync(() -> storeError("2", ErrorState.PERMANENT)).join();
+                super.insertActualCounts();
+            }
+        };
+
+        int correctedCounts = transactionTemplate.execute(status -> reconciliation.reconcile());
+
+        assertThat(correctedCounts).isEqualTo(1);
+        assertThat(counts()).containsOnly(Map.entry(RETRY_PENDING, 1L), Map.entry(PERMANENT, 1L));
+        assertThat(errorStateCountRepository.reconcile()).isZero();
+    }
+
+    private Map<ErrorStateCountKey, Long> counts() {
+        return errorStateCountRepository.findAll().stream()
+                .collect(toMap(ErrorStateCount::getKey, ErrorStateCount::getErrorCount));
+    }
+
+    private Error storeError(String causingEventId, ErrorState state) {
+        return transactionTemplate.execute(status -> errorRepository.save(
+                error(saveCausingEvent(causingEventRepository, causingEventId))
+                        .state(state)
+                        .errorEventData(errorEventData("errorCode", ErrorEventData.Temporality.TEMPORARY))
+                        .build()));
+    }
+}
@@ -0,0 +1,93 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadCompressionTest {
+
+    private static final byte[] PAYLOAD = "{\"type\":\"GoodsDeclarationAccepted\"}".repeat(100).getBytes(UTF_8);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @ParameterizedTest
+    @EnumSource(value = PayloadCodec.class, names = {"LZ4", "ZSTD"})
+    void compress_decompress_roundTrip(PayloadCodec codec) {
+        PayloadCompression payloadCompression = payloadCompression(codec);
+
+        byte[] stored = payloadCompression.compress(PAYLOAD);
+
+        assertThat(stored).startsWith(PayloadCompression.MAGIC).hasSizeLessThan(PAYLOAD.length);
+        assertThat(payloadCompression.decompress(stored)).isEqualTo(PAYLOAD);
+        assertThat(meterRegistry.get(PayloadCompression.COMPRESSION_RATIO_METRIC).gauge().value()).isGreaterThan(1.0);
+        assertThat(meterRegistry.get(PayloadCompression.CODEC_CPU_TIME_METRIC)
+                .tag("operation", "compress").tag("codec", codec.name()).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void compress_codecNone_storesPayloadAsItIs() {
+        assertThat(payloadCompression(PayloadCodec.NONE).compress(PAYLOAD)).isSameAs(PAYLOAD);
+    }
+
+    @Test
+    void compress_incompressiblePayload_storedUncompressedWithFormatMarker() {
+        byte[] incompressible = new byte[1024];
+        new Random(42).nextBytes(incompressible);
+        PayloadCompression payloadCompression = payloadCompression(PayloadCodec.ZSTD);
+
+        byte[] stored = payloadCompression.compress(incompressible);
+
+        assertThat(stored[PayloadCompression.MAGIC.length]).isEqualTo(PayloadCodec.NONE.id());
+        assertThat(Arrays.copyOfRange(stored, stored.length - incompressible.length, stored.length)).isEqualTo(incompressible);
+        assertThat(payloadCompression.decompress(stored)).isEqualTo(incompressible);
+    }
+
+    @Test
+    void decompress_payloadWithoutFormatMarker_readAsItIs() {
+        assertThat(payloadCompression(PayloadCodec.LZ4).decompress(PAYLOAD)).isSameAs(PAYLOAD);
+    }
+
+    @Test
+    void decompress_corruptPayload_fails() {
+        byte[] payload = new byte[32];
+        System.arraycopy(PayloadCompression.MAGIC, 0, payload, 0, PayloadCompression.MAGIC.length);
+        payload[PayloadCompression.MAGIC.length] = PayloadCodec.LZ4.id();
+        payload[PayloadCompression.MAGIC.length + Integer.BYTES] = 100;
+        PayloadCompression payloadCompression = payloadCompression(PayloadCodec.LZ4);
+
+        assertThatThrownBy(() -> payloadCompression.decompress(payload))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void decompress_unknownCodec_fails() {
+        byte[] stored = payloadCompression(PayloadCodec.ZSTD).compress(PAYLOAD);
+        stored[PayloadCompression.MAGIC.length] = 42;
+        PayloadCompression payloadCompression = payloadCompression(PayloadCodec.ZSTD);
+
+        assertThatThrownBy(() -> payloadCompression.decompress(stored))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unknown codec ID 42");
+    }
+
+    @Test
+    void uncompressed_readsCompressedPayloads() {
+        byte[] stored = payloadCompression(PayloadCodec.LZ4).compress(PAYLOAD);
+
+        assertThat(PayloadCompression.uncompressed().decompress(stored)).isEqualTo(PAYLOAD);
+    }
+
+    private PayloadCompression payloadCompression(PayloadCodec codec) {
+        PayloadCompressionProperties properties = new PayloadCompressionProperties();
+        properties.setCodec(codec);
+        return new PayloadCompression(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,71 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * Causing events and errors as stored by the repository tests. Event IDs get a random suffix, so that tests committing
+ * their data do not collide with the data of other tests.
+ */
+final class PersistenceTestData {
+
+    private PersistenceTestData() {
+    }
+
+    static EventMetadata eventMetadata(String eventId) {
+        return eventMetadata(eventId, "service", "name");
+    }
+
+    static EventMetadata eventMetadata(String eventId, String publisherService, String eventName) {
+        return EventMetadata.builder()
+                .id(eventId + "-" + UUID.randomUUID())
+                .created(ZonedDateTime.now())
+                .idempotenceId("idempotence-" + eventId)
+                .publisher(EventPublisher.builder()
+                        .service(publisherService)
+                        .system("system")
+                        .build())
+                .type(EventType.builder()
+                        .name(eventName)
+                        .version("1.0.0")
+                        .build())
+                .build();
+    }
+
+    static CausingEvent causingEvent(EventMetadata metadata) {
+        return CausingEvent.builder()
+                .message(EventMessage.builder()
+                        .offset(1)
+                        .payload("test".getBytes(StandardCharsets.UTF_8))
+                        .topic("topic")
+                        .clusterName("clusterName")
+                        .build())
+                .metadata(metadata)
+                .build();
+    }
+
+    static CausingEvent saveCausingEvent(CausingEventRepository causingEventRepository, String causingEventId) {
+        return causingEventRepository.save(causingEvent(eventMetadata(causingEventId)));
+    }
+
+    static ErrorEventData errorEventData(String code, ErrorEventData.Temporality temporality) {
+        return ErrorEventData.builder()
+                .code(code)
+                .temporality(temporality)
+                .message("test")
+                .build();
+    }
+
+    /**
+     * @return a permanent error caused by the given, already stored causing event, created now
+     */
+    static Error.ErrorBuilder error(CausingEvent causingEvent) {
+        return Error.builder()
+                .state(Error.ErrorState.PERMANENT)
+                .causingEvent(causingEvent)
+                .errorEventData(errorEventData("errorCode", ErrorEventData.Temporality.PERMANENT))
+                .errorEventMetadata(eventMetadata(causingEvent.getMetadata().getId() + "-error-event"))
+                .created(ZonedDateTime.now());
+    }
+}
@@ -0,0 +1,47 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RegexLiteralsTest {
+
+    @Test
+    void requiredLiterals_splitAtWildcardsAndCharacterClasses() {
+        assertThat(literals("NullPointerException.*at ch\\.admin\\.bit")).containsExactly("NullPointerException", "at ch.admin.bit");
+        assertThat(literals("Service\\.java:\\d+\\)")).containsExactly("Service.java:", ")");
+        assertThat(literals("^id [0-9a-f]{8} not found$")).containsExactly("id ", " not found");
+        assertThat(literals("[]a]bc")).containsExactly("bc");
+    }
+
+    @Test
+    void requiredLiterals_omitOptionalCharacters() {
+        assertThat(literals("colou?r")).containsExactly("colo", "r");
+        assertThat(literals("ab*c")).containsExactly("a", "c");
+        assertThat(literals("ab{0,2}c")).containsExactly("a", "c");
+        assertThat(literals("ab+c")).containsExactly("ab", "c");
+        assertThat(literals("ab[c]?de")).containsExactly("ab", "de");
+    }
+
+    @Test
+    void requiredLiterals_skipGroups() {
+        assertThat(literals("(Null|Illegal)[A-Za-z]*Exception")).containsExactly("Exception");
+        assertThat(literals("Timeout(?:Exception)? after")).containsExactly("Timeout", " after");
+    }
+
+    @Test
+    void requiredLiterals_noneIfAnyMatchMightNotContainThem() {
+        assertThat(literals("NullPointerException|IllegalStateException")).isEmpty();
+        assertThat(literals("(?i)exception")).isEmpty();
+        assertThat(literals("(?<!Illegal)StateException")).isEmpty();
+        assertThat(literals("\\Qa.b\\E")).isEmpty();
+        assertThat(RegexLiterals.requiredLiterals(Pattern.compile("exception", Pattern.CASE_INSENSITIVE))).isEmpty();
+    }
+
+    private static List<String> literals(String regex) {
+        return RegexLiterals.requiredLiterals(Pattern.compile(regex));
+    }
+}
@@ -0,0 +1,131 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.errorEventData;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PersistenceTestConfig.class)
+// Claims are made in a separate transaction, which must see the test data
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ScheduledResendRepositoryTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Autowired
+    private ScheduledResendRepository scheduledResendRepository;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+
+    private UUID errorId;
+
+    @BeforeEach
+    void setUp() {
+        errorId = storeError().getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduledResendRepository.deleteAll();
+        errorRepository.deleteAll();
+        causingEventRepository.deleteAll();
+    }
+
+    @Test
+    void claimDueScheduledResends_claimsDueScheduledResendsOldestFirst() {
+        ScheduledResend second = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(1)));
+        ScheduledResend first = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(2)));
+        scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().plusHours(1)));
+        ScheduledResend cancelled = new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(3));
+        cancelled.cancel();
+        scheduledResendRepository.save(cancelled);
+
+        assertThat(claim("instance-a", 1)).containsExactly(first.getId());
+        assertThat(claim("instance-a", 10)).containsExactly(second.getId());
+        assertThat(claim("instance-b", 10)).isEmpty();
+    }
+
+    @Test
+    void releaseClaims_makesScheduledResendsClaimableAgain() {
+        ScheduledResend scheduledResend = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(1)));
+        claim("instance-a", 10);
+
+        scheduledResendRepository.releaseClaims("instance-b", List.of(scheduledResend.getId()));
+        assertThat(claim("instance-b", 10)).isEmpty();
+
+        scheduledResendRepository.releaseClaims("instance-a", List.of(scheduledResend.getId()));
+        assertThat(claim("instance-b", 10)).containsExactly(scheduledResend.getId());
+    }
+
+    @Test
+    void claimDueScheduledResends_claimsScheduledResendsWithExpiredClaim() {
+        ScheduledResend scheduledResend = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(1)));
+        scheduledResendRepository.claimDueScheduledResends("crashed-instance", ZonedDateTime.now(), Duration.ofSeconds(-1), 10);
+
+        assertThat(claim("instance-a", 10)).containsExactly(scheduledResend.getId());
+    }
+
+    @Test
+    void claimDueScheduledResends_doesNotAffectJpaUpdates() {
+        ScheduledResend scheduledResend = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().minusMinutes(1)));
+        claim("instance-a", 10);
+
+        ScheduledResend claimedScheduledResend = scheduledResendRepository.findById(scheduledResend.getId()).orElseThrow();
+        claimedScheduledResend.setResentAt(ZonedDateTime.now());
+        scheduledResendRepository.save(claimedScheduledResend);
+
+        assertThat(scheduledResendRepository.findById(scheduledResend.getId()).orElseThrow().getResentAt()).isNotNull();
+        assertThat(claim("instance-b", 10)).isEmpty();
+    }
+
+    @Test
+    void findNextResendsByErrorIds_returnsEarliestPendingResendPerError() {
+        UUID otherErrorId = storeError().getId();
+        UUID unscheduledErrorId = storeError().getId();
+        scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().plusHours(2)));
+        ScheduledResend next = scheduledResendRepository.save(new ScheduledResend(errorId, ZonedDateTime.now().plusHours(1)));
+        ScheduledResend cancelled = new ScheduledResend(errorId, ZonedDateTime.now().plusMinutes(10));
+        cancelled.cancel();
+        scheduledResendRepository.save(cancelled);
+        ScheduledResend resent = new ScheduledResend(errorId, ZonedDateTime.now().plusMinutes(5));
+        resent.setResentAt(ZonedDateTime.now());
+        scheduledResendRepository.save(resent);
+        ScheduledResend otherNext = scheduledResendRepository.save(new ScheduledResend(otherErrorId, ZonedDateTime.now().plusHours(3)));
+
+        List<NextResendByErrorIdResult> nextResends = scheduledResendRepository.findNextResendsByErrorIds(
+                List.of(errorId, otherErrorId, unscheduledErrorId));
+
+        assertThat(nextResends).containsExactlyInAnyOrder(
+                new NextResendByErrorIdResult(errorId, scheduledResendRepository.findById(next.getId()).orElseThrow().getResendAt()),
+                new NextResendByErrorIdResult(otherErrorId, scheduledResendRepository.findById(otherNext.getId()).orElseThrow().getResendAt()));
+    }
+
+    private List<UUID> claim(String claimant, int maxNumItemsToClaim) {
+        return scheduledResendRepository.claimDueScheduledResends(claimant, ZonedDateTime.now(), LEASE, maxNumItemsToClaim);
+    }
+
+    private Error storeError() {
+        return errorRepository.save(error(saveCausingEvent(causingEventRepository, "causing-event"))
+                .state(ErrorState.TEMPORARY_RETRY_PENDING)
+                .errorEventData(errorEventData("errorCode", ErrorEventData.Temporality.TEMPORARY))
+                .build());
+    }
+}
@@ -0,0 +1,102 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PersistenceTestConfig.class)
+class StackTraceRepositoryTest {
+
+    @Autowired
+    private StackTraceRepository stackTraceRepository;
+    @Autowired
+    private ErrorRepository errorRepository;
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void saveIfAbsent_sameStackTraceStoredOnce() {
+        String hash = stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.NullPointerException"));
+        String sameHash = stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.NullPointerException"));
+        String otherHash = stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.IllegalStateException"));
+
+        assertThat(sameHash).isEqualTo(hash);
+        assertThat(otherHash).isNotEqualTo(hash);
+        assertThat(stackTraceRepository.count()).isEqualTo(2);
+        assertThat(stackTraceRepository.findById(hash).orElseThrow().getStackTrace())
+                .isEqualTo("java.lang.NullPointerException");
+    }
+
+    @Test
+    void saveIfAbsent_refreshesLastUseOnceDue() {
+        String hash = stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.NullPointerException"));
+        ZonedDateTime longAgo = ZonedDateTime.now().minusDays(1);
+        setLastUsed(hash, longAgo);
+
+        stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.NullPointerException"));
+        ZonedDateTime refreshed = stackTraceRepository.findById(hash).orElseThrow().getLastUsed();
+        stackTraceRepository.saveIfAbsent(StackTrace.of("java.lang.NullPointerException"));
+        testEntityManager.clear();
+
+        assertThat(refreshed).isAfter(longAgo);
+        // Not refreshed again before the refresh interval has passed
+        assertThat(stackTraceRepository.findById(hash).orElseThrow().getLastUsed().toInstant())
+                .isEqualTo(refreshed.toInstant());
+    }
+
+    @Test
+    void findUnreferencedStackTraceHashes_deleteAllByHashIn() {
+        String referenced = stackTraceRepository.saveIfAbsent(StackTrace.of("referenced"));
+        String unreferenced = stackTraceRepository.saveIfAbsent(StackTrace.of("unreferenced"));
+        String recentlyUsed = stackTraceRepository.saveIfAbsent(StackTrace.of("recently used"));
+        ZonedDateTime longAgo = ZonedDateTime.now().minusDays(1);
+        setLastUsed(referenced, longAgo);
+        setLastUsed(unreferenced, longAgo);
+        saveErrorReferencing(referenced);
+        testEntityManager.flush();
+        ZonedDateTime notUsedSince = ZonedDateTime.now().minusHours(2);
+
+        List<String> unreferencedHashes = stackTraceRepository.findUnreferencedStackTraceHashes(notUsedSince, Pageable.ofSize(10)).getContent();
+        assertThat(unreferencedHashes).containsExactly(unreferenced);
+
+        stackTraceRepository.deleteAllByHashIn(List.of(referenced, unreferenced, recentlyUsed), notUsedSince);
+        testEntityManager.clear();
+
+        // Referenced stack traces are never deleted, recently used ones may be referenced by an error not committed yet
+        assertThat(stackTraceRepository.findAll())
+                .extracting(StackTrace::getHash)
+                .containsExactlyInAnyOrder(referenced, recentlyUsed);
+    }
+
+    private void setLastUsed(String hash, ZonedDateTime lastUsed) {
+        testEntityManager.getEntityManager()
+                .createNativeQuery("UPDATE stack_trace SET last_used = ?1 WHERE hash = ?2")
+                .setParameter(1, lastUsed.toOffsetDateTime())
+                .setParameter(2, hash)
+                .executeUpdate();
+    }
+
+    private void saveErrorReferencing(String stackTraceRef) {
+        errorRepository.save(error(saveCausingEvent(causingEventRepository, "causing-event"))
+                .errorEventData(ErrorEventData.builder()
+                        .code("123")
+                        .temporality(ErrorEventData.Temporality.PERMANENT)
+                        .message("test")
+                        .stackTraceRef(stackTraceRef)
+                        .build())
+                .build());
+    }
+}
@@ -0,0 +1,78 @@
+package ch.admin.bit.jeap.errorhandling.infrastructure.persistence;
+
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error.ErrorState;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.error;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.PersistenceTestData.saveCausingEvent;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry.Action.CLOSE_TASK;
+import static ch.admin.bit.jeap.errorhandling.infrastructure.persistence.TaskOutboxEntry.Action.CREATE_TASK;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PersistenceTestConfig.class)
+class TaskOutboxEntryRepositoryTest {
+
+    @Autowired
+    private TaskOutboxEntryRepository taskOutboxEntryRepository;
+
+    @Autowired
+    private ErrorRepository errorRepository;
+
+    @Autowired
+    private CausingEventRepository causingEventRepository;
+
+    @Test
+    void findDueOldestFirst() {
+        TaskOutboxEntry second = new TaskOutboxEntry(UUID.randomUUID(), CLOSE_TASK);
+        TaskOutboxEntry retriedLater = new TaskOutboxEntry(UUID.randomUUID(), CREATE_TASK);
+        retriedLater.scheduleRetry(Duration.ofHours(1));
+        TaskOutboxEntry first = new TaskOutboxEntry(UUID.randomUUID(), CREATE_TASK);
+        first.scheduleRetry(Duration.ofMinutes(-1));
+        taskOutboxEntryRepository.saveAll(List.of(second, retriedLater, first));
+
+        List<TaskOutboxEntry> dueEntries = taskOutboxEntryRepository.findDueOldestFirst(ZonedDateTime.now(), 10);
+
+        assertThat(dueEntries).containsExactly(first, second);
+        assertThat(taskOutboxEntryRepository.findDueOldestFirst(ZonedDateTime.now(), 1)).containsExactly(first);
+    }
+
+    @Test
+    void findErrorIdsWithoutOutboxEntry() {
+        Error errorWithEntry = storeError("1", ErrorState.SEND_TO_MANUALTASK);
+        Error errorWithoutEntry = storeError("2", ErrorState.SEND_TO_MANUALTASK);
+        storeError("3", ErrorState.PERMANENT);
+        taskOutboxEntryRepository.save(new TaskOutboxEntry(errorWithEntry.getId(), CREATE_TASK));
+
+        List<UUID> errorIds = taskOutboxEntryRepository.findErrorIdsWithoutOutboxEntry(ErrorState.SEND_TO_MANUALTASK, 10);
+
+        assertThat(errorIds).containsExactly(errorWithoutEntry.getId());
+    }
+
+    @Test
+    void deleteAllByErrorIdIn() {
+        UUID errorId1 = UUID.randomUUID();
+        UUID errorId2 = UUID.randomUUID();
+        taskOutboxEntryRepository.save(new TaskOutboxEntry(errorId1, CREATE_TASK));
+        TaskOutboxEntry remainingEntry = taskOutboxEntryRepository.save(new TaskOutboxEntry(errorId2, CREATE_TASK));
+
+        taskOutboxEntryRepository.deleteAllByErrorIdIn(Set.of(errorId1));
+
+        assertThat(taskOutboxEntryRepository.findAll()).containsExactly(remainingEntry);
+    }
+
+    private Error storeError(String causingEventId, ErrorState state) {
+        return errorRepository.save(error(saveCausingEvent(causingEventRepository, causingEventId))
+                .state(state)
+                .build());
+    }
+}
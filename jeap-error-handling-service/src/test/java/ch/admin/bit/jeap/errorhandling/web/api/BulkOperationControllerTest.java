@@ -0,0 +1,118 @@
+package ch.admin.bit.jeap.errorhandling.web.api;
+
+import ch.admin.bit.jeap.errorhandling.domain.bulk.BulkOperationService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.BulkOperation;
+import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkOperationControllerTest {
+
+    private static final User USER = User.builder()
+            .authContext("USER")
+            .subject("subject")
+            .givenName("Given")
+            .familyName("Family")
+            .build();
+
+    @Test
+    void retryErrors_shouldSubmitOperation() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        BulkOperation operation = BulkOperation.resend(null, USER);
+        when(bulkOperationService.submitResend(any())).thenReturn(operation);
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        BulkOperationDTO dto = controller.retryErrors(new ErrorSearchFormDto());
+
+        assertEquals(operation.getId().toString(), dto.getId());
+        assertEquals("RESEND", dto.getAction());
+        assertEquals("QUEUED", dto.getState());
+        assertEquals("Given Family", dto.getSubmittedBy());
+        assertNull(dto.getErrorGroupId());
+    }
+
+    @Test
+    void deleteErrorsOfGroup_shouldSubmitOperationWithoutFilter() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        UUID errorGroupId = UUID.randomUUID();
+        BulkOperation operation = BulkOperation.delete(errorGroupId, "reason", USER);
+        when(bulkOperationService.submitDelete(eq(errorGroupId), any(), eq("reason"))).thenReturn(operation);
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        BulkOperationDTO dto = controller.deleteErrorsOfGroup(errorGroupId, "reason", null);
+
+        assertEquals("DELETE", dto.getAction());
+        assertEquals(errorGroupId.toString(), dto.getErrorGroupId());
+        assertEquals("reason", dto.getReason());
+    }
+
+    @Test
+    void deleteErrors_shouldRejectInvalidReason() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        when(bulkOperationService.submitDelete(any(), eq("x"))).thenThrow(new IllegalArgumentException("too long"));
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.deleteErrors(new ErrorSearchFormDto(), "x"));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void retryErrors_shouldRejectWhileTooManyOperationsAreRunning() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        when(bulkOperationService.submitResend(any())).thenThrow(new IllegalStateException("running"));
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.retryErrors(new ErrorSearchFormDto()));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void getBulkOperations_shouldReturnRecentOperations() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        BulkOperation operation = BulkOperation.resend(null, USER);
+        when(bulkOperationService.findRecentOperations()).thenReturn(List.of(operation));
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        List<BulkOperationDTO> dtos = controller.getBulkOperations();
+
+        assertEquals(1, dtos.size());
+        assertEquals(operation.getId().toString(), dtos.getFirst().getId());
+    }
+
+    @Test
+    void getBulkOperation_shouldReturnNotFoundForUnknownOperation() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        UUID operationId = UUID.randomUUID();
+        when(bulkOperationService.findOperation(operationId)).thenReturn(Optional.empty());
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.getBulkOperation(operationId).getStatusCode());
+    }
+
+    @Test
+    void cancelBulkOperation_shouldReturnNotFoundForUnknownOperation() {
+        BulkOperationService bulkOperationService = mock(BulkOperationService.class);
+        UUID operationId = UUID.randomUUID();
+        when(bulkOperationService.cancel(operationId)).thenReturn(Optional.empty());
+        BulkOperationController controller = new BulkOperationController(bulkOperationService);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.cancelBulkOperation(operationId));
+        assertEquals(HttpStatus.NOT_FOUND, ex.getStatusCode());
+    }
+}
@@ -1,14 +1,21 @@
 package ch.admin.bit.jeap.errorhandling.web.api;
 
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DeadLetterReactivationJob;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaDeadLetterBatchConsumerProducer;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class DeadLetterReactivationControllerTest {
 
@@ -29,13 +36,61 @@ class DeadLetterReactivationControllerTest {
     }
 
     @Test
-    void reactivateDeadLetters_shouldProcessMessagesAsync() {
+    void reactivateDeadLetters_shouldStartJob() {
+        KafkaDeadLetterBatchConsumerProducer mockProducer = mock(KafkaDeadLetterBatchConsumerProducer.class);
+        DeadLetterReactivationJob job = mockJob();
+        when(mockProducer.start(100)).thenReturn(job);
+
+        DeadLetterReactivationController controller = new DeadLetterReactivationController(mockProducer);
+
+        DeadLetterReactivationJobDTO dto = controller.reactivateDeadLetters(100);
+
+        verify(mockProducer).start(100);
+        assertEquals(job.getId().toString(), dto.getId());
+        assertEquals("RUNNING", dto.getState());
+        assertEquals(Map.of(0, 42L), dto.getCommittedOffsets());
+    }
+
+    @Test
+    void reactivateDeadLetters_shouldRejectWhileJobIsRunning() {
+        KafkaDeadLetterBatchConsumerProducer mockProducer = mock(KafkaDeadLetterBatchConsumerProducer.class);
+        when(mockProducer.start(100)).thenThrow(new IllegalStateException("running"));
+        DeadLetterReactivationController controller = new DeadLetterReactivationController(mockProducer);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.reactivateDeadLetters(100));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void getReactivationJob_unknownJob_notFound() {
         KafkaDeadLetterBatchConsumerProducer mockProducer = mock(KafkaDeadLetterBatchConsumerProducer.class);
+        UUID jobId = UUID.randomUUID();
+        when(mockProducer.findJob(jobId)).thenReturn(Optional.empty());
+        DeadLetterReactivationController controller = new DeadLetterReactivationController(mockProducer);
 
+        assertEquals(HttpStatus.NOT_FOUND, controller.getReactivationJob(jobId).getStatusCode());
+    }
+
+    @Test
+    void cancelReactivationJob_shouldCancelJob() {
+        KafkaDeadLetterBatchConsumerProducer mockProducer = mock(KafkaDeadLetterBatchConsumerProducer.class);
+        DeadLetterReactivationJob job = mockJob();
+        when(mockProducer.cancel(job.getId())).thenReturn(Optional.of(job));
         DeadLetterReactivationController controller = new DeadLetterReactivationController(mockProducer);
 
-        controller.reactivateDeadLetters(100);
+        DeadLetterReactivationJobDTO dto = controller.cancelReactivationJob(job.getId());
+
+        verify(mockProducer).cancel(job.getId());
+        assertEquals(job.getId().toString(), dto.getId());
+    }
 
-        verify(mockProducer).consumeAndProduce(100);
+    private static DeadLetterReactivationJob mockJob() {
+        DeadLetterReactivationJob job = mock(DeadLetterReactivationJob.class);
+        when(job.getId()).thenReturn(UUID.randomUUID());
+        when(job.getState()).thenReturn(DeadLetterReactivationJob.State.RUNNING);
+        when(job.getStarted()).thenReturn(ZonedDateTime.now());
+        when(job.getCommittedOffsets()).thenReturn(Map.of(0, 42L));
+        return job;
     }
 }
\ No newline at end of file
@@ -5,11 +5,15 @@ import ch.admin.bit.jeap.errorhandling.domain.audit.AuditLogService;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorList;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSearchService;
 import ch.admin.bit.jeap.errorhandling.domain.error.ErrorService;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSlice;
+import ch.admin.bit.jeap.errorhandling.domain.error.ErrorSliceRequest;
 import ch.admin.bit.jeap.errorhandling.domain.group.ErrorGroupService;
 import ch.admin.bit.jeap.errorhandling.domain.resend.scheduler.ScheduledResendService;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.BatchResendResult;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.DomainEventDeserializer;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.KafkaDeadLetterBatchConsumerProducer;
 import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendClusterProvider;
+import ch.admin.bit.jeap.errorhandling.infrastructure.kafka.ResendFailedException;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.*;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.AuditLog.AuditedAction;
 import ch.admin.bit.jeap.errorhandling.infrastructure.persistence.Error;
@@ -31,18 +35,22 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
 
 import org.mockito.ArgumentCaptor;
 
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -142,13 +150,51 @@ class ErrorControllerTest {
                 .doesNotThrowAnyException();
     }
 
+    @Test
+    @WithAuthentication("viewRoleToken")
+    void findErrorSlice_cursorPassedOnAndReturned() {
+        // given
+        Error permanentError = ErrorStubs.createPermanentError();
+        String cursor = new ErrorCursor(ZonedDateTime.now(), UUID.randomUUID()).encode();
+        ErrorListItem permanentErrorListItem = ErrorListItem.of(permanentError);
+        ErrorCursor nextCursor = ErrorCursor.of(permanentErrorListItem);
+        ArgumentCaptor<ErrorSliceRequest> requestCaptor = ArgumentCaptor.forClass(ErrorSliceRequest.class);
+        when(errorSearchService.searchSlice(any(ErrorSearchCriteria.class), requestCaptor.capture()))
+                .thenReturn(new ErrorSlice(List.of(permanentErrorListItem), nextCursor, null));
+
+        // when
+        ErrorSliceDTO result = errorController.findErrorSlice(cursor, 1, false, ErrorSearchFormDto.builder().build());
+
+        // then
+        assertEquals(cursor, requestCaptor.getValue().cursor().encode());
+        assertEquals(Sort.Direction.DESC, requestCaptor.getValue().direction());
+        assertEquals(1, requestCaptor.getValue().size());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(nextCursor.encode(), result.getNextCursor());
+        assertNull(result.getTotalErrorCount());
+    }
+
+    @Test
+    @WithAuthentication("viewRoleToken")
+    void findErrorSlice_sortedByOtherFieldOrInvalidCursor_badRequest() {
+        ErrorSearchFormDto sortedByEventName = ErrorSearchFormDto.builder().sortField("eventName").build();
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> errorController.findErrorSlice(null, 10, false, sortedByEventName));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+        exception = assertThrows(ResponseStatusException.class,
+                () -> errorController.findErrorSlice("invalid", 10, false, ErrorSearchFormDto.builder().build()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(errorSearchService);
+    }
+
     @Test
     @WithAuthentication("viewRoleToken")
     void listPermanentErrors() {
         // given
         Error permanentError = ErrorStubs.createPermanentError();
         int totalElements = 2;
-        ErrorList errorList = new ErrorList(totalElements, singletonList(permanentError));
+        ErrorList errorList = new ErrorList(totalElements, singletonList(ErrorListItem.of(permanentError)));
         doReturn(errorList).when(errorService).getPermanentErrorList(0, 10);
 
         // when
@@ -168,6 +214,27 @@ class ErrorControllerTest {
         assertNull(errorDTO.getStacktrace());
     }
 
+    @Test
+    @WithAuthentication("viewRoleToken")
+    void listTemporaryErrors_nextResendTimestampsLookedUpForWholePage() {
+        // given
+        Error scheduledError = ErrorStubs.createTemporaryError();
+        Error unscheduledError = ErrorStubs.createTemporaryError();
+        ErrorList errorList = new ErrorList(2, List.of(ErrorListItem.of(scheduledError), ErrorListItem.of(unscheduledError)));
+        doReturn(errorList).when(errorService).getTemporaryErrorList(0, 10);
+        ZonedDateTime timestamp = ZonedDateTime.parse("2007-12-03T10:15:30+01:00[Europe/Paris]");
+        doReturn(Map.of(scheduledError.getId(), timestamp)).when(scheduledResendService)
+                .getNextResendTimestamps(List.of(scheduledError.getId(), unscheduledError.getId()));
+
+        // when
+        ErrorListDTO response = errorController.listTemporaryErrors(0, 10);
+
+        // then
+        assertEquals("2007-12-03 10:15:30", response.getErrors().get(0).getNextResendTimestamp());
+        assertNull(response.getErrors().get(1).getNextResendTimestamp());
+        verify(scheduledResendService, never()).getNextResendTimestamp(any());
+    }
+
     @Test
     @WithAuthentication("viewRoleToken")
     void getErrorDetails_forPermanentError() {
@@ -175,6 +242,7 @@ class ErrorControllerTest {
         UUID errorId = stubPermanentError();
         final User user = getPamsUser();
         stubTwoAuditLogs(errorId, user);
+        doReturn("stack trace").when(errorService).getStackTrace(any());
 
         // when
         ErrorDTO response = errorController.getErrorDetails(errorId);
@@ -185,7 +253,7 @@ class ErrorControllerTest {
         assertNull(response.getNextResendTimestamp());
         assertFalse(response.isCanDelete());
         assertFalse(response.isCanRetry());
-        assertNotNull(response.getStacktrace());
+        assertEquals("stack trace", response.getStacktrace());
         assertEquals("topic, Partition 42, Offset 303", response.getEventTopicDetails());
         assertEquals("default", response.getEventClusterName());
         assertNotNull(response.getAuditLogDTOs());
@@ -209,6 +277,7 @@ class ErrorControllerTest {
         ZonedDateTime timestamp = ZonedDateTime.parse("2007-12-03T10:15:30+01:00[Europe/Paris]");
         doReturn(errorStub).when(errorService).getError(errorId);
         doReturn(timestamp).when(scheduledResendService).getNextResendTimestamp(errorId);
+        doReturn("stack trace").when(errorService).getStackTrace(errorStub);
 
         // when
         ErrorDTO response = errorController.getErrorDetails(errorId);
@@ -219,7 +288,7 @@ class ErrorControllerTest {
         assertEquals("2007-12-03 10:15:30", response.getNextResendTimestamp());
         assertFalse(response.isCanDelete());
         assertFalse(response.isCanRetry());
-        assertNotNull(response.getStacktrace());
+        assertEquals("stack trace", response.getStacktrace());
         assertNotNull(response.getAuditLogDTOs());
         assertEquals(2, response.getAuditLogDTOs().size());
         assertAuditLogDTO(response.getAuditLogDTOs().getFirst(), DELETE_ERROR, user);
@@ -321,10 +390,21 @@ class ErrorControllerTest {
         UUID errorId2 = UUID.randomUUID();
         List<UUID> errorIds = Arrays.asList(errorId1, errorId2);
 
+        when(errorService.manualResends(errorIds)).thenReturn(new BatchResendResult(Map.of()));
+
         errorController.retryEventList(errorIds);
 
-        verify(errorService).manualResend(errorId1);
-        verify(errorService).manualResend(errorId2);
+        verify(errorService).manualResends(errorIds);
+    }
+
+    @Test
+    @WithAuthentication("retryRoleToken")
+    void testRetryEventList_resendFailed_failureThrown() {
+        UUID errorId = UUID.randomUUID();
+        ResendFailedException failure = ResendFailedException.resendToKafkaFailed("causing-event-id", errorId, "topic", "default", new RuntimeException());
+        when(errorService.manualResends(List.of(errorId))).thenReturn(new BatchResendResult(Map.of(errorId, failure)));
+
+        assertThrows(ResendFailedException.class, () -> errorController.retryEventList(List.of(errorId)));
     }
 
     @Test
@@ -373,7 +453,7 @@ class ErrorControllerTest {
         final var errorSearchFormDto = ErrorSearchFormDto.builder().ticketNumber("TAPAS-745").build();
         Error permanentError = ErrorStubs.createPermanentError();
         int totalElements = 1;
-        ErrorList errorList = new ErrorList(totalElements, singletonList(permanentError));
+        ErrorList errorList = new ErrorList(totalElements, singletonList(ErrorListItem.of(permanentError)));
         when(errorSearchService.search(any(ErrorSearchCriteria.class))).thenReturn(errorList);
 
         //when
@@ -409,7 +489,7 @@ class ErrorControllerTest {
         final var errorSearchFormDto = ErrorSearchFormDto.builder().ticketNumber(null).build();
         Error permanentError = ErrorStubs.createPermanentError();
         int totalElements = 1;
-        ErrorList errorList = new ErrorList(totalElements, singletonList(permanentError));
+        ErrorList errorList = new ErrorList(totalElements, singletonList(ErrorListItem.of(permanentError)));
         when(errorSearchService.search(any(ErrorSearchCriteria.class))).thenReturn(errorList);
 
         //when
@@ -445,7 +525,7 @@ class ErrorControllerTest {
         final var errorSearchFormDto = ErrorSearchFormDto.builder().ticketNumber("TAPAS-745").build();
 
         int totalElements = 1;
-        ErrorList errorList = new ErrorList(totalElements, singletonList(mockError()));
+        ErrorList errorList = new ErrorList(totalElements, singletonList(ErrorListItem.of(mockError())));
 
         when(errorSearchService.search(any(ErrorSearchCriteria.class))).thenReturn(errorList);
 
@@ -461,7 +541,7 @@ class ErrorControllerTest {
     @Test
     @WithAuthentication("viewRoleToken")
     void testEagerFetchingOfErrorGroup() {
-        Error error = mockError();
+        ErrorListItem error = ErrorListItem.of(mockError());
         when(errorRepository.search(any(ErrorSearchCriteria.class), any(Pageable.class))).thenReturn(new PageImpl<>(List.of(error)));
 
         int totalElements = 1;
@@ -469,8 +549,8 @@ class ErrorControllerTest {
 
         when(errorSearchService.search(any(ErrorSearchCriteria.class))).thenReturn(errorList);
 
-        assertNotNull(errorList.getErrors().getFirst().getErrorGroup().getTicketNumber());
-        assertEquals("TAPAS-745", errorList.getErrors().getFirst().getErrorGroup().getTicketNumber());
+        assertNotNull(errorList.getErrors().getFirst().getTicketNumber());
+        assertEquals("TAPAS-745", errorList.getErrors().getFirst().getTicketNumber());
     }
 
     @Test
@@ -516,7 +596,7 @@ class ErrorControllerTest {
         ErrorGroupListSearchFormDto searchFormDto = ErrorGroupListSearchFormDto.builder().build();
         Error error = ErrorStubs.createPermanentError();
         int totalElements = 1;
-        ErrorList errorList = new ErrorList(totalElements, List.of(error));
+        ErrorList errorList = new ErrorList(totalElements, List.of(ErrorListItem.of(error)));
         when(errorService.getErrorListByGroupId(eq(groupId), any(ErrorGroupListSearchCriteria.class)))
                 .thenReturn(errorList);
 
@@ -20,6 +20,7 @@ export interface ErrorDTO {
 	originalTraceIdString: string;
 	closingReason: string;
 	auditLogDTOs: AuditLogDTO[];
+	attemptDTOs: ErrorAttemptDTO[];
 	ticketNumber: string;
 	freeText: string;
 	signed: boolean;
@@ -37,6 +38,13 @@ export interface AuditLogDTO {
 	familyName: string;
 }
 
+export interface ErrorAttemptDTO {
+	created: string;
+	errorEventIdempotenceId: string;
+	traceIdString: string;
+	message: string;
+}
+
 export interface ErrorListDTO {
 	totalErrorCount: number;
 	errors: ErrorDTO[];